@@ -0,0 +1,110 @@
+package com.example.chat.message;
+
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * So sánh việc ghi và đọc 10.000 tin nhắn qua Parcel thật của thiết bị: danh sách Message (writeTypedList,
+ * từng trường của từng tin nhắn) với MessageColumns (mỗi cột một mảng, bảng chuỗi dùng chung ghi một lần).
+ * Kích thước và thời gian được ghi ra logcat; kiểm thử khẳng định dạng cột nhỏ hơn và đọc lại đúng.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MessageColumnsParcelBenchmark {
+    private static final String TAG = MessageColumnsParcelBenchmark.class.getSimpleName();
+    private static final int MESSAGES = 10_000;
+    private static final int ROUNDS = 10;
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    @Test
+    public void columnsParcelSmallerAndFasterThanMessageList() {
+        List<Message> messages = messages();
+        MessageColumns columns = MessageColumns.of(messages);
+
+        long listNanos = Long.MAX_VALUE;
+        long columnNanos = Long.MAX_VALUE;
+        int listBytes = 0;
+        int columnBytes = 0;
+        List<Message> listCopy = null;
+        MessageColumns columnCopy = null;
+        // Vòng đầu tiên là khởi động, lấy thời gian tốt nhất của các vòng
+        for (int round = 0; round < ROUNDS; round++) {
+            Parcel parcel = Parcel.obtain();
+            long start = System.nanoTime();
+            parcel.writeTypedList(messages);
+            parcel.setDataPosition(0);
+            listCopy = parcel.createTypedArrayList(Message.CREATOR);
+            listNanos = Math.min(listNanos, System.nanoTime() - start);
+            listBytes = parcel.dataSize();
+            parcel.recycle();
+
+            parcel = Parcel.obtain();
+            start = System.nanoTime();
+            columns.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            columnCopy = MessageColumns.CREATOR.createFromParcel(parcel);
+            columnNanos = Math.min(columnNanos, System.nanoTime() - start);
+            columnBytes = parcel.dataSize();
+            parcel.recycle();
+        }
+
+        Log.i(TAG, String.format(Locale.US,
+                "%d messages: List<Message> %d KB in %.2f ms, MessageColumns %d KB in %.2f ms",
+                MESSAGES, listBytes / 1024, listNanos / 1e6, columnBytes / 1024, columnNanos / 1e6));
+
+        assertEquals(MESSAGES, listCopy.size());
+        assertEquals(MESSAGES, columnCopy.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            Message expected = messages.get(i);
+            Message actual = columnCopy.get(i);
+            assertEquals(expected.getClientId(), actual.getClientId());
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+            assertEquals(expected.getSendingTimeMillis(), actual.getSendingTimeMillis());
+            assertEquals(expected.getDeliveryState(), actual.getDeliveryState());
+        }
+        assertTrue("MessageColumns should parcel smaller than List<Message>", columnBytes < listBytes);
+    }
+
+    private static List<Message> messages() {
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean mine = i % 2 == 0;
+            Message message = new Message();
+            message.setId("message_" + i);
+            message.setClientId(mine ? "client_" + i : null);
+            message.setSenderId(mine ? "me" : "you");
+            message.setRecipientId(mine ? "you" : "me");
+            message.setSenderName(mine ? "Me" : "You");
+            message.setSenderImage(mine ? "https://example.com/me.jpg" : "https://example.com/you.jpg");
+            message.setConversationId("conversation_me_you");
+            message.setVisibility(Message.EVisible.ACTIVE);
+            if (i % 10 == 0) {
+                message.setType(Message.EType.IMAGE);
+                message.setMessage("https://example.com/image_" + i + ".jpg");
+                message.setThumbnailUrl("https://example.com/thumb_" + i + ".jpg");
+                message.setImageWidth(1080);
+                message.setImageHeight(720);
+            } else {
+                message.setType(Message.EType.TEXT);
+                message.setMessage("message " + i);
+            }
+            message.setSendingTimeMillis(START_MILLIS + i * 1_000L);
+            message.setDeliveryState(Message.EDeliveryState.SENT);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -11,7 +11,10 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.PickVisualMediaRequest;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.R;
 import com.example.chat.conversations.Conversation;
@@ -19,11 +22,14 @@ import com.example.chat.conversations.ConversationViewModel;
 import com.example.chat.conversations.repos.ConversationRepos;
 import com.example.chat.conversations.repos.ConversationReposImpl;
 import com.example.chat.image.ImageActivity;
+import com.example.chat.message.Message;
+import com.example.chat.message.outbox.MessageOutbox;
+import com.example.chat.message.repos.LocalMessageRepos;
+import com.example.chat.message.repos.LocalMessageReposImpl;
 import com.example.chat.message.repos.MessageRepos;
 import com.example.chat.message.repos.MessageReposImpl;
 import com.example.chat.message.repos.PhotoRepos;
 import com.example.chat.message.repos.PhotoReposImpl;
-import com.example.chat.notify.FCMSend;
 import com.example.common.repository.MediaRepos;
 import com.example.common.repository.MediaReposImpl;
 import com.example.databinding.ActivityChatBinding;
@@ -32,20 +38,26 @@ import com.example.infrastructure.BaseActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 
 public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding> {
     private static final String TAG = ChatActivity.class.getSimpleName();
 
+    // Số item còn lại phía trên trước khi tải trang tin nhắn cũ hơn
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+
     private ChatAdapter chatAdapter;
+    private Message lastBoundMessage;
     private String senderId;
     private Uri recipientImageUrl;
     ActivityResultLauncher<PickVisualMediaRequest> pickMultipleMedia;
-    ActivityResultLauncher<PickVisualMediaRequest> pickSingleMedia;
+    ActivityResultLauncher<PickVisualMediaRequest> pickRecognizeImages;
 
     @Override
     protected int getLayout() {
@@ -62,11 +74,12 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         Conversation conversation = new Conversation();
 
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         MessageRepos messageRepos = new MessageReposImpl();
-        PhotoRepos photoRepos = new PhotoReposImpl();
+        PhotoRepos photoRepos = new PhotoReposImpl(getApplicationContext());
         ConversationRepos conversationRepos = new ConversationReposImpl();
+        LocalMessageRepos localMessageRepos = new LocalMessageReposImpl(getApplicationContext());
 
         String senderId = (String) getIntent().getStringExtra(Utils.KEY_SENDER_ID);
         String recipientId = (String) getIntent().getStringExtra(Utils.KEY_RECIPIENT_ID);
@@ -81,7 +94,8 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         this.senderId = conversation.getSenderId();
         this.recipientImageUrl = conversation.getUri();
 
-        return new ChatViewModelFactory(authRepos, userRepos, messageRepos, conversationRepos, conversation, photoRepos);
+        return new ChatViewModelFactory(authRepos, userRepos, messageRepos, conversationRepos, conversation, photoRepos, localMessageRepos,
+                MessageDispatcher.getIns(getApplicationContext()), MessageOutbox.getIns(getApplicationContext()));
     }
 
     @Override
@@ -89,12 +103,17 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         super.onCreate(savedInstanceState);
 
         chatAdapter = new ChatAdapter(
-                new ArrayList<>(),
                 senderId,
                 recipientImageUrl,
+                viewModel,
                 viewModel
         );
+        // Dùng chung view với các ChatActivity khác, inflate trước các view còn thiếu trên luồng nền
+        ChatViewPool.attach(this, binding.chatRecyclerView,
+                getIntent().getBooleanExtra(Utils.KEY_PREWARM_VIEWS, true));
         binding.chatRecyclerView.setAdapter(chatAdapter);
+        binding.chatRecyclerView.addOnScrollListener(new ChatImagePreloader(this, chatAdapter));
+        setLoadOlderOnScroll();
 
         setToasts();
         setObservers();
@@ -102,6 +121,24 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         binding.setLifecycleOwner(this);
     }
 
+    /**
+     * Khi người dùng cuộn lên gần đầu danh sách tin nhắn, yêu cầu ViewModel tải trang tin nhắn cũ hơn.
+     */
+    private void setLoadOlderOnScroll() {
+        binding.chatRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                    viewModel.loadOlderMessages();
+                }
+            }
+        });
+    }
+
     /**
 
      Thiết lập các thông báo Toast từ LiveData errorToastMessage của ViewModel.
@@ -126,6 +163,12 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         super.onStop();
     }
 
+    @Override
+    protected void onDestroy() {
+        ChatViewPool.detach(this, binding.chatRecyclerView);
+        super.onDestroy();
+    }
+
     private void extractIntentData() {
         Bundle extras = getIntent().getExtras();
         if (extras != null) {
@@ -148,21 +191,26 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         /**
 
          Quan sát danh sách tin nhắn từ ViewModel và cập nhật giao diện người dùng tương ứng.
-         Nếu danh sách tin nhắn rỗng, thông báo cho Adapter cần cập nhật toàn bộ danh sách.
-         Ngược lại, cập nhật danh sách tin nhắn mới và cuộn xuống vị trí tin nhắn cuối cùng.
+         Danh sách mới được gửi cho ChatAdapter (ListAdapter) để chỉ bind lại các dòng thay đổi,
+         sau đó cuộn xuống vị trí tin nhắn cuối cùng nếu có tin nhắn mới.
          Hiển thị RecyclerView và ẩn ProgressBar sau khi đã cập nhật giao diện.
          @param messages Danh sách tin nhắn mới nhận được từ ViewModel.
          Tác giả: Văn Hoàng
          */
         viewModel.getMessages().observe(this, messages -> {
             int count = messages.size();
-            if (count == 0) {
-                chatAdapter.notifyDataSetChanged();
-            } else {
-                chatAdapter.setMessages(messages);
-                chatAdapter.notifyItemRangeInserted(count, count);
-                binding.chatRecyclerView.smoothScrollToPosition(count - 1);
-            }
+            Message lastMessage = count > 0 ? messages.get(count - 1) : null;
+            // Mỗi danh sách là một bản sao không đổi, DiffUtil tính phần thay đổi trên luồng nền
+            chatAdapter.submitList(messages, () -> {
+                if (lastMessage == null) {
+                    return;
+                }
+                // Chỉ cuộn xuống cuối khi có tin nhắn mới, không cuộn khi chèn trang tin nhắn cũ vào đầu
+                if (lastMessage != lastBoundMessage) {
+                    binding.chatRecyclerView.smoothScrollToPosition(count - 1);
+                }
+                lastBoundMessage = lastMessage;
+            });
             binding.chatRecyclerView.setVisibility(View.VISIBLE);
             binding.progressBar.setVisibility(View.GONE);
         });
@@ -210,45 +258,48 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
         /**
 
          Quan sát sự kiện khi hình ảnh được nhấp để xem chi tiết.
-         Nếu một URL hình ảnh được trả về, một Intent được tạo để mở ImageActivity với URL hình ảnh được chuyển đi.
-         @param imageClickedUrl URL của hình ảnh được nhấp.
+         Nếu một tin nhắn hình ảnh được trả về, một Intent được tạo để mở ImageActivity với URL ảnh gốc và ảnh thu nhỏ được chuyển đi.
+         @param imageClicked Tin nhắn hình ảnh được nhấp.
          Tác giả: Văn Hoàng
          */
-        viewModel.getIsImageClicked().observe(this, imageClickedUrl -> {
-            if(!imageClickedUrl.isEmpty()) {
+        viewModel.getIsImageClicked().observe(this, imageClicked -> {
+            if(imageClicked != null && !imageClicked.getMessage().isEmpty()) {
                 Intent intent = new Intent(getApplicationContext(), ImageActivity.class);
                 intent.setFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-                intent.putExtra(Utils.KEY_IMAGE_CLICKED_URL, imageClickedUrl);
+                intent.putExtra(Utils.KEY_IMAGE_CLICKED_URL, imageClicked.getMessage());
+                intent.putExtra(Utils.KEY_IMAGE_CLICKED_THUMBNAIL_URL, imageClicked.getThumbnailUrl());
                 startActivity(intent);
             }
         });
 
+        /**
+         Quan sát tiến trình chung của album hình ảnh đang tải lên.
+         Hiển thị thanh tiến trình phía trên ô nhập tin nhắn, ẩn khi album đã gửi xong.
+         @param progress Tiến trình (0-100), null khi không có album nào.
+         */
+        viewModel.getAlbumUploadProgress().observe(this, progress -> {
+            if (progress == null) {
+                binding.albumProgressBar.setVisibility(View.GONE);
+            } else {
+                binding.albumProgressBar.setProgress(progress);
+                binding.albumProgressBar.setVisibility(View.VISIBLE);
+            }
+        });
+
 
         /**
          Quan sát sự kiện khi nút recognizeEye được nhấp.
-         Nếu được mở, một Intent được khởi động để chọn một hình ảnh duy nhất từ thư viện ảnh trong máy, chỉ hỗ trợ hình ảnh.
+         Nếu được mở, một Intent được khởi động để chọn một hoặc nhiều hình ảnh từ thư viện ảnh trong máy, chỉ hỗ trợ hình ảnh.
          @param isOpenImageDialog Cờ chỉ ra xem hộp thoại chọn hình ảnh có được mở hay không.
          Tác giả: Văn Hoàng
          */
         viewModel.getIsRecognizeEyeClicked().observe(this, isOpenImageDialog -> {
             if(isOpenImageDialog) {
-                pickSingleMedia.launch(new PickVisualMediaRequest.Builder()
+                pickRecognizeImages.launch(new PickVisualMediaRequest.Builder()
                         .setMediaType(ActivityResultContracts.PickVisualMedia.ImageOnly.INSTANCE)
                         .build());
             }
         });
-
-        // Nhận thông báo gửi tin nhắn
-        viewModel.getNotification().observe(this, message -> {
-            Log.i(TAG, "FCMSend");
-            Log.i(TAG, message.toString());
-            // Gửi thông báo đến thiết bị người nhận bằng cách sử dụng phương thức pushNotification trong lớp FCMSend
-            FCMSend.pushNotification(
-                    this,
-                    message.get(Utils.KEY_FCM_TOKEN),
-                    message.get(Utils.KEY_SENDER_NAME),
-                    message.get(Utils.KEY_MESSAGE));
-        });
     }
 
     private void setRegisterForActivityResult() {
@@ -263,9 +314,7 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
              */
             pickMultipleMedia = registerForActivityResult(new ActivityResultContracts.PickMultipleVisualMedia(5), uris -> {
                 if (!uris.isEmpty()) {
-                    for(Uri uri : uris) {
-                        handleSelectedMedia(uri);
-                    }
+                    handleSelectedMedia(uris);
                     Log.d(TAG, "Number of items selected: " + uris.size());
                 } else {
                     Log.d(TAG, "No media selected");
@@ -273,16 +322,16 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
             });
 
             /**
-             * Đăng ký một ActivityResult để xử lý việc chọn một ảnh.
-             * Sau khi chọn ảnh, tiến hành nhận diện văn bản trong ảnh và cập nhật văn bản vừa nhận diện vào MessageInput
+             * Đăng ký một ActivityResult để xử lý việc chọn ảnh cần nhận diện văn bản (tối đa 5 ảnh).
+             * Sau khi chọn ảnh, tiến hành nhận diện văn bản trong các ảnh và cập nhật văn bản vừa nhận diện vào MessageInput
              * Nếu không có phương tiện nào được chọn, ghi nhật ký "No image selected".
              *
-             * @param uri URI của phương tiện được chọn.
+             * @param uris Danh sách URI của các ảnh được chọn, theo thứ tự chọn.
              * Tác giả: Văn Hoàng
              */
-            pickSingleMedia = registerForActivityResult(new ActivityResultContracts.PickVisualMedia(), uri -> {
-                if (uri != null) {
-                    viewModel.recognizeTextFromImage(this, uri);
+            pickRecognizeImages = registerForActivityResult(new ActivityResultContracts.PickMultipleVisualMedia(5), uris -> {
+                if (!uris.isEmpty()) {
+                    viewModel.recognizeTextFromImages(this, uris);
                 } else {
                     Log.d(TAG, "No image selected");
                 }
@@ -293,20 +342,24 @@ public class ChatActivity extends BaseActivity<ChatViewModel,ActivityChatBinding
     }
 
     /**
-     * Xử lý Media được chọn bằng cách kiểm tra xem có phải là hình ảnh không.
-     * Nếu phương tiện là hình ảnh, gọi phương thức để gửi hình ảnh đi.
-     * Nếu không phải là hình ảnh, ghi Log "Media types are not supported".
+     * Xử lý các Media được chọn bằng cách kiểm tra xem có phải là hình ảnh không.
+     * Các hình ảnh được gửi cùng lúc theo thứ tự đã chọn.
+     * Nếu có phương tiện không phải là hình ảnh, ghi Log "Media types are not supported".
      *
-     * @param uri URI của phương tiện được chọn.
+     * @param uris Danh sách URI của phương tiện được chọn.
      * Tác giả: Văn Hoàng
      */
-    private void handleSelectedMedia(Uri uri) {
-        if (isImage(uri)) {
-            viewModel.sendImage(uri);
-        } else {
-            showToast("Media types are not supported");
-            Log.d(TAG, "Media types are not supported");
+    private void handleSelectedMedia(List<Uri> uris) {
+        List<Uri> images = new ArrayList<>(uris.size());
+        for (Uri uri : uris) {
+            if (isImage(uri)) {
+                images.add(uri);
+            } else {
+                showToast("Media types are not supported");
+                Log.d(TAG, "Media types are not supported");
+            }
         }
+        viewModel.sendImages(images);
     }
 
     /**
@@ -1,18 +1,21 @@
 package com.example.chat;
 
 import android.net.Uri;
-import android.view.LayoutInflater;
+import android.os.SystemClock;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.databinding.DataBindingUtil;
+import androidx.databinding.ViewDataBinding;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.R;
 import com.example.chat.listener.ImageListener;
+import com.example.chat.listener.RetryListener;
 import com.example.chat.message.Message;
 import com.example.chat.message.baseviewholder.BaseImageViewHolder;
 import com.example.chat.message.baseviewholder.BaseMessageViewHolder;
@@ -21,25 +24,27 @@ import com.example.databinding.ItemContainerReceivedMessageBinding;
 import com.example.databinding.ItemContainerSentImageBinding;
 import com.example.databinding.ItemContainerSentMessageBinding;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Adapter cho RecyclerView hiển thị các tin nhắn trong cuộc trò chuyện.
+ * Kế thừa ListAdapter: danh sách mới được so sánh với danh sách cũ bằng DiffUtil trên luồng nền,
+ * chỉ những dòng thay đổi mới được bind lại. Mỗi tin nhắn có một stable ID.
  *
- * @param messages Danh sách các tin nhắn.
  * @param senderId ID của người gửi tin nhắn.
  * @param recipientImage URI của hình ảnh của người nhận tin.
  * @param listener Lăng nghe sự kiện cho việc xem hình ảnh.
 
  * Tác giả: Văn Hoàng
  */
-public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
+public class ChatAdapter extends ListAdapter<Message, RecyclerView.ViewHolder> {
     private String TAG = ChatAdapter.class.getSimpleName();
 
-    private List<Message> messages;
     private final String senderId;
     private final Uri recipientImage;
     private final ImageListener listener;
+    private final RetryListener retryListener;
 
     /**
      * Các hằng số xác định các loại view khác nhau cho các tin nhắn trong adapter RecyclerView.
@@ -56,23 +61,32 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
     public static final int VIEW_MESSAGE_RECEIVED = 3;
     public static final int VIEW_IMAGE_RECEIVED = 4;
 
-    public ChatAdapter(List<Message> messages, String senderId, Uri recipientImage, ImageListener listener) {
-        this.messages = messages;
+    // Ánh xạ khóa của tin nhắn sang stable ID kiểu long, cấp tăng dần để không bị trùng
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 0;
+
+    public ChatAdapter(String senderId, Uri recipientImage, ImageListener listener, RetryListener retryListener) {
+        super(MessageDiffCallback.INSTANCE);
         this.senderId = senderId;
         this.recipientImage = recipientImage;
         this.listener = listener;
+        this.retryListener = retryListener;
+        setHasStableIds(true);
     }
 
     /**
-     * Cập nhật danh sách tin nhắn mới và thông báo cho RecyclerView biết rằng dữ liệu đã thay đổi.
-     *
-     * @param messages Danh sách tin nhắn mới cần cập nhật.
-
-     * Tác giả: Văn Hoàng
+     * Trả về stable ID của tin nhắn tại vị trí position, để RecyclerView giữ nguyên ViewHolder
+     * (và ảnh Glide đang hiển thị) của các dòng không thay đổi.
      */
-    public void setMessages(List<Message> messages) {
-        this.messages = messages;
-        notifyDataSetChanged();
+    @Override
+    public long getItemId(int position) {
+        String key = MessageDiffCallback.getMessageKey(getItem(position));
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(key, id);
+        }
+        return id;
     }
 
     /**
@@ -87,29 +101,44 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        // Ưu tiên view đã được inflate trước trên luồng nền
+        ViewDataBinding binding = ChatViewPool.takePreinflated(viewType);
+        if (binding == null) {
+            long start = SystemClock.elapsedRealtime();
+            binding = DataBindingUtil.inflate(ChatViewPool.getInflater(parent), getLayoutId(viewType), parent, false);
+            ChatViewPool.METRICS.record(ChatViewPool.STAGE_INFLATE_ON_DEMAND, SystemClock.elapsedRealtime() - start);
+        }
 
         switch (viewType) {
-            case VIEW_MESSAGE_RECEIVED: {
-                ItemContainerReceivedMessageBinding binding = DataBindingUtil.inflate(inflater, R.layout.item_container_received_message, parent, false);
-                return new ReceivedMessageViewHolder(binding);
-            }
-            case VIEW_IMAGE_RECEIVED: {
-                ItemContainerReceivedImageBinding binding = DataBindingUtil.inflate(inflater, R.layout.item_container_received_image, parent, false);
-                return new ReceivedImageViewHolder(binding);
-            }
-            case VIEW_MESSAGE_SENT: {
-                ItemContainerSentMessageBinding binding = DataBindingUtil.inflate(inflater, R.layout.item_container_sent_message, parent, false);
-                return new SendMessageViewHolder(binding);
-            }
-            case VIEW_IMAGE_SENT: {
-                ItemContainerSentImageBinding binding = DataBindingUtil.inflate(inflater, R.layout.item_container_sent_image, parent, false);
-                return new SendImageViewHolder(binding);
-            }
+            case VIEW_MESSAGE_RECEIVED:
+                return new ReceivedMessageViewHolder((ItemContainerReceivedMessageBinding) binding);
+            case VIEW_IMAGE_RECEIVED:
+                return new ReceivedImageViewHolder((ItemContainerReceivedImageBinding) binding);
+            case VIEW_MESSAGE_SENT:
+                return new SendMessageViewHolder((ItemContainerSentMessageBinding) binding);
+            case VIEW_IMAGE_SENT:
+                return new SendImageViewHolder((ItemContainerSentImageBinding) binding);
         }
         return null;
     }
 
+    /**
+     * Trả về layout của loại view viewType.
+     */
+    static int getLayoutId(int viewType) {
+        switch (viewType) {
+            case VIEW_MESSAGE_RECEIVED:
+                return R.layout.item_container_received_message;
+            case VIEW_IMAGE_RECEIVED:
+                return R.layout.item_container_received_image;
+            case VIEW_IMAGE_SENT:
+                return R.layout.item_container_sent_image;
+            case VIEW_MESSAGE_SENT:
+            default:
+                return R.layout.item_container_sent_message;
+        }
+    }
+
     /**
      * Liên kết dữ liệu của một message tương ứng với vị trí position của message trong messages với ViewHolder.
      *
@@ -122,29 +151,61 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         int viewType = getItemViewType(position);
 
+        // ViewHolder có thể được tạo bởi adapter của một ChatActivity khác (RecycledViewPool dùng chung), gắn lại adapter này
         switch (viewType) {
             case VIEW_MESSAGE_RECEIVED: {
-                ((ReceivedMessageViewHolder) holder).setData(messages.get(position));
+                ReceivedMessageViewHolder receivedMessageHolder = (ReceivedMessageViewHolder) holder;
+                receivedMessageHolder.adapter = this;
+                receivedMessageHolder.setData(getItem(position));
                 break;
             }
             case VIEW_IMAGE_RECEIVED: {
-                ((ReceivedImageViewHolder) holder).setData(messages.get(position), position);
+                ReceivedImageViewHolder receivedImageHolder = (ReceivedImageViewHolder) holder;
+                receivedImageHolder.adapter = this;
+                receivedImageHolder.setImageListener(listener);
+                receivedImageHolder.setData(getItem(position));
                 break;
             }
             case VIEW_MESSAGE_SENT: {
-                ((SendMessageViewHolder) holder).setData(messages.get(position));
+                SendMessageViewHolder sendMessageHolder = (SendMessageViewHolder) holder;
+                sendMessageHolder.adapter = this;
+                sendMessageHolder.setData(getItem(position));
                 break;
             }
             case VIEW_IMAGE_SENT: {
-                ((SendImageViewHolder) holder).setData(messages.get(position), position);
+                SendImageViewHolder sendImageHolder = (SendImageViewHolder) holder;
+                sendImageHolder.adapter = this;
+                sendImageHolder.setImageListener(listener);
+                sendImageHolder.setData(getItem(position));
                 break;
             }
         }
     }
 
+    /**
+     * ViewHolder trả về RecycledViewPool dùng chung có thể còn nằm trong pool sau khi ChatActivity bị hủy,
+     * nên bỏ các tham chiếu tới adapter và listener (ChatViewModel) của màn hình này; lần bind sau gắn lại.
+     */
     @Override
-    public int getItemCount() {
-        return messages.size();
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder instanceof SendMessageViewHolder) {
+            SendMessageViewHolder sendMessageHolder = (SendMessageViewHolder) holder;
+            sendMessageHolder.adapter = null;
+            // Listener gửi lại của tin nhắn thất bại giữ RetryListener
+            sendMessageHolder.binding.textDateTime.setOnClickListener(null);
+        } else if (holder instanceof ReceivedMessageViewHolder) {
+            ((ReceivedMessageViewHolder) holder).adapter = null;
+        } else if (holder instanceof SendImageViewHolder) {
+            SendImageViewHolder sendImageHolder = (SendImageViewHolder) holder;
+            sendImageHolder.adapter = null;
+            sendImageHolder.setImageListener(null);
+            sendImageHolder.binding.textDateTime.setOnClickListener(null);
+        } else if (holder instanceof ReceivedImageViewHolder) {
+            ReceivedImageViewHolder receivedImageHolder = (ReceivedImageViewHolder) holder;
+            receivedImageHolder.adapter = null;
+            receivedImageHolder.setImageListener(null);
+        }
     }
 
     /**
@@ -160,7 +221,7 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
      */
     @Override
     public int getItemViewType(int position) {
-        Message message = messages.get(position);
+        Message message = getItem(position);
 
         if(message.getSenderId().equals(senderId)) {
             return message.getType().equals(Message.EType.TEXT) ? VIEW_MESSAGE_SENT : VIEW_IMAGE_SENT;
@@ -169,14 +230,40 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
         }
     }
 
+    /**
+     * Hiển thị trạng thái gửi của tin nhắn do người dùng hiện tại gửi ở vị trí thời gian gửi.
+     * Tin nhắn gửi thất bại có thể được nhấn để gửi lại.
+     *
+     * @param message      Tin nhắn được hiển thị.
+     * @param textDateTime TextView hiển thị thời gian gửi.
+     */
+    private void bindDeliveryState(Message message, TextView textDateTime) {
+        switch (message.getDeliveryState()) {
+            case PENDING:
+                textDateTime.setText(R.string.message_sending);
+                break;
+            case FAILED:
+                textDateTime.setText(R.string.message_failed_tap_to_retry);
+                textDateTime.setOnClickListener(v -> retryListener.onRetryClick(message));
+                return;
+            default:
+                textDateTime.setText(message.getSendingTime());
+                break;
+        }
+        // ViewHolder có thể được tái sử dụng từ một tin nhắn gửi thất bại
+        textDateTime.setOnClickListener(null);
+        textDateTime.setClickable(false);
+    }
+
     /**
      * ViewHolder cho các tin nhắn được gửi, được kế thừa class BaseMessageViewHolder để xử lí dữ liệu.
      * Cung cấp cách liên kết dữ liệu cụ thể cho các tin nhắn được gửi và thiết lập các view cho dữ liệu đó.
 
      * Tác giả: Văn Hoàng
      */
-    public class SendMessageViewHolder extends BaseMessageViewHolder {
+    public static class SendMessageViewHolder extends BaseMessageViewHolder {
         private final ItemContainerSentMessageBinding binding;
+        private ChatAdapter adapter;
 
         SendMessageViewHolder(ItemContainerSentMessageBinding binding) {
             super(binding);
@@ -185,7 +272,7 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
 
         @Override
         protected void bindSpecificData(Message message) {
-            // No specific data binding needed for sent messages
+            adapter.bindDeliveryState(message, binding.textDateTime);
         }
 
         @Override
@@ -205,8 +292,9 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
 
      * Tác giả: Văn Hoàng
      */
-    public class ReceivedMessageViewHolder extends BaseMessageViewHolder {
+    public static class ReceivedMessageViewHolder extends BaseMessageViewHolder {
         private final ItemContainerReceivedMessageBinding binding;
+        private ChatAdapter adapter;
 
         ReceivedMessageViewHolder(ItemContainerReceivedMessageBinding binding) {
             super(binding);
@@ -220,7 +308,7 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
          */
         @Override
         protected void bindSpecificData(Message message) {
-            loadProfileImage(recipientImage);
+            loadProfileImage(adapter.recipientImage);
         }
 
         /**
@@ -253,11 +341,12 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
 
      * Tác giả: Văn Hoàng
      */
-    public class ReceivedImageViewHolder extends BaseImageViewHolder {
+    public static class ReceivedImageViewHolder extends BaseImageViewHolder {
         private final ItemContainerReceivedImageBinding binding;
+        private ChatAdapter adapter;
 
         ReceivedImageViewHolder(ItemContainerReceivedImageBinding binding) {
-            super(binding, listener);
+            super(binding);
             this.binding = binding;
         }
 
@@ -269,7 +358,7 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
         @Override
         protected void bindSpecificData() {
             Glide.with(binding.getRoot())
-                    .load(recipientImage)
+                    .load(adapter.recipientImage)
                     .placeholder(R.drawable.ic_image)
                     .error(R.drawable.ic_image)
                     .into(binding.imageProfile);
@@ -287,14 +376,21 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
 
      * Tác giả: Văn Hoàng
      */
-    public class SendImageViewHolder extends BaseImageViewHolder {
+    public static class SendImageViewHolder extends BaseImageViewHolder {
         private final ItemContainerSentImageBinding binding;
+        private ChatAdapter adapter;
 
         SendImageViewHolder(ItemContainerSentImageBinding binding) {
-            super(binding, listener);
+            super(binding);
             this.binding = binding;
         }
 
+        @Override
+        public void setData(Message message) {
+            super.setData(message);
+            adapter.bindDeliveryState(message, binding.textDateTime);
+        }
+
         @Override
         protected void bindSpecificData() {
             // No specific data binding needed for sent messages
@@ -0,0 +1,126 @@
+package com.example.chat;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.example.R;
+import com.example.chat.image.ChatImageRequests;
+import com.example.chat.message.Message;
+
+import java.util.List;
+
+/**
+ * Tải trước vào bộ nhớ đệm của Glide ảnh của các tin nhắn hình ảnh sắp hiện ra theo hướng cuộn,
+ * để khi cuộn nhanh ảnh hiện ra ngay thay vì placeholder.
+ *
+ * - Chỉ tải trước tin nhắn có kích thước ảnh: yêu cầu tải trước có cùng URL, phép biến đổi và kích thước với yêu cầu
+ *   của BaseImageViewHolder (ChatImageRequests), nên trùng khóa trong bộ nhớ đệm.
+ * - Số ảnh tải trước tăng theo tốc độ cuộn, và giảm về mức tối thiểu khi bộ nhớ còn ít hoặc thiết bị có ít RAM.
+ * - Mỗi vị trí chỉ được tải trước một lần cho mỗi hướng cuộn.
+ */
+public class ChatImagePreloader extends RecyclerView.OnScrollListener {
+    private static final int MIN_DEPTH = 2;
+    private static final int MAX_DEPTH = 10;
+    private static final int LOW_MEMORY_MAX_DEPTH = 4;
+    // Mỗi PIXELS_PER_EXTRA_IMAGE pixel cuộn trong một khung hình thì tải trước thêm một ảnh
+    private static final int PIXELS_PER_EXTRA_IMAGE = 40;
+    // Số tin nhắn tối đa được duyệt cho mỗi ảnh cần tải trước, tránh duyệt cả danh sách khi ít tin nhắn hình ảnh
+    private static final int SCAN_ITEMS_PER_IMAGE = 8;
+    // Tỉ lệ heap còn trống dưới mức này thì chỉ tải trước MIN_DEPTH ảnh
+    private static final float LOW_HEAP_RATIO = 0.2f;
+
+    private final ChatAdapter adapter;
+    private final RequestManager requestManager;
+    private final int imageWidth;
+    private final int maxDepth;
+
+    private float smoothedVelocity;
+    private int lastDirection;
+    // Vị trí xa nhất đã được tải trước theo hướng hiện tại
+    private int lastPreloadedPosition = RecyclerView.NO_POSITION;
+
+    public ChatImagePreloader(Context context, ChatAdapter adapter) {
+        this.adapter = adapter;
+        this.requestManager = Glide.with(context);
+        this.imageWidth = context.getResources().getDimensionPixelSize(R.dimen.chat_image_width);
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        this.maxDepth = activityManager != null && activityManager.isLowRamDevice() ? LOW_MEMORY_MAX_DEPTH : MAX_DEPTH;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+
+        int direction = dy > 0 ? 1 : -1;
+        if (direction != lastDirection) {
+            lastDirection = direction;
+            lastPreloadedPosition = RecyclerView.NO_POSITION;
+            smoothedVelocity = 0;
+        }
+        // Làm mượt tốc độ cuộn để số ảnh tải trước không dao động theo từng khung hình
+        smoothedVelocity = smoothedVelocity * 0.7f + Math.abs(dy) * 0.3f;
+
+        int edge = direction > 0
+                ? layoutManager.findLastVisibleItemPosition()
+                : layoutManager.findFirstVisibleItemPosition();
+        if (edge != RecyclerView.NO_POSITION) {
+            preload(edge, direction, calculateDepth());
+        }
+    }
+
+    /**
+     * Số ảnh cần tải trước theo tốc độ cuộn và bộ nhớ còn trống.
+     */
+    private int calculateDepth() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (free < runtime.maxMemory() * LOW_HEAP_RATIO) {
+            return MIN_DEPTH;
+        }
+        int depth = MIN_DEPTH + Math.round(smoothedVelocity / PIXELS_PER_EXTRA_IMAGE);
+        return Math.min(depth, maxDepth);
+    }
+
+    /**
+     * Tải trước tối đa depth ảnh sau vị trí edge theo hướng direction, bỏ qua các vị trí đã tải trước.
+     */
+    private void preload(int edge, int direction, int depth) {
+        List<Message> messages = adapter.getCurrentList();
+        int position = edge + direction;
+        if (lastPreloadedPosition != RecyclerView.NO_POSITION
+                && (lastPreloadedPosition - position) * direction >= 0) {
+            position = lastPreloadedPosition + direction;
+        }
+
+        int preloaded = 0;
+        int scanned = 0;
+        // Không vượt quá depth ảnh tính từ edge, kể cả các ảnh đã tải trước ở lần trước
+        int limit = edge + direction * depth * SCAN_ITEMS_PER_IMAGE;
+        while (position >= 0 && position < messages.size()
+                && (limit - position) * direction >= 0
+                && preloaded < depth && scanned < depth * SCAN_ITEMS_PER_IMAGE) {
+            Message message = messages.get(position);
+            if (message.getType() == Message.EType.IMAGE && ChatImageRequests.hasKnownSize(message)) {
+                int height = ChatImageRequests.getDisplayHeight(message, imageWidth, 0);
+                ChatImageRequests.request(requestManager, message).preload(imageWidth, height);
+                preloaded++;
+            }
+            lastPreloadedPosition = position;
+            position += direction;
+            scanned++;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.chat;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.util.Log;
 
@@ -11,32 +10,55 @@ import androidx.lifecycle.MutableLiveData;
 import com.example.chat.conversations.Conversation;
 import com.example.chat.conversations.repos.ConversationRepos;
 import com.example.chat.listener.ImageListener;
+import com.example.chat.listener.RetryListener;
 import com.example.chat.message.Message;
+import com.example.chat.message.MessageCursor;
 import com.example.chat.message.MessageDTO;
+import com.example.chat.message.MessagePage;
+import com.example.chat.message.SendMessageRequest;
+import com.example.chat.message.SendMessageResponse;
+import com.example.chat.message.UploadedImage;
+import com.example.chat.message.callback.GetMessagePageCallBack;
+import com.example.chat.message.callback.GetRemoteMessageCallBack;
+import com.example.chat.message.callback.UploadImageCallBack;
+import com.example.chat.message.outbox.MessageOutbox;
+import com.example.chat.message.outbox.OutboxEntry;
+import com.example.chat.message.repos.LocalMessageRepos;
 import com.example.chat.message.repos.MessageRepos;
 import com.example.chat.message.repos.PhotoRepos;
+import com.example.chat.textanalyzer.RecognitionListener;
 import com.example.chat.textanalyzer.RecognizeUtils;
-import com.example.chat.textanalyzer.TextAnalyzer;
+import com.example.chat.textanalyzer.RecognizedText;
+import com.example.chat.textanalyzer.TextRecognizerPool;
 import com.example.common.customcontrol.customalertdialog.AlertDialogModel;
+import com.example.infrastructure.AppExecutors;
 import com.example.infrastructure.BaseViewModel;
-import com.example.user.User;
+import com.example.infrastructure.TimeCodec;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.UserRepos;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+import com.google.mlkit.vision.common.InputImage;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class ChatViewModel extends BaseViewModel implements ImageListener {
+public class ChatViewModel extends BaseViewModel implements ImageListener, RetryListener {
 
     private static final String TAG = ChatViewModel.class.getSimpleName();
 
+    // Số tin nhắn tối đa trong một trang lịch sử
+    private static final int PAGE_SIZE = 30;
+    // Số ảnh của một album được tải lên cùng lúc
+    private static final int MAX_PARALLEL_IMAGE_UPLOADS = 3;
+
     private final MutableLiveData<String> curSenderUid = new MutableLiveData<>("");
     private final MutableLiveData<String> curUsername = new MutableLiveData<>("");
     private final MutableLiveData<String> curRecipientId = new MutableLiveData<>(null);
@@ -44,21 +66,70 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     private final MutableLiveData<String> curRecipientName = new MutableLiveData<>("");
     private final MutableLiveData<Uri> curRecipientImage = new MutableLiveData<>();
     private final MutableLiveData<String> conversationId = new MutableLiveData<>(null);
-    private static final MutableLiveData<List<Message>> messages = new MutableLiveData<>(new ArrayList<>());
+    private final ConversationMessages conversationMessages;
     private final MutableLiveData<String> messageInput = new MutableLiveData<>("");
     private final MutableLiveData<Boolean> isReceiverAvailable = new MutableLiveData<>(false);
     private final MutableLiveData<Boolean> isOpenImageDialog = new MutableLiveData<>(false);
-    private final MutableLiveData<String> isImageClicked = new MutableLiveData<>("");
+    private final MutableLiveData<Message> isImageClicked = new MutableLiveData<>();
+    // Tiến trình chung (0-100) của album hình ảnh đang tải lên, null khi không có album nào
+    private final MutableLiveData<Integer> albumUploadProgress = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isRecognizeEyeClicked = new MutableLiveData<>(false);
     private final MutableLiveData<Boolean> navigateBack = new MutableLiveData<>();
-    private final MutableLiveData<HashMap<String, String>> sendNotification = new MutableLiveData<>();
     private final MutableLiveData<AlertDialogModel> openCustomAlertDialog = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> isLoadingOlderMessages = new MutableLiveData<>(false);
+
+    // Con trỏ của tin nhắn cũ nhất đã tải và trạng thái phân trang
+    private MessageCursor oldestCursor;
+    private boolean hasMoreMessages = true;
+    private boolean isLoadingPage = false;
+    // Tăng mỗi lần tải lại từ đầu, để bỏ qua kết quả của các yêu cầu cũ còn đang chạy
+    private int pageGeneration = 0;
+    // Thời điểm đồng bộ trước khi bỏ qua phần chênh lệch để tải lại trang mới nhất:
+    // thiết bị thiếu các tin nhắn sau thời điểm này, nên các trang cũ hơn phải lấy từ Backend cho tới khi vượt qua nó
+    private String remoteHistoryAfter;
 
     private final UserRepos userRepos;
     private final MessageRepos messageRepos;
     private final AuthRepos authRepos;
     private final ConversationRepos conversationRepos;
     private final PhotoRepos photoRepos;
+    private final LocalMessageRepos localMessageRepos;
+    private final MessageDispatcher messageDispatcher;
+    private final MessageDispatcher.Subscriber messageSubscriber;
+    private final MessageOutbox messageOutbox;
+    private final MessageOutbox.Listener outboxListener = new MessageOutbox.Listener() {
+        @Override
+        public void onMessageDelivered(String clientId, SendMessageResponse response) {
+            onOutboxMessageDelivered(clientId, response);
+        }
+
+        @Override
+        public void onMessageFailed(String clientId) {
+            ChatViewModel.this.onMessageFailed(clientId);
+        }
+    };
+
+    // Tin nhắn đang gửi hoặc gửi thất bại theo clientId, để gửi lại với cùng clientId
+    private final Map<String, PendingSend> pendingSends = new ConcurrentHashMap<>();
+
+    // Bộ nhận diện văn bản được dùng lại giữa các lần nhận dạng, đóng trong onCleared
+    private final TextRecognizerPool textRecognizerPool = new TextRecognizerPool();
+
+    /**
+     * Một tin nhắn chưa được Backend xác nhận.
+     * localImage là URI hình ảnh trên thiết bị khi hình ảnh chưa được tải lên, null với tin nhắn văn bản hoặc sau khi tải lên.
+     */
+    private static class PendingSend {
+        final MessageDTO message;
+        final String summary;
+        volatile Uri localImage;
+
+        PendingSend(MessageDTO message, String summary, Uri localImage) {
+            this.message = message;
+            this.summary = summary;
+            this.localImage = localImage;
+        }
+    }
 
     public LiveData<AlertDialogModel> getOpenCustomAlertDialog() {
         return openCustomAlertDialog;
@@ -109,27 +180,43 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     }
 
     public LiveData<List<Message>> getMessages() {
-        return messages;
+        return conversationMessages.getLiveData();
     }
 
-    public LiveData<String> getIsImageClicked() {
+    public LiveData<Message> getIsImageClicked() {
         return isImageClicked;
     }
 
+    public LiveData<Integer> getAlbumUploadProgress() {
+        return albumUploadProgress;
+    }
+
     public LiveData<Boolean> getIsReceiverAvailable() {
         return isReceiverAvailable;
     }
 
-    public LiveData<HashMap<String, String>> getNotification() {
-        return sendNotification;
+    public LiveData<Boolean> getIsLoadingOlderMessages() {
+        return isLoadingOlderMessages;
     }
 
-    public ChatViewModel(UserRepos userRepos, AuthRepos authRepos, ConversationRepos conversationRepos, MessageRepos messageRepos, Conversation conversation, PhotoRepos photoRepos) {
+    public ChatViewModel(UserRepos userRepos, AuthRepos authRepos, ConversationRepos conversationRepos, MessageRepos messageRepos, Conversation conversation, PhotoRepos photoRepos, LocalMessageRepos localMessageRepos, MessageDispatcher messageDispatcher, MessageOutbox messageOutbox) {
         this.userRepos = userRepos;
         this.authRepos = authRepos;
         this.messageRepos = messageRepos;
         this.conversationRepos = conversationRepos;
         this.photoRepos = photoRepos;
+        this.localMessageRepos = localMessageRepos;
+        this.messageDispatcher = messageDispatcher;
+        this.messageOutbox = messageOutbox;
+        this.conversationMessages = new ConversationMessages(
+                Utils.getConversationKey(conversation.getSenderId(), conversation.getRecipientId()));
+        // Chỉ nhận tin nhắn FCM của cuộc trò chuyện này, bỏ qua tin nhắn trùng id (ví dụ bản echo của tin đã gửi)
+        this.messageSubscriber = message -> conversationMessages.appendAbsent(Collections.singletonList(message));
+        messageDispatcher.subscribe(conversationMessages.getConversationKey(), messageSubscriber);
+        // Nhận kết quả gửi từ outbox và hiển thị lại các tin nhắn chưa gửi xong từ lần mở trước
+        messageOutbox.addListener(conversationMessages.getConversationKey(), outboxListener);
+        messageOutbox.getMessageEntries(conversation.getSenderId(), conversation.getRecipientId())
+                .thenAccept(this::showOutboxEntries);
 
         conversationRepos.getConversationBySenderAndRecipient(conversation.getSenderId(), conversation.getRecipientId()).thenAccept(oldConversation -> conversationId.setValue(oldConversation.getId())).exceptionally(e -> {
             conversationId.setValue(null);
@@ -152,23 +239,23 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     @Override
     public void onStart() {
         try {
-            getRemoteMessages();
+            // Khi mở lại màn hình, giữ nguyên các trang đã tải và chỉ đồng bộ phần chênh lệch
+            if (hasLoadedMessages()) {
+                syncWithRemote(pageGeneration, true);
+            } else {
+                getRemoteMessages();
+            }
         } catch (Exception e) {
             Log.e(TAG, Objects.requireNonNull(e.getMessage()));
         }
     }
 
-    /**
-     * Thêm một tin nhắn mới vào danh sách các tin nhắn hiện tại và cập nhật LiveData để cập nhật RecycleView.
-     *
-     * @param message Tin nhắn mới cần thêm vào danh sách.
-     *
-     * Tác giả: Văn Hoàng
-     */
-    public static void addMessage(Message message) {
-        List<Message> curMessages = messages.getValue();
-        curMessages.add(message);
-        messages.postValue(curMessages);
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        messageDispatcher.unsubscribe(conversationMessages.getConversationKey(), messageSubscriber);
+        messageOutbox.removeListener(conversationMessages.getConversationKey(), outboxListener);
+        textRecognizerPool.close();
     }
 
     /**
@@ -211,22 +298,253 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     }
 
     /**
-     * Lấy danh sách tin nhắn MessageDTO từ bên Backend, chuyển lại thành Message và cập nhật vào biến LiveData `messages`.
-     * Tác giả: Văn Hoàng
+     * Hiển thị ngay trang tin nhắn mới nhất đã lưu trên thiết bị (không cần gọi mạng),
+     * sau đó đồng bộ với Backend: lấy các tin nhắn mới kể từ lần đồng bộ trước,
+     * hoặc trang mới nhất nếu cuộc trò chuyện chưa từng được đồng bộ.
+     * Các trang cũ hơn được tải dần qua loadOlderMessages().
      */
     public void getRemoteMessages() {
-        messageRepos.getRemoteMessages(curSenderUid.getValue(), messageDTOs -> {
-            List<Message> receivedMessages = new ArrayList<>();
-            Message ms;
-            for (MessageDTO messageDTO : messageDTOs) {
-                ms = new Message();
-                ms.convertDTOToEntity(messageDTO);
-                receivedMessages.add(ms);
+        pageGeneration++;
+        oldestCursor = null;
+        hasMoreMessages = true;
+        remoteHistoryAfter = null;
+        isLoadingPage = true;
+        int generation = pageGeneration;
+
+        localMessageRepos.getMessages(curSenderUid.getValue(), curRecipientId.getValue(), null, PAGE_SIZE)
+                .thenAcceptAsync(localDTOs -> {
+                    if (generation != pageGeneration) {
+                        return;
+                    }
+                    isLoadingPage = false;
+                    if (!localDTOs.isEmpty()) {
+                        oldestCursor = MessageCursor.from(localDTOs.get(localDTOs.size() - 1));
+                        conversationMessages.replace(toMessages(localDTOs));
+                    }
+                    syncWithRemote(generation, !localDTOs.isEmpty());
+                }, AppExecutors.getIns().mainThread())
+                .exceptionally(e -> {
+                    Log.e(TAG, "Unable to read local messages: " + e.getMessage());
+                    AppExecutors.getIns().mainThread().execute(() -> {
+                        if (generation == pageGeneration) {
+                            isLoadingPage = false;
+                            loadRemotePage(true);
+                        }
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * ViewModel đã có ít nhất một trang tin nhắn, hoặc đã biết cuộc trò chuyện không có tin nhắn nào.
+     */
+    private boolean hasLoadedMessages() {
+        return oldestCursor != null || !hasMoreMessages;
+    }
+
+    /**
+     * Đồng bộ tin nhắn với Backend sau khi đã hiển thị dữ liệu trên thiết bị.
+     * Lấy tối đa PAGE_SIZE tin nhắn chênh lệch; nếu nhiều hơn hoặc yêu cầu thất bại
+     * thì tải lại trang mới nhất thay vì để lại khoảng trống trong lịch sử.
+     *
+     * @param generation  Lượt tải hiện tại, dùng để bỏ qua kết quả cũ.
+     * @param hasLocalData true nếu thiết bị đã có tin nhắn của cuộc trò chuyện.
+     */
+    private void syncWithRemote(int generation, boolean hasLocalData) {
+        String senderUid = curSenderUid.getValue();
+        String recipientUid = curRecipientId.getValue();
+
+        localMessageRepos.getLastSyncTime(senderUid, recipientUid)
+                .thenAcceptAsync(lastSyncTime -> {
+                    if (generation != pageGeneration) {
+                        return;
+                    }
+                    if (!hasLocalData || lastSyncTime == null) {
+                        loadRemotePage(true);
+                        return;
+                    }
+
+                    // Chỉ lấy phần chênh lệch kể từ lần đồng bộ trước, thêm một tin nhắn để biết có vượt quá PAGE_SIZE không
+                    messageRepos.getRemoteMessagesSince(senderUid, recipientUid, lastSyncTime, PAGE_SIZE + 1, new GetRemoteMessageCallBack() {
+                        @Override
+                        public void onResponse(List<MessageDTO> messageDTOs) {
+                            if (generation != pageGeneration || messageDTOs == null || messageDTOs.isEmpty()) {
+                                return;
+                            }
+                            // Backend cũ không hỗ trợ limit vẫn có thể trả về nhiều hơn
+                            if (messageDTOs.size() > PAGE_SIZE) {
+                                reloadLatestPage(lastSyncTime);
+                                return;
+                            }
+                            localMessageRepos.saveMessages(messageDTOs);
+                            localMessageRepos.setLastSyncTime(senderUid, recipientUid,
+                                    messageDTOs.get(messageDTOs.size() - 1).getSendingTime());
+                            appendNewMessages(messageDTOs);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            Log.e(TAG, "Unable to sync messages: " + t.getMessage());
+                            if (generation == pageGeneration) {
+                                reloadLatestPage(lastSyncTime);
+                            }
+                        }
+                    });
+                }, AppExecutors.getIns().mainThread());
+    }
+
+    /**
+     * Bỏ qua phần chênh lệch và tải lại trang mới nhất từ Backend.
+     * Các trang cũ hơn sẽ được lấy từ Backend cho tới khi vượt qua lastSyncTime,
+     * vì thiết bị chưa có các tin nhắn trong khoảng đó.
+     *
+     * @param lastSyncTime Thời điểm đồng bộ trước đó.
+     */
+    private void reloadLatestPage(String lastSyncTime) {
+        pageGeneration++;
+        hasMoreMessages = true;
+        isLoadingPage = false;
+        remoteHistoryAfter = lastSyncTime;
+        loadRemotePage(true);
+    }
+
+    /**
+     * Tải trang tin nhắn cũ hơn tin nhắn cũ nhất đang hiển thị và chèn vào đầu danh sách.
+     * Được gọi khi RecyclerView của ChatActivity cuộn gần tới đầu danh sách.
+     * Ưu tiên đọc từ thiết bị, chỉ gọi Backend khi thiết bị không còn tin nhắn cũ hơn.
+     * Bỏ qua nếu đang tải một trang khác hoặc đã hết lịch sử.
+     */
+    public void loadOlderMessages() {
+        if (oldestCursor == null || isLoadingPage || !hasMoreMessages) {
+            return;
+        }
+        if (remoteHistoryAfter != null) {
+            if (TimeCodec.parseIso(oldestCursor.getSendingTime()) > TimeCodec.parseIso(remoteHistoryAfter)) {
+                loadRemotePage(false);
+                return;
+            }
+            remoteHistoryAfter = null;
+        }
+        isLoadingPage = true;
+        isLoadingOlderMessages.setValue(true);
+        int generation = pageGeneration;
+
+        localMessageRepos.getMessages(curSenderUid.getValue(), curRecipientId.getValue(), oldestCursor, PAGE_SIZE)
+                .thenAcceptAsync(localDTOs -> {
+                    if (generation != pageGeneration) {
+                        return;
+                    }
+                    isLoadingPage = false;
+                    if (localDTOs.isEmpty()) {
+                        loadRemotePage(false);
+                        return;
+                    }
+                    isLoadingOlderMessages.setValue(false);
+                    oldestCursor = MessageCursor.from(localDTOs.get(localDTOs.size() - 1));
+                    prependMessages(toMessages(localDTOs));
+                }, AppExecutors.getIns().mainThread());
+    }
+
+    /**
+     * Tải một trang tin nhắn từ Backend tính từ oldestCursor và lưu lại trên thiết bị.
+     *
+     * @param isFirstPage true nếu là trang mới nhất (thay thế danh sách hiện tại),
+     *                    false nếu là trang cũ hơn (chèn vào đầu danh sách).
+     */
+    private void loadRemotePage(boolean isFirstPage) {
+        if (isLoadingPage || !hasMoreMessages) {
+            return;
+        }
+        isLoadingPage = true;
+        isLoadingOlderMessages.setValue(!isFirstPage);
+        int generation = pageGeneration;
+        String senderUid = curSenderUid.getValue();
+        String recipientUid = curRecipientId.getValue();
+
+        messageRepos.getRemoteMessagePage(senderUid, recipientUid, isFirstPage ? null : oldestCursor, PAGE_SIZE, new GetMessagePageCallBack() {
+            @Override
+            public void onResponse(MessagePage page) {
+                if (generation != pageGeneration) {
+                    return;
+                }
+                List<MessageDTO> messageDTOs = page.getMessages() != null ? page.getMessages() : new ArrayList<>();
+                hasMoreMessages = page.isHasMore() && !messageDTOs.isEmpty();
+
+                if (!messageDTOs.isEmpty()) {
+                    oldestCursor = page.getNextCursor();
+                    localMessageRepos.saveMessages(messageDTOs);
+                    if (isFirstPage) {
+                        localMessageRepos.setLastSyncTime(senderUid, recipientUid, messageDTOs.get(0).getSendingTime());
+                    }
+                }
+
+                if (isFirstPage) {
+                    conversationMessages.replace(toMessages(messageDTOs));
+                } else {
+                    prependMessages(toMessages(messageDTOs));
+                }
+
+                isLoadingPage = false;
+                isLoadingOlderMessages.setValue(false);
             }
 
-            messages.postValue(receivedMessages);
+            @Override
+            public void onFailure(Throwable t) {
+                Log.e(TAG, "Unable to load messages: " + t.getMessage());
+                if (generation != pageGeneration) {
+                    return;
+                }
+                isLoadingPage = false;
+                isLoadingOlderMessages.setValue(false);
+                if (isFirstPage && conversationMessages.getSnapshot().isEmpty()) {
+                    // Phát lại danh sách rỗng để giao diện ẩn ProgressBar
+                    conversationMessages.replace(new ArrayList<>());
+                }
+            }
         });
+    }
 
+    /**
+     * Chuyển danh sách MessageDTO (từ mới nhất đến cũ nhất) thành danh sách Message theo thứ tự thời gian.
+     *
+     * @param messageDTOs Danh sách tin nhắn từ mới nhất đến cũ nhất.
+     * @return Danh sách Message từ cũ nhất đến mới nhất.
+     */
+    private List<Message> toMessages(List<MessageDTO> messageDTOs) {
+        List<Message> result = new ArrayList<>(messageDTOs.size());
+        Message ms;
+        for (MessageDTO messageDTO : messageDTOs) {
+            ms = new Message();
+            ms.convertDTOToEntity(messageDTO);
+            result.add(ms);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Chèn các tin nhắn cũ hơn vào đầu danh sách đang hiển thị.
+     *
+     * @param olderMessages Danh sách tin nhắn cũ hơn theo thứ tự thời gian.
+     */
+    private void prependMessages(List<Message> olderMessages) {
+        conversationMessages.prepend(olderMessages);
+    }
+
+    /**
+     * Thêm các tin nhắn mới nhận từ lần đồng bộ vào cuối danh sách, bỏ qua tin nhắn đã có (theo id).
+     *
+     * @param newMessageDTOs Danh sách tin nhắn mới theo thứ tự thời gian.
+     */
+    private void appendNewMessages(List<MessageDTO> newMessageDTOs) {
+        List<Message> newMessages = new ArrayList<>(newMessageDTOs.size());
+        Message ms;
+        for (MessageDTO messageDTO : newMessageDTOs) {
+            ms = new Message();
+            ms.convertDTOToEntity(messageDTO);
+            newMessages.add(ms);
+        }
+        conversationMessages.appendAbsent(newMessages);
     }
 
     private void openConversationNotFoundDialog() {
@@ -249,126 +567,311 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
          * Khi nút gửi tin nhắn được nhấn, sẽ gửi request để thêm tin nhắn tới server và nhận response từ server để cập nhật tin nhắn lên View.
          *
          * Lấy văn bản tin nhắn từ `messageInput` gán cho messageText, gọi hàm sendMedia truyền vào `messageText` với loại văn bản là TEXT,
-         * đặt nội dung tin nhắn, đặt lại giá trị `messageInput` thành chuỗi rỗng.
+         * đặt lại giá trị `messageInput` thành chuỗi rỗng.
          *
          * Tác giả: Văn Hoàng
          */
         String messageText = messageInput.getValue();
-        Message newMessage = sendMedia(messageText, Message.EType.TEXT);
-        newMessage.setMessage(messageText);
+        sendMedia(messageText, Message.EType.TEXT, messageText);
 
         messageInput.postValue("");
-
-        //
-        updateConversation(newMessage);
     }
 
     /**
      * Phương thức tạo và gửi tin nhắn phương tiện (media message) với nội dung và loại tin nhắn được chỉ định gồm IMAGE và TEXT.
+     * Tin nhắn được hiển thị ngay với trạng thái PENDING, trước khi Backend xác nhận.
      *
      * @param textMedia Nội dung của tin nhắn.
-     * @param type Loại của tin nhắn (TEXT hoặc IMAGE).
-     * @return Đối tượng Message đại diện cho tin nhắn đã gửi.
+     * @param type      Loại của tin nhắn (TEXT hoặc IMAGE).
+     * @param summary   Nội dung hiển thị ở tin nhắn cuối của cuộc trò chuyện và thông báo.
      *
      * Tác giả: Văn Hoàng
      */
-    public Message sendMedia(String textMedia, Message.EType type) {
+    public void sendMedia(String textMedia, Message.EType type, String summary) {
         // Tạo một đối tượng MessageDTO với nội dung tin nhắn và loại tin nhắn được chỉ định
-        MessageDTO message = createMessageWithMessageAndType(textMedia, type);
+        PendingSend pendingSend = new PendingSend(createMessageWithMessageAndType(textMedia, type), summary, null);
+        showPending(pendingSend);
+        deliver(pendingSend);
+    }
+
+    /**
+     * Ghi tin nhắn vào outbox để gửi bằng một yêu cầu duy nhất (deliver-message): Backend lưu tin nhắn, cập nhật
+     * cuộc trò chuyện và gửi FCM tới người nhận. Tên người gửi và token người nhận lấy từ dữ liệu đã tải sẵn trong ChatViewModel.
+     * Outbox lưu yêu cầu trên thiết bị và tự thử lại khi mạng lỗi; Backend dùng clientId để bỏ qua yêu cầu lặp lại.
+     *
+     * @param pendingSend Tin nhắn cần gửi.
+     */
+    private void deliver(PendingSend pendingSend) {
+        messageOutbox.enqueueMessage(toSendRequest(pendingSend));
+    }
+
+    private SendMessageRequest toSendRequest(PendingSend pendingSend) {
+        return new SendMessageRequest(pendingSend.message, conversationId.getValue(),
+                curRecipientToken.getValue(), curUsername.getValue(), pendingSend.summary);
+    }
+
+    /**
+     * Outbox đã gửi xong một tin nhắn. Với Backend chưa có deliver-message, outbox tự gửi tiếp
+     * cập nhật cuộc trò chuyện và FCM, kể cả khi màn hình này đã đóng.
+     *
+     * @param clientId clientId của tin nhắn.
+     * @param response Tin nhắn đã lưu và id của cuộc trò chuyện.
+     */
+    private void onOutboxMessageDelivered(String clientId, SendMessageResponse response) {
+        if (response.getConversationId() != null) {
+            conversationId.postValue(response.getConversationId());
+        }
+        onMessageSent(clientId, response.getMessage());
+    }
+
+    /**
+     * Hiển thị các tin nhắn còn trong outbox (đang chờ gửi hoặc thất bại) và ghi nhớ để có thể gửi lại.
+     *
+     * @param entries Các mục outbox của cuộc trò chuyện này.
+     */
+    private void showOutboxEntries(List<OutboxEntry> entries) {
+        List<Message> messages = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            SendMessageRequest request = entry.getMessageRequest();
+            pendingSends.putIfAbsent(entry.getId(), new PendingSend(request.getMessage(), request.getSummary(), null));
+
+            Message message = new Message();
+            message.convertDTOToEntity(request.getMessage());
+            message.setDeliveryState(entry.getState() == OutboxEntry.EState.FAILED
+                    ? Message.EDeliveryState.FAILED
+                    : Message.EDeliveryState.PENDING);
+            messages.add(message);
+        }
+        conversationMessages.appendAbsent(messages);
+    }
+
+    /**
+     * Hiển thị ngay tin nhắn đang gửi với trạng thái PENDING và ghi nhớ để có thể gửi lại nếu thất bại.
+     */
+    private void showPending(PendingSend pendingSend) {
+        pendingSends.put(pendingSend.message.getClientId(), pendingSend);
+
+        Message pending = new Message();
+        pending.convertDTOToEntity(pendingSend.message);
+        pending.setDeliveryState(Message.EDeliveryState.PENDING);
+        conversationMessages.append(pending);
+    }
+
+    /**
+     * Backend đã xác nhận tin nhắn: thay thế bản hiển thị tạm bằng tin nhắn đã lưu (outbox đã lưu tin nhắn vào thiết bị).
+     *
+     * @param clientId   clientId của tin nhắn đã gửi.
+     * @param messageDTO Tin nhắn đã được Backend lưu.
+     */
+    private void onMessageSent(String clientId, MessageDTO messageDTO) {
+        pendingSends.remove(clientId);
+        if (messageDTO.getClientId() == null) {
+            messageDTO.setClientId(clientId);
+        }
+        // Chuyển đổi đối tượng MessageDTO thành đối tượng Message
         Message ms = new Message();
+        ms.convertDTOToEntity(messageDTO);
+        // Thay thế bản hiển thị tạm (hoặc bản echo FCM đã nhận trước đó)
+        conversationMessages.reconcile(ms);
+    }
 
-        // Gửi tin nhắn.
-        messageRepos.sendMessage(message, messageDTO -> {
-            if(messageDTO != null) {
-                // Chuyển đổi đối tượng MessageDTO thành đối tượng Message
-                ms.convertDTOToEntity(messageDTO);
-                // Thêm tin nhắn vào danh sách tin nhắn hiện tại
-                addMessage(ms);
-                // Gửi tin nhắn thông qua FCM (Firebase Cloud Messaging) đến người nhận
-                messageRepos.sendFCMMessage(Utils.getRemoteMsgHeaders(), ms, curRecipientToken.getValue());
-            } else {
-                errorToastMessage.postValue(Utils.KEY_FAILED_SEND_MESSAGE);
-            }
-        });
+    /**
+     * Gửi tin nhắn thất bại: đánh dấu FAILED để người dùng có thể gửi lại.
+     */
+    private void onMessageFailed(String clientId) {
+        conversationMessages.updateDeliveryState(clientId, Message.EDeliveryState.FAILED);
+        errorToastMessage.postValue(Utils.KEY_FAILED_SEND_MESSAGE);
+    }
 
-        return ms;
+    /**
+     * Gửi lại một tin nhắn gửi thất bại với cùng clientId.
+     * Nếu hình ảnh chưa được tải lên thì tải lên lại trước khi gửi.
+     *
+     * @param message Tin nhắn gửi thất bại.
+     */
+    @Override
+    public void onRetryClick(Message message) {
+        PendingSend pendingSend = message.getClientId() != null ? pendingSends.get(message.getClientId()) : null;
+        if (pendingSend == null || message.getDeliveryState() != Message.EDeliveryState.FAILED) {
+            return;
+        }
+        conversationMessages.updateDeliveryState(message.getClientId(), Message.EDeliveryState.PENDING);
+        if (pendingSend.localImage != null) {
+            uploadAndDeliver(pendingSend);
+        } else {
+            deliver(pendingSend);
+        }
     }
 
     /**
      * Phương thức gửi hình ảnh bằng cách tải lên hình ảnh và tạo một tin nhắn phương tiện với URL của hình ảnh đã tải lên.
+     * Hình ảnh được hiển thị ngay từ URI trên thiết bị trong lúc tải lên.
      *
      * @param uriImage Địa chỉ URI của hình ảnh cần gửi.
      *
      * Tác giả: Văn Hoàng
      */
     public void sendImage(Uri uriImage) {
-        /**
-         * Gọi phương thức uploadImage từ photoRepos để tải hình ảnh lên máy chủ.
-         * Nếu tải lên thành công, URL của hình ảnh sẽ được trả về trong callback.
-         * Nếu tải lên không thành công thì sẽ trả về chuỗi rỗng trong callback.
+        MessageDTO message = createMessageWithMessageAndType(uriImage.toString(), Message.EType.IMAGE);
+        PendingSend pendingSend = new PendingSend(message, Utils.KEY_INPUT_IMG, uriImage);
+        showPending(pendingSend);
+        uploadAndDeliver(pendingSend);
+    }
 
-         * Tác giả: Văn Hoàng
-         */
-        photoRepos.uploadImage(uriImage, url -> {
-            if (!url.isEmpty()) {
-                Message newMessage = sendMedia(url, Message.EType.IMAGE);
-                newMessage.setMessage(Utils.KEY_INPUT_IMG);
-                updateConversation(newMessage);
-            } else {
-                errorToastMessage.postValue("Unable to send image");
+    /**
+     * Gọi phương thức uploadImage từ photoRepos để tải hình ảnh lên máy chủ.
+     * Nếu tải lên thành công, URL của hình ảnh sẽ được trả về trong callback và tin nhắn được gửi với URL đó.
+     * Nếu tải lên không thành công thì tin nhắn được đánh dấu FAILED.
+     *
+     * @param pendingSend Tin nhắn hình ảnh cần gửi.
+     */
+    private void uploadAndDeliver(PendingSend pendingSend) {
+        photoRepos.uploadImage(pendingSend.localImage, toSendRequest(pendingSend), new UploadImageCallBack() {
+            @Override
+            public void onSuccess(UploadedImage image) {
+                applyUploadedImage(pendingSend, image);
+                deliver(pendingSend);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                markUploadFailed(pendingSend);
             }
         });
     }
 
     /**
-     * Cập nhật cuộc hội thoại
+     * Gửi nhiều hình ảnh đã chọn cùng lúc (album).
+     * Các hình ảnh được hiển thị ngay theo thứ tự đã chọn, tải lên song song (tối đa MAX_PARALLEL_IMAGE_UPLOADS ảnh cùng lúc)
+     * và được gửi theo đúng thứ tự đã chọn. Tiến trình chung được phát qua albumUploadProgress.
      *
-     * @param newMessage    :   Tin nhắn mới nhận
-     *
-     * Tác giả: Nguyễn Hà Quỳnh Giao
+     * @param uris Danh sách URI của hình ảnh theo thứ tự đã chọn.
      */
-    private void updateConversation(Message newMessage) {
-        try {
-            newMessage.setSenderId(this.curSenderUid.getValue());
-            newMessage.setRecipientId(this.curRecipientId.getValue());
-
-            Log.i(TAG, "Send button clicked");
-            // Kiểm tra conversation có tồn tại không
-            if (conversationId.getValue() != null) {
-                // Cập nhật conversation
-                conversationRepos.update(newMessage);
-            } else {
-                // Thêm mới và set giá trị cho conversationId
-                conversationRepos.add(newMessage).thenAccept(
-                        conversation -> conversationId.setValue(conversation.getId()));
-            }
-            // Gửi thông báo
-            pushNotification(newMessage);
-        } catch (Exception e) {
-            errorToastMessage.postValue("Undeliverable messages");
+    public void sendImages(List<Uri> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        if (uris.size() == 1) {
+            sendImage(uris.get(0));
+            return;
+        }
+        List<PendingSend> album = new ArrayList<>(uris.size());
+        for (Uri uri : uris) {
+            MessageDTO message = createMessageWithMessageAndType(uri.toString(), Message.EType.IMAGE);
+            PendingSend pendingSend = new PendingSend(message, Utils.KEY_INPUT_IMG, uri);
+            showPending(pendingSend);
+            album.add(pendingSend);
         }
+        new AlbumUpload(album).start();
+    }
+
+    private void applyUploadedImage(PendingSend pendingSend, UploadedImage image) {
+        pendingSend.message.setMessage(image.getUrl());
+        pendingSend.message.setThumbnailUrl(image.getThumbnailUrl());
+        pendingSend.message.setImageWidth(image.getWidth());
+        pendingSend.message.setImageHeight(image.getHeight());
+        pendingSend.localImage = null;
+    }
+
+    private void markUploadFailed(PendingSend pendingSend) {
+        conversationMessages.updateDeliveryState(pendingSend.message.getClientId(), Message.EDeliveryState.FAILED);
+        errorToastMessage.postValue("Unable to send image");
     }
 
     /**
-     * Gửi thông báo tin nhắn đến người nhận
-     *      *
-     * @param message   :   Tin nhắn vừa gửi.
+     * Tải lên một album hình ảnh.
+     *
+     * - Tối đa MAX_PARALLEL_IMAGE_UPLOADS ảnh được tải lên cùng lúc, ảnh kế tiếp bắt đầu khi một ảnh tải xong.
+     * - Ảnh tải xong trước chờ các ảnh đứng trước nó, rồi mới được ghi vào outbox. Outbox chỉ gửi mục cũ nhất còn chờ
+     *   của mỗi cuộc trò chuyện, kể cả khi mục đó đang chờ thử lại sau lỗi mạng, nên người nhận thấy ảnh theo đúng
+     *   thứ tự đã chọn mà không cần chờ ảnh trước được Backend xác nhận mới ghi ảnh sau.
+     * - Ảnh tải lên thất bại được đánh dấu FAILED và không chặn các ảnh sau; gửi lại sẽ đi theo đường gửi một ảnh.
+     * - Tiến trình chung là trung bình tiến trình của từng ảnh (0-100), null khi album đã xong.
      *
-     * Tác giả: Nguyễn Hà Quỳnh Giao
+     * Mọi trạng thái được đồng bộ trên instance, callback của PhotoRepos chạy trên luồng chính.
      */
-    private void pushNotification(Message message) {
-        // Lấy thông tin người dùng hiện tại
-        CompletableFuture<User> currentUser = authRepos.getCurrentUser();
-        // Khi thông tin người dùng hiện tại đã lấy thành công
-        currentUser.thenAccept(sender -> {
-            // Tạo một HashMap để chứa thông tin của tin nhắn
-            HashMap<String, String> completedMessage = new HashMap<>();
-            completedMessage.put(Utils.KEY_FCM_TOKEN, curRecipientToken.getValue());
-            completedMessage.put(Utils.KEY_SENDER_NAME, sender.getFullName());
-            completedMessage.put(Utils.KEY_MESSAGE, message.getMessage());
-            // Thông báo gửi tin nhắn
-            sendNotification.postValue(completedMessage);
-        });
+    private class AlbumUpload {
+        private final List<PendingSend> items;
+        private final double[] progress;
+        private final boolean[] finished;
+        private final boolean[] uploaded;
+        private int nextToStart;
+        private int nextToDeliver;
+        private int running;
+
+        AlbumUpload(List<PendingSend> items) {
+            this.items = items;
+            this.progress = new double[items.size()];
+            this.finished = new boolean[items.size()];
+            this.uploaded = new boolean[items.size()];
+        }
+
+        synchronized void start() {
+            startAvailable();
+            publishProgress();
+        }
+
+        private void startAvailable() {
+            while (running < MAX_PARALLEL_IMAGE_UPLOADS && nextToStart < items.size()) {
+                int index = nextToStart++;
+                running++;
+                PendingSend pendingSend = items.get(index);
+                photoRepos.uploadImage(pendingSend.localImage, toSendRequest(pendingSend), new UploadImageCallBack() {
+                    @Override
+                    public void onSuccess(UploadedImage image) {
+                        applyUploadedImage(pendingSend, image);
+                        onFinished(index, true);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        markUploadFailed(pendingSend);
+                        onFinished(index, false);
+                    }
+
+                    @Override
+                    public void onProgress(long bytesTransferred, long totalBytes) {
+                        onUploadProgress(index, bytesTransferred, totalBytes);
+                    }
+                });
+            }
+        }
+
+        private synchronized void onUploadProgress(int index, long bytesTransferred, long totalBytes) {
+            if (totalBytes > 0 && !finished[index]) {
+                progress[index] = (double) bytesTransferred / totalBytes;
+                publishProgress();
+            }
+        }
+
+        private synchronized void onFinished(int index, boolean success) {
+            running--;
+            finished[index] = true;
+            uploaded[index] = success;
+            progress[index] = 1;
+
+            // Chỉ gửi khi mọi ảnh đứng trước đã tải lên xong (hoặc thất bại), để giữ thứ tự đã chọn
+            while (nextToDeliver < items.size() && finished[nextToDeliver]) {
+                if (uploaded[nextToDeliver]) {
+                    deliver(items.get(nextToDeliver));
+                }
+                nextToDeliver++;
+            }
+            startAvailable();
+            publishProgress();
+        }
+
+        private void publishProgress() {
+            if (nextToDeliver == items.size()) {
+                albumUploadProgress.postValue(null);
+                return;
+            }
+            double sum = 0;
+            for (double itemProgress : progress) {
+                sum += itemProgress;
+            }
+            albumUploadProgress.postValue((int) (100 * sum / items.size()));
+        }
     }
 
     /**
@@ -383,6 +886,7 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     private MessageDTO createMessageWithMessageAndType(String content, Message.EType eType) {
         MessageDTO message = new MessageDTO();
 
+        message.setClientId(UUID.randomUUID().toString());
         message.setMessage(content);
         message.setType(eType);
         message.setSenderId(curSenderUid.getValue());
@@ -416,48 +920,92 @@ public class ChatViewModel extends BaseViewModel implements ImageListener {
     /**
      * Xử lý sự kiện khi người dùng nhấn vào một hình ảnh trong danh sách tin nhắn trên màn hình.
      *
-     * @param position Vị trí của hình ảnh trong danh sách tin nhắn.
-     *                Từ vị trí này, lấy URL của hình ảnh và gửi đi thông báo qua biến "isImageClicked" để xử lí bên ChatActivity.
+     * @param message Tin nhắn hình ảnh được click, ChatAdapter lấy từ danh sách đang hiển thị.
+     *                Tin nhắn (URL ảnh gốc và ảnh thu nhỏ) được gửi đi qua biến "isImageClicked" để xử lí bên ChatActivity.
 
      * Tác giả: Văn Hoàng
      */
     @Override
-    public void onImageClick(int position) {
-        String urlImage = Objects.requireNonNull(messages.getValue()).get(position).getMessage();
-        isImageClicked.postValue(urlImage);
+    public void onImageClick(Message message) {
+        isImageClicked.postValue(message);
     }
 
     void checkForConversationRemotely() {
-        if (Objects.requireNonNull(messages.getValue()).size() != 0) {
+        if (!conversationMessages.getSnapshot().isEmpty()) {
             conversationRepos.getConversationBySenderAndRecipient(this.curSenderUid.getValue(), this.curRecipientId.getValue()).thenAccept(conversation -> this.conversationId.setValue(conversation.getId()));
         }
     }
 
     /**
-     * Nhận dạng văn bản từ hình ảnh được cung cấp.
+     * Nhận dạng văn bản từ các hình ảnh được cung cấp và hiển thị vào ô nhập tin nhắn.
+     * - Các hình ảnh được giải mã song song trên luồng nền rồi được nhận dạng cùng lúc.
+     * - Văn bản đã nhận dạng được hiển thị dần trong khi các hình ảnh còn lại (hoặc lượt nhận dạng hệ chữ khác) đang chạy,
+     *   văn bản của các hình ảnh được nối theo thứ tự chọn.
      *
      * @param context Context của ứng dụng.
-     * @param uri     Uri của hình ảnh cần nhận dạng văn bản.
+     * @param uris    Danh sách Uri của các hình ảnh cần nhận dạng văn bản.
 
      * Tác giả: Văn Hoàng
      */
-    public void recognizeTextFromImage(Context context, Uri uri) {
-        // Khởi tạo một đối tượng nhận diện văn bản
-        TextRecognizer recognizer = TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
-        TextAnalyzer analyzer = new TextAnalyzer(recognizer);
-
-        Bitmap bitmap = RecognizeUtils.uriToBitmap(context, uri);
-
-        // Phân tích văn bản từ hình ảnh
-        analyzer.analyze(bitmap, textResult -> {
-            if (!textResult.isEmpty()) {
-                // Nếu văn bản được nhận dạng thành công, gán giá trị vào messageInput để hiển thị
-                messageInput.postValue(textResult);
-                Log.d(TAG, "Text recognized : " + textResult);
-            } else {
-                // Nếu không thể nhận dạng được văn bản trên hình ảnh, gửi một thông báo lỗi
+    public void recognizeTextFromImages(Context context, List<Uri> uris) {
+        Context appContext = context.getApplicationContext();
+        List<CompletableFuture<InputImage>> decodes = new ArrayList<>(uris.size());
+        for (Uri uri : uris) {
+            // Giải mã trên luồng nền, không chặn luồng chính
+            decodes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return RecognizeUtils.decodeForRecognition(appContext, uri);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, AppExecutors.getIns().computation()));
+        }
+
+        // TextRecognizerPool chỉ được dùng trên luồng chính (trạng thái gộp kết quả không được đồng bộ hóa),
+        // nên chuyển về luồng chính sau khi giải mã xong; whenComplete để vẫn chạy khi có hình ảnh giải mã lỗi
+        CompletableFuture.allOf(decodes.toArray(new CompletableFuture[0])).whenCompleteAsync((ignored, throwable) -> {
+            // Bỏ qua hình ảnh không giải mã được, vẫn nhận dạng các hình ảnh còn lại
+            List<InputImage> images = new ArrayList<>(decodes.size());
+            for (CompletableFuture<InputImage> decode : decodes) {
+                if (!decode.isCompletedExceptionally()) {
+                    images.add(decode.join());
+                }
+            }
+            if (throwable != null) {
+                Log.e(TAG, "Unable to decode image for recognition", throwable);
+            }
+            if (images.isEmpty()) {
                 errorToastMessage.postValue("Unable to recognize text on image");
+                return;
             }
-        });
+
+            // Phân tích văn bản từ hình ảnh, tự chọn hệ chữ
+            textRecognizerPool.recognizeAll(images, new RecognitionListener() {
+                @Override
+                public void onPartialResult(RecognizedText partial) {
+                    if (!partial.isEmpty()) {
+                        messageInput.postValue(partial.getText());
+                    }
+                }
+
+                @Override
+                public void onResult(RecognizedText result) {
+                    if (!result.isEmpty()) {
+                        // Nếu văn bản được nhận dạng thành công, gán giá trị vào messageInput để hiển thị
+                        messageInput.postValue(result.getText());
+                        Log.d(TAG, "Text recognized in " + result.getBlocks().size() + " blocks");
+                    } else {
+                        // Nếu không thể nhận dạng được văn bản trên hình ảnh, gửi một thông báo lỗi
+                        errorToastMessage.postValue("Unable to recognize text on image");
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    Log.e(TAG, "Text recognition failed", e);
+                    errorToastMessage.postValue("Unable to recognize text on image");
+                }
+            });
+        }, AppExecutors.getIns().mainThread());
     }
 }
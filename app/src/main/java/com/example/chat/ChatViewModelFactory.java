@@ -6,6 +6,8 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.chat.conversations.Conversation;
 import com.example.chat.conversations.repos.ConversationRepos;
+import com.example.chat.message.outbox.MessageOutbox;
+import com.example.chat.message.repos.LocalMessageRepos;
 import com.example.chat.message.repos.MessageRepos;
 import com.example.chat.message.repos.PhotoRepos;
 import com.example.user.repository.AuthRepos;
@@ -24,25 +26,35 @@ public class ChatViewModelFactory implements ViewModelProvider.Factory{
 
     protected final Conversation conversation;
     protected final PhotoRepos photoRepos;
+    protected final LocalMessageRepos localMessageRepos;
+    protected final MessageDispatcher messageDispatcher;
+    protected final MessageOutbox messageOutbox;
+
     public ChatViewModelFactory(AuthRepos authRepos,
                                 UserRepos userRepos,
                                 MessageRepos messageRepos,
                                 ConversationRepos conversationRepos,
                                 Conversation conversation,
-                                PhotoRepos photoRepos) {
+                                PhotoRepos photoRepos,
+                                LocalMessageRepos localMessageRepos,
+                                MessageDispatcher messageDispatcher,
+                                MessageOutbox messageOutbox) {
         this.authRepos = authRepos;
         this.userRepos = userRepos;
         this.messageRepos = messageRepos;
         this.conversationRepos = conversationRepos;
         this.conversation = conversation;
         this.photoRepos = photoRepos;
+        this.localMessageRepos = localMessageRepos;
+        this.messageDispatcher = messageDispatcher;
+        this.messageOutbox = messageOutbox;
     }
 
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(ChatViewModel.class)) {
-            return (T) new ChatViewModel(userRepos, authRepos, conversationRepos, messageRepos, conversation, photoRepos);
+            return (T) new ChatViewModel(userRepos, authRepos, conversationRepos, messageRepos, conversation, photoRepos, localMessageRepos, messageDispatcher, messageOutbox);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -0,0 +1,154 @@
+package com.example.chat;
+
+import android.app.Activity;
+import android.content.MutableContextWrapper;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.databinding.DataBindingUtil;
+import androidx.databinding.ViewDataBinding;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.infrastructure.metrics.LatencyMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Giữ các view của danh sách tin nhắn dùng chung giữa các ChatActivity:
+ * - Một RecycledViewPool dùng chung, kích thước riêng cho từng loại view của ChatAdapter.
+ * - Các layout được inflate trước bằng AsyncLayoutInflater (trên luồng nền) khi mở màn hình chat,
+ *   để lần cuộn đầu tiên không phải inflate trên luồng chính.
+ *
+ * Các view được inflate với một MutableContextWrapper: context gốc là ChatActivity được gắn gần nhất còn sống,
+ * và chỉ được chuyển về application context khi ChatActivity cuối cùng bị hủy, nên view trong pool không giữ
+ * activity đã hủy và các ChatActivity còn mở bên dưới vẫn inflate view với theme của activity.
+ * Mọi phương thức phải được gọi trên luồng chính.
+ */
+public class ChatViewPool {
+    public static final String STAGE_INFLATE_ON_DEMAND = "inflate_on_demand";
+
+    // Thời gian inflate trên luồng chính khi không còn view được inflate trước
+    public static final LatencyMetrics METRICS = new LatencyMetrics("chat_view_pool");
+
+    // Số view được inflate trước và số view tối đa trong RecycledViewPool cho mỗi loại view
+    private static final int PREWARM_TEXT = 8;
+    private static final int PREWARM_IMAGE = 4;
+    private static final int MAX_RECYCLED_TEXT = 15;
+    private static final int MAX_RECYCLED_IMAGE = 8;
+
+    private static final int[] VIEW_TYPES = {
+            ChatAdapter.VIEW_MESSAGE_SENT,
+            ChatAdapter.VIEW_MESSAGE_RECEIVED,
+            ChatAdapter.VIEW_IMAGE_SENT,
+            ChatAdapter.VIEW_IMAGE_RECEIVED
+    };
+
+    private static RecyclerView.RecycledViewPool pool;
+    private static MutableContextWrapper context;
+    private static AsyncLayoutInflater asyncInflater;
+    private static final SparseArray<ArrayDeque<ViewDataBinding>> preinflated = new SparseArray<>();
+    private static final SparseIntArray inflating = new SparseIntArray();
+    // Các ChatActivity đang gắn theo thứ tự attach, một activity xuất hiện một lần cho mỗi lần attach
+    private static final List<Activity> attached = new ArrayList<>();
+
+    private ChatViewPool() {
+    }
+
+    /**
+     * Gắn pool dùng chung cho RecyclerView của ChatActivity và inflate trước các view còn thiếu.
+     * Gọi trong onCreate, trước khi đặt adapter.
+     *
+     * @param prewarm false để bỏ qua việc inflate trước, các view được inflate trên luồng chính khi cần.
+     */
+    public static void attach(Activity activity, RecyclerView recyclerView, boolean prewarm) {
+        attached.add(activity);
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            for (int viewType : VIEW_TYPES) {
+                pool.setMaxRecycledViews(viewType, isImage(viewType) ? MAX_RECYCLED_IMAGE : MAX_RECYCLED_TEXT);
+            }
+            context = new MutableContextWrapper(activity);
+            asyncInflater = new AsyncLayoutInflater(context);
+        } else {
+            context.setBaseContext(activity);
+        }
+        recyclerView.setRecycledViewPool(pool);
+        if (prewarm) {
+            prewarm(recyclerView);
+        }
+    }
+
+    /**
+     * Trả các view đang hiển thị về pool và tách pool khỏi activity. Gọi trong onDestroy.
+     * Context của pool chuyển sang ChatActivity được gắn gần nhất còn lại, hoặc application context nếu không còn.
+     */
+    public static void detach(Activity activity, RecyclerView recyclerView) {
+        // Bỏ adapter để RecyclerView đưa các ViewHolder đang gắn vào pool, ChatActivity mở sau dùng lại ngay
+        recyclerView.setAdapter(null);
+        attached.remove(activity);
+        if (context == null) {
+            return;
+        }
+        if (!attached.isEmpty()) {
+            context.setBaseContext(attached.get(attached.size() - 1));
+        } else {
+            context.setBaseContext(activity.getApplicationContext());
+        }
+    }
+
+    /**
+     * LayoutInflater dùng để inflate view của danh sách tin nhắn, với context dùng chung của pool nếu đã được gắn.
+     */
+    static LayoutInflater getInflater(ViewGroup parent) {
+        return LayoutInflater.from(context != null ? context : parent.getContext());
+    }
+
+    /**
+     * Lấy một binding đã được inflate trước cho loại view viewType, null nếu không còn.
+     */
+    static ViewDataBinding takePreinflated(int viewType) {
+        ArrayDeque<ViewDataBinding> bindings = preinflated.get(viewType);
+        return bindings != null ? bindings.poll() : null;
+    }
+
+    private static void prewarm(RecyclerView parent) {
+        for (int viewType : VIEW_TYPES) {
+            ArrayDeque<ViewDataBinding> bindings = preinflated.get(viewType);
+            int available = pool.getRecycledViewCount(viewType)
+                    + (bindings != null ? bindings.size() : 0)
+                    + inflating.get(viewType);
+            int missing = (isImage(viewType) ? PREWARM_IMAGE : PREWARM_TEXT) - available;
+            for (int i = 0; i < missing; i++) {
+                inflating.put(viewType, inflating.get(viewType) + 1);
+                // parent chỉ dùng để tạo LayoutParams, view không được gắn vào parent
+                asyncInflater.inflate(ChatAdapter.getLayoutId(viewType), parent,
+                        (View view, int resid, ViewGroup ignored) -> onInflated(viewType, view));
+            }
+        }
+    }
+
+    private static void onInflated(int viewType, View view) {
+        inflating.put(viewType, inflating.get(viewType) - 1);
+        // Binding phải được tạo trên luồng chính
+        ViewDataBinding binding = DataBindingUtil.bind(view);
+        if (binding == null) {
+            return;
+        }
+        ArrayDeque<ViewDataBinding> bindings = preinflated.get(viewType);
+        if (bindings == null) {
+            bindings = new ArrayDeque<>();
+            preinflated.put(viewType, bindings);
+        }
+        bindings.add(binding);
+    }
+
+    private static boolean isImage(int viewType) {
+        return viewType == ChatAdapter.VIEW_IMAGE_SENT || viewType == ChatAdapter.VIEW_IMAGE_RECEIVED;
+    }
+}
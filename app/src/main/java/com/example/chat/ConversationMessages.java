@@ -0,0 +1,286 @@
+package com.example.chat;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.chat.message.Message;
+import com.example.chat.message.MessageChunks;
+import com.example.chat.message.MessageColumns;
+import com.example.infrastructure.TimeCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Giữ danh sách tin nhắn của một cuộc trò chuyện theo kiểu copy-on-write.
+ *
+ * Mỗi thay đổi (thêm, chèn, thay thế) tạo ra một bản sao mới không thể sửa đổi và phát bản sao đó qua LiveData,
+ * nên luồng FCM, callback mạng và RecyclerView trên luồng chính không bao giờ cùng thao tác trên một list.
+ * Các thao tác ghi được đồng bộ hóa, luôn dựa trên bản sao mới nhất thay vì giá trị LiveData đang chờ phát.
+ *
+ * Với cuộc trò chuyện dài, các tin nhắn cũ được chuyển sang dạng cột (MessageChunks), chỉ các tin nhắn mới nhất
+ * được giữ dạng đối tượng; các thao tác thường gặp (thêm vào cuối, cập nhật tin nhắn đang gửi) chỉ sao chép phần mới,
+ * mỗi trang tin nhắn cũ hơn được thêm thành một khối mới thay vì ghép lại toàn bộ phần dạng cột.
+ */
+public class ConversationMessages {
+    // Khi số tin nhắn dạng đối tượng vượt ngưỡng này, phần cũ được chuyển sang dạng cột
+    private static final int COMPACT_THRESHOLD = 1000;
+    // Số tin nhắn mới nhất luôn giữ dạng đối tượng (đang hiển thị, có thể đang gửi hoặc được cập nhật)
+    private static final int RECENT_MESSAGES = 200;
+
+    private final String conversationKey;
+    private final MutableLiveData<List<Message>> liveData = new MutableLiveData<>(Collections.emptyList());
+    private volatile List<Message> snapshot = Collections.emptyList();
+    // Phần cũ dạng cột và phần mới dạng đối tượng của snapshot, chỉ đọc và ghi khi giữ khóa
+    private MessageChunks head = MessageChunks.EMPTY;
+    private List<Message> tail = Collections.emptyList();
+
+    public ConversationMessages(String conversationKey) {
+        this.conversationKey = conversationKey;
+    }
+
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    public LiveData<List<Message>> getLiveData() {
+        return liveData;
+    }
+
+    /**
+     * Trả về bản sao hiện tại (không thể sửa đổi) của danh sách tin nhắn.
+     */
+    public List<Message> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Trả về phần cũ dạng cột hiện tại.
+     */
+    synchronized MessageChunks getHead() {
+        return head;
+    }
+
+    /**
+     * Thêm một tin nhắn vào cuối danh sách.
+     */
+    public synchronized void append(Message message) {
+        List<Message> next = new ArrayList<>(tail.size() + 1);
+        next.addAll(tail);
+        next.add(message);
+        publish(head, next);
+    }
+
+    /**
+     * Thêm các tin nhắn chưa có (so sánh theo clientId hoặc id) vào danh sách, đúng vị trí theo thời gian gửi:
+     * tin nhắn từ lần đồng bộ có thể cũ hơn các tin nhắn đang gửi ở cuối danh sách.
+     * Tin nhắn trùng với một bản hiển thị tạm chưa được xác nhận, hoặc với một bản chưa có id từ Backend
+     * (nhận qua FCM, đọc từ thiết bị), sẽ thay thế bản đó tại chỗ.
+     *
+     * @param newMessages Danh sách tin nhắn mới theo thứ tự thời gian.
+     * @return true nếu danh sách thay đổi.
+     */
+    public synchronized boolean appendAbsent(List<Message> newMessages) {
+        MessageChunks nextHead = head;
+        List<Message> next = new ArrayList<>(tail.size() + newMessages.size());
+        next.addAll(tail);
+        boolean changed = false;
+        for (Message message : newMessages) {
+            int index = indexOf(next, message);
+            if (index >= 0) {
+                Message existing = next.get(index);
+                if (shouldReplace(existing.getDeliveryState(), existing.getId(), message)) {
+                    copyClientId(existing, message);
+                    next.set(index, message);
+                    changed = true;
+                }
+                continue;
+            }
+            int headIndex = nextHead.indexOf(message);
+            if (headIndex < 0) {
+                next.add(insertionIndex(next, message), message);
+                changed = true;
+            } else if (shouldReplace(nextHead.getDeliveryState(headIndex), nextHead.getId(headIndex), message)) {
+                copyClientId(nextHead.get(headIndex), message);
+                nextHead = nextHead.with(headIndex, message);
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+        publish(nextHead, next);
+        return true;
+    }
+
+    /**
+     * Đối chiếu một tin nhắn với danh sách hiện tại: nếu đã có tin nhắn cùng clientId hoặc cùng id
+     * (bản hiển thị tạm, hoặc bản đã nhận qua FCM/xác nhận) thì thay thế tại chỗ, nếu chưa có thì thêm vào cuối.
+     *
+     * @param message Tin nhắn mới hoặc phiên bản mới của một tin nhắn đã có.
+     */
+    public synchronized void reconcile(Message message) {
+        List<Message> next = new ArrayList<>(tail);
+        int index = indexOf(next, message);
+        if (index >= 0) {
+            copyClientId(next.get(index), message);
+            next.set(index, message);
+            publish(head, next);
+            return;
+        }
+        int headIndex = head.indexOf(message);
+        if (headIndex >= 0) {
+            copyClientId(head.get(headIndex), message);
+            publish(head.with(headIndex, message), next);
+            return;
+        }
+        next.add(message);
+        publish(head, next);
+    }
+
+    /**
+     * Cập nhật trạng thái gửi của tin nhắn có clientId tương ứng.
+     *
+     * @return true nếu tìm thấy tin nhắn.
+     */
+    public synchronized boolean updateDeliveryState(String clientId, Message.EDeliveryState state) {
+        for (int i = 0; i < tail.size(); i++) {
+            Message message = tail.get(i);
+            if (clientId.equals(message.getClientId())) {
+                // Tạo bản sao để bản đang hiển thị không bị sửa đổi, DiffUtil mới nhận ra thay đổi
+                Message updated = new Message(message);
+                updated.setDeliveryState(state);
+                List<Message> next = new ArrayList<>(tail);
+                next.set(i, updated);
+                publish(head, next);
+                return true;
+            }
+        }
+        int headIndex = head.indexOfClientId(clientId);
+        if (headIndex < 0) {
+            return false;
+        }
+        Message updated = new Message(head.get(headIndex));
+        updated.setDeliveryState(state);
+        publish(head.with(headIndex, updated), tail);
+        return true;
+    }
+
+    /**
+     * Chèn các tin nhắn cũ hơn vào đầu danh sách.
+     *
+     * @param olderMessages Danh sách tin nhắn cũ hơn theo thứ tự thời gian.
+     */
+    public synchronized void prepend(List<Message> olderMessages) {
+        if (olderMessages.isEmpty()) {
+            return;
+        }
+        if (head.size() > 0) {
+            // Đã có phần dạng cột, tin nhắn cũ hơn nằm trước phần đó, thành một khối mới
+            publish(head.prepend(MessageColumns.of(olderMessages)), tail);
+            return;
+        }
+        List<Message> next = new ArrayList<>(olderMessages.size() + tail.size());
+        next.addAll(olderMessages);
+        next.addAll(tail);
+        publish(head, next);
+    }
+
+    /**
+     * Thay thế toàn bộ danh sách tin nhắn.
+     * Các tin nhắn chưa được Backend xác nhận (PENDING, FAILED) và chưa có trong danh sách mới được giữ lại ở cuối.
+     */
+    public synchronized void replace(List<Message> messages) {
+        List<Message> next = new ArrayList<>(messages);
+        for (int i = 0; i < head.size(); i++) {
+            if (head.getDeliveryState(i) != Message.EDeliveryState.SENT && indexOf(messages, head.get(i)) < 0) {
+                next.add(head.get(i));
+            }
+        }
+        for (Message message : tail) {
+            if (message.getDeliveryState() != Message.EDeliveryState.SENT && indexOf(messages, message) < 0) {
+                next.add(message);
+            }
+        }
+        publish(MessageChunks.EMPTY, next);
+    }
+
+    /**
+     * Tìm vị trí của tin nhắn cùng clientId hoặc cùng id, hoặc bản chưa có id từ Backend của message
+     * (Message.isUnsyncedCopy). Tìm từ cuối danh sách vì tin nhắn cần đối chiếu thường là tin mới nhất.
+     */
+    private static int indexOf(List<Message> messages, Message message) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Message existing = messages.get(i);
+            if (message.getClientId() != null && message.getClientId().equals(existing.getClientId())) {
+                return i;
+            }
+            if (message.getId() != null && message.getId().equals(existing.getId())) {
+                return i;
+            }
+            if (Message.isUnsyncedCopy(existing.getId(), existing.getClientId(), existing.getSenderId(),
+                    existing.getSendingTimeMillis(), message)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bản đã có được thay bằng message nếu chưa được Backend xác nhận, hoặc nếu message mang id từ Backend
+     * mà bản đã có chưa có (FCM, id tạm trên thiết bị).
+     */
+    private static boolean shouldReplace(Message.EDeliveryState existingState, String existingId, Message message) {
+        return existingState != Message.EDeliveryState.SENT
+                || !Message.isServerId(existingId) && Message.isServerId(message.getId());
+    }
+
+    /**
+     * Vị trí chèn message vào tail theo thời gian gửi: sau tin nhắn cuối cùng không mới hơn message.
+     * Tin nhắn không có thời gian được thêm vào cuối; tin nhắn cũ hơn cả tail được chèn vào đầu tail,
+     * không chèn vào phần dạng cột (chỉ gồm các tin nhắn đã cũ).
+     */
+    private static int insertionIndex(List<Message> tail, Message message) {
+        long time = message.getSendingTimeMillis();
+        if (time == TimeCodec.UNKNOWN) {
+            return tail.size();
+        }
+        int index = tail.size();
+        while (index > 0) {
+            long previous = tail.get(index - 1).getSendingTimeMillis();
+            if (previous == TimeCodec.UNKNOWN || previous <= time) {
+                break;
+            }
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Bản từ Backend hoặc echo FCM có thể không mang clientId, giữ clientId cũ để khóa của dòng không đổi.
+     */
+    private static void copyClientId(Message existing, Message replacement) {
+        if (replacement.getClientId() == null) {
+            replacement.setClientId(existing.getClientId());
+        }
+    }
+
+    /**
+     * Đóng băng danh sách mới thành bản sao không thể sửa đổi và phát qua LiveData.
+     * Nếu phần dạng đối tượng vượt COMPACT_THRESHOLD, các tin nhắn cũ của phần này được chuyển sang dạng cột.
+     * Dùng postValue để có thể gọi từ bất kỳ luồng nào; nếu nhiều bản sao được phát liên tiếp,
+     * người quan sát chỉ nhận bản mới nhất, vốn đã chứa mọi thay đổi trước đó.
+     */
+    private void publish(MessageChunks nextHead, List<Message> nextTail) {
+        if (nextTail.size() > COMPACT_THRESHOLD) {
+            int moved = nextTail.size() - RECENT_MESSAGES;
+            nextHead = nextHead.append(MessageColumns.of(nextTail.subList(0, moved)));
+            nextTail = new ArrayList<>(nextTail.subList(moved, nextTail.size()));
+        }
+        head = nextHead;
+        tail = Collections.unmodifiableList(nextTail);
+        snapshot = head.size() > 0 ? head.followedBy(tail) : tail;
+        liveData.postValue(snapshot);
+    }
+}
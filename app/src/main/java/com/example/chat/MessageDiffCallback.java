@@ -0,0 +1,73 @@
+package com.example.chat;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.chat.message.Message;
+import com.example.infrastructure.TimeCodec;
+
+import java.util.Objects;
+
+/**
+ * So sánh hai tin nhắn cho DiffUtil của ChatAdapter.
+ * - Cùng một tin nhắn nếu có cùng khóa (clientId, id, hoặc người gửi + thời gian gửi khi chưa có cả hai).
+ * - Nội dung giống nhau nếu các trường được hiển thị không đổi, kể cả ảnh thu nhỏ và kích thước của tin nhắn hình ảnh
+ *   (thường chỉ có sau khi Backend xác nhận tin nhắn, lúc đó hàng phải được bind lại để thay ảnh giữ chỗ).
+ */
+class MessageDiffCallback extends DiffUtil.ItemCallback<Message> {
+    static final MessageDiffCallback INSTANCE = new MessageDiffCallback();
+
+    private MessageDiffCallback() {
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+        return getMessageKey(oldItem).equals(getMessageKey(newItem));
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Message oldItem, @NonNull Message newItem) {
+        return Objects.equals(oldItem.getMessage(), newItem.getMessage())
+                && isSameSendingTime(oldItem, newItem)
+                && oldItem.getType() == newItem.getType()
+                && oldItem.getVisibility() == newItem.getVisibility()
+                && oldItem.getDeliveryState() == newItem.getDeliveryState()
+                && Objects.equals(oldItem.getThumbnailUrl(), newItem.getThumbnailUrl())
+                && oldItem.getImageWidth() == newItem.getImageWidth()
+                && oldItem.getImageHeight() == newItem.getImageHeight();
+    }
+
+    /**
+     * Tạo khóa định danh một tin nhắn. Ưu tiên clientId vì không đổi từ lúc hiển thị tạm đến khi Backend xác nhận,
+     * sau đó là id từ Backend, nếu chưa có thì ghép người gửi và thời gian gửi.
+     *
+     * @param message Tin nhắn cần lấy khóa.
+     * @return Khóa của tin nhắn.
+     */
+    static String getMessageKey(Message message) {
+        if (message.getClientId() != null) {
+            return message.getClientId();
+        }
+        if (message.getId() != null) {
+            return message.getId();
+        }
+        return message.getSenderId() + "_" + getSendingTimeKey(message) + "_" + message.getMessage();
+    }
+
+    /**
+     * So sánh thời gian gửi bằng số mili giây đã phân tích, không cần định dạng chuỗi hiển thị trong lúc tính diff.
+     */
+    private static boolean isSameSendingTime(Message oldItem, Message newItem) {
+        if (oldItem.getSendingTimeMillis() != newItem.getSendingTimeMillis()) {
+            return false;
+        }
+        return oldItem.getSendingTimeMillis() != TimeCodec.UNKNOWN
+                || Objects.equals(oldItem.getSendingTime(), newItem.getSendingTime());
+    }
+
+    private static String getSendingTimeKey(Message message) {
+        return message.getSendingTimeMillis() != TimeCodec.UNKNOWN
+                ? String.valueOf(message.getSendingTimeMillis())
+                : message.getSendingTime();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chat;
+
+import android.content.Context;
+
+import com.example.chat.message.Message;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.repos.LocalMessageRepos;
+import com.example.chat.message.repos.LocalMessageReposImpl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Phân phối tin nhắn nhận qua FCM theo từng cuộc trò chuyện (cặp người gửi/người nhận).
+ *
+ * - Mọi tin nhắn được lưu vào kho tin nhắn trên thiết bị và gửi tới các subscriber của mọi cuộc trò chuyện
+ *   (danh sách cuộc trò chuyện đang hiển thị). Khi chưa có màn hình nào đăng ký, tin nhắn chỉ được lưu;
+ *   danh sách cuộc trò chuyện tải lại từ Backend khi được mở.
+ * - Chỉ cuộc trò chuyện đang mở (đã subscribe với đúng khóa) mới nhận tin nhắn vào danh sách hiển thị,
+ *   các màn hình chat khác không bị bind lại.
+ */
+public class MessageDispatcher {
+
+    /**
+     * Người nhận tin nhắn của một cuộc trò chuyện đang mở.
+     */
+    public interface Subscriber {
+        void onMessageReceived(Message message);
+    }
+
+    private static MessageDispatcher ins;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allConversationSubscribers = new CopyOnWriteArraySet<>();
+    private final LocalMessageRepos localMessageRepos;
+
+    /**
+     * Trả về instance duy nhất của MessageDispatcher.
+     *
+     * @param context Context bất kỳ của ứng dụng, dùng để mở kho tin nhắn trên thiết bị.
+     * @return instance của MessageDispatcher.
+     */
+    public static synchronized MessageDispatcher getIns(Context context) {
+        if (ins == null) {
+            ins = new MessageDispatcher(new LocalMessageReposImpl(context));
+        }
+        return ins;
+    }
+
+    private MessageDispatcher(LocalMessageRepos localMessageRepos) {
+        this.localMessageRepos = localMessageRepos;
+    }
+
+    /**
+     * Đăng ký nhận tin nhắn cho cuộc trò chuyện đang mở. Đăng ký sau sẽ thay thế đăng ký trước cùng khóa.
+     *
+     * @param conversationKey Khóa của cuộc trò chuyện (Utils.getConversationKey).
+     * @param subscriber      Người nhận tin nhắn.
+     */
+    public void subscribe(String conversationKey, Subscriber subscriber) {
+        subscribers.put(conversationKey, subscriber);
+    }
+
+    /**
+     * Hủy đăng ký khi cuộc trò chuyện bị đóng. Chỉ xóa nếu subscriber đăng ký đúng là subscriber này.
+     *
+     * @param conversationKey Khóa của cuộc trò chuyện.
+     * @param subscriber      Người nhận tin nhắn đã đăng ký.
+     */
+    public void unsubscribe(String conversationKey, Subscriber subscriber) {
+        subscribers.remove(conversationKey, subscriber);
+    }
+
+    /**
+     * Đăng ký nhận tin nhắn của mọi cuộc trò chuyện, ví dụ để cập nhật danh sách cuộc trò chuyện.
+     *
+     * @param subscriber Người nhận tin nhắn.
+     */
+    public void subscribeAll(Subscriber subscriber) {
+        allConversationSubscribers.add(subscriber);
+    }
+
+    /**
+     * Hủy đăng ký đã thực hiện bằng subscribeAll.
+     *
+     * @param subscriber Người nhận tin nhắn đã đăng ký.
+     */
+    public void unsubscribeAll(Subscriber subscriber) {
+        allConversationSubscribers.remove(subscriber);
+    }
+
+    /**
+     * Phân phối một tin nhắn vừa nhận.
+     *
+     * @param messageDTO Tin nhắn nhận được, với sendingTime ở dạng ISO.
+     */
+    public void dispatch(MessageDTO messageDTO) {
+        // Lưu vào thiết bị để lần mở cuộc trò chuyện sau hiển thị ngay
+        localMessageRepos.saveMessages(Collections.singletonList(messageDTO));
+
+        // Thiết bị gửi phiên bản cũ có thể gửi thời gian đã định dạng, convertDTOToEntity giữ nguyên chuỗi đó
+        Message message = new Message();
+        message.convertDTOToEntity(messageDTO);
+
+        String conversationKey = Utils.getConversationKey(messageDTO.getSenderId(), messageDTO.getRecipientId());
+        Subscriber subscriber = subscribers.get(conversationKey);
+        if (subscriber != null) {
+            subscriber.onMessageReceived(message);
+        }
+
+        // Cập nhật tóm tắt (tin nhắn cuối, thời gian) trong danh sách cuộc trò chuyện nếu đang hiển thị
+        for (Subscriber allConversationSubscriber : allConversationSubscribers) {
+            allConversationSubscriber.onMessageReceived(message);
+        }
+    }
+}
@@ -14,8 +14,8 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationManagerCompat;
 
 import com.example.R;
-import com.example.chat.conversations.ConversationViewModel;
 import com.example.chat.message.Message;
+import com.example.chat.message.MessageDTO;
 import com.example.home.HomeActivity;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
@@ -68,10 +68,10 @@ public class MessagingService extends FirebaseMessagingService {
 
             // Kiểm tra  topic của dữ liệu thuộc loại topic "chat" của ứng dụng hay không
                 if (topic.equals(Utils.KEY_COLLECTION_CHAT)) {
-                    Message ms = createMessageFromRemoteMessage(data);
-                    ChatViewModel.addMessage(ms);
-                    // Cập nhật giao diện conversations
-                    ConversationViewModel.updateConversations(ms);
+                    // Chuyển tin nhắn tới đúng cuộc trò chuyện: lưu vào thiết bị, cập nhật
+                    // danh sách conversations và chỉ cập nhật màn hình chat nếu cuộc trò chuyện đó đang mở
+                    MessageDTO ms = createMessageFromRemoteMessage(data);
+                    MessageDispatcher.getIns(getApplicationContext()).dispatch(ms);
                 }
                 // Xử lý tin nhắn thông báo
                 else if (topic.equals(Utils.KEY_NOTIFY)){
@@ -123,30 +123,40 @@ public class MessagingService extends FirebaseMessagingService {
     }
 
     /**
-     * Tạo một đối tượng Message từ dữ liệu của tin nhắn FCM.
+     * Tạo một đối tượng MessageDTO từ dữ liệu của tin nhắn FCM.
      * @param data Dữ liệu của tin nhắn FCM.
-     * @return Đối tượng Message được tạo ra.
+     * @return Đối tượng MessageDTO được tạo ra.
 
      * Tác giả: Văn Hoàng
      */
-    private Message createMessageFromRemoteMessage(Map<String, String> data) {
-        String senderId = data.get(Utils.KEY_USER_ID);
-        String recipientId = data.get(Utils.KEY_RECIPIENT_ID);
-        String messageText = data.get(Utils.KEY_MESSAGE);
-        String isVisibility = data.get(Utils.KEY_IS_VISIBILITY);
-        String type = data.get(Utils.KEY_TYPE);
-        String sendingTime = data.get(Utils.KEY_SENDING_TIME);
-
-        Message ms = new Message(
-                senderId,
-                recipientId,
-                messageText,
-                Message.EVisible.valueOf(isVisibility),
-                Message.EType.valueOf(type),
-                sendingTime
-        );
+    private MessageDTO createMessageFromRemoteMessage(Map<String, String> data) {
+        MessageDTO ms = new MessageDTO();
+        ms.setId(data.get(Utils.KEY_MESSAGE_ID));
+        ms.setClientId(data.get(Utils.KEY_CLIENT_ID));
+        ms.setSenderId(data.get(Utils.KEY_USER_ID));
+        ms.setRecipientId(data.get(Utils.KEY_RECIPIENT_ID));
+        ms.setMessage(data.get(Utils.KEY_MESSAGE));
+        ms.setThumbnailUrl(data.get(Utils.KEY_THUMBNAIL_URL));
+        ms.setImageWidth(parseDimension(data.get(Utils.KEY_IMAGE_WIDTH)));
+        ms.setImageHeight(parseDimension(data.get(Utils.KEY_IMAGE_HEIGHT)));
+        ms.setVisibility(Message.EVisible.valueOf(data.get(Utils.KEY_IS_VISIBILITY)));
+        ms.setType(Message.EType.valueOf(data.get(Utils.KEY_TYPE)));
+        ms.setSendingTime(data.get(Utils.KEY_SENDING_TIME));
 
         return  ms;
     }
-}
 
+    /**
+     * Đọc kích thước ảnh trong dữ liệu FCM, trả về 0 nếu không có (tin nhắn từ phiên bản cũ).
+     */
+    private static int parseDimension(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
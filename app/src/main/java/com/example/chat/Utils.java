@@ -1,6 +1,6 @@
 package com.example.chat;
 
-import android.util.Log;
+import com.example.infrastructure.TimeCodec;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -16,10 +16,16 @@ public class Utils {
     public static final String KEY_SENDER_ID = "senderId";
     public static final String KEY_SENDER_NAME = "senderName";
     public static final String KEY_MESSAGE = "message";
+    public static final String KEY_MESSAGE_ID = "messageId";
+    public static final String KEY_CLIENT_ID = "clientId";
+    public static final String KEY_THUMBNAIL_URL = "thumbnailUrl";
+    public static final String KEY_IMAGE_WIDTH = "imageWidth";
+    public static final String KEY_IMAGE_HEIGHT = "imageHeight";
     public static final String KEY_NOTIFY = "notify";
     public static final String KEY_IS_VISIBILITY = "visibility";
     public static final String KEY_SENDING_TIME = "sendingTime";
     public static final String KEY_IMAGE_CLICKED_URL = "imageClickedUrl";
+    public static final String KEY_IMAGE_CLICKED_THUMBNAIL_URL = "imageClickedThumbnailUrl";
     public static final String KEY_RECIPIENT_ID = "recipientId";
     public static final String KEY_CONVERSATION_ID = "conversationId";
     public static final String KEY_COLLECTION_CONVERSATION = "conversations";
@@ -34,6 +40,8 @@ public class Utils {
     public static final String KEY_TOPIC = "topic";
     public static final String KEY_FOLDER_IMAGE = "chatImages";
     public static final String KEY_RECIPIENT_IMAGE = "recipientImage";
+    // Tắt inflate trước view của ChatViewPool (mặc định bật), dùng để so sánh trong macrobenchmark
+    public static final String KEY_PREWARM_VIEWS = "prewarmViews";
     public static final String KEY_INPUT_IMG = "[Ảnh]";
     public static final String KEY_FAILED_SEND_MESSAGE = "Undeliverable messages";
     public static final String FCM_CHANEL_ID = "MESSAGE";
@@ -67,17 +75,27 @@ public class Utils {
 
     /**
      * Chuyển đổi chuỗi thời gian thành đối tượng LocalDateTime.
+     * Dùng TimeCodec nên không ném và ghi log ngoại lệ cho chuỗi không phải dạng ISO (ví dụ thời gian đã định dạng).
      *
      * @param dateTimeString Chuỗi thời gian cần chuyển đổi.
      * @return Đối tượng LocalDateTime được chuyển đổi từ chuỗi thời gian, hoặc null nếu có lỗi xảy ra.
      * Tác giả: Văn Hoàng
      */
     public static LocalDateTime getLocalDateTime(String dateTimeString) {
-        try {
-            return LocalDateTime.parse(dateTimeString);
-        } catch (Exception e) {
-            Log.e("DateTimeConverter", "Error parsing \"" + dateTimeString + "\" : " + e.getMessage(), e);
-            return null;
-        }
+        return TimeCodec.toLocalDateTime(TimeCodec.parseIso(dateTimeString));
+    }
+
+    /**
+     * Tạo khóa chuẩn cho cuộc trò chuyện giữa hai người dùng, không phụ thuộc ai là người gửi.
+     * Hai ID được sắp xếp theo thứ tự từ điển rồi nối bằng dấu "_".
+     *
+     * @param userId1 ID của một người tham gia.
+     * @param userId2 ID của người tham gia còn lại.
+     * @return Khóa của cuộc trò chuyện.
+     */
+    public static String getConversationKey(String userId1, String userId2) {
+        String first = userId1 != null ? userId1 : "";
+        String second = userId2 != null ? userId2 : "";
+        return first.compareTo(second) <= 0 ? first + "_" + second : second + "_" + first;
     }
 }
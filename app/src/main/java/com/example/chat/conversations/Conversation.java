@@ -14,9 +14,26 @@ public class Conversation implements Serializable {
     private Uri uri;
     private  String lastMessage;
     private LocalDateTime sendingTimeFormatted;
+    // Người tham gia còn lại, null nếu Backend phiên bản cũ không trả về
+    private ParticipantSummary participant;
 
     public Conversation(){};
 
+    /**
+     * Tạo bản sao để cập nhật cuộc trò chuyện đã được hiển thị mà không sửa đổi bản đang hiển thị.
+     */
+    public Conversation(Conversation other) {
+        this.id = other.id;
+        this.senderId = other.senderId;
+        this.recipientId = other.recipientId;
+        this.sendingTime = other.sendingTime;
+        this.conversationName = other.conversationName;
+        this.uri = other.uri;
+        this.lastMessage = other.lastMessage;
+        this.sendingTimeFormatted = other.sendingTimeFormatted;
+        this.participant = other.participant;
+    }
+
     public Conversation(String senderId, String receiptId,
                         String lastMessage, String sendingTime) {
         this.senderId = senderId;
@@ -88,4 +105,19 @@ public class Conversation implements Serializable {
     public void setSendingTimeFormatted(LocalDateTime sendingTimeFormatted) {
         this.sendingTimeFormatted = sendingTimeFormatted;
     }
+
+    public ParticipantSummary getParticipant() {
+        return participant;
+    }
+
+    public void setParticipant(ParticipantSummary participant) {
+        this.participant = participant;
+    }
+
+    /**
+     * Người tham gia còn lại có đang trực tuyến hay không, false nếu không có thông tin.
+     */
+    public boolean isParticipantOnline() {
+        return participant != null && participant.isOnline();
+    }
 }
@@ -0,0 +1,128 @@
+package com.example.chat.conversations;
+
+import com.example.chat.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Danh sách cuộc trò chuyện được sắp xếp theo thời gian tin nhắn cuối (mới nhất trước), đánh chỉ mục theo cặp người tham gia.
+ *
+ * - Chỉ mục HashMap theo khóa cặp người tham gia (Utils.getConversationKey, không phụ thuộc thứ tự người gửi/người nhận):
+ *   tìm cuộc trò chuyện của một tin nhắn trong O(1) thay vì duyệt cả danh sách.
+ * - TreeSet theo sendingTimeFormatted: cập nhật một cuộc trò chuyện là xóa và chèn lại, O(log n), không sắp xếp lại cả danh sách.
+ * - Giao diện nhận bản sao của danh sách (getSnapshot, O(n)) và DiffUtil của adapter so sánh trên luồng nền (O(n)),
+ *   nên bên gọi nên gộp nhiều cập nhật vào một lần lấy bản sao.
+ * - Cuộc trò chuyện không bị sửa đổi tại chỗ: mỗi cập nhật thay bằng một bản sao, để DiffUtil của adapter nhận ra thay đổi.
+ *
+ * Các phương thức được đồng bộ hóa vì được gọi từ luồng FCM và các callback mạng.
+ */
+public class ConversationList {
+
+    // Mới nhất trước, chưa có thời gian ở cuối; cùng thời gian thì so theo khóa để hai cuộc trò chuyện không bị coi là trùng
+    private static final Comparator<Conversation> ORDER = Comparator
+            .comparing(Conversation::getSendingTimeFormatted, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(conversation -> keyOf(conversation));
+
+    private final Map<String, Conversation> index = new HashMap<>();
+    private final TreeSet<Conversation> ordered = new TreeSet<>(ORDER);
+
+    /**
+     * Khóa của cuộc trò chuyện giữa hai người dùng, không phụ thuộc ai là người gửi.
+     */
+    public static String keyOf(String userId1, String userId2) {
+        return Utils.getConversationKey(userId1, userId2);
+    }
+
+    public static String keyOf(Conversation conversation) {
+        return keyOf(conversation.getSenderId(), conversation.getRecipientId());
+    }
+
+    /**
+     * Thay thế toàn bộ danh sách.
+     */
+    public synchronized void replaceAll(List<Conversation> conversations) {
+        index.clear();
+        ordered.clear();
+        for (Conversation conversation : conversations) {
+            Conversation previous = index.put(keyOf(conversation), conversation);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            ordered.add(conversation);
+        }
+    }
+
+    /**
+     * Tìm cuộc trò chuyện giữa hai người dùng.
+     *
+     * @return cuộc trò chuyện, null nếu chưa có.
+     */
+    public synchronized Conversation get(String userId1, String userId2) {
+        return index.get(keyOf(userId1, userId2));
+    }
+
+    public synchronized boolean contains(String userId1, String userId2) {
+        return index.containsKey(keyOf(userId1, userId2));
+    }
+
+    /**
+     * Thêm cuộc trò chuyện, hoặc thay thế cuộc trò chuyện cùng cặp người tham gia và đưa về đúng vị trí theo thời gian.
+     * Không được sửa đổi conversation sau khi đã đưa vào danh sách, hãy tạo bản sao (Conversation(Conversation)).
+     */
+    public synchronized void put(Conversation conversation) {
+        Conversation previous = index.put(keyOf(conversation), conversation);
+        if (previous != null) {
+            ordered.remove(previous);
+        }
+        ordered.add(conversation);
+    }
+
+    /**
+     * Thêm cuộc trò chuyện nếu chưa có cuộc trò chuyện cùng cặp người tham gia.
+     *
+     * @return true nếu đã thêm, false nếu đã có.
+     */
+    public synchronized boolean putIfAbsent(Conversation conversation) {
+        if (index.containsKey(keyOf(conversation))) {
+            return false;
+        }
+        put(conversation);
+        return true;
+    }
+
+    /**
+     * Cập nhật cuộc trò chuyện giữa hai người dùng trên một bản sao của phiên bản mới nhất, rồi đưa về đúng vị trí.
+     * Việc đọc, sửa và thay thế diễn ra trong cùng một khóa nên không ghi đè cập nhật của luồng khác.
+     *
+     * @param updater Thay đổi áp dụng lên bản sao.
+     * @return true nếu đã cập nhật, false nếu chưa có cuộc trò chuyện giữa hai người dùng.
+     */
+    public synchronized boolean update(String userId1, String userId2, Consumer<Conversation> updater) {
+        Conversation current = index.get(keyOf(userId1, userId2));
+        if (current == null) {
+            return false;
+        }
+        Conversation copy = new Conversation(current);
+        updater.accept(copy);
+        put(copy);
+        return true;
+    }
+
+    public synchronized int size() {
+        return ordered.size();
+    }
+
+    /**
+     * Trả về bản sao không thể sửa đổi của danh sách theo thứ tự hiển thị.
+     */
+    public synchronized List<Conversation> getSnapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(ordered));
+    }
+}
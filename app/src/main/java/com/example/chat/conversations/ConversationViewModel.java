@@ -1,26 +1,34 @@
 package com.example.chat.conversations;
 
 
+import android.net.Uri;
 import android.util.Log;
+import android.view.Choreographer;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.chat.ChatViewModel;
+import com.example.chat.MessageDispatcher;
 import com.example.chat.Utils;
 import com.example.chat.conversations.adapter.ConversationListener;
 import com.example.chat.conversations.repos.ConversationRepos;
 import com.example.chat.message.Message;
+import com.example.common.repository.AvatarUrlCache;
+import com.example.common.repository.MediaRepos;
+import com.example.infrastructure.AppExecutors;
 import com.example.infrastructure.BaseViewModel;
 import com.example.user.User;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.UserRepos;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ConversationViewModel extends BaseViewModel implements ConversationListener {
 
@@ -31,10 +39,19 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
     private final MutableLiveData<Boolean> navigateToFriends = new MutableLiveData<>();
     private final MutableLiveData<Conversation> targetConversation = new MutableLiveData<>();
     private static final MutableLiveData<List<Conversation>> conversationsLiveData = new MutableLiveData<>(new ArrayList<>());
-    private static List<Conversation> conversations = new ArrayList<>();
+    // Danh sách đã sắp xếp và đánh chỉ mục theo cặp người tham gia, LiveData chỉ phát bản sao của danh sách này
+    private static final ConversationList conversationList = new ConversationList();
+    // Đã có một lần phát danh sách đang chờ khung hình kế tiếp
+    private static final AtomicBoolean publishScheduled = new AtomicBoolean();
+    // Thời gian chờ tối đa khi lấy thông tin người tham gia cho một cuộc trò chuyện
+    private static final long ENRICHMENT_TIMEOUT_SECONDS = 8;
     private static AuthRepos authRepos;
     private static ConversationRepos conversationRepos;
     private static UserRepos userRepos;
+    private static MediaRepos mediaRepos;
+    private final MessageDispatcher messageDispatcher;
+    // Nhận tin nhắn FCM của mọi cuộc trò chuyện khi ViewModel còn tồn tại, các repos ở trên đã được gán
+    private final MessageDispatcher.Subscriber messageSubscriber = ConversationViewModel::updateConversations;
 
     public LiveData<Boolean> getIsLoading() {
         return isLoading;
@@ -57,10 +74,20 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
         return conversationsLiveData;
     }
 
-    public ConversationViewModel(AuthRepos authRepos, ConversationRepos conversationRepos, UserRepos userRepos) {
+    public ConversationViewModel(AuthRepos authRepos, ConversationRepos conversationRepos, UserRepos userRepos,
+                                 MediaRepos mediaRepos, MessageDispatcher messageDispatcher) {
         this.authRepos = authRepos;
         this.conversationRepos = conversationRepos;
         this.userRepos = userRepos;
+        this.mediaRepos = mediaRepos;
+        this.messageDispatcher = messageDispatcher;
+        messageDispatcher.subscribeAll(messageSubscriber);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        messageDispatcher.unsubscribeAll(messageSubscriber);
     }
 
     @Override
@@ -81,6 +108,10 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
 
     /**
      * Lấy danh sách hội thoại và tải lên view.
+     * - Danh sách được hiển thị ngay sau một yêu cầu: Backend trả kèm tên, ảnh đại diện và trạng thái trực tuyến
+     *   của người tham gia còn lại trong mỗi cuộc trò chuyện.
+     * - Với Backend phiên bản cũ (không có participant), các dòng hiển thị placeholder trước, tên và ảnh đại diện
+     *   được bổ sung dần khi từng kết quả về, gộp lại mỗi khung hình một lần cập nhật giao diện.
      * <p>
      * Tác giả: Nguyễn Hà Quỳnh Giao - 21110171
      */
@@ -88,54 +119,150 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
     public void loadConversations() {
         // Hiển thị Progress bar trong quá trình lấy dữ liệu từ API
         this.isLoading.postValue(true);
+        String currentUid = authRepos.getCurrentUid();
         // Lấy danh sách các cuộc hội thoại.
-        CompletableFuture<List<Conversation>> futureConversations = conversationRepos.getConversations(authRepos.getCurrentUid());
-        futureConversations.thenAccept(newConversations -> {
+        CompletableFuture<List<Conversation>> futureConversations = conversationRepos.getConversations(currentUid);
+        futureConversations.thenCompose(newConversations -> {
+            List<Conversation> missingNames = new ArrayList<>();
+            List<Conversation> missingAvatars = new ArrayList<>();
+            for (Conversation conversation : newConversations) {
+                // Chuyển dữ liệu thời gian gửi từ String sang LocalDateTime
+                conversation.setSendingTimeFormatted(Utils.getLocalDateTime(conversation.getSendingTime()));
+                applyParticipant(conversation);
+                if (conversation.getConversationName() == null) {
+                    missingNames.add(conversation);
+                }
+                if (conversation.getUri() == null) {
+                    missingAvatars.add(conversation);
+                }
+            }
+
             // Xóa dữ liệu danh sách hội thoại củ và cập nhật mới
-            this.conversations.clear();
-            this.conversations.addAll(newConversations);
-            // Lấy thông tin tham gia cuộc trò chuyện
-            CompletableFuture<?>[] userFutures = new CompletableFuture<?>[conversations.size()];
-
-            for (int i = 0; i < this.conversations.size(); i++) {
-                Conversation conversation = this.conversations.get(i);
-                // Lấy Id của người tham gia cuộc trò chuyện còn lại (không phải người dùng hiện tại
-                String userId = authRepos.getCurrentUid().equals(conversation.getSenderId()) ? conversation.getRecipientId() : conversation.getSenderId();
-                // Lấy dữ liệu thành công thì thiết lập ảnh hiển thị và tên cho cuộc trò chuyên
-                CompletableFuture<Void> setUserFuture = userRepos.getUserByUid(userId).thenAccept(user -> {
-                    conversation.setConversationName(user.getFullName());
-                    conversation.setUri(user.getUri());
-                    // Chuyển dữ liệu thời gian gửi từ String sang LocalDateTime
-                    conversation.setSendingTimeFormatted(Utils.getLocalDateTime(conversation.getSendingTime()));
-                }).exceptionally(e -> {
-                    return null;
-                });
-                // Lấy dữ liệu người dùng vừa tìm được
-                userFutures[i] = setUserFuture;
+            conversationList.replaceAll(newConversations);
+
+            // Hiển thị ngay những gì đã có, không chờ bổ sung
+            isLoading.postValue(false);
+            if (newConversations.isEmpty()) {
+                // Nếu không có dữ liệu cuộc trò chuyện nào thì hiển thị thông báo
+                isShowMessageError.postValue(true);
+                return CompletableFuture.completedFuture(false);
             }
-            // Khi tất cả việc lấy dữ liệu hoàn thành thì cập nhật giao diện
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(userFutures);
-
-            allFutures.thenRun(() -> {
-                // Tắt progress bar
-                isLoading.postValue(false);
-                if (this.conversations.isEmpty()) {
-                    // Nếu không có dữ liệu cuộc trò chuyện nào thì hiển thị thông báo
-                    isShowMessageError.postValue(true);
-                } else {
-                    // Nếu có dữ liệu thì tiến hành sắp xếp cuộc trò chuyện theo thời gian
-                    this.conversations.sort(Comparator.comparing(Conversation::getSendingTimeFormatted).reversed());
-                    conversationsLiveData.postValue(this.conversations);
-                }
-            });
+            publish();
+
+            return enrichConversations(currentUid, missingNames, missingAvatars);
         // Xử lý ngoại lệ
         }).exceptionally(throwable -> {
+            Log.e(TAG, "Failed to load conversations", throwable);
             isLoading.postValue(false);
             isShowMessageError.postValue(true);
             return null;
         });
     }
 
+    /**
+     * Áp dụng tóm tắt người tham gia do Backend trả về (nếu có) vào cuộc trò chuyện,
+     * và lưu URL ảnh đại diện vào AvatarUrlCache để các màn hình khác không phải hỏi lại Firebase Storage.
+     */
+    private static void applyParticipant(Conversation conversation) {
+        ParticipantSummary participant = conversation.getParticipant();
+        if (participant == null) {
+            return;
+        }
+        if (participant.getFullName() != null) {
+            conversation.setConversationName(participant.getFullName());
+        }
+
+        AvatarUrlCache avatarUrlCache = AvatarUrlCache.getIns();
+        String avatarUrl = participant.getAvatarUrl();
+        if (avatarUrl != null) {
+            conversation.setUri(Uri.parse(avatarUrl));
+            if (participant.getId() != null) {
+                avatarUrlCache.putAvatarUrl(participant.getId(), avatarUrl);
+            }
+        } else if (avatarUrlCache.getDefaultAvatarUrl() != null) {
+            // Người dùng dùng ảnh đại diện mặc định; nếu chưa biết URL mặc định thì để bước bổ sung tải về
+            conversation.setUri(Uri.parse(avatarUrlCache.getDefaultAvatarUrl()));
+            if (participant.getId() != null) {
+                avatarUrlCache.putUsesDefault(participant.getId());
+            }
+        }
+    }
+
+    /**
+     * Bổ sung tên và ảnh đại diện còn thiếu (Backend phiên bản cũ).
+     * - Mỗi kết quả được áp dụng ngay khi về, lên phiên bản mới nhất của cuộc trò chuyện (không ghi đè tin nhắn mới nhận
+     *   trong lúc bổ sung), và giao diện được cập nhật tối đa một lần mỗi khung hình.
+     * - Mỗi lần lấy tên có thời gian chờ ENRICHMENT_TIMEOUT_SECONDS (avatar có thời gian chờ riêng trong MediaRepos);
+     *   quá thời gian hoặc lỗi thì dòng đó giữ placeholder, không ảnh hưởng các dòng khác.
+     */
+    private CompletableFuture<Void> enrichConversations(String currentUid, List<Conversation> missingNames,
+                                                        List<Conversation> missingAvatars) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(missingNames.size() + 1);
+
+        if (!missingAvatars.isEmpty()) {
+            Map<String, Conversation> conversationsByUserId = new HashMap<>();
+            for (Conversation conversation : missingAvatars) {
+                conversationsByUserId.put(getParticipantId(currentUid, conversation), conversation);
+            }
+            // Tải avatar theo lô, áp dụng từng avatar ngay khi tải xong
+            futures.add(mediaRepos.downloadAvatars(conversationsByUserId.keySet(), (userId, avatar) -> {
+                Conversation conversation = conversationsByUserId.get(userId);
+                if (conversation != null) {
+                    conversationList.update(conversation.getSenderId(), conversation.getRecipientId(),
+                            latest -> latest.setUri(avatar));
+                    schedulePublish();
+                }
+            }).exceptionally(e -> {
+                Log.e(TAG, "Failed to download avatars", e);
+                return null;
+            }));
+        }
+
+        for (Conversation conversation : missingNames) {
+            CompletableFuture<User> userFuture = com.example.infrastructure.Utils.withTimeout(
+                    userRepos.getUserByUid(getParticipantId(currentUid, conversation)),
+                    ENRICHMENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            // Lấy dữ liệu thành công thì thiết lập tên cho cuộc trò chuyên
+            futures.add(userFuture.thenAccept(user -> {
+                conversationList.update(conversation.getSenderId(), conversation.getRecipientId(),
+                        latest -> latest.setConversationName(user.getFullName()));
+                schedulePublish();
+            }).exceptionally(e -> {
+                Log.w(TAG, "Failed to get user for conversation " + conversation.getId(), e);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Gộp các lần cập nhật trong cùng một khung hình: chỉ phát một bản sao của danh sách ở khung hình kế tiếp.
+     */
+    private static void schedulePublish() {
+        if (!publishScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        AppExecutors.getIns().mainThread().execute(() ->
+                Choreographer.getInstance().postFrameCallback(frameTimeNanos -> {
+                    publishScheduled.set(false);
+                    conversationsLiveData.setValue(conversationList.getSnapshot());
+                }));
+    }
+
+    /**
+     * Id của người tham gia cuộc trò chuyện còn lại (không phải người dùng hiện tại).
+     */
+    private static String getParticipantId(String currentUid, Conversation conversation) {
+        return currentUid.equals(conversation.getSenderId()) ? conversation.getRecipientId() : conversation.getSenderId();
+    }
+
+    /**
+     * Phát bản sao của danh sách cuộc trò chuyện (đã sắp xếp theo thời gian, mới nhất trước) để cập nhật giao diện.
+     */
+    private static void publish() {
+        conversationsLiveData.postValue(conversationList.getSnapshot());
+    }
+
     /**
      * Quan sát sự kiện khi hình ảnh được nhấp để xem chi tiết.
      * Nếu một URL hình ảnh được trả về, một Intent được tạo để mở ImageActivity với URL hình ảnh được chuyển đi.
@@ -144,20 +271,27 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
      */
     @Override
     public void onItemClick(int position) {
-        Conversation conversation = conversations.get(position);
-        targetConversation.postValue(conversation);
+        // Vị trí được tính trên danh sách đang hiển thị
+        List<Conversation> displayed = conversationsLiveData.getValue();
+        if (displayed != null && position >= 0 && position < displayed.size()) {
+            targetConversation.postValue(displayed.get(position));
+        }
     }
 
 
     /**
-     * Cập nhật giao diện conversations
+     * Cập nhật giao diện conversations.
+     * Chỉ được gọi qua MessageDispatcher khi đã có ConversationViewModel, nên userRepos đã được gán.
      *
      * @param message   :   Tin nhắn mới nhận
      *
      * Tác giả: Nguyễn Hà Quỳnh Giao
      */
-    public static void updateConversations(Message message) {
-        if(isExistConversation(message)){
+    private static void updateConversations(Message message) {
+        if (message == null) {
+            return;
+        }
+        if (conversationList.contains(message.getSenderId(), message.getRecipientId())) {
             updateConversation(message);
         } else {
             addConversation(message);
@@ -171,14 +305,16 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
      *
      * Tác giả: Nguyễn Hà Quỳnh Giao
      */
-    public static void addConversation(Message message){
+    private static void addConversation(Message message){
         Log.i(TAG, "Add view: new conversation");
 
         Conversation conversation = new Conversation(
                 message.getSenderId(),
                 message.getRecipientId(),
                 message.getMessage(),
-                message.getSendingTime());
+                message.getIsoSendingTime());
+        // Thời gian của tin nhắn đã được phân tích khi nhận, không phân tích lại chuỗi
+        conversation.setSendingTimeFormatted(message.getDateObject());
 
         // Lấy thông tin người gửi để cập nhật vào giao diện
         CompletableFuture<User> userFuture = userRepos.getUserByUid(conversation.getSenderId());
@@ -188,7 +324,6 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
             if (sender != null) {
                 conversation.setUri(sender.getUri());
                 conversation.setConversationName(sender.getFullName());
-                conversation.setSendingTimeFormatted(Utils.getLocalDateTime(conversation.getSendingTime()));
             } else {
                 Log.e(TAG, "User not found");
             }
@@ -196,10 +331,13 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
             Log.e(TAG, "Failed to get user", ex);
             return null;
         }).thenRun(() -> {
-            conversations.add(conversation);
-            // Sắp xếp lại danh sách và thông báo cập nhật giao diện
-            conversations.sort(Comparator.comparing(Conversation::getSendingTimeFormatted).reversed());
-            conversationsLiveData.postValue(conversations);
+            // Đưa vào đúng vị trí theo thời gian và thông báo cập nhật giao diện
+            if (!conversationList.putIfAbsent(conversation)) {
+                // Một tin nhắn khác đã tạo cuộc trò chuyện trong lúc lấy thông tin người gửi
+                updateConversation(message);
+                return;
+            }
+            schedulePublish();
         }).exceptionally(ex -> {
             Log.e(TAG, "Failed to add conversation", ex);
             return null;
@@ -213,51 +351,21 @@ public class ConversationViewModel extends BaseViewModel implements Conversation
      *
      * Tác giả: Nguyễn Hà Quỳnh Giao
      */
-    public static void updateConversation(Message message){
+    private static void updateConversation(Message message){
         Log.i(TAG, "Update view: new conversation");
 
-        // Cập nhật thông tin cuộc trò chuyện đã tồn tại với tin nhắn mới nhất
-        for(int i = 0; i < conversations.size(); i++){
-            String senderId = message.getSenderId();
-            String recipientId = message.getRecipientId();
-
-            if((conversations.get(i).getSenderId().equals(senderId) && conversations.get(i).getRecipientId().equals(recipientId))
-                    || (conversations.get(i).getRecipientId().equals(senderId) && conversations.get(i).getSenderId().equals(recipientId))){
-                conversations.get(i).setLastMessage(message.getMessage());
-                conversations.get(i).setSendingTime(message.getSendingTime());
-
-                conversations.get(i).setSendingTimeFormatted(Utils.getLocalDateTime(message.getSendingTime()));
-            }
-        }
-
-        // Sắp xếp lại danh sách và thông báo cập nhật giao diện
-        conversations.sort(Comparator.comparing(Conversation::getSendingTimeFormatted).reversed());
-        conversationsLiveData.postValue(conversations);
-    }
-
-    /**
-     * Kiểm tra xem conversation đã tồn tại trong danh sách trước đó
-     *
-     * @param message   :   Tin nhắn mới gửi.
-     * @return          :   Một boolean kết quả. 0 - không tồn tại, 1 - tồn tại.
-     *
-     * Tác giả: Nguyễn Hà Quỳnh Giao
-     */
-    private static boolean isExistConversation(Message message){
-        if (message == null) {
-            return false;
-        }
-
-        String senderId = message.getSenderId();
-        String recipientId = message.getRecipientId();
-
-        for (Conversation conversation : conversations) {
-            if ((Objects.equals(conversation.getSenderId(), senderId) && Objects.equals(conversation.getRecipientId(), recipientId)) ||
-                    (Objects.equals(conversation.getRecipientId(), senderId) && Objects.equals(conversation.getSenderId(), recipientId))) {
-                return true;
-            }
+        // Tìm theo cặp người tham gia O(1) và đưa về đúng vị trí O(log n), không duyệt và sắp xếp lại cả danh sách
+        boolean updated = conversationList.update(message.getSenderId(), message.getRecipientId(), conversation -> {
+            conversation.setLastMessage(message.getMessage());
+            conversation.setSendingTime(message.getIsoSendingTime());
+            conversation.setSendingTimeFormatted(message.getDateObject());
+        });
+        if (!updated) {
+            return;
         }
 
-        return false;
+        // Bản sao danh sách (O(n)) được lấy tối đa một lần mỗi khung hình dù nhận nhiều tin nhắn liên tiếp;
+        // adapter so sánh trên luồng nền, chỉ di chuyển và bind lại dòng thay đổi
+        schedulePublish();
     }
 }
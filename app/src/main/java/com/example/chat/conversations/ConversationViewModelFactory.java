@@ -4,7 +4,9 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.example.chat.MessageDispatcher;
 import com.example.chat.conversations.repos.ConversationRepos;
+import com.example.common.repository.MediaRepos;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.UserRepos;
 /**
@@ -16,19 +18,25 @@ public class ConversationViewModelFactory implements ViewModelProvider.Factory{
     protected final AuthRepos authRepos;
     protected final ConversationRepos conversationRepos;
     private final UserRepos userRepos;
+    private final MediaRepos mediaRepos;
+    private final MessageDispatcher messageDispatcher;
     public ConversationViewModelFactory(AuthRepos authRepos,
                                         ConversationRepos conversationRepos,
-                                        UserRepos userRepos) {
+                                        UserRepos userRepos,
+                                        MediaRepos mediaRepos,
+                                        MessageDispatcher messageDispatcher) {
         this.authRepos = authRepos;
         this.conversationRepos = conversationRepos;
         this.userRepos = userRepos;
+        this.mediaRepos = mediaRepos;
+        this.messageDispatcher = messageDispatcher;
     }
 
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(ConversationViewModel.class)) {
-            return (T) new ConversationViewModel(authRepos, conversationRepos, userRepos);
+            return (T) new ConversationViewModel(authRepos, conversationRepos, userRepos, mediaRepos, messageDispatcher);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -13,6 +13,7 @@ import androidx.annotation.Nullable;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.chat.ChatActivity;
+import com.example.chat.MessageDispatcher;
 import com.example.chat.Utils;
 import com.example.chat.conversations.adapter.ConversationsAdapter;
 import com.example.chat.conversations.repos.ConversationRepos;
@@ -27,6 +28,7 @@ import com.example.infrastructure.BaseFragment;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.ArrayList;
@@ -53,11 +55,12 @@ public class ConversationsFragment extends BaseFragment<ConversationViewModel, F
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         this.authRepos = new AuthReposImpl(userRepos);
         messageRepos = new MessageReposImpl();
         ConversationRepos conversationRepos = new ConversationReposImpl();
-        return new ConversationViewModelFactory(authRepos, conversationRepos, userRepos);
+        return new ConversationViewModelFactory(authRepos, conversationRepos, userRepos, mediaRepos,
+                MessageDispatcher.getIns(requireContext().getApplicationContext()));
     }
 
     @Override
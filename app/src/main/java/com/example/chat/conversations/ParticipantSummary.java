@@ -0,0 +1,54 @@
+package com.example.chat.conversations;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.io.Serializable;
+
+/**
+ * Tóm tắt người tham gia còn lại của một cuộc trò chuyện (không phải người dùng hiện tại),
+ * được Backend trả về kèm mỗi cuộc trò chuyện khi yêu cầu với include=participant.
+ */
+public class ParticipantSummary implements Serializable {
+    private String id;
+    private String fullName;
+    // URL tải ảnh đại diện, null nếu người dùng dùng ảnh đại diện mặc định
+    private String avatarUrl;
+
+    @SerializedName("online")
+    private boolean isOnline;
+
+    public ParticipantSummary() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+
+    public boolean isOnline() {
+        return isOnline;
+    }
+
+    public void setOnline(boolean online) {
+        isOnline = online;
+    }
+}
@@ -1,13 +1,15 @@
 package com.example.chat.conversations.adapter;
 
-import android.annotation.SuppressLint;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.chat.conversations.Conversation;
+import com.example.chat.conversations.ConversationList;
 import com.example.databinding.ItemConversationBinding;
 
 import java.util.List;
@@ -19,13 +21,28 @@ import java.util.List;
  * Tác giả: Nguyễn Hà Quỳnh Giao.
  */
 
-public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdapter.ConversationsHolderView>{
+public class ConversationsAdapter extends ListAdapter<Conversation, ConversationsAdapter.ConversationsHolderView> {
 
-    //Danh sách cuộc trò chuyện
-    private List<Conversation> conversations;
     //Sự kiện khi click vào một cuộc trò chuyện trong danh sách
     private ConversationListener listener;
 
+    /**
+     * So sánh hai cuộc trò chuyện cho DiffUtil.
+     * - Cùng một cuộc trò chuyện nếu có cùng cặp người tham gia.
+     * - Cuộc trò chuyện được cập nhật bằng bản sao (ConversationList), nên khác đối tượng là nội dung có thể đã thay đổi.
+     */
+    private static final DiffUtil.ItemCallback<Conversation> DIFF_CALLBACK = new DiffUtil.ItemCallback<Conversation>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Conversation oldItem, @NonNull Conversation newItem) {
+            return ConversationList.keyOf(oldItem).equals(ConversationList.keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Conversation oldItem, @NonNull Conversation newItem) {
+            return oldItem == newItem;
+        }
+    };
+
     /**
      * Constructor
      *
@@ -35,21 +52,21 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
      * Tác giả: Nguyễn Hà Quỳnh Giao.
      */
     public ConversationsAdapter(List<Conversation> conversations, ConversationListener listener){
-        this.conversations = conversations;
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        submitList(conversations);
     }
 
     /**
-     * Thiết lập dữ liệu mới cho recycler và thông báo dữ liệu thay đổi.
+     * Thiết lập dữ liệu mới cho recycler. DiffUtil so sánh với danh sách cũ trên luồng nền,
+     * chỉ những dòng thêm, di chuyển hoặc thay đổi mới được cập nhật.
      *
      * @param conversations : danh sách cuộc trò chuyện mới.
      *
      * Tác giả: Nguyễn Hà Quỳnh Giao.
      */
-    @SuppressLint("NotifyDataSetChanged")
     public void setConversations(List<Conversation> conversations) {
-        this.conversations = conversations;
-        notifyDataSetChanged();
+        submitList(conversations);
     }
 
     @NonNull
@@ -63,19 +80,11 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
 
     @Override
     public void onBindViewHolder(@NonNull ConversationsHolderView holder, int position) {
-        Conversation conversation = conversations.get(position);
+        Conversation conversation = getItem(position);
         holder.bind(position, conversation);
 
     }
 
-    @Override
-    public int getItemCount() {
-        if (conversations != null) {
-            return conversations.size();
-        }
-        return 0;
-    }
-
     /**
      * ViewHolder để binding dữ liệu cho các phần tử trong danh sách.
      *
@@ -87,6 +96,13 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
         public ConversationsHolderView(ItemConversationBinding item) {
             super(item.getRoot());
             binding = item;
+            // Lấy vị trí hiện tại lúc click, vì dòng chỉ bị di chuyển thì không được bind lại
+            binding.setListener(position -> {
+                int currentPosition = getAdapterPosition();
+                if (currentPosition != RecyclerView.NO_POSITION) {
+                    listener.onItemClick(currentPosition);
+                }
+            });
         }
 
         /**
@@ -99,7 +115,6 @@ public class ConversationsAdapter extends RecyclerView.Adapter<ConversationsAdap
          */
         void bind(int position, Conversation conversation){
             binding.setRequest(conversation);
-            binding.setListener(listener);
             binding.setPosition(position);
             binding.executePendingBindings();
         }
@@ -14,10 +14,15 @@ import retrofit2.http.Path;
 import retrofit2.http.Query;
 
 public interface ConversationApiClient {
+    // Yêu cầu Backend trả kèm tóm tắt người tham gia còn lại (tên, ảnh đại diện, trạng thái trực tuyến)
+    String INCLUDE_PARTICIPANT = "participant";
+
     /**
      * Interface định nghĩa các phương thức API để lấy danh sách cuộc trò chuyện.
      *
      * @param userId    :   Mã người dùng muốn lấy danh sách các cuộc trò chuyện.
+     * @param include   :   INCLUDE_PARTICIPANT để nhận kèm ParticipantSummary trong mỗi cuộc trò chuyện.
+     *                      Backend phiên bản cũ bỏ qua tham số này và không trả về participant.
      * @return          :   Một đối tượng Call đại diện cho yêu cầu HTTP lấy danh sách
      *                      trò chuyện, với đối tượng là một danh sách Conversation chứa
      *                      thông tin cuộc trò chuyện
@@ -25,7 +30,7 @@ public interface ConversationApiClient {
      * Tác giả: Nguyễn Hà Quỳnh Giao
      */
     @GET("/api/v1/conversations/fetch-conversations/{userId}")
-    Call<List<Conversation>> fetchConversations(@Path("userId") String userId);
+    Call<List<Conversation>> fetchConversations(@Path("userId") String userId, @Query("include") String include);
 
     /**
      * Interface định nghĩa các phương thức API để lưu trữ thông tin của cuộc trò chuyện
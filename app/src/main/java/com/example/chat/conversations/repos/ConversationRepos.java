@@ -44,7 +44,8 @@ public interface ConversationRepos {
     CompletableFuture<Conversation> getConversationBySenderAndRecipient(String senderId, String recipientId);
 
     /**
-     * Lấy danh sách cuộc hội thoại của userId
+     * Lấy danh sách cuộc hội thoại của userId, kèm tóm tắt người tham gia còn lại nếu Backend hỗ trợ
+     * (Conversation.getParticipant() trả về null với Backend phiên bản cũ).
      *
      * @param userId    : mã người dùng muốn lấy danh sách cuộc hội thoại
      * @return          : một CompletableFuture chứa danh sách cuộc hội thoại.
@@ -11,6 +11,7 @@ import com.example.chat.message.Message;
 import com.example.infrastructure.BaseRepos;
 import com.example.infrastructure.Utils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -168,7 +169,7 @@ public class ConversationReposImpl extends BaseRepos implements ConversationRepo
         CompletableFuture<List<Conversation>> future = new CompletableFuture<>();
         //  Gửi yêu cầu API lấy danh sách cuộc trò chuyện
         conversationApiClient
-                .fetchConversations(userId)
+                .fetchConversations(userId, ConversationApiClient.INCLUDE_PARTICIPANT)
                 .enqueue(new Callback<List<Conversation>>() {
                     @Override
                     public void onResponse(@NonNull Call<List<Conversation>> call, @NonNull Response<List<Conversation>> response) {
@@ -177,7 +178,7 @@ public class ConversationReposImpl extends BaseRepos implements ConversationRepo
                             return;
                         }
                         List<Conversation> conversations = response.body();
-                        future.complete(conversations);
+                        future.complete(conversations != null ? conversations : new ArrayList<>());
                     }
 
                     @Override
@@ -0,0 +1,69 @@
+package com.example.chat.image;
+
+import android.graphics.drawable.Drawable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.example.R;
+import com.example.chat.message.Message;
+import com.example.infrastructure.metrics.LatencyMetrics;
+
+/**
+ * Tạo yêu cầu Glide cho ảnh trong danh sách tin nhắn.
+ *
+ * ViewHolder và ChatImagePreloader phải dùng cùng một yêu cầu (cùng URL, cùng phép biến đổi, cùng kích thước)
+ * thì ảnh được tải trước mới trùng khóa với ảnh hiển thị trong bộ nhớ đệm của Glide.
+ */
+public class ChatImageRequests {
+    // Chiều cao tối đa của ô hình ảnh, tính theo bội số chiều rộng
+    private static final int MAX_ASPECT_RATIO = 2;
+
+    public static final String STAGE_PLACEHOLDER_VISIBLE = "placeholder_visible";
+
+    // Thời gian placeholder hiển thị trước khi ảnh của tin nhắn hiện ra, 0 ms nếu ảnh đã có trong bộ nhớ đệm
+    public static final LatencyMetrics DISPLAY_METRICS = new LatencyMetrics("chat_image");
+
+    private ChatImageRequests() {
+    }
+
+    /**
+     * URL được hiển thị trong danh sách: ảnh thu nhỏ nếu có, nếu không (tin nhắn từ phiên bản cũ) là ảnh gốc.
+     */
+    public static String getDisplayUrl(Message message) {
+        return message.getThumbnailUrl() != null ? message.getThumbnailUrl() : message.getMessage();
+    }
+
+    /**
+     * Tin nhắn có kích thước ảnh gốc hay không.
+     */
+    public static boolean hasKnownSize(Message message) {
+        return message.getImageWidth() > 0 && message.getImageHeight() > 0;
+    }
+
+    /**
+     * Chiều cao của ô hình ảnh có chiều rộng width, theo tỉ lệ ảnh của tin nhắn.
+     * Ảnh quá dài được cắt (scaleType centerCrop) thay vì chiếm cả màn hình.
+     *
+     * @param message       Tin nhắn hình ảnh.
+     * @param width         Chiều rộng của ô hình ảnh, tính bằng pixel.
+     * @param defaultHeight Chiều cao trả về khi tin nhắn không có kích thước ảnh.
+     */
+    public static int getDisplayHeight(Message message, int width, int defaultHeight) {
+        if (!hasKnownSize(message) || width <= 0) {
+            return defaultHeight;
+        }
+        return Math.min(width * MAX_ASPECT_RATIO,
+                Math.round((float) width * message.getImageHeight() / message.getImageWidth()));
+    }
+
+    /**
+     * Yêu cầu Glide cho ảnh của tin nhắn, với phép biến đổi centerCrop giống scaleType của ImageView.
+     */
+    public static RequestBuilder<Drawable> request(RequestManager requestManager, Message message) {
+        return requestManager
+                .load(getDisplayUrl(message))
+                .optionalCenterCrop()
+                .placeholder(R.drawable.ic_image)
+                .error(R.drawable.ic_image);
+    }
+}
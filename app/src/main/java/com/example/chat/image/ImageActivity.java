@@ -7,6 +7,7 @@ import androidx.databinding.DataBindingUtil;
 
 import com.bumptech.glide.Glide;
 import com.example.R;
+import com.example.chat.Utils;
 import com.example.databinding.ActivityImageBinding;
 
 public class ImageActivity extends AppCompatActivity {
@@ -26,10 +27,11 @@ public class ImageActivity extends AppCompatActivity {
                 this, R.layout.activity_image);
 
         // Lấy URL của hình ảnh được truyền qua Intent.
-        String imageUrl = getIntent().getStringExtra("imageClickedUrl");
+        String imageUrl = getIntent().getStringExtra(Utils.KEY_IMAGE_CLICKED_URL);
+        String thumbnailUrl = getIntent().getStringExtra(Utils.KEY_IMAGE_CLICKED_THUMBNAIL_URL);
 
         // Khởi tạo ImageViewModel với URL của hình ảnh được truyền.
-        viewModel = new ImageViewModel(imageUrl);
+        viewModel = new ImageViewModel(imageUrl, thumbnailUrl);
 
         // Gán ViewModel cho binding để liên kết dữ liệu với giao diện.
         binding.setViewModel(viewModel);
@@ -44,6 +46,7 @@ public class ImageActivity extends AppCompatActivity {
     /**
      * Thiết lập lắng nghe thay đổi cho thuộc tính imagePickedUrl trong viewModel.
      * Khi thuộc tính imagePickedUrl thay đổi, ảnh mới sẽ được tải và hiển thị trong imageView bằng thư viện Glide.
+     * - Ảnh gốc chỉ được tải khi mở màn hình này; ảnh thu nhỏ (thường đã có trong cache của Glide) được hiển thị trong lúc chờ.
      * - Nếu ảnh tải thành công, nó sẽ được hiển thị trong imageView.
      * - Nếu ảnh tải không thành công, một hình ảnh mặc định (ic_image) sẽ được hiển thị trong imageView.
      *
@@ -51,8 +54,10 @@ public class ImageActivity extends AppCompatActivity {
      */
     private void setObservers() {
         viewModel.getImagePickedUrl().observe(this, imageUrl -> {
+            String thumbnailUrl = viewModel.getThumbnailUrl();
             Glide.with(binding.getRoot())
                     .load(imageUrl)
+                    .thumbnail(thumbnailUrl != null ? Glide.with(binding.getRoot()).load(thumbnailUrl) : null)
                     .placeholder(R.drawable.ic_image)
                     .error(R.drawable.ic_image)
                     .into(binding.imageView);
@@ -0,0 +1,221 @@
+package com.example.chat.image;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Class ImageEncoder nén hình ảnh trên thiết bị trước khi tải lên và tạo ảnh thu nhỏ.
+ *
+ * - Ảnh được giải mã với inSampleSize, không bao giờ giải mã toàn bộ độ phân giải chỉ để thu nhỏ.
+ * - Hướng xoay trong EXIF được áp dụng lên điểm ảnh, nên kích thước trả về và ảnh thu nhỏ khớp với ảnh Glide hiển thị.
+ * - Ảnh được nén lại bằng Bitmap.compress, không ghi lại EXIF (vị trí GPS, thông tin máy ảnh).
+ * - Các phép tính kích thước (calculateInSampleSize, calculateTargetSize) là hàm thuần, không phụ thuộc Android.
+ *
+ * Các phương thức đều chặn luồng, cần được gọi từ AppExecutors.computation().
+ */
+public class ImageEncoder {
+    // Cạnh dài nhất của ảnh thu nhỏ, đủ cho ô hình ảnh trong danh sách tin nhắn trên màn hình mật độ cao
+    public static final int THUMBNAIL_MAX_SIDE = 480;
+    private static final int THUMBNAIL_QUALITY = 75;
+    // Cạnh dài nhất của ảnh gửi đi, đủ để xem toàn màn hình trong ImageActivity
+    public static final int UPLOAD_MAX_SIDE = 2048;
+    private static final int UPLOAD_QUALITY = 85;
+
+    private ImageEncoder() {
+    }
+
+    /**
+     * Tạo ảnh thu nhỏ JPEG có cạnh dài nhất không quá THUMBNAIL_MAX_SIDE.
+     *
+     * @param resolver ContentResolver để mở hình ảnh.
+     * @param uri      URI của hình ảnh trên thiết bị.
+     * @return Dữ liệu JPEG của ảnh thu nhỏ.
+     * @throws IOException nếu không đọc hoặc giải mã được hình ảnh.
+     */
+    public static byte[] encodeThumbnail(ContentResolver resolver, Uri uri) throws IOException {
+        Bitmap bitmap = decodeSampled(resolver, uri, THUMBNAIL_MAX_SIDE);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+            return out.toByteArray();
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Nén hình ảnh thành JPEG có cạnh dài nhất không quá UPLOAD_MAX_SIDE, đã xoay theo EXIF và không còn EXIF, ghi vào tệp đích.
+     *
+     * @param resolver ContentResolver để mở hình ảnh.
+     * @param uri      URI của hình ảnh trên thiết bị.
+     * @param target   Tệp đích.
+     * @return Kích thước và số byte của ảnh đã nén.
+     * @throws IOException nếu không đọc, giải mã hoặc ghi được hình ảnh.
+     */
+    public static EncodedImage encodeForUpload(ContentResolver resolver, Uri uri, File target) throws IOException {
+        Bitmap bitmap = decodeSampled(resolver, uri, UPLOAD_MAX_SIDE);
+        try (OutputStream out = new FileOutputStream(target)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, UPLOAD_QUALITY, out)) {
+                throw new IOException("Unable to encode image: " + uri);
+            }
+            return new EncodedImage(bitmap.getWidth(), bitmap.getHeight(), target.length());
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Giải mã hình ảnh chỉ bằng inSampleSize: không thu nhỏ thêm và không xoay, nên không tạo thêm bản sao của ảnh.
+     * Dùng khi bên nhận tự xử lý hướng xoay, ví dụ ML Kit với InputImage.fromBitmap(bitmap, rotationDegrees).
+     * Cạnh dài nhất của ảnh trả về không nhỏ hơn maxSide (trừ khi ảnh gốc nhỏ hơn) và nhỏ hơn 2 * maxSide.
+     *
+     * @param resolver ContentResolver để mở hình ảnh.
+     * @param uri      URI của hình ảnh trên thiết bị.
+     * @param maxSide  Cạnh dài nhất mong muốn.
+     * @return Ảnh đã giải mã, chưa xoay theo EXIF.
+     * @throws IOException nếu không đọc hoặc giải mã được hình ảnh.
+     */
+    public static Bitmap decodeSubsampled(ContentResolver resolver, Uri uri, int maxSide) throws IOException {
+        BitmapFactory.Options bounds = decodeBounds(resolver, uri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxSide);
+        Bitmap decoded;
+        try (InputStream in = open(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Unable to decode image: " + uri);
+        }
+        return decoded;
+    }
+
+    /**
+     * Giải mã hình ảnh đã thu nhỏ sao cho cạnh dài nhất không quá maxSide, và xoay theo EXIF.
+     */
+    static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int maxSide) throws IOException {
+        Bitmap decoded = decodeSubsampled(resolver, uri, maxSide);
+
+        // inSampleSize chỉ chia theo lũy thừa của 2, thu nhỏ thêm cho đúng kích thước và xoay trong cùng một lần
+        Matrix matrix = new Matrix();
+        int[] target = calculateTargetSize(decoded.getWidth(), decoded.getHeight(), maxSide);
+        matrix.postScale((float) target[0] / decoded.getWidth(), (float) target[1] / decoded.getHeight());
+        matrix.postRotate(readRotationDegrees(resolver, uri));
+        if (matrix.isIdentity()) {
+            return decoded;
+        }
+        Bitmap transformed = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+        if (transformed != decoded) {
+            decoded.recycle();
+        }
+        return transformed;
+    }
+
+    /**
+     * Tính inSampleSize lớn nhất (lũy thừa của 2) mà ảnh sau khi giải mã vẫn có cạnh dài nhất không nhỏ hơn maxSide.
+     */
+    static int calculateInSampleSize(int width, int height, int maxSide) {
+        int longestSide = Math.max(width, height);
+        int inSampleSize = 1;
+        while (longestSide / (inSampleSize * 2) >= maxSide) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Tính kích thước giữ nguyên tỉ lệ sao cho cạnh dài nhất không quá maxSide. Ảnh nhỏ hơn không được phóng to.
+     *
+     * @return Mảng {chiều rộng, chiều cao}.
+     */
+    static int[] calculateTargetSize(int width, int height, int maxSide) {
+        int longestSide = Math.max(width, height);
+        if (longestSide <= maxSide) {
+            return new int[]{width, height};
+        }
+        float scale = (float) maxSide / longestSide;
+        return new int[]{Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale))};
+    }
+
+    private static BitmapFactory.Options decodeBounds(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds: " + uri);
+        }
+        return bounds;
+    }
+
+    /**
+     * Đọc hướng xoay (0, 90, 180, 270 độ) trong EXIF của hình ảnh, 0 nếu không có EXIF.
+     */
+    public static int readRotationDegrees(ContentResolver resolver, Uri uri) {
+        try (InputStream in = open(resolver, uri)) {
+            int orientation = new ExifInterface(in)
+                    .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            // Ảnh không có EXIF (PNG, ảnh chụp màn hình) được coi là không xoay
+            return 0;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri uri) throws FileNotFoundException {
+        InputStream in = resolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Unable to open image: " + uri);
+        }
+        return in;
+    }
+
+    /**
+     * Kết quả nén một hình ảnh.
+     */
+    public static class EncodedImage {
+        private final int width;
+        private final int height;
+        private final long bytes;
+
+        EncodedImage(int width, int height, long bytes) {
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
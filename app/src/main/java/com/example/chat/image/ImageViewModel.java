@@ -19,13 +19,18 @@ public class ImageViewModel extends BaseViewModel {
     // MutableLiveData để lưu trữ URL của hình ảnh được chọn.
     private final MutableLiveData<String> imagePickedUrl = new MutableLiveData<>(null);
 
+    // URL của ảnh thu nhỏ, hiển thị trong lúc tải ảnh gốc; null với tin nhắn từ phiên bản cũ.
+    private final String thumbnailUrl;
+
     /**
      * Khởi tạo ImageViewModel với URL của hình ảnh.
      *
      * @param imageUrl URL của hình ảnh ban đầu.
+     * @param thumbnailUrl URL của ảnh thu nhỏ, có thể null.
      * Tác giả: Văn Hoàng
      */
-    public ImageViewModel(String imageUrl) {
+    public ImageViewModel(String imageUrl, String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
         // Đặt giá trị ban đầu cho imagePickedUrl.
         imagePickedUrl.postValue(imageUrl);
     }
@@ -39,5 +44,8 @@ public class ImageViewModel extends BaseViewModel {
     public LiveData<String> getImagePickedUrl() {
         return imagePickedUrl;
     }
-}
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.chat.listener;
 
+import com.example.chat.message.Message;
+
 /**
  * Interface định nghĩa phương thức lắng nghe sự kiện click trên một hình ảnh.
- * Được sử dụng để thông báo khi một hình ảnh tại một vị trí cụ thể trong danh sách được click.
+ * Được sử dụng để thông báo khi một tin nhắn hình ảnh trong danh sách được click.
 
  * Tác giả: Văn Hoàng
  */
@@ -10,9 +12,8 @@ public interface ImageListener {
     /**
      * Phương thức này được gọi khi một hình ảnh được click.
      *
-     * @param position Vị trí của hình ảnh được click trong danh sách trong ChatAdapter.
+     * @param message Tin nhắn hình ảnh được click, lấy từ danh sách hiện tại của ChatAdapter.
      * Tác giả: Văn Hoàng
      */
-    void onImageClick(int position);
+    void onImageClick(Message message);
 }
-
@@ -0,0 +1,15 @@
+package com.example.chat.listener;
+
+import com.example.chat.message.Message;
+
+/**
+ * Interface định nghĩa phương thức lắng nghe sự kiện gửi lại một tin nhắn gửi thất bại.
+ */
+public interface RetryListener {
+    /**
+     * Phương thức này được gọi khi người dùng nhấn vào trạng thái của một tin nhắn gửi thất bại.
+     *
+     * @param message Tin nhắn cần gửi lại.
+     */
+    void onRetryClick(Message message);
+}
@@ -5,10 +5,9 @@ import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 
-import com.example.chat.Utils;
+import com.example.infrastructure.TimeCodec;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 
 /**
@@ -19,13 +18,32 @@ import java.time.format.DateTimeFormatter;
  * Tác giả: Văn Hoàng
  */
 public class Message implements Parcelable {
+    static final EType[] TYPES = EType.values();
+    static final EVisible[] VISIBILITIES = EVisible.values();
+    static final EDeliveryState[] DELIVERY_STATES = EDeliveryState.values();
+
+    // Tiền tố id tạm của tin nhắn được lưu trên thiết bị trước khi có id từ Backend (ví dụ nhận qua FCM)
+    public static final String LOCAL_ID_PREFIX = "local_";
+
     // Khai báo các thuộc tính của tin nhắn
+    private String id;
+    // Id do thiết bị gửi tạo ra, giữ nguyên từ lúc hiển thị tạm đến khi Backend xác nhận
+    private String clientId;
+    private EDeliveryState deliveryState = EDeliveryState.SENT;
     private String senderId, senderName, message;
     private String senderImage;
+    // Ảnh thu nhỏ và kích thước ảnh gốc của tin nhắn hình ảnh, xem MessageDTO
+    private String thumbnailUrl;
+    private int imageWidth;
+    private int imageHeight;
     private EType type;
+    // Thời gian gửi dạng ISO như nhận được (gửi kèm khi tạo/cập nhật cuộc trò chuyện)
     private String sendingTime;
+    // Thời gian gửi được phân tích một lần (xem TimeCodec), UNKNOWN nếu chuỗi gốc không phải dạng ISO
+    private transient long sendingTimeMillis = TimeCodec.UNKNOWN;
+    // Chuỗi hiển thị "dd-MM HH:mm", chỉ được định dạng khi bind lần đầu
+    private transient String displayTime;
     private EVisible visibility;
-    private LocalDateTime dateObject;
     private String recipientId;
     private String conversationId;
 
@@ -34,23 +52,18 @@ public class Message implements Parcelable {
         this.senderImage = "";
         this.message = "";
         this.type = EType.TEXT;
-        this.sendingTime = LocalDateTime.now().toString();
+        this.sendingTimeMillis = TimeCodec.now();
         this.recipientId = "";
         this.visibility = EVisible.HIDDEN;
-        this.dateObject = LocalDateTime.now();
     }
 
     public Message(String senderId, String recipientId, String message, EVisible visibility, EType type, String sendingTime) {
-        this.senderId = senderId;
+        this.senderId = ParticipantIds.intern(senderId);
         this.message = message;
         this.type = type;
-        try {
-            this.sendingTime = formatTime(sendingTime);
-        }catch (Exception e) {
-            this.sendingTime = sendingTime;
-        }
+        setSendingTime(sendingTime);
         this.visibility = visibility;
-        this.recipientId = recipientId;
+        this.recipientId = ParticipantIds.intern(recipientId);
     }
 
     public Message(String senderId,
@@ -61,34 +74,66 @@ public class Message implements Parcelable {
                    String sendingTime,
                    EVisible visibility,
                    String recipientId) {
-        this.senderId = senderId;
+        this.senderId = ParticipantIds.intern(senderId);
         this.senderName = senderName;
         this.senderImage = senderImage;
         this.message = message;
         this.type = type;
-        try {
-            this.sendingTime = formatTime(sendingTime);
-        }catch (Exception e) {
-            this.sendingTime = sendingTime;
-        }
+        setSendingTime(sendingTime);
         this.visibility = visibility;
-        this.recipientId = recipientId;
+        this.recipientId = ParticipantIds.intern(recipientId);
+    }
+
+    /**
+     * Tạo bản sao để cập nhật tin nhắn đã được hiển thị mà không sửa đổi bản đang hiển thị.
+     * Thời gian đã phân tích và chuỗi đã định dạng được giữ nguyên, không phân tích hay định dạng lại.
+     */
+    public Message(Message other) {
+        this.id = other.id;
+        this.clientId = other.clientId;
+        this.deliveryState = other.deliveryState;
+        this.senderId = other.senderId;
+        this.senderName = other.senderName;
+        this.message = other.message;
+        this.senderImage = other.senderImage;
+        this.thumbnailUrl = other.thumbnailUrl;
+        this.imageWidth = other.imageWidth;
+        this.imageHeight = other.imageHeight;
+        this.type = other.type;
+        this.sendingTime = other.sendingTime;
+        this.sendingTimeMillis = other.sendingTimeMillis;
+        this.displayTime = other.displayTime;
+        this.visibility = other.visibility;
+        this.recipientId = other.recipientId;
+        this.conversationId = other.conversationId;
     }
 
 
     /**
      * Phương thức constructor được sử dụng để tạo một đối tượng Message từ đối tượng Parcel.
+     * Đọc theo đúng thứ tự của writeToParcel.
      *
      * @param in Đối tượng Parcel chứa dữ liệu để tạo Message.
      * Tác giả: Văn Hoàng
      */
     protected Message(Parcel in) {
-        senderId = in.readString();
-        recipientId = in.readString();
+        id = in.readString();
+        clientId = in.readString();
+        deliveryState = fromOrdinal(DELIVERY_STATES, in.readInt());
+        senderId = ParticipantIds.intern(in.readString());
+        recipientId = ParticipantIds.intern(in.readString());
+        senderName = in.readString();
+        senderImage = in.readString();
         message = in.readString();
-        visibility = EVisible.valueOf(in.readString());
-        type = EType.valueOf(in.readString());
+        thumbnailUrl = in.readString();
+        imageWidth = in.readInt();
+        imageHeight = in.readInt();
+        type = fromOrdinal(TYPES, in.readInt());
+        visibility = fromOrdinal(VISIBILITIES, in.readInt());
+        sendingTimeMillis = in.readLong();
+        // Chuỗi gốc chỉ được ghi khi không phân tích được thời gian
         sendingTime = in.readString();
+        conversationId = in.readString();
     }
 
     /**
@@ -113,12 +158,73 @@ public class Message implements Parcelable {
         }
     };
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public void setImageWidth(int imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public void setImageHeight(int imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public EDeliveryState getDeliveryState() {
+        return deliveryState;
+    }
+
+    public void setDeliveryState(EDeliveryState deliveryState) {
+        this.deliveryState = deliveryState;
+    }
+
     public LocalDateTime getDateObject() {
-        return dateObject;
+        return TimeCodec.toLocalDateTime(sendingTimeMillis);
     }
 
     public void setDateObject(LocalDateTime dateObject) {
-        this.dateObject = dateObject;
+        setSendingTimeMillis(TimeCodec.fromLocalDateTime(dateObject));
+    }
+
+    public long getSendingTimeMillis() {
+        return sendingTimeMillis;
+    }
+
+    /**
+     * Đặt thời gian gửi, chuỗi ISO và chuỗi hiển thị sẽ được tạo lại khi cần.
+     */
+    public void setSendingTimeMillis(long sendingTimeMillis) {
+        this.sendingTimeMillis = sendingTimeMillis;
+        this.sendingTime = null;
+        this.displayTime = null;
     }
 
     public String getSenderId() {
@@ -126,7 +232,7 @@ public class Message implements Parcelable {
     }
 
     public void setSenderId(String senderId) {
-        this.senderId = senderId;
+        this.senderId = ParticipantIds.intern(senderId);
     }
 
     public String getSenderName() {
@@ -153,12 +259,39 @@ public class Message implements Parcelable {
         this.message = message;
     }
 
+    /**
+     * Trả về thời gian gửi để hiển thị ("dd-MM HH:mm"). Chuỗi được định dạng ở lần gọi đầu tiên (thường là lúc bind)
+     * và giữ lại cho các lần bind sau; nhiều luồng cùng định dạng cũng chỉ tạo ra các chuỗi giống nhau.
+     * Thời gian không phân tích được (thiết bị phiên bản cũ gửi chuỗi đã định dạng) được hiển thị nguyên văn.
+     */
     public String getSendingTime() {
+        if (displayTime == null) {
+            displayTime = sendingTimeMillis != TimeCodec.UNKNOWN
+                    ? TimeCodec.formatMessageTime(sendingTimeMillis)
+                    : sendingTime;
+        }
+        return displayTime;
+    }
+
+    /**
+     * Trả về thời gian gửi dạng ISO như Backend và FCM sử dụng, hoặc chuỗi gốc nếu không phân tích được.
+     */
+    public String getIsoSendingTime() {
+        if (sendingTime == null && sendingTimeMillis != TimeCodec.UNKNOWN) {
+            sendingTime = TimeCodec.toIso(sendingTimeMillis);
+        }
         return sendingTime;
     }
 
+    /**
+     * Đặt thời gian gửi dạng ISO, chuỗi được phân tích một lần tại đây.
+     *
+     * @param sendingTime Thời gian gửi dạng ISO, hoặc chuỗi đã định dạng từ thiết bị phiên bản cũ.
+     */
     public void setSendingTime(String sendingTime) {
         this.sendingTime = sendingTime;
+        this.sendingTimeMillis = TimeCodec.parseIso(sendingTime);
+        this.displayTime = null;
     }
 
     public String getRecipientId() {
@@ -166,7 +299,15 @@ public class Message implements Parcelable {
     }
 
     public void setRecipientId(String recipientId) {
-        this.recipientId = recipientId;
+        this.recipientId = ParticipantIds.intern(recipientId);
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
     }
 
     public EType getType() {
@@ -192,13 +333,17 @@ public class Message implements Parcelable {
      * Tác giả: Văn Hoàng
      */
     public void convertDTOToEntity(MessageDTO dto) {
-        senderId = dto.getSenderId();
-        recipientId = dto.getRecipientId();
+        id = dto.getId();
+        clientId = dto.getClientId();
+        senderId = ParticipantIds.intern(dto.getSenderId());
+        recipientId = ParticipantIds.intern(dto.getRecipientId());
         message = dto.getMessage();
+        thumbnailUrl = dto.getThumbnailUrl();
+        imageWidth = dto.getImageWidth();
+        imageHeight = dto.getImageHeight();
         visibility= dto.getVisibility();
         type = dto.getType();
-        sendingTime =  formatTime(dto.getSendingTime());
-        dateObject = Utils.getLocalDateTime(sendingTime);
+        setSendingTime(dto.getSendingTime());
     }
 
     @Override
@@ -209,33 +354,68 @@ public class Message implements Parcelable {
     /**
 
      Ghi dữ liệu của đối tượng Message vào Parcel.
+     Ghi đầy đủ các thuộc tính; enum được ghi theo ordinal (-1 nếu null) và thời gian gửi theo số mili giây,
+     không cần phân tích lại chuỗi khi đọc.
      @param parcel Đối tượng Parcel để ghi dữ liệu.
      @param i Một cờ chỉ định.
      Tác giả: Văn Hoàng
      */
     @Override
     public void writeToParcel(@NonNull Parcel parcel, int i) {
+        parcel.writeString(id);
+        parcel.writeString(clientId);
+        parcel.writeInt(ordinalOf(deliveryState));
         parcel.writeString(senderId);
         parcel.writeString(recipientId);
+        parcel.writeString(senderName);
+        parcel.writeString(senderImage);
         parcel.writeString(message);
-        parcel.writeString(visibility.toString());
-        parcel.writeString(type.toString());
-        parcel.writeString(sendingTime);
+        parcel.writeString(thumbnailUrl);
+        parcel.writeInt(imageWidth);
+        parcel.writeInt(imageHeight);
+        parcel.writeInt(ordinalOf(type));
+        parcel.writeInt(ordinalOf(visibility));
+        parcel.writeLong(sendingTimeMillis);
+        parcel.writeString(sendingTimeMillis == TimeCodec.UNKNOWN ? sendingTime : null);
+        parcel.writeString(conversationId);
     }
 
     /**
-     * Phương thức để định dạng thời gian gửi tin nhắn thành chuỗi có định dạng "dd-MM HH:mm".
-     *
-     * @param sendingTime Thời gian gửi tin nhắn dưới dạng chuỗi.
-     * @return Chuỗi thời gian đã được định dạng theo "dd-MM HH:mm".
-     * Tác giả: Văn Hoàng
+     * Kiểm tra id có phải do Backend cấp: null và id tạm LOCAL_ID_PREFIX đều không phải.
      */
-    private String formatTime(String sendingTime) {
-        LocalDateTime originalDateTime = LocalDateTime.parse(sendingTime);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM HH:mm");
+    public static boolean isServerId(String id) {
+        return id != null && !id.startsWith(LOCAL_ID_PREFIX);
+    }
 
-        String formattedDateTime = originalDateTime.format(formatter);
-        return formattedDateTime;
+    /**
+     * Bản chưa có id từ Backend (existing) và message là cùng một tin nhắn nếu cùng người gửi và cùng thời gian gửi.
+     * Tin nhắn nhận qua FCM hoặc lưu trên thiết bị trước khi có id không mang clientId của người gửi,
+     * nên đây là cách duy nhất nhận ra bản từ Backend của chúng. Hai tin nhắn có clientId khác nhau không bao giờ trùng.
+     */
+    public static boolean isUnsyncedCopy(String existingId, String existingClientId, String existingSenderId,
+                                         long existingSendingTime, Message message) {
+        return !isServerId(existingId)
+                && (existingClientId == null || message.getClientId() == null)
+                && existingSendingTime != TimeCodec.UNKNOWN
+                && existingSendingTime == message.getSendingTimeMillis()
+                && existingSenderId != null
+                && existingSenderId.equals(message.getSenderId());
+    }
+
+    /**
+     * Ordinal của giá trị enum, -1 nếu null. Dùng cho Parcel và MessageColumns.
+     */
+    static int ordinalOf(Enum<?> value) {
+        return value != null ? value.ordinal() : -1;
+    }
+
+    /**
+     * Giá trị enum của ordinal, null nếu ordinal là -1.
+     *
+     * @param values Mảng values() đã lưu sẵn (TYPES, VISIBILITIES, DELIVERY_STATES) để không tạo mảng mới mỗi lần đọc.
+     */
+    static <E extends Enum<E>> E fromOrdinal(E[] values, int ordinal) {
+        return ordinal >= 0 ? values[ordinal] : null;
     }
 
     public enum EType {
@@ -245,4 +425,14 @@ public class Message implements Parcelable {
     public enum EVisible {
         ACTIVE, DELETE, HIDDEN;
     }
+
+    /**
+     * Trạng thái gửi của tin nhắn do người dùng hiện tại gửi.
+     * - PENDING: đã hiển thị, đang chờ Backend xác nhận.
+     * - SENT: Backend đã lưu tin nhắn (mặc định với tin nhắn tải từ Backend hoặc nhận qua FCM).
+     * - FAILED: gửi thất bại, có thể gửi lại với cùng clientId.
+     */
+    public enum EDeliveryState {
+        PENDING, SENT, FAILED;
+    }
 }
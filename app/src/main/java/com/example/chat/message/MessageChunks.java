@@ -0,0 +1,201 @@
+package com.example.chat.message;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Dãy tin nhắn dạng cột gồm nhiều khối MessageColumns nối tiếp nhau, dùng cho phần cũ của ConversationMessages.
+ *
+ * - Thêm một trang tin nhắn cũ vào đầu, hoặc một phần vừa chuyển sang dạng cột vào cuối, chỉ tạo thêm một khối:
+ *   chi phí theo kích thước trang và số khối, không theo tổng số tin nhắn như khi ghép lại một MessageColumns.
+ * - Khối mới được gộp với khối kề bên nếu cả hai đều nhỏ, để số khối không tăng theo từng trang nhỏ.
+ * - Thay thế một tin nhắn chỉ tạo lại khối chứa tin nhắn đó.
+ * - Đối tượng không thể sửa đổi; các thao tác thay đổi tạo ra MessageChunks mới.
+ */
+public final class MessageChunks {
+    public static final MessageChunks EMPTY = new MessageChunks(Collections.emptyList());
+
+    // Hai khối kề nhau được gộp nếu tổng kích thước không vượt quá giá trị này
+    private static final int MERGE_SIZE = 512;
+
+    private final List<MessageColumns> chunks;
+    // starts[i] là vị trí của tin nhắn đầu tiên của khối i trong cả dãy
+    private final int[] starts;
+    private final int size;
+
+    private MessageChunks(List<MessageColumns> chunks) {
+        this.chunks = chunks;
+        this.starts = new int[chunks.size()];
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            starts[i] = total;
+            total += chunks.get(i).size();
+        }
+        this.size = total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Trả về khối thứ index.
+     */
+    public MessageColumns chunk(int index) {
+        return chunks.get(index);
+    }
+
+    /**
+     * Thêm các tin nhắn cũ hơn vào trước các tin nhắn hiện tại.
+     *
+     * @return MessageChunks mới.
+     */
+    public MessageChunks prepend(MessageColumns older) {
+        if (older.size() == 0) {
+            return this;
+        }
+        List<MessageColumns> next = new ArrayList<>(chunks.size() + 1);
+        if (!chunks.isEmpty() && older.size() + chunks.get(0).size() <= MERGE_SIZE) {
+            next.add(older.concat(chunks.get(0)));
+            next.addAll(chunks.subList(1, chunks.size()));
+        } else {
+            next.add(older);
+            next.addAll(chunks);
+        }
+        return new MessageChunks(Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Thêm các tin nhắn mới hơn vào sau các tin nhắn hiện tại.
+     *
+     * @return MessageChunks mới.
+     */
+    public MessageChunks append(MessageColumns newer) {
+        if (newer.size() == 0) {
+            return this;
+        }
+        List<MessageColumns> next = new ArrayList<>(chunks.size() + 1);
+        int last = chunks.size() - 1;
+        if (last >= 0 && chunks.get(last).size() + newer.size() <= MERGE_SIZE) {
+            next.addAll(chunks.subList(0, last));
+            next.add(chunks.get(last).concat(newer));
+        } else {
+            next.addAll(chunks);
+            next.add(newer);
+        }
+        return new MessageChunks(Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Thay thế tin nhắn tại vị trí index, chỉ khối chứa tin nhắn đó được tạo lại.
+     *
+     * @return MessageChunks mới với tin nhắn đã được thay thế.
+     */
+    public MessageChunks with(int index, Message message) {
+        int chunk = chunkOf(index);
+        List<MessageColumns> next = new ArrayList<>(chunks);
+        next.set(chunk, chunks.get(chunk).with(index - starts[chunk], message));
+        return new MessageChunks(Collections.unmodifiableList(next));
+    }
+
+    /**
+     * Trả về tin nhắn tại vị trí index, cùng quy ước với MessageColumns.get: không được sửa đổi đối tượng trả về.
+     */
+    public Message get(int index) {
+        int chunk = chunkOf(index);
+        return chunks.get(chunk).get(index - starts[chunk]);
+    }
+
+    public Message.EDeliveryState getDeliveryState(int index) {
+        int chunk = chunkOf(index);
+        return chunks.get(chunk).getDeliveryState(index - starts[chunk]);
+    }
+
+    public String getId(int index) {
+        int chunk = chunkOf(index);
+        return chunks.get(chunk).getId(index - starts[chunk]);
+    }
+
+    /**
+     * Tìm vị trí của tin nhắn cùng clientId hoặc cùng id với message (hoặc bản chưa có id từ Backend), tìm từ cuối dãy.
+     *
+     * @return Vị trí tìm thấy, hoặc -1.
+     */
+    public int indexOf(Message message) {
+        for (int i = chunks.size() - 1; i >= 0; i--) {
+            int index = chunks.get(i).indexOf(message);
+            if (index >= 0) {
+                return starts[i] + index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tìm vị trí của tin nhắn có clientId tương ứng, -1 nếu không có.
+     */
+    public int indexOfClientId(String clientId) {
+        for (int i = chunks.size() - 1; i >= 0; i--) {
+            int index = chunks.get(i).indexOfClientId(clientId);
+            if (index >= 0) {
+                return starts[i] + index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Trả về danh sách (không thể sửa đổi) gồm các tin nhắn dạng cột, tiếp theo là các tin nhắn của tail.
+     *
+     * @param tail Các tin nhắn mới hơn, giữ dạng đối tượng.
+     */
+    public List<Message> followedBy(List<Message> tail) {
+        if (chunks.size() == 1) {
+            return chunks.get(0).followedBy(tail);
+        }
+        return new ChunkedList(this, tail);
+    }
+
+    /**
+     * Khối chứa vị trí index, tìm nhị phân trên starts.
+     */
+    private int chunkOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        // Không có khối rỗng nên các vị trí bắt đầu khác nhau
+        int chunk = Arrays.binarySearch(starts, index);
+        return chunk >= 0 ? chunk : -chunk - 2;
+    }
+
+    /**
+     * Danh sách gồm các khối dạng cột và phần mới dạng đối tượng.
+     */
+    private static final class ChunkedList extends AbstractList<Message> implements RandomAccess {
+        private final MessageChunks head;
+        private final List<Message> tail;
+
+        ChunkedList(MessageChunks head, List<Message> tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+
+        @Override
+        public Message get(int index) {
+            return index < head.size ? head.get(index) : tail.get(index - head.size);
+        }
+
+        @Override
+        public int size() {
+            return head.size + tail.size();
+        }
+    }
+}
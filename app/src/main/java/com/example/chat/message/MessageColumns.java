@@ -0,0 +1,441 @@
+package com.example.chat.message;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import com.example.infrastructure.TimeCodec;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Lưu một dãy tin nhắn theo cột thay vì một đối tượng Message cho mỗi tin nhắn, dùng cho phần cũ của các cuộc trò chuyện dài.
+ *
+ * - ID người gửi, người nhận, tên, ảnh đại diện và id cuộc trò chuyện được mã hóa thành chỉ số trong một bảng chuỗi,
+ *   mỗi giá trị chỉ được lưu một lần cho cả dãy.
+ * - Thời gian gửi được lưu bằng số mili giây (TimeCodec), enum được lưu bằng ordinal.
+ * - Đối tượng không thể sửa đổi; các thao tác thay đổi tạo ra MessageColumns mới.
+ * - get(index) tạo đối tượng Message khi cần, một bộ nhớ đệm nhỏ giữ các tin nhắn vừa được truy cập
+ *   (bind, DiffUtil) để các lần truy cập liên tiếp cùng một dòng không tạo lại đối tượng.
+ */
+public final class MessageColumns implements Parcelable {
+    public static final MessageColumns EMPTY = new Builder(0).build();
+
+    // Kích thước bộ nhớ đệm (lũy thừa của 2), đủ cho vài màn hình tin nhắn
+    private static final int CACHE_SIZE = 128;
+
+    private final int size;
+    // Bảng chuỗi dùng chung, các cột *Refs lưu chỉ số trong bảng này (-1 nếu null)
+    private final String[] strings;
+    private final int[] senderRefs;
+    private final int[] recipientRefs;
+    private final int[] senderNameRefs;
+    private final int[] senderImageRefs;
+    private final int[] conversationRefs;
+    private final String[] ids;
+    private final String[] clientIds;
+    private final String[] texts;
+    private final String[] thumbnailUrls;
+    private final int[] imageWidths;
+    private final int[] imageHeights;
+    private final long[] sendingTimes;
+    // Chuỗi thời gian gốc, chỉ có giá trị khi không phân tích được (sendingTimes là TimeCodec.UNKNOWN)
+    private final String[] legacySendingTimes;
+    private final byte[] types;
+    private final byte[] visibilities;
+    private final byte[] deliveryStates;
+
+    private final Message[] cache = new Message[CACHE_SIZE];
+    private final int[] cachedIndexes = new int[CACHE_SIZE];
+
+    private MessageColumns(int size, String[] strings,
+                           int[] senderRefs, int[] recipientRefs, int[] senderNameRefs,
+                           int[] senderImageRefs, int[] conversationRefs,
+                           String[] ids, String[] clientIds, String[] texts, String[] thumbnailUrls,
+                           int[] imageWidths, int[] imageHeights,
+                           long[] sendingTimes, String[] legacySendingTimes,
+                           byte[] types, byte[] visibilities, byte[] deliveryStates) {
+        this.size = size;
+        this.strings = strings;
+        this.senderRefs = senderRefs;
+        this.recipientRefs = recipientRefs;
+        this.senderNameRefs = senderNameRefs;
+        this.senderImageRefs = senderImageRefs;
+        this.conversationRefs = conversationRefs;
+        this.ids = ids;
+        this.clientIds = clientIds;
+        this.texts = texts;
+        this.thumbnailUrls = thumbnailUrls;
+        this.imageWidths = imageWidths;
+        this.imageHeights = imageHeights;
+        this.sendingTimes = sendingTimes;
+        this.legacySendingTimes = legacySendingTimes;
+        this.types = types;
+        this.visibilities = visibilities;
+        this.deliveryStates = deliveryStates;
+        Arrays.fill(cachedIndexes, -1);
+    }
+
+    /**
+     * Đọc theo đúng thứ tự của writeToParcel. Mỗi cột được đọc bằng một lệnh, không đọc từng tin nhắn.
+     */
+    private MessageColumns(Parcel in) {
+        this(in.readInt(), in.createStringArray(),
+                in.createIntArray(), in.createIntArray(), in.createIntArray(),
+                in.createIntArray(), in.createIntArray(),
+                in.createStringArray(), in.createStringArray(), in.createStringArray(), in.createStringArray(),
+                in.createIntArray(), in.createIntArray(),
+                in.createLongArray(), in.createStringArray(),
+                in.createByteArray(), in.createByteArray(), in.createByteArray());
+    }
+
+    public static final Creator<MessageColumns> CREATOR = new Creator<MessageColumns>() {
+        @Override
+        public MessageColumns createFromParcel(Parcel in) {
+            return new MessageColumns(in);
+        }
+
+        @Override
+        public MessageColumns[] newArray(int size) {
+            return new MessageColumns[size];
+        }
+    };
+
+    /**
+     * Chuyển danh sách tin nhắn sang dạng cột.
+     *
+     * @param messages Danh sách tin nhắn theo thứ tự thời gian.
+     * @return MessageColumns chứa các tin nhắn theo cùng thứ tự.
+     */
+    public static MessageColumns of(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(messages.size());
+        for (Message message : messages) {
+            builder.add(message);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Nối các tin nhắn của next vào sau các tin nhắn hiện tại.
+     *
+     * @return MessageColumns mới chứa cả hai dãy.
+     */
+    public MessageColumns concat(MessageColumns next) {
+        if (next.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return next;
+        }
+        Builder builder = new Builder(size + next.size);
+        builder.addAll(this);
+        builder.addAll(next);
+        return builder.build();
+    }
+
+    /**
+     * Thay thế tin nhắn tại vị trí index.
+     *
+     * @return MessageColumns mới với tin nhắn đã được thay thế.
+     */
+    public MessageColumns with(int index, Message message) {
+        Builder builder = new Builder(size);
+        for (int i = 0; i < size; i++) {
+            if (i == index) {
+                builder.add(message);
+            } else {
+                builder.add(this, i);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Trả về tin nhắn tại vị trí index. Đối tượng trả về có thể được dùng chung qua bộ nhớ đệm nên không được sửa đổi,
+     * hãy tạo bản sao (new Message(message)) rồi thay thế bằng with().
+     */
+    public Message get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        int slot = index & (CACHE_SIZE - 1);
+        synchronized (cache) {
+            if (cachedIndexes[slot] == index) {
+                return cache[slot];
+            }
+        }
+        Message message = materialize(index);
+        synchronized (cache) {
+            cache[slot] = message;
+            cachedIndexes[slot] = index;
+        }
+        return message;
+    }
+
+    public Message.EDeliveryState getDeliveryState(int index) {
+        return Message.fromOrdinal(Message.DELIVERY_STATES, deliveryStates[index]);
+    }
+
+    /**
+     * Tìm vị trí của tin nhắn cùng clientId hoặc cùng id với message, hoặc bản chưa có id từ Backend của message
+     * (Message.isUnsyncedCopy), mà không tạo đối tượng Message. Tìm từ cuối dãy như ConversationMessages.
+     *
+     * @return Vị trí tìm thấy, hoặc -1.
+     */
+    public int indexOf(Message message) {
+        String clientId = message.getClientId();
+        String id = message.getId();
+        for (int i = size - 1; i >= 0; i--) {
+            if (clientId != null && clientId.equals(clientIds[i])) {
+                return i;
+            }
+            if (id != null && id.equals(ids[i])) {
+                return i;
+            }
+            if (Message.isUnsyncedCopy(ids[i], clientIds[i], stringAt(senderRefs[i]), sendingTimes[i], message)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * id của tin nhắn tại vị trí index, null nếu chưa có.
+     */
+    public String getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Tìm vị trí của tin nhắn có clientId tương ứng, -1 nếu không có.
+     */
+    public int indexOfClientId(String clientId) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (clientId.equals(clientIds[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Trả về danh sách (không thể sửa đổi) gồm các tin nhắn của MessageColumns, tiếp theo là các tin nhắn của tail.
+     * Phần tử của phần dạng cột được tạo khi truy cập, phần tail được trả về nguyên đối tượng.
+     *
+     * @param tail Các tin nhắn mới hơn, giữ dạng đối tượng.
+     */
+    public List<Message> followedBy(List<Message> tail) {
+        return new CompactList(this, tail);
+    }
+
+    private Message materialize(int index) {
+        Message message = new Message(
+                stringAt(senderRefs[index]),
+                stringAt(recipientRefs[index]),
+                texts[index],
+                Message.fromOrdinal(Message.VISIBILITIES, visibilities[index]),
+                Message.fromOrdinal(Message.TYPES, types[index]),
+                null);
+        message.setId(ids[index]);
+        message.setClientId(clientIds[index]);
+        message.setDeliveryState(getDeliveryState(index));
+        message.setSenderName(stringAt(senderNameRefs[index]));
+        message.setSenderImage(stringAt(senderImageRefs[index]));
+        message.setConversationId(stringAt(conversationRefs[index]));
+        message.setThumbnailUrl(thumbnailUrls[index]);
+        message.setImageWidth(imageWidths[index]);
+        message.setImageHeight(imageHeights[index]);
+        if (sendingTimes[index] != TimeCodec.UNKNOWN) {
+            message.setSendingTimeMillis(sendingTimes[index]);
+        } else {
+            message.setSendingTime(legacySendingTimes[index]);
+        }
+        return message;
+    }
+
+    private String stringAt(int ref) {
+        return ref >= 0 ? strings[ref] : null;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * Ghi từng cột thành một mảng, bảng chuỗi dùng chung chỉ được ghi một lần cho cả dãy.
+     */
+    @Override
+    public void writeToParcel(@NonNull Parcel parcel, int flags) {
+        parcel.writeInt(size);
+        parcel.writeStringArray(strings);
+        parcel.writeIntArray(senderRefs);
+        parcel.writeIntArray(recipientRefs);
+        parcel.writeIntArray(senderNameRefs);
+        parcel.writeIntArray(senderImageRefs);
+        parcel.writeIntArray(conversationRefs);
+        parcel.writeStringArray(ids);
+        parcel.writeStringArray(clientIds);
+        parcel.writeStringArray(texts);
+        parcel.writeStringArray(thumbnailUrls);
+        parcel.writeIntArray(imageWidths);
+        parcel.writeIntArray(imageHeights);
+        parcel.writeLongArray(sendingTimes);
+        parcel.writeStringArray(legacySendingTimes);
+        parcel.writeByteArray(types);
+        parcel.writeByteArray(visibilities);
+        parcel.writeByteArray(deliveryStates);
+    }
+
+    /**
+     * Danh sách gồm phần cũ dạng cột và phần mới dạng đối tượng.
+     */
+    private static final class CompactList extends AbstractList<Message> implements RandomAccess {
+        private final MessageColumns head;
+        private final List<Message> tail;
+
+        CompactList(MessageColumns head, List<Message> tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+
+        @Override
+        public Message get(int index) {
+            return index < head.size ? head.get(index) : tail.get(index - head.size);
+        }
+
+        @Override
+        public int size() {
+            return head.size + tail.size();
+        }
+    }
+
+    /**
+     * Tạo MessageColumns từng dòng, mã hóa các chuỗi lặp lại vào bảng chuỗi dùng chung.
+     */
+    private static final class Builder {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int size;
+        private final int[] senderRefs;
+        private final int[] recipientRefs;
+        private final int[] senderNameRefs;
+        private final int[] senderImageRefs;
+        private final int[] conversationRefs;
+        private final String[] ids;
+        private final String[] clientIds;
+        private final String[] texts;
+        private final String[] thumbnailUrls;
+        private final int[] imageWidths;
+        private final int[] imageHeights;
+        private final long[] sendingTimes;
+        private final String[] legacySendingTimes;
+        private final byte[] types;
+        private final byte[] visibilities;
+        private final byte[] deliveryStates;
+
+        Builder(int capacity) {
+            senderRefs = new int[capacity];
+            recipientRefs = new int[capacity];
+            senderNameRefs = new int[capacity];
+            senderImageRefs = new int[capacity];
+            conversationRefs = new int[capacity];
+            ids = new String[capacity];
+            clientIds = new String[capacity];
+            texts = new String[capacity];
+            thumbnailUrls = new String[capacity];
+            imageWidths = new int[capacity];
+            imageHeights = new int[capacity];
+            sendingTimes = new long[capacity];
+            legacySendingTimes = new String[capacity];
+            types = new byte[capacity];
+            visibilities = new byte[capacity];
+            deliveryStates = new byte[capacity];
+        }
+
+        void add(Message message) {
+            int i = size++;
+            senderRefs[i] = ref(message.getSenderId());
+            recipientRefs[i] = ref(message.getRecipientId());
+            senderNameRefs[i] = ref(message.getSenderName());
+            senderImageRefs[i] = ref(message.getSenderImage());
+            conversationRefs[i] = ref(message.getConversationId());
+            ids[i] = message.getId();
+            clientIds[i] = message.getClientId();
+            texts[i] = message.getMessage();
+            thumbnailUrls[i] = message.getThumbnailUrl();
+            imageWidths[i] = message.getImageWidth();
+            imageHeights[i] = message.getImageHeight();
+            sendingTimes[i] = message.getSendingTimeMillis();
+            legacySendingTimes[i] = message.getSendingTimeMillis() == TimeCodec.UNKNOWN
+                    ? message.getIsoSendingTime()
+                    : null;
+            types[i] = (byte) Message.ordinalOf(message.getType());
+            visibilities[i] = (byte) Message.ordinalOf(message.getVisibility());
+            deliveryStates[i] = (byte) Message.ordinalOf(message.getDeliveryState());
+        }
+
+        /**
+         * Sao chép dòng index của source mà không tạo đối tượng Message.
+         */
+        void add(MessageColumns source, int index) {
+            int i = size++;
+            senderRefs[i] = ref(source.stringAt(source.senderRefs[index]));
+            recipientRefs[i] = ref(source.stringAt(source.recipientRefs[index]));
+            senderNameRefs[i] = ref(source.stringAt(source.senderNameRefs[index]));
+            senderImageRefs[i] = ref(source.stringAt(source.senderImageRefs[index]));
+            conversationRefs[i] = ref(source.stringAt(source.conversationRefs[index]));
+            ids[i] = source.ids[index];
+            clientIds[i] = source.clientIds[index];
+            texts[i] = source.texts[index];
+            thumbnailUrls[i] = source.thumbnailUrls[index];
+            imageWidths[i] = source.imageWidths[index];
+            imageHeights[i] = source.imageHeights[index];
+            sendingTimes[i] = source.sendingTimes[index];
+            legacySendingTimes[i] = source.legacySendingTimes[index];
+            types[i] = source.types[index];
+            visibilities[i] = source.visibilities[index];
+            deliveryStates[i] = source.deliveryStates[index];
+        }
+
+        void addAll(MessageColumns source) {
+            for (int i = 0; i < source.size; i++) {
+                add(source, i);
+            }
+        }
+
+        MessageColumns build() {
+            return new MessageColumns(size, strings.toArray(new String[0]),
+                    senderRefs, recipientRefs, senderNameRefs, senderImageRefs, conversationRefs,
+                    ids, clientIds, texts, thumbnailUrls, imageWidths, imageHeights,
+                    sendingTimes, legacySendingTimes, types, visibilities, deliveryStates);
+        }
+
+        private int ref(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                ref = strings.size();
+                refs.put(value, ref);
+                strings.add(value);
+            }
+            return ref;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chat.message;
+
+/**
+ * Con trỏ phân trang lịch sử tin nhắn, xác định bởi cặp (sendingTime, id) của tin nhắn cũ nhất đã tải.
+ * Server trả về các tin nhắn "trước" con trỏ này: sendingTime nhỏ hơn, hoặc bằng nhau nhưng id nhỏ hơn,
+ * nên hai tin nhắn cùng thời gian gửi không bị lặp hoặc bỏ sót giữa hai trang.
+ */
+public class MessageCursor {
+    private final String sendingTime;
+    private final String id;
+
+    public MessageCursor(String sendingTime, String id) {
+        this.sendingTime = sendingTime;
+        this.id = id;
+    }
+
+    /**
+     * Tạo con trỏ từ tin nhắn cũ nhất của một trang.
+     *
+     * @param dto Tin nhắn cũ nhất trong trang vừa tải.
+     * @return Con trỏ trỏ tới tin nhắn đó, hoặc null nếu dto là null.
+     */
+    public static MessageCursor from(MessageDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return new MessageCursor(dto.getSendingTime(), dto.getId());
+    }
+
+    public String getSendingTime() {
+        return sendingTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
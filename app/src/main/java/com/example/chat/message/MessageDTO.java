@@ -8,8 +8,21 @@ import org.jetbrains.annotations.NotNull;
  * Tác giả: Văn Hoàng
  */
 public class MessageDTO {
+    private String id;
+
+    // Id do thiết bị gửi tạo ra, dùng để đối chiếu bản hiển thị tạm với tin nhắn đã lưu và để Backend bỏ qua yêu cầu gửi lặp lại
+    private String clientId;
+
     private String message;
 
+    // Với tin nhắn hình ảnh: message là URL ảnh gốc, thumbnailUrl là ảnh thu nhỏ để hiển thị trong danh sách.
+    // imageWidth/imageHeight là kích thước ảnh gốc, 0 nếu không rõ (tin nhắn từ phiên bản cũ).
+    private String thumbnailUrl;
+
+    private int imageWidth;
+
+    private int imageHeight;
+
     private String sendingTime;
 
     private Message.EType type;
@@ -22,6 +35,46 @@ public class MessageDTO {
     @NotNull
     private String recipientId;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public void setImageWidth(int imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public void setImageHeight(int imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+
     public String getMessage() {
         return message;
     }
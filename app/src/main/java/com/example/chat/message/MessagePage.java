@@ -0,0 +1,44 @@
+package com.example.chat.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Một trang lịch sử tin nhắn của một cuộc trò chuyện, trả về từ API fetch-conversation-messages.
+ *
+ * - messages: các tin nhắn trong trang, sắp xếp từ mới nhất đến cũ nhất.
+ * - hasMore: còn tin nhắn cũ hơn để tải hay không.
+ */
+public class MessagePage {
+    private List<MessageDTO> messages = new ArrayList<>();
+
+    private boolean hasMore;
+
+    public List<MessageDTO> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<MessageDTO> messages) {
+        this.messages = messages;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Con trỏ để tải trang tiếp theo (cũ hơn), lấy từ tin nhắn cuối cùng của trang.
+     *
+     * @return Con trỏ của trang tiếp theo, hoặc null nếu trang rỗng.
+     */
+    public MessageCursor getNextCursor() {
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+        return MessageCursor.from(messages.get(messages.size() - 1));
+    }
+}
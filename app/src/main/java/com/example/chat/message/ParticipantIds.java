@@ -0,0 +1,41 @@
+package com.example.chat.message;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bảng dùng chung các ID người tham gia (người gửi, người nhận) của tin nhắn.
+ *
+ * Mỗi tin nhắn tải từ Backend, thiết bị hoặc FCM mang bản sao riêng của cùng hai ID, bảng này trả về một bản duy nhất
+ * cho mỗi ID để danh sách tin nhắn dài chỉ giữ vài chuỗi thay vì hai chuỗi cho mỗi tin nhắn.
+ * Số ID được giới hạn theo số người dùng đã trò chuyện; khi vượt giới hạn, ID mới được dùng trực tiếp không qua bảng.
+ */
+public final class ParticipantIds {
+    private static final int MAX_SIZE = 4096;
+
+    private static final Map<String, String> IDS = new ConcurrentHashMap<>();
+
+    private ParticipantIds() {
+    }
+
+    /**
+     * Trả về bản dùng chung của id.
+     *
+     * @param id ID người dùng, có thể null.
+     * @return Bản dùng chung, hoặc chính id nếu id là null hoặc bảng đã đầy.
+     */
+    public static String intern(String id) {
+        if (id == null) {
+            return null;
+        }
+        String shared = IDS.get(id);
+        if (shared != null) {
+            return shared;
+        }
+        if (IDS.size() >= MAX_SIZE) {
+            return id;
+        }
+        shared = IDS.putIfAbsent(id, id);
+        return shared != null ? shared : id;
+    }
+}
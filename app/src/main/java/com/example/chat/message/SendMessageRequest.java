@@ -0,0 +1,69 @@
+package com.example.chat.message;
+
+/**
+ * Yêu cầu gửi tin nhắn trọn gói tới API deliver-message.
+ *
+ * Backend lưu tin nhắn, thêm/cập nhật cuộc trò chuyện và gửi FCM (dữ liệu tin nhắn và thông báo)
+ * tới người nhận trong cùng một yêu cầu. Tên người gửi và token của người nhận được lấy từ dữ liệu
+ * đã có sẵn trên thiết bị, để Backend không phải truy vấn lại.
+ *
+ * - summary: nội dung hiển thị ở tin nhắn cuối của cuộc trò chuyện và thông báo (ví dụ "[Ảnh]" với tin nhắn hình ảnh).
+ */
+public class SendMessageRequest {
+    private MessageDTO message;
+    private String conversationId;
+    private String recipientToken;
+    private String senderName;
+    private String summary;
+
+    public SendMessageRequest() {
+    }
+
+    public SendMessageRequest(MessageDTO message, String conversationId, String recipientToken, String senderName, String summary) {
+        this.message = message;
+        this.conversationId = conversationId;
+        this.recipientToken = recipientToken;
+        this.senderName = senderName;
+        this.summary = summary;
+    }
+
+    public MessageDTO getMessage() {
+        return message;
+    }
+
+    public void setMessage(MessageDTO message) {
+        this.message = message;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getRecipientToken() {
+        return recipientToken;
+    }
+
+    public void setRecipientToken(String recipientToken) {
+        this.recipientToken = recipientToken;
+    }
+
+    public String getSenderName() {
+        return senderName;
+    }
+
+    public void setSenderName(String senderName) {
+        this.senderName = senderName;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+}
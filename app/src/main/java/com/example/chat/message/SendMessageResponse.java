@@ -0,0 +1,28 @@
+package com.example.chat.message;
+
+/**
+ * Kết quả của API deliver-message.
+ *
+ * - message: tin nhắn đã được lưu (có id và sendingTime của Backend).
+ * - conversationId: id của cuộc trò chuyện sau khi được thêm mới hoặc cập nhật.
+ */
+public class SendMessageResponse {
+    private MessageDTO message;
+    private String conversationId;
+
+    public MessageDTO getMessage() {
+        return message;
+    }
+
+    public void setMessage(MessageDTO message) {
+        this.message = message;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.chat.message;
+
+/**
+ * Kết quả tải lên một hình ảnh: URL ảnh gốc, URL ảnh thu nhỏ và kích thước ảnh gốc.
+ */
+public class UploadedImage {
+    private final String url;
+    // null nếu không tạo hoặc không tải lên được ảnh thu nhỏ
+    private final String thumbnailUrl;
+    // 0 nếu không đọc được kích thước
+    private final int width;
+    private final int height;
+
+    public UploadedImage(String url, String thumbnailUrl, int width, int height) {
+        this.url = url;
+        this.thumbnailUrl = thumbnailUrl;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
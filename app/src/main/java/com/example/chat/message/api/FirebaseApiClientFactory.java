@@ -1,5 +1,7 @@
 package com.example.chat.message.api;
 
+import com.example.infrastructure.api.HttpClientProvider;
+
 import retrofit2.Retrofit;
 import retrofit2.converter.scalars.ScalarsConverterFactory;
 
@@ -19,11 +21,12 @@ public class FirebaseApiClientFactory {
      * @return instance của Retrofit.
      * Tác giả: Văn Hoàng
      */
-    public static Retrofit getIns() {
+    public static synchronized Retrofit getIns() {
         if (retrofit == null) {
             // Tạo mới instance của Retrofit nếu chưa tồn tại.
             retrofit = new Retrofit.Builder()
                     .baseUrl("https://fcm.googleapis.com/fcm/")  // Đặt base URL cho các yêu cầu FCM.
+                    .client(HttpClientProvider.getIns())  // Dùng OkHttpClient chung của ứng dụng.
                     .addConverterFactory(ScalarsConverterFactory.create())  // Thêm converter để xử lý các phản hồi dưới dạng chuỗi.
                     .build();
         }
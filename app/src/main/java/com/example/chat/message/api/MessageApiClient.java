@@ -1,6 +1,9 @@
 package com.example.chat.message.api;
 
 import com.example.chat.message.MessageDTO;
+import com.example.chat.message.MessagePage;
+import com.example.chat.message.SendMessageRequest;
+import com.example.chat.message.SendMessageResponse;
 
 import java.util.List;
 
@@ -30,6 +33,16 @@ public interface MessageApiClient {
     @POST("/api/v1/messages/send-message")
     Call<MessageDTO> sendMessage(@Body MessageDTO message);
 
+    /**
+     * Gửi tin nhắn trọn gói trong một yêu cầu: Backend lưu tin nhắn, thêm/cập nhật cuộc trò chuyện
+     * và gửi FCM (dữ liệu tin nhắn và thông báo) tới người nhận.
+     *
+     * @param request Tin nhắn cần gửi kèm id cuộc trò chuyện, token người nhận và tên người gửi.
+     * @return        Một đối tượng Call đại diện cho yêu cầu HTTP, với phản hồi là SendMessageResponse.
+     */
+    @POST("/api/v1/messages/deliver-message")
+    Call<SendMessageResponse> deliverMessage(@Body SendMessageRequest request);
+
     /**
      * Lấy danh sách các tin nhắn cho người dùng cụ thể bằng uid của họ.
      *
@@ -40,4 +53,41 @@ public interface MessageApiClient {
      */
     @GET("/api/v1/messages/fetch-messages")
     Call<List<MessageDTO>> getMessages(@Query("userUid") String UserUid);
+
+    /**
+     * Lấy một trang tin nhắn của cuộc trò chuyện giữa hai người dùng, theo con trỏ (sendingTime, id).
+     * Chỉ trả về các tin nhắn cũ hơn con trỏ, sắp xếp từ mới nhất đến cũ nhất.
+     * Nếu không truyền con trỏ thì trả về trang mới nhất.
+     *
+     * @param senderId    ID của người dùng hiện tại.
+     * @param recipientId ID của người còn lại trong cuộc trò chuyện.
+     * @param beforeTime  sendingTime của con trỏ, null để lấy trang mới nhất.
+     * @param beforeId    id của con trỏ, null để lấy trang mới nhất.
+     * @param limit       Số tin nhắn tối đa trong một trang.
+     * @return            Một đối tượng Call đại diện cho yêu cầu HTTP, với phản hồi là một MessagePage.
+     */
+    @GET("/api/v1/messages/fetch-conversation-messages")
+    Call<MessagePage> getMessagePage(
+            @Query("senderId") String senderId,
+            @Query("recipientId") String recipientId,
+            @Query("beforeTime") String beforeTime,
+            @Query("beforeId") String beforeId,
+            @Query("limit") int limit);
+
+    /**
+     * Lấy các tin nhắn của cuộc trò chuyện được gửi sau một thời điểm (đồng bộ phần chênh lệch),
+     * sắp xếp từ cũ nhất đến mới nhất.
+     *
+     * @param senderId    ID của người dùng hiện tại.
+     * @param recipientId ID của người còn lại trong cuộc trò chuyện.
+     * @param afterTime   sendingTime của tin nhắn mới nhất đã đồng bộ.
+     * @param limit       Số tin nhắn tối đa trả về.
+     * @return            Một đối tượng Call đại diện cho yêu cầu HTTP, với phản hồi là danh sách MessageDTO.
+     */
+    @GET("/api/v1/messages/fetch-conversation-messages-since")
+    Call<List<MessageDTO>> getMessagesSince(
+            @Query("senderId") String senderId,
+            @Query("recipientId") String recipientId,
+            @Query("afterTime") String afterTime,
+            @Query("limit") int limit);
 }
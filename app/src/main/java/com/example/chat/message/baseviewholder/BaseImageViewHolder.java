@@ -1,24 +1,30 @@
 package com.example.chat.message.baseviewholder;
 
-import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.databinding.ViewDataBinding;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.CustomTarget;
-import com.bumptech.glide.request.transition.Transition;
-import com.example.R;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.example.chat.image.ChatImageRequests;
 import com.example.chat.listener.ImageListener;
 import com.example.chat.message.Message;
 import com.example.databinding.ItemContainerReceivedImageBinding;
 import com.example.databinding.ItemContainerSentImageBinding;
 
+import java.util.List;
+
 /**
  * Lớp cơ sở cho các ImageViewHolder của RecyclerView xử lý hình ảnh.
  * Sử dụng DataBinding để liên kết view và Glide để tải hình ảnh.
@@ -32,35 +38,71 @@ public abstract class BaseImageViewHolder extends RecyclerView.ViewHolder {
     // Đối tượng ViewDataBinding để liên kết view
     protected final ViewDataBinding binding;
 
-    // ImageListener để xử lý sự kiện click trên hình ảnh
-    private final ImageListener listener;
+    // Xử lý sự kiện click trên hình ảnh, gắn vào binding và chuyển tiếp tin nhắn tới imageListener
+    private final View.OnClickListener onImageClick;
+    // ImageListener của adapter đang bind ViewHolder
+    private ImageListener imageListener;
+
+    private static final int UNSET_HEIGHT = Integer.MIN_VALUE;
+
+    // Chiều cao của ImageView trong layout, dùng cho tin nhắn không có kích thước ảnh
+    private int defaultImageHeight = UNSET_HEIGHT;
 
     /**
      * Constructor cho BaseImageViewHolder.
+     * ViewHolder có thể được dùng lại bởi adapter của một ChatActivity khác (RecycledViewPool dùng chung),
+     * nên ImageListener được gắn lại mỗi lần bind qua setImageListener.
      *
      * @param binding  Đối tượng ViewDataBinding để liên kết view.
-     * @param listener ImageListener để xử lý sự kiện click trên hình ảnh.
      *
      * Tác giả: Văn Hoàng
      */
-    protected BaseImageViewHolder(ViewDataBinding binding, ImageListener listener) {
+    protected BaseImageViewHolder(ViewDataBinding binding) {
         super(binding.getRoot());
         this.binding = binding;
-        this.listener = listener;
+        this.onImageClick = view -> {
+            Message message = getCurrentMessage();
+            if (message != null && imageListener != null) {
+                imageListener.onImageClick(message);
+            }
+        };
+    }
+
+    /**
+     * Lấy tin nhắn đang hiển thị ở ViewHolder lúc click, từ danh sách hiện tại của adapter.
+     * Vị trí được lấy lúc click vì DiffUtil không bind lại các dòng chỉ bị dịch chuyển, và tra trong
+     * getCurrentList() của chính adapter vì danh sách đó khớp với vị trí, khác với danh sách trong ViewModel
+     * có thể đã thay đổi trong lúc diff chạy trên luồng nền.
+     *
+     * @return Tin nhắn, hoặc null nếu ViewHolder không còn gắn với adapter.
+     */
+    private Message getCurrentMessage() {
+        int position = getBindingAdapterPosition();
+        RecyclerView.Adapter<?> adapter = getBindingAdapter();
+        if (position == RecyclerView.NO_POSITION || !(adapter instanceof ListAdapter)) {
+            return null;
+        }
+        List<?> messages = ((ListAdapter<?, ?>) adapter).getCurrentList();
+        return position < messages.size() ? (Message) messages.get(position) : null;
+    }
+
+    /**
+     * Gắn ImageListener của adapter đang bind ViewHolder.
+     */
+    public void setImageListener(ImageListener imageListener) {
+        this.imageListener = imageListener;
     }
 
     /**
      * Thiết lập dữ liệu cho ViewHolder.
      *
      * @param message  Đối tượng Message chứa dữ liệu.
-     * @param position Vị trí của item trong adapter.
      *
      * Tác giả: Văn Hoàng
      */
-    public void setData(Message message, int position) {
+    public void setData(Message message) {
         try {
-            String imageUrl = message.getMessage();
-            loadImage(imageUrl);
+            loadImage(message);
 
             /**
              * Thiết lập dữ liệu cho ViewHolder tuỳ theo kiểu binding.
@@ -68,25 +110,21 @@ public abstract class BaseImageViewHolder extends RecyclerView.ViewHolder {
              * Kiểm tra kiểu của binding và thiết lập dữ liệu phù hợp cho từng kiểu.
              * - Nếu binding là `ItemContainerReceivedImageBinding`:
              *    - Set text cho `textDateTime` bằng thời gian gửi của message.
-             *    - Set listener cho binding.
-             *    - Set vị trí (position) cho binding.
+             *    - Set listener click hình ảnh cho binding.
              *    - Gọi hàm `bindSpecificData` để thiết lập các dữ liệu đặc thù khác (nếu có).
              * - Nếu binding là `ItemContainerSentImageBinding`:
              *    - Set text cho `textDateTime` bằng thời gian gửi của message.
-             *    - Set listener cho binding.
-             *    - Set vị trí (position) cho binding.
+             *    - Set listener click hình ảnh cho binding.
              *
              * Tác giả: Văn Hoàng
              */
             if (binding instanceof ItemContainerReceivedImageBinding) {
                 ((ItemContainerReceivedImageBinding) binding).textDateTime.setText(message.getSendingTime());
-                ((ItemContainerReceivedImageBinding) binding).setListener(listener);
-                ((ItemContainerReceivedImageBinding) binding).setPosition(position);
+                ((ItemContainerReceivedImageBinding) binding).setOnImageClick(onImageClick);
                 bindSpecificData();
             } else if (binding instanceof ItemContainerSentImageBinding) {
                 ((ItemContainerSentImageBinding) binding).textDateTime.setText(message.getSendingTime());
-                ((ItemContainerSentImageBinding) binding).setListener(listener);
-                ((ItemContainerSentImageBinding) binding).setPosition(position);
+                ((ItemContainerSentImageBinding) binding).setOnImageClick(onImageClick);
             }
 
             // Thực hiện bất kỳ liên kết đang chờ nào ngay lập tức
@@ -97,58 +135,49 @@ public abstract class BaseImageViewHolder extends RecyclerView.ViewHolder {
     }
 
     /**
-     * Hàm tải và hiển thị ảnh từ URL.
+     * Hàm tải và hiển thị ảnh của tin nhắn.
      *
-     * Hàm này sử dụng thư viện Glide để tải ảnh từ URL được cung cấp.
-     * - Sử dụng `Glide.with(binding.getRoot())` để lấy instance của Glide gắn với context của ViewHolder.
-     * - Chuyển đổi ảnh thành dạng Bitmap bằng `.asBitmap()`.
-     * - Sử dụng `.load(imageUrl)` để xác định URL của ảnh cần tải.
-     * - Sử dụng `CustomTarget<Bitmap>` để nhận ảnh đã tải về.
-     *   - Trong `onResourceReady`:
-     *     - Lấy chiều rộng (`imageWidth`) và chiều cao (`imageHeight`) của ảnh gốc.
-     *     - Tính toán kích thước mong muốn (`desiredWidth`, `desiredHeight`) bằng một nửa kích thước gốc.
-     *     - Sử dụng Glide một lần nữa để tải lại ảnh từ cùng URL (`imageUrl`).
-     *     - Set kích thước hiển thị của ảnh bằng `.override(desiredWidth, desiredHeight)`.
-     *     - Set ảnh placeholder (`placeholder`) hiển thị trong khi chờ tải ảnh bằng `.placeholder(R.drawable.ic_image)`.
-     *     - Set ảnh hiển thị khi tải ảnh thất bại (`error`) bằng `.error(R.drawable.ic_image)`.
-     *     - Cuối cùng, sử dụng `.into(getImageView())` để hiển thị ảnh đã resize vào ImageView.
-     *   - Trong `onLoadCleared`:
-     *     - Kiểm tra nếu placeholder tồn tại (`placeholder != null`).
-     *     - Nếu có, set placeholder cho ImageView bằng `.setImageDrawable(placeholder)`.
+     * - Nếu tin nhắn có kích thước ảnh gốc, chiều cao của ImageView được đặt theo tỉ lệ ảnh trước khi tải,
+     *   nên placeholder đã có đúng kích thước và danh sách không bị nhảy khi ảnh hiện ra.
+     * - Chỉ tải ảnh thu nhỏ (thumbnailUrl); tin nhắn từ phiên bản cũ hoặc đang gửi không có ảnh thu nhỏ
+     *   thì tải ảnh gốc, Glide tự thu nhỏ theo kích thước của ImageView.
+     * - Chỉ có một yêu cầu Glide cho mỗi lần bind, ảnh gốc chỉ được tải khi mở ImageActivity.
+     *   Yêu cầu giống hệt yêu cầu của ChatImagePreloader nên ảnh đã được tải trước hiện ra ngay từ bộ nhớ đệm.
      *
-     * @param imageUrl Đường dẫn URL của ảnh cần tải.
+     * @param message Tin nhắn hình ảnh cần hiển thị.
 
      * Tác giả: Văn Hoàng
      */
-    private void loadImage(String imageUrl) {
-        Glide.with(binding.getRoot())
-                .asBitmap()
-                .load(imageUrl)
-                .into(new CustomTarget<Bitmap>() {
+    private void loadImage(Message message) {
+        ImageView imageView = getImageView();
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if (defaultImageHeight == UNSET_HEIGHT) {
+            defaultImageHeight = params.height;
+        }
+
+        int height = ChatImageRequests.getDisplayHeight(message, params.width, defaultImageHeight);
+        if (params.height != height) {
+            params.height = height;
+            imageView.setLayoutParams(params);
+        }
+
+        // Đo thời gian placeholder hiển thị; yêu cầu bị hủy khi ViewHolder được bind lại thì không được ghi nhận
+        long bindTime = SystemClock.elapsedRealtime();
+        ChatImageRequests.request(Glide.with(binding.getRoot()), message)
+                .listener(new RequestListener<Drawable>() {
                     @Override
-                    public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
-                        int imageWidth = resource.getWidth();
-                        int imageHeight = resource.getHeight();
-
-                        // Thu nhỏ hình ảnh xuống một nửa kích thước
-                        int desiredWidth = imageWidth / 2;
-                        int desiredHeight = imageHeight / 2;
-
-                        Glide.with(binding.getRoot())
-                                .load(imageUrl)
-                                .override(desiredWidth, desiredHeight)
-                                .placeholder(R.drawable.ic_image)
-                                .error(R.drawable.ic_image)
-                                .into(getImageView());
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+                        return false;
                     }
 
                     @Override
-                    public void onLoadCleared(@Nullable Drawable placeholder) {
-                        if (placeholder != null) {
-                            getImageView().setImageDrawable(placeholder);
-                        }
+                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+                        ChatImageRequests.DISPLAY_METRICS.record(ChatImageRequests.STAGE_PLACEHOLDER_VISIBLE,
+                                SystemClock.elapsedRealtime() - bindTime);
+                        return false;
                     }
-                });
+                })
+                .into(imageView);
     }
 
     /**
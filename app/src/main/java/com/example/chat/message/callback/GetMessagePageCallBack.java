@@ -0,0 +1,22 @@
+package com.example.chat.message.callback;
+
+import com.example.chat.message.MessagePage;
+
+/**
+ * Interface callback để nhận kết quả lấy một trang tin nhắn của cuộc trò chuyện từ bên Backend.
+ */
+public interface GetMessagePageCallBack {
+    /**
+     * Phương thức được gọi khi lấy trang tin nhắn thành công.
+     *
+     * @param page Trang tin nhắn nhận được.
+     */
+    void onResponse(MessagePage page);
+
+    /**
+     * Phương thức được gọi khi lấy trang tin nhắn thất bại.
+     *
+     * @param t Ngoại lệ xảy ra.
+     */
+    void onFailure(Throwable t);
+}
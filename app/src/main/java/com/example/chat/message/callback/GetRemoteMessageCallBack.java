@@ -10,4 +10,13 @@ import java.util.List;
  */
 public interface GetRemoteMessageCallBack {
     void onResponse(List<MessageDTO> messageDTOs);
+
+    /**
+     * Phương thức được gọi khi lấy danh sách tin nhắn thất bại (lỗi mạng hoặc mã lỗi HTTP).
+     * Mặc định bỏ qua.
+     *
+     * @param t Ngoại lệ xảy ra.
+     */
+    default void onFailure(Throwable t) {
+    }
 }
@@ -1,16 +1,34 @@
 package com.example.chat.message.callback;
 
+import com.example.chat.message.UploadedImage;
+
 /**
  * Interface định nghĩa phương thức callback cho việc tải ảnh lên.
- * Được sử dụng để thông báo khi ảnh đã được tải lên thành công.
+ * Được sử dụng để thông báo khi ảnh đã được tải lên thành công hoặc thất bại.
  * Tác giả: Văn Hoàng
  */
 public interface UploadImageCallBack {
     /**
      * Phương thức được gọi khi ảnh được tải lên thành công.
      *
-     * @param url URL của ảnh đã được tải lên.
+     * @param image URL của ảnh gốc, URL ảnh thu nhỏ và kích thước của ảnh đã được tải lên.
      * Tác giả: Văn Hoàng
      */
-    void onSuccess(String url);
+    void onSuccess(UploadedImage image);
+
+    /**
+     * Phương thức được gọi khi không tải được ảnh gốc lên.
+     *
+     * @param t Lỗi xảy ra.
+     */
+    void onFailure(Throwable t);
+
+    /**
+     * Phương thức được gọi khi tiến trình tải ảnh gốc lên thay đổi, trên luồng chính.
+     *
+     * @param bytesTransferred Số byte đã tải lên.
+     * @param totalBytes       Tổng số byte cần tải lên.
+     */
+    default void onProgress(long bytesTransferred, long totalBytes) {
+    }
 }
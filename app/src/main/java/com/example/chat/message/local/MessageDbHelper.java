@@ -0,0 +1,135 @@
+package com.example.chat.message.local;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * SQLiteOpenHelper quản lý cơ sở dữ liệu tin nhắn trên thiết bị.
+ *
+ * - Bảng messages lưu tin nhắn, đánh chỉ mục theo (conversation_key, sending_epoch, id)
+ *   để đọc nhanh một trang tin nhắn của một cuộc trò chuyện, và theo client_id để tìm bản đã lưu trước khi có id.
+ * - Bảng sync_state lưu thời điểm đồng bộ cuối cùng với Backend của từng cuộc trò chuyện.
+ * - Bảng outbox lưu các yêu cầu gửi tin nhắn và cập nhật cuộc trò chuyện chưa được Backend xác nhận,
+ *   đánh chỉ mục theo (conversation_key, state, created_at) để tìm mục cũ nhất còn chờ của mỗi cuộc trò chuyện.
+ */
+public class MessageDbHelper extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "chat_messages.db";
+    private static final int DATABASE_VERSION = 6;
+
+    public static final String TABLE_MESSAGES = "messages";
+    public static final String COLUMN_ID = "id";
+    public static final String COLUMN_CLIENT_ID = "client_id";
+    public static final String COLUMN_CONVERSATION_KEY = "conversation_key";
+    public static final String COLUMN_SENDER_ID = "sender_id";
+    public static final String COLUMN_RECIPIENT_ID = "recipient_id";
+    public static final String COLUMN_MESSAGE = "message";
+    public static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+    public static final String COLUMN_IMAGE_WIDTH = "image_width";
+    public static final String COLUMN_IMAGE_HEIGHT = "image_height";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_VISIBILITY = "visibility";
+    public static final String COLUMN_SENDING_TIME = "sending_time";
+    public static final String COLUMN_SENDING_EPOCH = "sending_epoch";
+
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String COLUMN_LAST_SYNC_TIME = "last_sync_time";
+
+    public static final String TABLE_OUTBOX = "outbox";
+    public static final String COLUMN_KIND = "kind";
+    public static final String COLUMN_PAYLOAD = "payload";
+    public static final String COLUMN_STATE = "state";
+    public static final String COLUMN_ATTEMPTS = "attempts";
+    public static final String COLUMN_NEXT_ATTEMPT_AT = "next_attempt_at";
+    public static final String COLUMN_CREATED_AT = "created_at";
+
+    private static MessageDbHelper ins;
+
+    /**
+     * Trả về instance duy nhất của MessageDbHelper, gắn với ApplicationContext.
+     *
+     * @param context Context bất kỳ của ứng dụng.
+     * @return instance của MessageDbHelper.
+     */
+    public static synchronized MessageDbHelper getIns(Context context) {
+        if (ins == null) {
+            ins = new MessageDbHelper(context.getApplicationContext());
+        }
+        return ins;
+    }
+
+    private MessageDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MESSAGES + " ("
+                + COLUMN_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_CLIENT_ID + " TEXT, "
+                + COLUMN_CONVERSATION_KEY + " TEXT NOT NULL, "
+                + COLUMN_SENDER_ID + " TEXT, "
+                + COLUMN_RECIPIENT_ID + " TEXT, "
+                + COLUMN_MESSAGE + " TEXT, "
+                + COLUMN_THUMBNAIL_URL + " TEXT, "
+                + COLUMN_IMAGE_WIDTH + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_IMAGE_HEIGHT + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_TYPE + " TEXT, "
+                + COLUMN_VISIBILITY + " TEXT, "
+                + COLUMN_SENDING_TIME + " TEXT, "
+                + COLUMN_SENDING_EPOCH + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_messages_conversation_time ON " + TABLE_MESSAGES
+                + " (" + COLUMN_CONVERSATION_KEY + ", " + COLUMN_SENDING_EPOCH + ", " + COLUMN_ID + ")");
+        createMessageClientIdIndex(db);
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + COLUMN_CONVERSATION_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_LAST_SYNC_TIME + " TEXT)");
+
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COLUMN_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_KIND + " TEXT NOT NULL, "
+                + COLUMN_CONVERSATION_KEY + " TEXT, "
+                + COLUMN_PAYLOAD + " TEXT NOT NULL, "
+                + COLUMN_STATE + " TEXT NOT NULL, "
+                + COLUMN_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_NEXT_ATTEMPT_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_CREATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_outbox_due ON " + TABLE_OUTBOX
+                + " (" + COLUMN_STATE + ", " + COLUMN_NEXT_ATTEMPT_AT + ")");
+        createOutboxConversationIndex(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 3) {
+            // Trước phiên bản 3 chưa có outbox, dữ liệu trên thiết bị chỉ là bộ nhớ đệm của Backend, có thể xóa và đồng bộ lại.
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_MESSAGES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_OUTBOX);
+            onCreate(db);
+            return;
+        }
+        // Từ phiên bản 3, outbox chứa dữ liệu chưa gửi nên chỉ nâng cấp bảng, không xóa.
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE_MESSAGES + " ADD COLUMN " + COLUMN_THUMBNAIL_URL + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_MESSAGES + " ADD COLUMN " + COLUMN_IMAGE_WIDTH + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_MESSAGES + " ADD COLUMN " + COLUMN_IMAGE_HEIGHT + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 5) {
+            createOutboxConversationIndex(db);
+        }
+        if (oldVersion < 6) {
+            createMessageClientIdIndex(db);
+        }
+    }
+
+    private static void createMessageClientIdIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_messages_client_id ON " + TABLE_MESSAGES + " (" + COLUMN_CLIENT_ID + ")");
+    }
+
+    private static void createOutboxConversationIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_outbox_conversation ON " + TABLE_OUTBOX
+                + " (" + COLUMN_CONVERSATION_KEY + ", " + COLUMN_STATE + ", " + COLUMN_CREATED_AT + ")");
+    }
+}
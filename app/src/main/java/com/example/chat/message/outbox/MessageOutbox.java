@@ -0,0 +1,553 @@
+package com.example.chat.message.outbox;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.chat.Utils;
+import com.example.chat.conversations.Conversation;
+import com.example.chat.conversations.api.ConversationApiClient;
+import com.example.chat.conversations.api.ConversationApiClientFactory;
+import com.example.chat.message.Message;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.SendMessageRequest;
+import com.example.chat.message.SendMessageResponse;
+import com.example.chat.message.api.FirebaseApiClient;
+import com.example.chat.message.api.FirebaseApiClientFactory;
+import com.example.chat.message.api.MessageApiClient;
+import com.example.chat.message.local.MessageDbHelper;
+import com.example.chat.message.repos.LocalMessageRepos;
+import com.example.chat.message.repos.LocalMessageReposImpl;
+import com.example.infrastructure.api.RestApiClient;
+import com.example.infrastructure.metrics.RequestCounter;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import retrofit2.Response;
+
+/**
+ * Outbox lưu trên thiết bị cho các tin nhắn và cập nhật cuộc trò chuyện chưa được Backend xác nhận.
+ *
+ * - Mỗi yêu cầu được ghi vào bảng outbox trước khi gửi, nên không bị mất khi mạng chập chờn hoặc tiến trình bị dừng.
+ *   Outbox tiếp tục gửi ngay khi được khởi tạo lại và mỗi khi thiết bị có mạng trở lại.
+ * - Tối đa MAX_CONCURRENT_SENDS yêu cầu được gửi cùng lúc. Mỗi cuộc trò chuyện chỉ gửi mục cũ nhất còn chờ,
+ *   kể cả khi mục đó đang chờ thử lại, nên tin nhắn đến Backend đúng thứ tự đã gửi.
+ * - Lỗi tạm thời (mất mạng, HTTP 5xx/408/429) được thử lại với thời gian chờ tăng theo cấp số nhân có jitter.
+ *   Sau MAX_ATTEMPTS lần, hoặc khi Backend từ chối yêu cầu, tin nhắn chuyển sang FAILED và chờ người dùng gửi lại.
+ * - Backend dùng clientId để bỏ qua yêu cầu lặp lại, nên thử lại không tạo tin nhắn trùng.
+ * - Với Backend chưa có API deliver-message, tin nhắn được gửi qua API send-message cũ và outbox tự ghi thêm
+ *   các yêu cầu tiếp theo (thêm/cập nhật cuộc trò chuyện, FCM tới người nhận) như các mục khác, nên chúng vẫn được gửi
+ *   khi màn hình chat đã đóng hoặc khi outbox tiếp tục gửi sau khi tiến trình khởi động lại.
+ *
+ * Mọi thao tác trên bảng outbox chạy trên một luồng scheduler duy nhất; yêu cầu HTTP chạy trên một pool riêng.
+ */
+public class MessageOutbox {
+    private static final String TAG = MessageOutbox.class.getSimpleName();
+
+    // Đếm số yêu cầu mạng của mỗi tin nhắn được gửi
+    public static final RequestCounter SEND_REQUEST_COUNTER = new RequestCounter("sendMessage");
+
+    private static final int MAX_CONCURRENT_SENDS = 2;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 1_000L;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000L;
+    private static final int DRAIN_BATCH_SIZE = 50;
+    // Các yêu cầu tiếp theo của API cũ có hàng đợi riêng trong mỗi cuộc trò chuyện, không chặn tin nhắn gửi sau
+    private static final String FOLLOW_UP_SUFFIX = "/follow_up";
+
+    /**
+     * Nhận kết quả gửi tin nhắn của một cuộc trò chuyện. Được gọi trên luồng nền của outbox.
+     */
+    public interface Listener {
+        /**
+         * Backend đã lưu tin nhắn. Tin nhắn đã được lưu vào kho tin nhắn trên thiết bị.
+         *
+         * @param clientId clientId của tin nhắn.
+         * @param response Tin nhắn đã lưu và id của cuộc trò chuyện.
+         */
+        void onMessageDelivered(String clientId, SendMessageResponse response);
+
+        /**
+         * Tin nhắn không gửi được và đã chuyển sang FAILED.
+         *
+         * @param clientId clientId của tin nhắn.
+         */
+        void onMessageFailed(String clientId);
+    }
+
+    private enum EResult {
+        DONE, RETRY, FAIL;
+    }
+
+    private static MessageOutbox ins;
+
+    private final OutboxStore store;
+    private final LocalMessageRepos localMessageRepos;
+    private final Supplier<MessageApiClient> messageApi;
+    private final Supplier<ConversationApiClient> conversationApi;
+    private final Supplier<FirebaseApiClient> firebaseApi;
+    private final long baseBackoffMillis;
+    private final Gson gson = new Gson();
+    private final Random random = new Random();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService senders = Executors.newFixedThreadPool(MAX_CONCURRENT_SENDS);
+    private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+    // Cuộc trò chuyện đã có trên Backend hoặc đã có yêu cầu thêm trong outbox, theo khóa cuộc trò chuyện
+    private final Set<String> knownConversations = ConcurrentHashMap.newKeySet();
+    // Backend đã trả 404 cho deliver-message: các lần gửi sau trong tiến trình này dùng ngay API cũ
+    private volatile boolean deliverMessageUnsupported;
+
+    // Chỉ được truy cập trên luồng scheduler
+    private final Set<String> inFlightIds = new HashSet<>();
+    private final Set<String> inFlightConversations = new HashSet<>();
+    private ScheduledFuture<?> scheduledDrain;
+    private long scheduledDrainAt = Long.MAX_VALUE;
+    private long lastCreatedAt;
+
+    /**
+     * Trả về instance duy nhất của MessageOutbox. Lần gọi đầu tiên tiếp tục gửi các mục còn lại từ phiên trước.
+     *
+     * @param context Context bất kỳ của ứng dụng.
+     * @return instance của MessageOutbox.
+     */
+    public static synchronized MessageOutbox getIns(Context context) {
+        if (ins == null) {
+            ins = new MessageOutbox(context.getApplicationContext());
+        }
+        return ins;
+    }
+
+    private MessageOutbox(Context context) {
+        this(new SqliteOutboxStore(MessageDbHelper.getIns(context)), new LocalMessageReposImpl(context),
+                () -> RestApiClient.getIns().create(MessageApiClient.class), ConversationApiClientFactory::create,
+                () -> FirebaseApiClientFactory.getIns().create(FirebaseApiClient.class), BASE_BACKOFF_MILLIS);
+        registerNetworkCallback(context);
+    }
+
+    /**
+     * Khởi tạo outbox với nơi lưu và API cho trước, dùng trong kiểm thử.
+     *
+     * @param baseBackoffMillis Thời gian chờ trước lần thử lại đầu tiên.
+     */
+    MessageOutbox(OutboxStore store, LocalMessageRepos localMessageRepos, Supplier<MessageApiClient> messageApi,
+                  Supplier<ConversationApiClient> conversationApi, Supplier<FirebaseApiClient> firebaseApi,
+                  long baseBackoffMillis) {
+        this.store = store;
+        this.localMessageRepos = localMessageRepos;
+        this.messageApi = messageApi;
+        this.conversationApi = conversationApi;
+        this.firebaseApi = firebaseApi;
+        this.baseBackoffMillis = baseBackoffMillis;
+        scheduler.execute(this::drain);
+    }
+
+    /**
+     * Đăng ký nhận kết quả gửi tin nhắn của cuộc trò chuyện đang mở.
+     */
+    public void addListener(String conversationKey, Listener listener) {
+        listeners.put(conversationKey, listener);
+    }
+
+    /**
+     * Hủy đăng ký khi cuộc trò chuyện bị đóng. Chỉ xóa nếu listener đăng ký đúng là listener này.
+     */
+    public void removeListener(String conversationKey, Listener listener) {
+        listeners.remove(conversationKey, listener);
+    }
+
+    /**
+     * Ghi một tin nhắn vào outbox và gửi khi có thể.
+     * Ghi lại một tin nhắn cùng clientId (gửi lại sau khi thất bại) sẽ đặt lại số lần thử.
+     *
+     * @param request Yêu cầu gửi tin nhắn, message phải có clientId.
+     */
+    public void enqueueMessage(SendMessageRequest request) {
+        MessageDTO message = request.getMessage();
+        SEND_REQUEST_COUNTER.begin(message.getClientId());
+        String conversationKey = Utils.getConversationKey(message.getSenderId(), message.getRecipientId());
+        enqueue(message.getClientId(), OutboxEntry.EKind.MESSAGE, conversationKey, gson.toJson(request));
+    }
+
+    /**
+     * Ghi một cập nhật cuộc trò chuyện (tin nhắn cuối, thời gian) vào outbox.
+     * Mỗi cuộc trò chuyện chỉ giữ cập nhật mới nhất chưa gửi.
+     *
+     * @param message Tin nhắn cuối của cuộc trò chuyện, nội dung là phần tóm tắt hiển thị.
+     */
+    public void enqueueConversationUpdate(MessageDTO message) {
+        String conversationKey = Utils.getConversationKey(message.getSenderId(), message.getRecipientId());
+        enqueue("conversation_" + conversationKey, OutboxEntry.EKind.CONVERSATION_UPDATE,
+                conversationKey + FOLLOW_UP_SUFFIX, gson.toJson(message));
+    }
+
+    /**
+     * Lấy các tin nhắn còn trong outbox (đang chờ gửi hoặc thất bại) của một cuộc trò chuyện, theo thứ tự gửi.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @return CompletableFuture chứa danh sách mục outbox kiểu MESSAGE.
+     */
+    public CompletableFuture<List<OutboxEntry>> getMessageEntries(String senderUid, String recipientUid) {
+        return CompletableFuture.supplyAsync(
+                () -> store.messageEntries(Utils.getConversationKey(senderUid, recipientUid)), scheduler);
+    }
+
+    /**
+     * Dừng các luồng của outbox, dùng trong kiểm thử.
+     */
+    void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private void enqueue(String id, OutboxEntry.EKind kind, String conversationKey, String payload) {
+        scheduler.execute(() -> {
+            // createdAt tăng ngặt để thứ tự gửi trong cuộc trò chuyện là thứ tự ghi,
+            // và mục ghi đè cùng id luôn khác mục cũ đang được gửi
+            long createdAt = Math.max(System.currentTimeMillis(), lastCreatedAt + 1);
+            lastCreatedAt = createdAt;
+            store.put(new OutboxEntry(id, kind, conversationKey, payload, OutboxEntry.EState.PENDING, 0, 0L, createdAt));
+            drain();
+        });
+    }
+
+    /**
+     * Gửi mục cũ nhất của các cuộc trò chuyện nếu đã đến hạn, trong giới hạn số yêu cầu đồng thời,
+     * và hẹn lần gửi tiếp theo. Chạy trên luồng scheduler.
+     */
+    private void drain() {
+        long now = System.currentTimeMillis();
+        if (inFlightIds.size() < MAX_CONCURRENT_SENDS) {
+            for (OutboxEntry entry : store.pendingHeads(DRAIN_BATCH_SIZE)) {
+                if (inFlightIds.size() >= MAX_CONCURRENT_SENDS) {
+                    break;
+                }
+                // Mục cũ nhất chưa đến hạn thử lại thì các mục sau của cuộc trò chuyện cũng phải chờ
+                if (entry.getNextAttemptAt() > now
+                        || inFlightIds.contains(entry.getId()) || inFlightConversations.contains(entry.getConversationKey())) {
+                    continue;
+                }
+                inFlightIds.add(entry.getId());
+                inFlightConversations.add(entry.getConversationKey());
+                senders.execute(() -> attempt(entry));
+            }
+        }
+        scheduleNextDrain(now);
+    }
+
+    /**
+     * Hẹn lần drain tiếp theo vào thời điểm thử lại sớm nhất của các mục đang chờ.
+     */
+    private void scheduleNextDrain(long now) {
+        long nextAttemptAt = store.nextAttemptAfter(now);
+        if (nextAttemptAt == Long.MAX_VALUE) {
+            return;
+        }
+        if (scheduledDrain != null && !scheduledDrain.isDone() && scheduledDrainAt <= nextAttemptAt) {
+            return;
+        }
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrainAt = nextAttemptAt;
+        scheduledDrain = scheduler.schedule(this::drain, nextAttemptAt - now, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gửi một mục outbox. Chạy trên pool gửi, kết quả được xử lý lại trên luồng scheduler.
+     */
+    private void attempt(OutboxEntry entry) {
+        EResult result;
+        try {
+            switch (entry.getKind()) {
+                case MESSAGE:
+                    result = sendMessage(entry);
+                    break;
+                case CONVERSATION_ADD:
+                    result = addConversation(entry);
+                    break;
+                case PUSH:
+                    result = push(entry);
+                    break;
+                default:
+                    result = updateConversation(entry);
+                    break;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Outbox " + entry.getId() + ": " + e.getMessage());
+            result = EResult.RETRY;
+        } catch (Exception e) {
+            Log.e(TAG, "Outbox " + entry.getId() + " failed", e);
+            result = EResult.FAIL;
+        }
+        EResult finalResult = result;
+        scheduler.execute(() -> onAttemptFinished(entry, finalResult));
+    }
+
+    private EResult sendMessage(OutboxEntry entry) throws IOException {
+        SendMessageRequest request = entry.getMessageRequest();
+        String clientId = entry.getId();
+        MessageApiClient api = messageApi.get();
+
+        if (!deliverMessageUnsupported) {
+            SEND_REQUEST_COUNTER.record(clientId, "deliverMessage");
+            Response<SendMessageResponse> response = api.deliverMessage(request).execute();
+            if (response.isSuccessful() && response.body() != null) {
+                onDelivered(entry, response.body(), false);
+                return EResult.DONE;
+            }
+            if (response.code() != 404) {
+                return classify(entry, response.code());
+            }
+            // Backend chưa có API deliver-message, không hỏi lại cho các tin nhắn sau
+            Log.i(TAG, "deliver-message is not supported, using send-message");
+            deliverMessageUnsupported = true;
+        }
+
+        SEND_REQUEST_COUNTER.record(clientId, "sendMessage");
+        Response<MessageDTO> legacyResponse = api.sendMessage(request.getMessage()).execute();
+        if (legacyResponse.isSuccessful() && legacyResponse.body() != null) {
+            SendMessageResponse delivered = new SendMessageResponse();
+            delivered.setMessage(legacyResponse.body());
+            delivered.setConversationId(request.getConversationId());
+            onDelivered(entry, delivered, true);
+            return EResult.DONE;
+        }
+        return classify(entry, legacyResponse.code());
+    }
+
+    private EResult updateConversation(OutboxEntry entry) throws IOException {
+        Response<?> response = conversationApi.get().updateConversation(conversationMessage(entry)).execute();
+        return response.isSuccessful() ? EResult.DONE : classify(entry, response.code());
+    }
+
+    private EResult addConversation(OutboxEntry entry) throws IOException {
+        Response<Conversation> response = conversationApi.get().addConversation(conversationMessage(entry)).execute();
+        return response.isSuccessful() ? EResult.DONE : classify(entry, response.code());
+    }
+
+    private Message conversationMessage(OutboxEntry entry) {
+        MessageDTO messageDTO = gson.fromJson(entry.getPayload(), MessageDTO.class);
+        Message message = new Message();
+        message.convertDTOToEntity(messageDTO);
+        return message;
+    }
+
+    /**
+     * Gửi FCM của một tin nhắn đã gửi qua API cũ: dữ liệu tin nhắn (topic chat) rồi thông báo (topic notify).
+     * Nếu thông báo lỗi, lần thử lại gửi lại cả dữ liệu tin nhắn; bên nhận bỏ qua tin nhắn trùng id.
+     */
+    private EResult push(OutboxEntry entry) throws IOException {
+        SendMessageRequest request = entry.getMessageRequest();
+        FirebaseApiClient api = firebaseApi.get();
+
+        Response<String> response = api.sendFCMMessage(Utils.getRemoteMsgHeaders(), chatPushBody(request)).execute();
+        if (!response.isSuccessful()) {
+            return classify(entry, response.code());
+        }
+        response = api.sendFCMMessage(Utils.getRemoteMsgHeaders(), notificationPushBody(request)).execute();
+        return response.isSuccessful() ? EResult.DONE : classify(entry, response.code());
+    }
+
+    /**
+     * Nội dung FCM chứa tin nhắn, cùng các trường với MessageRepos.sendFCMMessage.
+     */
+    private String chatPushBody(SendMessageRequest request) {
+        MessageDTO message = request.getMessage();
+        JsonObject data = new JsonObject();
+        data.addProperty(Utils.KEY_TOPIC, Utils.KEY_COLLECTION_CHAT);
+        data.addProperty(Utils.KEY_USER_ID, message.getSenderId());
+        data.addProperty(Utils.KEY_RECIPIENT_ID, message.getRecipientId());
+        data.addProperty(Utils.KEY_MESSAGE_ID, message.getId());
+        data.addProperty(Utils.KEY_CLIENT_ID, message.getClientId());
+        data.addProperty(Utils.KEY_MESSAGE, message.getMessage());
+        if (message.getThumbnailUrl() != null) {
+            data.addProperty(Utils.KEY_THUMBNAIL_URL, message.getThumbnailUrl());
+            data.addProperty(Utils.KEY_IMAGE_WIDTH, String.valueOf(message.getImageWidth()));
+            data.addProperty(Utils.KEY_IMAGE_HEIGHT, String.valueOf(message.getImageHeight()));
+        }
+        data.addProperty(Utils.KEY_IS_VISIBILITY, String.valueOf(message.getVisibility()));
+        data.addProperty(Utils.KEY_TYPE, String.valueOf(message.getType()));
+        data.addProperty(Utils.KEY_SENDING_TIME, message.getSendingTime());
+
+        JsonArray tokens = new JsonArray();
+        tokens.add(request.getRecipientToken());
+        JsonObject body = new JsonObject();
+        body.add(Utils.REMOTE_MSG_DATA, data);
+        body.add(Utils.REMOTE_MSG_REGISTRATION_IDS, tokens);
+        return gson.toJson(body);
+    }
+
+    /**
+     * Nội dung FCM hiển thị thông báo, cùng các trường với FCMSend.pushNotification.
+     */
+    private String notificationPushBody(SendMessageRequest request) {
+        JsonObject notification = new JsonObject();
+        notification.addProperty("title", request.getSenderName());
+        notification.addProperty("body", request.getSummary());
+        JsonObject data = new JsonObject();
+        data.addProperty(Utils.KEY_TOPIC, Utils.KEY_NOTIFY);
+
+        JsonObject body = new JsonObject();
+        body.addProperty("to", request.getRecipientToken());
+        body.add("notification", notification);
+        body.add(Utils.REMOTE_MSG_DATA, data);
+        return gson.toJson(body);
+    }
+
+    /**
+     * Lỗi tạm thời của Backend được thử lại, các lỗi khác không thể thành công khi gửi lại cùng yêu cầu.
+     */
+    private EResult classify(OutboxEntry entry, int code) {
+        Log.w(TAG, "Outbox " + entry.getId() + ": HTTP " + code);
+        return code >= 500 || code == 408 || code == 429 ? EResult.RETRY : EResult.FAIL;
+    }
+
+    /**
+     * Lưu tin nhắn đã gửi vào thiết bị và báo cho cuộc trò chuyện đang mở (nếu có).
+     * Tin nhắn gửi qua API cũ (legacy) được ghi thêm các yêu cầu tiếp theo vào outbox.
+     */
+    private void onDelivered(OutboxEntry entry, SendMessageResponse response, boolean legacy) {
+        MessageDTO message = response.getMessage();
+        if (message.getClientId() == null) {
+            message.setClientId(entry.getId());
+        }
+        // Backend có thể không trả về thông tin ảnh thu nhỏ, giữ thông tin đã gửi để thiết bị này không phải tải ảnh gốc
+        MessageDTO sent = entry.getMessageRequest().getMessage();
+        if (message.getThumbnailUrl() == null && sent.getThumbnailUrl() != null) {
+            message.setThumbnailUrl(sent.getThumbnailUrl());
+            message.setImageWidth(sent.getImageWidth());
+            message.setImageHeight(sent.getImageHeight());
+        }
+        localMessageRepos.saveMessages(Collections.singletonList(message));
+        if (response.getConversationId() != null) {
+            knownConversations.add(entry.getConversationKey());
+        }
+        if (legacy) {
+            enqueueFollowUps(entry, message);
+        }
+
+        Listener listener = listeners.get(entry.getConversationKey());
+        if (listener != null) {
+            listener.onMessageDelivered(entry.getId(), response);
+        }
+        SEND_REQUEST_COUNTER.finish(entry.getId());
+    }
+
+    /**
+     * Ghi các yêu cầu mà Backend tự làm khi có deliver-message: thêm cuộc trò chuyện (lần đầu) hoặc cập nhật
+     * tin nhắn cuối, và FCM tới người nhận (nếu biết token). Các mục này dùng hàng đợi riêng của cuộc trò chuyện
+     * nên được gửi theo thứ tự với nhau, song song với các tin nhắn sau.
+     */
+    private void enqueueFollowUps(OutboxEntry entry, MessageDTO message) {
+        SendMessageRequest request = entry.getMessageRequest();
+        String summary = request.getSummary() != null ? request.getSummary() : message.getMessage();
+        String followUpKey = entry.getConversationKey() + FOLLOW_UP_SUFFIX;
+
+        MessageDTO lastMessage = new MessageDTO();
+        lastMessage.setId(message.getId());
+        lastMessage.setSenderId(message.getSenderId());
+        lastMessage.setRecipientId(message.getRecipientId());
+        lastMessage.setMessage(summary);
+        lastMessage.setType(message.getType());
+        lastMessage.setVisibility(message.getVisibility());
+        lastMessage.setSendingTime(message.getSendingTime());
+        if (request.getConversationId() != null || !knownConversations.add(entry.getConversationKey())) {
+            SEND_REQUEST_COUNTER.record(entry.getId(), "updateConversation");
+            enqueue("conversation_" + entry.getConversationKey(), OutboxEntry.EKind.CONVERSATION_UPDATE,
+                    followUpKey, gson.toJson(lastMessage));
+        } else {
+            // Id khác với cập nhật để cập nhật của tin nhắn sau không thay thế yêu cầu thêm còn chờ
+            SEND_REQUEST_COUNTER.record(entry.getId(), "addConversation");
+            enqueue("conversation_add_" + entry.getConversationKey(), OutboxEntry.EKind.CONVERSATION_ADD,
+                    followUpKey, gson.toJson(lastMessage));
+        }
+
+        if (request.getRecipientToken() == null) {
+            Log.w(TAG, "No recipient token, skipping FCM for " + entry.getId());
+            return;
+        }
+        SEND_REQUEST_COUNTER.record(entry.getId(), "sendFCMMessage");
+        SEND_REQUEST_COUNTER.record(entry.getId(), "pushNotification");
+        SendMessageRequest push = new SendMessageRequest(message, request.getConversationId(),
+                request.getRecipientToken(), request.getSenderName(), summary);
+        enqueue("push_" + entry.getId(), OutboxEntry.EKind.PUSH, followUpKey, gson.toJson(push));
+    }
+
+    private void onAttemptFinished(OutboxEntry entry, EResult result) {
+        inFlightIds.remove(entry.getId());
+        inFlightConversations.remove(entry.getConversationKey());
+
+        // Mục có thể đã bị thay thế trong lúc gửi (cập nhật cuộc trò chuyện mới hơn cùng id):
+        // nơi lưu chỉ xóa hoặc sửa đúng mục đã gửi, mục mới vẫn được gửi ở lần drain sau.
+        if (result == EResult.DONE) {
+            store.delete(entry);
+        } else if (result == EResult.RETRY && entry.getAttempts() + 1 < MAX_ATTEMPTS) {
+            int attempts = entry.getAttempts() + 1;
+            store.scheduleRetry(entry, attempts, System.currentTimeMillis() + backoffMillis(attempts));
+        } else if (entry.getKind() == OutboxEntry.EKind.MESSAGE) {
+            if (store.markFailed(entry)) {
+                Listener listener = listeners.get(entry.getConversationKey());
+                if (listener != null) {
+                    listener.onMessageFailed(entry.getId());
+                }
+                SEND_REQUEST_COUNTER.finish(entry.getId());
+            }
+        } else {
+            // Cập nhật cuộc trò chuyện sẽ được thay thế bởi lần gửi tin nhắn tiếp theo, không cần giữ lại;
+            // FCM đã quá hạn thì người nhận sẽ thấy tin nhắn khi mở cuộc trò chuyện
+            Log.e(TAG, "Dropping " + entry.getKind() + " " + entry.getId());
+            store.delete(entry);
+        }
+        drain();
+    }
+
+    /**
+     * Thời gian chờ trước lần thử thứ attempts + 1: bắt đầu từ baseBackoffMillis, tăng gấp đôi sau mỗi lần,
+     * tối đa MAX_BACKOFF_MILLIS, lấy ngẫu nhiên trong nửa trên của khoảng để các thiết bị không thử lại cùng lúc.
+     */
+    private long backoffMillis(int attempts) {
+        long exponential = Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(attempts - 1, 20));
+        long half = exponential / 2;
+        return half + (long) (random.nextDouble() * (exponential - half));
+    }
+
+    /**
+     * Khi thiết bị có mạng trở lại, gửi ngay các mục đang chờ thay vì đợi hết thời gian chờ.
+     */
+    private void registerNetworkCallback(Context context) {
+        ConnectivityManager connectivityManager = context.getSystemService(ConnectivityManager.class);
+        if (connectivityManager == null) {
+            return;
+        }
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                scheduler.execute(() -> {
+                    store.resetBackoff();
+                    drain();
+                });
+            }
+        });
+    }
+}
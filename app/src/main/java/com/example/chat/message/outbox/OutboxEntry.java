@@ -0,0 +1,91 @@
+package com.example.chat.message.outbox;
+
+import com.example.chat.message.SendMessageRequest;
+import com.google.gson.Gson;
+
+/**
+ * Một mục trong outbox: một yêu cầu gửi tin nhắn, thêm/cập nhật cuộc trò chuyện hoặc gửi FCM chưa được xác nhận.
+ *
+ * - id: clientId của tin nhắn, "conversation_" + khóa cuộc trò chuyện với cập nhật cuộc trò chuyện
+ *   (mỗi cuộc trò chuyện chỉ giữ cập nhật mới nhất), "conversation_add_" + khóa cuộc trò chuyện với yêu cầu thêm,
+ *   hoặc "push_" + clientId với FCM của tin nhắn.
+ * - payload: nội dung yêu cầu dạng JSON.
+ * - attempts, nextAttemptAt: số lần đã thử và thời điểm (mili giây) được thử lại.
+ * - createdAt: thời điểm (mili giây) mục được ghi, tăng dần theo thứ tự ghi; mục được gửi theo thứ tự này
+ *   trong mỗi cuộc trò chuyện.
+ */
+public class OutboxEntry {
+    private static final Gson GSON = new Gson();
+
+    public enum EKind {
+        MESSAGE, CONVERSATION_UPDATE, CONVERSATION_ADD, PUSH;
+    }
+
+    /**
+     * - PENDING: đang chờ gửi hoặc chờ thử lại.
+     * - FAILED: đã hết số lần thử hoặc Backend từ chối, chỉ gửi lại khi người dùng yêu cầu.
+     */
+    public enum EState {
+        PENDING, FAILED;
+    }
+
+    private final String id;
+    private final EKind kind;
+    private final String conversationKey;
+    private final String payload;
+    private final EState state;
+    private final int attempts;
+    private final long nextAttemptAt;
+    private final long createdAt;
+
+    public OutboxEntry(String id, EKind kind, String conversationKey, String payload, EState state, int attempts,
+                       long nextAttemptAt, long createdAt) {
+        this.id = id;
+        this.kind = kind;
+        this.conversationKey = conversationKey;
+        this.payload = payload;
+        this.state = state;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public EKind getKind() {
+        return kind;
+    }
+
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public EState getState() {
+        return state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Đọc payload của mục kiểu MESSAGE hoặc PUSH thành SendMessageRequest.
+     */
+    public SendMessageRequest getMessageRequest() {
+        return GSON.fromJson(payload, SendMessageRequest.class);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chat.message.outbox;
+
+import java.util.List;
+
+/**
+ * Nơi lưu các mục của MessageOutbox. Mọi phương thức được gọi trên luồng scheduler của outbox.
+ *
+ * Một mục được xác định bởi cặp (id, createdAt): ghi lại cùng id (cập nhật cuộc trò chuyện mới hơn, gửi lại tin nhắn)
+ * tạo mục mới với createdAt mới, nên kết quả của lần gửi mục cũ không được xóa hay sửa mục đã thay thế nó.
+ */
+interface OutboxStore {
+    /**
+     * Ghi mục vào outbox, thay thế mục cùng id nếu có.
+     */
+    void put(OutboxEntry entry);
+
+    /**
+     * Lấy mục PENDING cũ nhất (theo createdAt) của mỗi cuộc trò chuyện, dù đã đến hạn hay chưa, sắp xếp theo createdAt.
+     * Chỉ mục đầu tiên của cuộc trò chuyện mới được gửi, để mục mới hơn không vượt mục cũ đang chờ thử lại.
+     *
+     * @param limit Số cuộc trò chuyện tối đa.
+     */
+    List<OutboxEntry> pendingHeads(int limit);
+
+    /**
+     * Thời điểm thử lại sớm nhất sau now của các mục PENDING, hoặc Long.MAX_VALUE nếu không có.
+     */
+    long nextAttemptAfter(long now);
+
+    /**
+     * Xóa mục nếu nó chưa bị thay thế.
+     *
+     * @return true nếu đã xóa.
+     */
+    boolean delete(OutboxEntry entry);
+
+    /**
+     * Hẹn thử lại mục nếu nó chưa bị thay thế.
+     *
+     * @return true nếu đã cập nhật.
+     */
+    boolean scheduleRetry(OutboxEntry entry, int attempts, long nextAttemptAt);
+
+    /**
+     * Chuyển mục sang FAILED nếu nó chưa bị thay thế.
+     *
+     * @return true nếu đã cập nhật.
+     */
+    boolean markFailed(OutboxEntry entry);
+
+    /**
+     * Cho mọi mục PENDING đến hạn ngay, dùng khi thiết bị có mạng trở lại.
+     */
+    void resetBackoff();
+
+    /**
+     * Lấy các mục kiểu MESSAGE (PENDING và FAILED) của một cuộc trò chuyện, theo createdAt.
+     */
+    List<OutboxEntry> messageEntries(String conversationKey);
+}
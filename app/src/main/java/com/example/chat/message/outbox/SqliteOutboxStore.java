@@ -0,0 +1,130 @@
+package com.example.chat.message.outbox;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.chat.message.local.MessageDbHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OutboxStore lưu trong bảng outbox của MessageDbHelper.
+ */
+class SqliteOutboxStore implements OutboxStore {
+    // Mục (id, created_at) chưa bị thay thế
+    private static final String ENTRY_SELECTION =
+            MessageDbHelper.COLUMN_ID + " = ? AND " + MessageDbHelper.COLUMN_CREATED_AT + " = ?";
+
+    // Không còn mục PENDING nào cũ hơn trong cùng cuộc trò chuyện
+    private static final String HEAD_SELECTION = MessageDbHelper.COLUMN_STATE + " = ? AND NOT EXISTS (SELECT 1 FROM "
+            + MessageDbHelper.TABLE_OUTBOX + " older WHERE older." + MessageDbHelper.COLUMN_CONVERSATION_KEY
+            + " = " + MessageDbHelper.TABLE_OUTBOX + "." + MessageDbHelper.COLUMN_CONVERSATION_KEY
+            + " AND older." + MessageDbHelper.COLUMN_STATE + " = ?"
+            + " AND (older." + MessageDbHelper.COLUMN_CREATED_AT + " < " + MessageDbHelper.TABLE_OUTBOX + "." + MessageDbHelper.COLUMN_CREATED_AT
+            + " OR (older." + MessageDbHelper.COLUMN_CREATED_AT + " = " + MessageDbHelper.TABLE_OUTBOX + "." + MessageDbHelper.COLUMN_CREATED_AT
+            + " AND older." + MessageDbHelper.COLUMN_ID + " < " + MessageDbHelper.TABLE_OUTBOX + "." + MessageDbHelper.COLUMN_ID + ")))";
+
+    private final MessageDbHelper dbHelper;
+
+    SqliteOutboxStore(MessageDbHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public void put(OutboxEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put(MessageDbHelper.COLUMN_ID, entry.getId());
+        values.put(MessageDbHelper.COLUMN_KIND, entry.getKind().name());
+        values.put(MessageDbHelper.COLUMN_CONVERSATION_KEY, entry.getConversationKey());
+        values.put(MessageDbHelper.COLUMN_PAYLOAD, entry.getPayload());
+        values.put(MessageDbHelper.COLUMN_STATE, entry.getState().name());
+        values.put(MessageDbHelper.COLUMN_ATTEMPTS, entry.getAttempts());
+        values.put(MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT, entry.getNextAttemptAt());
+        values.put(MessageDbHelper.COLUMN_CREATED_AT, entry.getCreatedAt());
+        dbHelper.getWritableDatabase().insertWithOnConflict(MessageDbHelper.TABLE_OUTBOX, null,
+                values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @Override
+    public List<OutboxEntry> pendingHeads(int limit) {
+        String pending = OutboxEntry.EState.PENDING.name();
+        return query(HEAD_SELECTION, new String[]{pending, pending}, String.valueOf(limit));
+    }
+
+    @Override
+    public long nextAttemptAfter(long now) {
+        try (Cursor cursor = dbHelper.getReadableDatabase().rawQuery(
+                "SELECT MIN(" + MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT + ") FROM " + MessageDbHelper.TABLE_OUTBOX
+                        + " WHERE " + MessageDbHelper.COLUMN_STATE + " = ? AND " + MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT + " > ?",
+                new String[]{OutboxEntry.EState.PENDING.name(), String.valueOf(now)})) {
+            if (!cursor.moveToFirst() || cursor.isNull(0)) {
+                return Long.MAX_VALUE;
+            }
+            return cursor.getLong(0);
+        }
+    }
+
+    @Override
+    public boolean delete(OutboxEntry entry) {
+        return dbHelper.getWritableDatabase().delete(MessageDbHelper.TABLE_OUTBOX, ENTRY_SELECTION, entryArgs(entry)) > 0;
+    }
+
+    @Override
+    public boolean scheduleRetry(OutboxEntry entry, int attempts, long nextAttemptAt) {
+        ContentValues values = new ContentValues();
+        values.put(MessageDbHelper.COLUMN_ATTEMPTS, attempts);
+        values.put(MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT, nextAttemptAt);
+        return update(entry, values);
+    }
+
+    @Override
+    public boolean markFailed(OutboxEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put(MessageDbHelper.COLUMN_STATE, OutboxEntry.EState.FAILED.name());
+        return update(entry, values);
+    }
+
+    @Override
+    public void resetBackoff() {
+        ContentValues values = new ContentValues();
+        values.put(MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT, 0L);
+        dbHelper.getWritableDatabase().update(MessageDbHelper.TABLE_OUTBOX, values,
+                MessageDbHelper.COLUMN_STATE + " = ?", new String[]{OutboxEntry.EState.PENDING.name()});
+    }
+
+    @Override
+    public List<OutboxEntry> messageEntries(String conversationKey) {
+        return query(MessageDbHelper.COLUMN_KIND + " = ? AND " + MessageDbHelper.COLUMN_CONVERSATION_KEY + " = ?",
+                new String[]{OutboxEntry.EKind.MESSAGE.name(), conversationKey}, null);
+    }
+
+    private boolean update(OutboxEntry entry, ContentValues values) {
+        return dbHelper.getWritableDatabase().update(MessageDbHelper.TABLE_OUTBOX, values, ENTRY_SELECTION, entryArgs(entry)) > 0;
+    }
+
+    private static String[] entryArgs(OutboxEntry entry) {
+        return new String[]{entry.getId(), String.valueOf(entry.getCreatedAt())};
+    }
+
+    private List<OutboxEntry> query(String selection, String[] selectionArgs, String limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        try (Cursor cursor = dbHelper.getReadableDatabase().query(MessageDbHelper.TABLE_OUTBOX, null,
+                selection, selectionArgs, null, null,
+                MessageDbHelper.COLUMN_CREATED_AT + " ASC, " + MessageDbHelper.COLUMN_ID + " ASC", limit)) {
+            while (cursor.moveToNext()) {
+                entries.add(new OutboxEntry(
+                        cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_ID)),
+                        OutboxEntry.EKind.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_KIND))),
+                        cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_CONVERSATION_KEY)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_PAYLOAD)),
+                        OutboxEntry.EState.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_STATE))),
+                        cursor.getInt(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_ATTEMPTS)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_NEXT_ATTEMPT_AT)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_CREATED_AT))));
+            }
+        }
+        return entries;
+    }
+}
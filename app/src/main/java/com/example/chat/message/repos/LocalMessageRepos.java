@@ -0,0 +1,53 @@
+package com.example.chat.message.repos;
+
+import com.example.chat.message.MessageCursor;
+import com.example.chat.message.MessageDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface định nghĩa các phương thức thao tác với kho tin nhắn lưu trên thiết bị.
+ * Kho này cho phép hiển thị tin nhắn ngay khi mở cuộc trò chuyện mà không cần gọi mạng,
+ * sau đó đồng bộ phần chênh lệch với Backend.
+ */
+public interface LocalMessageRepos {
+
+    /**
+     * Lấy một trang tin nhắn của cuộc trò chuyện từ thiết bị, sắp xếp từ mới nhất đến cũ nhất.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param before       Con trỏ của tin nhắn cũ nhất đã tải, null để lấy trang mới nhất.
+     * @param limit        Số tin nhắn tối đa trong một trang.
+     * @return Một CompletableFuture chứa danh sách tin nhắn.
+     */
+    CompletableFuture<List<MessageDTO>> getMessages(String senderUid, String recipientUid, MessageCursor before, int limit);
+
+    /**
+     * Lưu (hoặc ghi đè theo id) các tin nhắn vào thiết bị.
+     *
+     * @param messages Danh sách tin nhắn cần lưu.
+     * @return Một CompletableFuture biểu thị hoàn thành công việc.
+     */
+    CompletableFuture<Void> saveMessages(List<MessageDTO> messages);
+
+    /**
+     * Lấy thời điểm (sendingTime của tin nhắn mới nhất) đã đồng bộ với Backend của cuộc trò chuyện.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @return Một CompletableFuture chứa thời điểm đồng bộ, null nếu chưa từng đồng bộ.
+     */
+    CompletableFuture<String> getLastSyncTime(String senderUid, String recipientUid);
+
+    /**
+     * Cập nhật thời điểm đồng bộ với Backend của cuộc trò chuyện.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param lastSyncTime sendingTime của tin nhắn mới nhất đã nhận từ Backend.
+     * @return Một CompletableFuture biểu thị hoàn thành công việc.
+     */
+    CompletableFuture<Void> setLastSyncTime(String senderUid, String recipientUid, String lastSyncTime);
+}
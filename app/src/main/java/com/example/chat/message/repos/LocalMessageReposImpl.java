@@ -0,0 +1,210 @@
+package com.example.chat.message.repos;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.chat.Utils;
+import com.example.chat.message.Message;
+import com.example.chat.message.MessageCursor;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.local.MessageDbHelper;
+import com.example.infrastructure.AppExecutors;
+import com.example.infrastructure.TimeCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lớp LocalMessageReposImpl triển khai LocalMessageRepos bằng SQLite.
+ * Mọi thao tác đọc/ghi được thực hiện trên AppExecutors.diskIO() để không chặn luồng chính.
+ */
+public class LocalMessageReposImpl implements LocalMessageRepos {
+    private static final String TAG = LocalMessageReposImpl.class.getSimpleName();
+
+    // Mẫu LIKE của id tạm (Message.LOCAL_ID_PREFIX), '_' được thoát bằng '!'
+    private static final String LOCAL_ID_PATTERN = Message.LOCAL_ID_PREFIX.replace("_", "!_") + "%";
+
+    private final MessageDbHelper dbHelper;
+
+    public LocalMessageReposImpl(Context context) {
+        this.dbHelper = MessageDbHelper.getIns(context);
+    }
+
+    @Override
+    public CompletableFuture<List<MessageDTO>> getMessages(String senderUid, String recipientUid, MessageCursor before, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            String conversationKey = Utils.getConversationKey(senderUid, recipientUid);
+            String selection;
+            String[] selectionArgs;
+            if (before == null) {
+                selection = MessageDbHelper.COLUMN_CONVERSATION_KEY + " = ?";
+                selectionArgs = new String[]{conversationKey};
+            } else {
+                // Chỉ lấy tin nhắn cũ hơn con trỏ (sendingTime, id)
+                String epoch = String.valueOf(toEpochMillis(before.getSendingTime()));
+                String id = before.getId() != null ? before.getId() : "";
+                selection = MessageDbHelper.COLUMN_CONVERSATION_KEY + " = ? AND ("
+                        + MessageDbHelper.COLUMN_SENDING_EPOCH + " < ? OR ("
+                        + MessageDbHelper.COLUMN_SENDING_EPOCH + " = ? AND "
+                        + MessageDbHelper.COLUMN_ID + " < ?))";
+                selectionArgs = new String[]{conversationKey, epoch, epoch, id};
+            }
+            String orderBy = MessageDbHelper.COLUMN_SENDING_EPOCH + " DESC, " + MessageDbHelper.COLUMN_ID + " DESC";
+
+            List<MessageDTO> messages = new ArrayList<>();
+            SQLiteDatabase db = dbHelper.getReadableDatabase();
+            try (Cursor cursor = db.query(MessageDbHelper.TABLE_MESSAGES, null, selection, selectionArgs,
+                    null, null, orderBy, String.valueOf(limit))) {
+                while (cursor.moveToNext()) {
+                    messages.add(readMessage(cursor));
+                }
+            }
+            return messages;
+        }, AppExecutors.getIns().diskIO());
+    }
+
+    @Override
+    public CompletableFuture<Void> saveMessages(List<MessageDTO> messages) {
+        return CompletableFuture.runAsync(() -> {
+            if (messages == null || messages.isEmpty()) {
+                return;
+            }
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (MessageDTO message : messages) {
+                    ContentValues values = toContentValues(message);
+                    if (Message.isServerId(message.getId())) {
+                        deleteUnsyncedCopies(db, values);
+                    }
+                    db.insertWithOnConflict(MessageDbHelper.TABLE_MESSAGES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to save messages", e);
+            } finally {
+                db.endTransaction();
+            }
+        }, AppExecutors.getIns().diskIO());
+    }
+
+    @Override
+    public CompletableFuture<String> getLastSyncTime(String senderUid, String recipientUid) {
+        return CompletableFuture.supplyAsync(() -> {
+            SQLiteDatabase db = dbHelper.getReadableDatabase();
+            try (Cursor cursor = db.query(MessageDbHelper.TABLE_SYNC_STATE,
+                    new String[]{MessageDbHelper.COLUMN_LAST_SYNC_TIME},
+                    MessageDbHelper.COLUMN_CONVERSATION_KEY + " = ?",
+                    new String[]{Utils.getConversationKey(senderUid, recipientUid)},
+                    null, null, null)) {
+                return cursor.moveToFirst() ? cursor.getString(0) : null;
+            }
+        }, AppExecutors.getIns().diskIO());
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastSyncTime(String senderUid, String recipientUid, String lastSyncTime) {
+        return CompletableFuture.runAsync(() -> {
+            ContentValues values = new ContentValues();
+            values.put(MessageDbHelper.COLUMN_CONVERSATION_KEY, Utils.getConversationKey(senderUid, recipientUid));
+            values.put(MessageDbHelper.COLUMN_LAST_SYNC_TIME, lastSyncTime);
+            dbHelper.getWritableDatabase().insertWithOnConflict(MessageDbHelper.TABLE_SYNC_STATE, null,
+                    values, SQLiteDatabase.CONFLICT_REPLACE);
+        }, AppExecutors.getIns().diskIO());
+    }
+
+    /**
+     * Xóa các dòng đã lưu trước khi tin nhắn có id từ Backend, để bản từ Backend (values) thay thế chúng
+     * thay vì thành một dòng trùng: dòng cùng clientId, và dòng có id tạm cùng người gửi và thời gian gửi
+     * (cùng quy ước với Message.isUnsyncedCopy). Được gọi trong transaction của saveMessages, ngay trước khi ghi values.
+     */
+    private static void deleteUnsyncedCopies(SQLiteDatabase db, ContentValues values) {
+        String id = values.getAsString(MessageDbHelper.COLUMN_ID);
+        String clientId = values.getAsString(MessageDbHelper.COLUMN_CLIENT_ID);
+        if (clientId != null) {
+            db.delete(MessageDbHelper.TABLE_MESSAGES,
+                    MessageDbHelper.COLUMN_CLIENT_ID + " = ? AND " + MessageDbHelper.COLUMN_ID + " <> ?",
+                    new String[]{clientId, id});
+        }
+        String senderId = values.getAsString(MessageDbHelper.COLUMN_SENDER_ID);
+        long sendingEpoch = values.getAsLong(MessageDbHelper.COLUMN_SENDING_EPOCH);
+        if (senderId == null || sendingEpoch == 0L) {
+            return;
+        }
+        String selection = MessageDbHelper.COLUMN_CONVERSATION_KEY + " = ? AND "
+                + MessageDbHelper.COLUMN_SENDING_EPOCH + " = ? AND "
+                + MessageDbHelper.COLUMN_SENDER_ID + " = ? AND "
+                + MessageDbHelper.COLUMN_ID + " LIKE ? ESCAPE '!'";
+        List<String> selectionArgs = new ArrayList<>(Arrays.asList(
+                values.getAsString(MessageDbHelper.COLUMN_CONVERSATION_KEY),
+                String.valueOf(sendingEpoch), senderId, LOCAL_ID_PATTERN));
+        if (clientId != null) {
+            // Dòng có clientId khác là một tin nhắn khác, không phải bản tạm của tin nhắn này
+            selection += " AND (" + MessageDbHelper.COLUMN_CLIENT_ID + " IS NULL OR "
+                    + MessageDbHelper.COLUMN_CLIENT_ID + " = ?)";
+            selectionArgs.add(clientId);
+        }
+        db.delete(MessageDbHelper.TABLE_MESSAGES, selection, selectionArgs.toArray(new String[0]));
+    }
+
+    /**
+     * Chuyển một MessageDTO thành ContentValues để ghi vào bảng messages.
+     * Tin nhắn chưa có id (ví dụ nhận qua FCM) được gán id tạm từ người gửi và thời gian gửi.
+     */
+    private ContentValues toContentValues(MessageDTO message) {
+        String id = message.getId() != null
+                ? message.getId()
+                : Message.LOCAL_ID_PREFIX + message.getSenderId() + "_" + message.getSendingTime();
+
+        ContentValues values = new ContentValues();
+        values.put(MessageDbHelper.COLUMN_ID, id);
+        values.put(MessageDbHelper.COLUMN_CLIENT_ID, message.getClientId());
+        values.put(MessageDbHelper.COLUMN_CONVERSATION_KEY, Utils.getConversationKey(message.getSenderId(), message.getRecipientId()));
+        values.put(MessageDbHelper.COLUMN_SENDER_ID, message.getSenderId());
+        values.put(MessageDbHelper.COLUMN_RECIPIENT_ID, message.getRecipientId());
+        values.put(MessageDbHelper.COLUMN_MESSAGE, message.getMessage());
+        values.put(MessageDbHelper.COLUMN_THUMBNAIL_URL, message.getThumbnailUrl());
+        values.put(MessageDbHelper.COLUMN_IMAGE_WIDTH, message.getImageWidth());
+        values.put(MessageDbHelper.COLUMN_IMAGE_HEIGHT, message.getImageHeight());
+        values.put(MessageDbHelper.COLUMN_TYPE, message.getType() != null ? message.getType().name() : null);
+        values.put(MessageDbHelper.COLUMN_VISIBILITY, message.getVisibility() != null ? message.getVisibility().name() : null);
+        values.put(MessageDbHelper.COLUMN_SENDING_TIME, message.getSendingTime());
+        values.put(MessageDbHelper.COLUMN_SENDING_EPOCH, toEpochMillis(message.getSendingTime()));
+        return values;
+    }
+
+    /**
+     * Đọc một dòng của bảng messages thành MessageDTO.
+     */
+    private MessageDTO readMessage(Cursor cursor) {
+        MessageDTO message = new MessageDTO();
+        message.setId(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_ID)));
+        message.setClientId(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_CLIENT_ID)));
+        message.setSenderId(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_SENDER_ID)));
+        message.setRecipientId(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_RECIPIENT_ID)));
+        message.setMessage(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_MESSAGE)));
+        message.setThumbnailUrl(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_THUMBNAIL_URL)));
+        message.setImageWidth(cursor.getInt(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_IMAGE_WIDTH)));
+        message.setImageHeight(cursor.getInt(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_IMAGE_HEIGHT)));
+        message.setSendingTime(cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_SENDING_TIME)));
+
+        String type = cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_TYPE));
+        message.setType(type != null ? Message.EType.valueOf(type) : Message.EType.TEXT);
+        String visibility = cursor.getString(cursor.getColumnIndexOrThrow(MessageDbHelper.COLUMN_VISIBILITY));
+        message.setVisibility(visibility != null ? Message.EVisible.valueOf(visibility) : Message.EVisible.ACTIVE);
+        return message;
+    }
+
+    /**
+     * Chuyển sendingTime (chuỗi ISO LocalDateTime) thành số mili giây để sắp xếp và đánh chỉ mục.
+     */
+    private static long toEpochMillis(String sendingTime) {
+        long millis = TimeCodec.parseIso(sendingTime);
+        return millis != TimeCodec.UNKNOWN ? millis : 0L;
+    }
+}
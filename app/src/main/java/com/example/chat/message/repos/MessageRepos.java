@@ -1,7 +1,9 @@
 package com.example.chat.message.repos;
 
 import com.example.chat.message.Message;
+import com.example.chat.message.MessageCursor;
 import com.example.chat.message.MessageDTO;
+import com.example.chat.message.callback.GetMessagePageCallBack;
 import com.example.chat.message.callback.GetRemoteMessageCallBack;
 import com.example.chat.message.callback.MessageCallback;
 import com.example.chat.message.callback.TokenCallback;
@@ -59,6 +61,29 @@ public interface MessageRepos {
      */
     void getRemoteMessages(String senderUid, GetRemoteMessageCallBack callBack);
 
+    /**
+     * Lấy một trang tin nhắn của cuộc trò chuyện giữa senderUid và recipientUid từ Backend.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param cursor       Con trỏ của tin nhắn cũ nhất đã tải, null để lấy trang mới nhất.
+     * @param limit        Số tin nhắn tối đa trong một trang.
+     * @param callBack     Callback để xử lý trang tin nhắn nhận được.
+     */
+    void getRemoteMessagePage(String senderUid, String recipientUid, MessageCursor cursor, int limit, GetMessagePageCallBack callBack);
+
+    /**
+     * Lấy các tin nhắn của cuộc trò chuyện được gửi sau lần đồng bộ trước từ Backend.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param sinceTime    sendingTime của tin nhắn mới nhất đã đồng bộ.
+     * @param limit        Số tin nhắn tối đa cần lấy.
+     * @param callBack     Callback để xử lý danh sách tin nhắn mới, theo thứ tự thời gian,
+     *                     hoặc lỗi qua onFailure.
+     */
+    void getRemoteMessagesSince(String senderUid, String recipientUid, String sinceTime, int limit, GetRemoteMessageCallBack callBack);
+
     // Ngrok command để mở đường hầm HTTP cho localhost, dùng cho việc thử nghiệm và phát triển.
     // ngrok http http://localhost:8000
 }
@@ -6,15 +6,19 @@ import androidx.annotation.NonNull;
 
 import com.example.chat.Utils;
 import com.example.chat.message.Message;
+import com.example.chat.message.MessageCursor;
 import com.example.chat.message.MessageDTO;
+import com.example.chat.message.MessagePage;
 import com.example.chat.message.api.FirebaseApiClient;
 import com.example.chat.message.api.FirebaseApiClientFactory;
 import com.example.chat.message.api.MessageApiClient;
+import com.example.chat.message.callback.GetMessagePageCallBack;
 import com.example.chat.message.callback.GetRemoteMessageCallBack;
 import com.example.chat.message.callback.MessageCallback;
 import com.example.chat.message.callback.TokenCallback;
 import com.example.infrastructure.api.RestApiClient;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -39,6 +43,9 @@ public class MessageReposImpl implements MessageRepos{
 
     private final FirebaseFirestore firebaseFirestore;
 
+    // Token FCM của thiết bị hiện tại, lưu lại sau updateToken để không phải lấy lại mỗi lần gửi tin nhắn
+    private volatile String deviceToken;
+
 
     public MessageReposImpl() {
         this.firebaseFirestore = FirebaseFirestore.getInstance();
@@ -98,6 +105,7 @@ public class MessageReposImpl implements MessageRepos{
     public void updateToken(String uid) {
         FirebaseMessaging.getInstance().getToken()
                 .addOnSuccessListener(token -> {
+                    deviceToken = token;
                     updateFCMToken(uid,token);
                 })
                 .addOnFailureListener( e -> {
@@ -181,6 +189,7 @@ public class MessageReposImpl implements MessageRepos{
                     @Override
                     public void onFailure(@NonNull Call<MessageDTO> call, @NonNull Throwable t) {
                         Log.e(TAG, "onResponse: " + t.getMessage());
+                        callback.onResponse(null);
                     }
                 });
     }
@@ -196,7 +205,9 @@ public class MessageReposImpl implements MessageRepos{
     @Override
     public void sendFCMMessage(HashMap<String, String> RemoteMsgHeaders, Message message, String receivedToken) {
 
-        getToken()
+        // Dùng token đã lưu nếu có, chỉ lấy lại từ FirebaseMessaging khi chưa có
+        Task<String> tokenTask = deviceToken != null ? Tasks.forResult(deviceToken) : getToken();
+        tokenTask
                 /**
                  * Lấy token FCM của thiết bị.
                  *
@@ -215,10 +226,18 @@ public class MessageReposImpl implements MessageRepos{
                         data.put(Utils.KEY_TOPIC, Utils.KEY_COLLECTION_CHAT);
                         data.put(Utils.KEY_USER_ID, message.getSenderId());
                         data.put(Utils.KEY_RECIPIENT_ID, message.getRecipientId());
+                        data.put(Utils.KEY_MESSAGE_ID, message.getId());
+                        data.put(Utils.KEY_CLIENT_ID, message.getClientId());
                         data.put(Utils.KEY_MESSAGE, message.getMessage());
+                        if (message.getThumbnailUrl() != null) {
+                            data.put(Utils.KEY_THUMBNAIL_URL, message.getThumbnailUrl());
+                            data.put(Utils.KEY_IMAGE_WIDTH, String.valueOf(message.getImageWidth()));
+                            data.put(Utils.KEY_IMAGE_HEIGHT, String.valueOf(message.getImageHeight()));
+                        }
                         data.put(Utils.KEY_IS_VISIBILITY, message.getVisibility().toString());
                         data.put(Utils.KEY_TYPE, message.getType().toString());
-                        data.put(Utils.KEY_SENDING_TIME, message.getSendingTime());
+                        // Gửi thời gian gốc (ISO) để bên nhận có thể lưu và sắp xếp tin nhắn
+                        data.put(Utils.KEY_SENDING_TIME, message.getIsoSendingTime());
                         data.put(Utils.KEY_FCM_TOKEN, token);
 
                         // Tạo một đối tượng JSONObject chứa dữ liệu tin nhắn và danh sách token nhận tin nhắn
@@ -301,6 +320,73 @@ public class MessageReposImpl implements MessageRepos{
                 });
     }
 
+    /**
+     * Lấy một trang tin nhắn của cuộc trò chuyện từ Backend theo con trỏ (sendingTime, id).
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param cursor       Con trỏ của tin nhắn cũ nhất đã tải, null để lấy trang mới nhất.
+     * @param limit        Số tin nhắn tối đa trong một trang.
+     * @param callBack     Callback để xử lý trang tin nhắn nhận được.
+     */
+    @Override
+    public void getRemoteMessagePage(String senderUid, String recipientUid, MessageCursor cursor, int limit, GetMessagePageCallBack callBack) {
+        String beforeTime = cursor != null ? cursor.getSendingTime() : null;
+        String beforeId = cursor != null ? cursor.getId() : null;
+
+        RestApiClient.getIns().create(MessageApiClient.class)
+                .getMessagePage(senderUid, recipientUid, beforeTime, beforeId, limit)
+                .enqueue(new Callback<MessagePage>() {
+                    @Override
+                    public void onResponse(@NonNull Call<MessagePage> call, @NonNull Response<MessagePage> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            callBack.onResponse(response.body());
+                        } else {
+                            Log.e(TAG, "getRemoteMessagePage: " + response.code());
+                            callBack.onFailure(new IOException("Failed to fetch messages: " + response.code()));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<MessagePage> call, @NonNull Throwable t) {
+                        Log.e(TAG, "getRemoteMessagePage: " + t.getMessage());
+                        callBack.onFailure(t);
+                    }
+                });
+    }
+
+    /**
+     * Lấy các tin nhắn của cuộc trò chuyện được gửi sau lần đồng bộ trước từ Backend.
+     *
+     * @param senderUid    ID của người dùng hiện tại.
+     * @param recipientUid ID của người còn lại trong cuộc trò chuyện.
+     * @param sinceTime    sendingTime của tin nhắn mới nhất đã đồng bộ.
+     * @param limit        Số tin nhắn tối đa cần lấy.
+     * @param callBack     Callback để xử lý danh sách tin nhắn mới hoặc lỗi.
+     */
+    @Override
+    public void getRemoteMessagesSince(String senderUid, String recipientUid, String sinceTime, int limit, GetRemoteMessageCallBack callBack) {
+        RestApiClient.getIns().create(MessageApiClient.class)
+                .getMessagesSince(senderUid, recipientUid, sinceTime, limit)
+                .enqueue(new Callback<List<MessageDTO>>() {
+                    @Override
+                    public void onResponse(@NonNull Call<List<MessageDTO>> call, @NonNull Response<List<MessageDTO>> response) {
+                        if (response.isSuccessful()) {
+                            callBack.onResponse(response.body());
+                        } else {
+                            Log.e(TAG, "getRemoteMessagesSince: " + response.code());
+                            callBack.onFailure(new IOException("Failed to fetch messages since " + sinceTime + ": " + response.code()));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<List<MessageDTO>> call, @NonNull Throwable t) {
+                        Log.e(TAG, "getRemoteMessagesSince: " + t.getMessage());
+                        callBack.onFailure(t);
+                    }
+                });
+    }
+
     /**
      * Gửi thông điệp FCM tới server.
      *
@@ -2,8 +2,25 @@ package com.example.chat.message.repos;
 
 import android.net.Uri;
 
+import com.example.chat.message.SendMessageRequest;
 import com.example.chat.message.callback.UploadImageCallBack;
 
+import java.util.function.Consumer;
+
 public interface PhotoRepos {
-    void uploadImage(Uri uriImage, UploadImageCallBack callBack);
+    /**
+     * Tải một hình ảnh lên.
+     *
+     * @param uriImage URI của hình ảnh cần tải lên.
+     * @param request  Tin nhắn chờ hình ảnh này, được lưu cùng phiên tải lên để gửi tiếp nếu tiến trình bị hủy.
+     * @param callBack Callback nhận kết quả tải lên.
+     */
+    void uploadImage(Uri uriImage, SendMessageRequest request, UploadImageCallBack callBack);
+
+    /**
+     * Tiếp tục các phiên tải lên chưa hoàn tất của lần chạy trước. Gọi một lần khi ứng dụng khởi động.
+     *
+     * @param onUploaded Nhận tin nhắn đã được gắn URL và kích thước của hình ảnh, sẵn sàng để gửi.
+     */
+    void resumePendingUploads(Consumer<SendMessageRequest> onUploaded);
 }
@@ -1,54 +1,266 @@
 package com.example.chat.message.repos;
 
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.example.chat.Utils;
+import com.example.chat.image.ImageEncoder;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.SendMessageRequest;
+import com.example.chat.message.UploadedImage;
 import com.example.chat.message.callback.UploadImageCallBack;
+import com.example.infrastructure.AppExecutors;
+import com.example.infrastructure.metrics.UploadMetrics;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class PhotoReposImpl implements PhotoRepos {
     private final String TAG = PhotoReposImpl.class.getSimpleName();
+    private static final String THUMBNAIL_SUFFIX = "_thumb";
+    private static final String UPLOAD_DIRECTORY = "image_uploads";
+    private static final String CONTENT_TYPE_JPEG = "image/jpeg";
+    private static final String CONTENT_TYPE_GIF = "image/gif";
+
+    public static final UploadMetrics UPLOAD_METRICS = new UploadMetrics("chatImage");
 
     private final StorageReference storageReference;
+    private final ContentResolver contentResolver;
+    private final File uploadDirectory;
+    private final UploadSessionStore sessions;
 
-    public PhotoReposImpl() {
+    public PhotoReposImpl(Context context) {
         storageReference = FirebaseStorage.getInstance().getReference();
+        contentResolver = context.getApplicationContext().getContentResolver();
+        uploadDirectory = new File(context.getApplicationContext().getCacheDir(), UPLOAD_DIRECTORY);
+        sessions = new UploadSessionStore(context);
+        AppExecutors.getIns().computation().execute(() -> sessions.prune(uploadDirectory));
     }
 
 
     /**
-     * Tải một hình ảnh lên Firebase Storage.
+     * Tải một hình ảnh lên Firebase Storage, kèm theo một ảnh thu nhỏ để hiển thị trong danh sách tin nhắn.
+     *
+     * - Trên AppExecutors.computation(), hình ảnh được nén lại (ImageEncoder.encodeForUpload, không còn EXIF)
+     *   và ảnh thu nhỏ được tạo từ ảnh đã nén.
+     * - Ảnh gốc được tải lên theo phiên có thể tiếp tục: session URI được lưu lại ngay khi Storage tạo phiên,
+     *   gửi lại cùng hình ảnh sẽ tiếp tục từ phần đã tải lên. Nếu tiến trình bị hủy, resumePendingUploads
+     *   tiếp tục phiên ở lần chạy sau và trả về tin nhắn đã lưu cùng phiên.
+     * - Ảnh GIF và ảnh không nén được được tải lên nguyên tệp gốc như trước.
+     * - Nếu không tạo hoặc không tải lên được ảnh thu nhỏ, tin nhắn vẫn được gửi với ảnh gốc.
      *
      * @param uriImage   URI của hình ảnh cần tải lên.
-     * @param callBack   Callback để xử lý kết quả sau khi tải lên hình ảnh.
+     * @param request    Tin nhắn chờ hình ảnh này, được lưu cùng phiên tải lên.
+     * @param callBack   Callback để xử lý kết quả sau khi tải lên hình ảnh, được gọi trên luồng chính.
      * Tác giả: Văn Hoàng
      */
     @Override
-    public void uploadImage(Uri uriImage, UploadImageCallBack callBack) {
-        // Tạo một tham chiếu đến vị trí lưu trữ trên Firebase Storage
-        StorageReference imageRef = storageReference.child(Utils.KEY_FOLDER_IMAGE).child(UUID.randomUUID().toString());
-        // Bắt đầu quá trình tải lên hình ảnh
-        UploadTask task = imageRef.putFile(uriImage);
-
-        // Xử lý sự kiện khi quá trình tải lên hoàn thành hoặc thất bại
-        task
-        .addOnSuccessListener(taskSnapshot -> {
-            // Nếu tải lên thành công, lấy URL tải xuống của hình ảnh và gửi lại qua callback
-            imageRef.getDownloadUrl()
-                    .addOnSuccessListener(uri -> {
-                        callBack.onSuccess(uri.toString());
-                    })
-                    .addOnFailureListener(e -> Log.e(TAG, "Failed to get download URL", e));
-        })
-        .addOnFailureListener(e -> {
-            // Nếu quá trình tải lên gặp lỗi, gửi URL trống qua callback và ghi log lỗi
-            callBack.onSuccess("");
-            Log.e(TAG, e.getMessage());
+    public void uploadImage(Uri uriImage, SendMessageRequest request, UploadImageCallBack callBack) {
+        AppExecutors.getIns().computation().execute(() -> {
+            String sourceKey = uriImage.toString();
+            UploadSessionStore.UploadSession session = sessions.get(sourceKey);
+            if (session == null) {
+                session = encode(uriImage);
+                if (session != null) {
+                    session.request = request;
+                    sessions.put(sourceKey, session);
+                }
+            }
+            upload(uriImage, sourceKey, session, callBack);
+        });
+    }
+
+    /**
+     * Tiếp tục tải lên các phiên còn lưu từ lần chạy trước (tiến trình bị hủy khi đang tải lên, hoặc tải lên
+     * thất bại mà chưa được gửi lại). Khi tải lên xong, tin nhắn lưu cùng phiên được gắn URL, ảnh thu nhỏ
+     * và kích thước rồi chuyển cho onUploaded trên luồng chính. Phiên tải lên thất bại được giữ lại cho lần sau.
+     *
+     * @param onUploaded Nhận tin nhắn sẵn sàng để gửi.
+     */
+    @Override
+    public void resumePendingUploads(Consumer<SendMessageRequest> onUploaded) {
+        AppExecutors.getIns().computation().execute(() -> {
+            for (Map.Entry<String, UploadSessionStore.UploadSession> entry : sessions.getAll().entrySet()) {
+                SendMessageRequest request = entry.getValue().request;
+                if (request == null || request.getMessage() == null) {
+                    continue;
+                }
+                upload(Uri.parse(entry.getKey()), entry.getKey(), entry.getValue(), new UploadImageCallBack() {
+                    @Override
+                    public void onSuccess(UploadedImage image) {
+                        MessageDTO message = request.getMessage();
+                        message.setMessage(image.getUrl());
+                        message.setThumbnailUrl(image.getThumbnailUrl());
+                        message.setImageWidth(image.getWidth());
+                        message.setImageHeight(image.getHeight());
+                        onUploaded.accept(request);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        Log.w(TAG, "Unable to resume upload of " + entry.getKey(), t);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Tải ảnh gốc (tệp đã nén của phiên, hoặc tệp gốc nếu không có phiên) và ảnh thu nhỏ lên Storage.
+     * Chạy trên AppExecutors.computation().
+     */
+    private void upload(Uri uriImage, String sourceKey, UploadSessionStore.UploadSession session,
+                        UploadImageCallBack callBack) {
+        boolean resumed = session != null && session.sessionUri != null;
+        // Tạo các tham chiếu đến vị trí lưu trữ trên Firebase Storage
+        String name = session != null ? session.name : UUID.randomUUID().toString();
+        Uri fileToUpload = session != null ? Uri.fromFile(new File(session.encodedPath)) : uriImage;
+        StorageReference imageRef = storageReference.child(Utils.KEY_FOLDER_IMAGE).child(name);
+        StorageReference thumbnailRef = storageReference.child(Utils.KEY_FOLDER_IMAGE).child(name + THUMBNAIL_SUFFIX);
+
+        byte[] thumbnail = null;
+        try {
+            thumbnail = ImageEncoder.encodeThumbnail(contentResolver, fileToUpload);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to create thumbnail, uploading the original only", e);
+        }
+
+        long uploadStart = SystemClock.elapsedRealtime();
+        UploadTask imageUpload = startUpload(imageRef, fileToUpload, session, sourceKey);
+        imageUpload.addOnProgressListener(snapshot ->
+                callBack.onProgress(snapshot.getBytesTransferred(), snapshot.getTotalByteCount()));
+        Task<Uri> imageUrl = uploadAndGetUrl(imageUpload, imageRef);
+        Task<Uri> thumbnailUrl = thumbnail != null
+                ? uploadAndGetUrl(thumbnailRef.putBytes(thumbnail, jpegMetadata()), thumbnailRef)
+                : Tasks.forResult(null);
+
+        Tasks.whenAllComplete(imageUrl, thumbnailUrl).addOnCompleteListener(unused -> {
+            if (!imageUrl.isSuccessful()) {
+                Log.e(TAG, "Failed to upload image", imageUrl.getException());
+                if (resumed) {
+                    // Phiên cũ có thể đã hết hiệu lực, lần gửi lại sau sẽ bắt đầu phiên mới với cùng tệp đã nén
+                    session.sessionUri = null;
+                    sessions.put(sourceKey, session);
+                }
+                callBack.onFailure(imageUrl.getException());
+                return;
+            }
+            Uri thumbnailUri = thumbnailUrl.isSuccessful() ? thumbnailUrl.getResult() : null;
+            if (!thumbnailUrl.isSuccessful()) {
+                Log.w(TAG, "Failed to upload thumbnail", thumbnailUrl.getException());
+            }
+
+            long uploadMillis = SystemClock.elapsedRealtime() - uploadStart;
+            if (session != null) {
+                UPLOAD_METRICS.record(session.sourceBytes, session.encodedBytes,
+                        session.encodeMillis, uploadMillis, resumed);
+                sessions.remove(sourceKey);
+            } else {
+                long sourceBytes = readSourceBytes(uriImage);
+                UPLOAD_METRICS.record(sourceBytes, sourceBytes, 0, uploadMillis, false);
+            }
+
+            callBack.onSuccess(new UploadedImage(
+                    imageUrl.getResult().toString(),
+                    thumbnailUri != null ? thumbnailUri.toString() : null,
+                    session != null ? session.width : 0,
+                    session != null ? session.height : 0));
         });
     }
+
+    /**
+     * Nén hình ảnh vào thư mục tải lên và tạo phiên mới, trả về null nếu không nén được.
+     */
+    private UploadSessionStore.UploadSession encode(Uri uriImage) {
+        // Nén lại ảnh động sẽ chỉ giữ khung hình đầu tiên
+        if (CONTENT_TYPE_GIF.equals(contentResolver.getType(uriImage))) {
+            return null;
+        }
+        UploadSessionStore.UploadSession session = new UploadSessionStore.UploadSession();
+        session.name = UUID.randomUUID().toString();
+        File target = new File(uploadDirectory, session.name + ".jpg");
+        long encodeStart = SystemClock.elapsedRealtime();
+        try {
+            if (!uploadDirectory.isDirectory() && !uploadDirectory.mkdirs()) {
+                throw new IOException("Unable to create " + uploadDirectory);
+            }
+            ImageEncoder.EncodedImage encoded = ImageEncoder.encodeForUpload(contentResolver, uriImage, target);
+            session.encodedPath = target.getAbsolutePath();
+            session.width = encoded.getWidth();
+            session.height = encoded.getHeight();
+            session.encodedBytes = encoded.getBytes();
+            session.sourceBytes = readSourceBytes(uriImage);
+            session.encodeMillis = SystemClock.elapsedRealtime() - encodeStart;
+            session.createdAt = System.currentTimeMillis();
+            return session;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to encode image, uploading the original file", e);
+            target.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Bắt đầu hoặc tiếp tục tải lên. Session URI được lưu ngay khi Storage tạo phiên, trước khi tải lên xong.
+     */
+    private UploadTask startUpload(StorageReference imageRef, Uri file, UploadSessionStore.UploadSession session,
+                                   String sourceKey) {
+        if (session == null) {
+            return imageRef.putFile(file);
+        }
+        if (session.sessionUri != null) {
+            return imageRef.putFile(file, jpegMetadata(), Uri.parse(session.sessionUri));
+        }
+        UploadTask task = imageRef.putFile(file, jpegMetadata());
+        task.addOnProgressListener(snapshot -> {
+            Uri sessionUri = snapshot.getUploadSessionUri();
+            if (sessionUri != null && session.sessionUri == null) {
+                session.sessionUri = sessionUri.toString();
+                sessions.put(sourceKey, session);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Sau khi tải lên thành công, lấy URL tải xuống của tệp.
+     */
+    private static Task<Uri> uploadAndGetUrl(UploadTask task, StorageReference ref) {
+        return task.continueWithTask(upload -> {
+            if (!upload.isSuccessful()) {
+                throw upload.getException();
+            }
+            return ref.getDownloadUrl();
+        });
+    }
+
+    private static StorageMetadata jpegMetadata() {
+        return new StorageMetadata.Builder()
+                .setContentType(CONTENT_TYPE_JPEG)
+                .build();
+    }
+
+    /**
+     * Đọc kích thước tệp gốc, -1 nếu nguồn không cho biết.
+     */
+    private long readSourceBytes(Uri uri) {
+        try (AssetFileDescriptor descriptor = contentResolver.openAssetFileDescriptor(uri, "r")) {
+            return descriptor != null ? descriptor.getLength() : -1;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package com.example.chat.message.repos;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.chat.message.SendMessageRequest;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu các phiên tải lên hình ảnh chưa hoàn tất vào SharedPreferences, theo URI của hình ảnh gốc.
+ *
+ * Mỗi phiên giữ tệp đã nén và session URI của Firebase Storage, nên khi gửi lại cùng hình ảnh
+ * (kể cả sau khi tiến trình bị hủy) việc tải lên tiếp tục từ phần đã gửi thay vì bắt đầu lại từ đầu.
+ * Phiên cũng giữ tin nhắn đang chờ ảnh, để lần chạy sau tự tiếp tục tải lên và gửi tin nhắn.
+ */
+class UploadSessionStore {
+    private static final String PREFS_NAME = "image_upload_sessions";
+    // Session URI của Firebase Storage có hiệu lực khoảng một tuần
+    private static final long SESSION_TTL_MILLIS = TimeUnit.DAYS.toMillis(6);
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+
+    UploadSessionStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Lấy phiên còn hiệu lực của hình ảnh, null nếu chưa có, đã hết hạn hoặc tệp đã nén không còn.
+     */
+    synchronized UploadSession get(String sourceUri) {
+        UploadSession session = decode(prefs.getString(sourceUri, null));
+        if (session == null) {
+            return null;
+        }
+        if (session.isExpired() || !new File(session.encodedPath).exists()) {
+            remove(sourceUri);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Lấy tất cả các phiên còn hiệu lực, theo URI của hình ảnh gốc.
+     */
+    synchronized Map<String, UploadSession> getAll() {
+        Map<String, UploadSession> result = new HashMap<>();
+        for (String sourceUri : prefs.getAll().keySet()) {
+            UploadSession session = get(sourceUri);
+            if (session != null) {
+                result.put(sourceUri, session);
+            }
+        }
+        return result;
+    }
+
+    synchronized void put(String sourceUri, UploadSession session) {
+        prefs.edit().putString(sourceUri, gson.toJson(session)).apply();
+    }
+
+    /**
+     * Xóa phiên và tệp đã nén của phiên.
+     */
+    synchronized void remove(String sourceUri) {
+        UploadSession session = decode(prefs.getString(sourceUri, null));
+        if (session != null) {
+            new File(session.encodedPath).delete();
+        }
+        prefs.edit().remove(sourceUri).apply();
+    }
+
+    /**
+     * Xóa các phiên hết hạn và các tệp đã nén cũ không còn thuộc phiên nào.
+     *
+     * @param uploadDirectory Thư mục chứa các tệp đã nén.
+     */
+    synchronized void prune(File uploadDirectory) {
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            Object value = entry.getValue();
+            UploadSession session = value instanceof String ? decode((String) value) : null;
+            if (session == null || session.isExpired()) {
+                remove(entry.getKey());
+            }
+        }
+        File[] files = uploadDirectory.listFiles();
+        if (files != null) {
+            long now = System.currentTimeMillis();
+            for (File file : files) {
+                if (now - file.lastModified() > SESSION_TTL_MILLIS) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private UploadSession decode(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return gson.fromJson(json, UploadSession.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Một phiên tải lên: tệp đã nén, tên tệp trên Storage, session URI (null cho đến khi Storage tạo phiên)
+     * và tin nhắn sẽ được gửi khi tải lên xong (null với phiên được lưu trước khi có trường này).
+     */
+    static class UploadSession {
+        String name;
+        String encodedPath;
+        volatile String sessionUri;
+        SendMessageRequest request;
+        int width;
+        int height;
+        long sourceBytes;
+        long encodedBytes;
+        long encodeMillis;
+        long createdAt;
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > SESSION_TTL_MILLIS;
+        }
+    }
+}
@@ -1,24 +1,23 @@
 package com.example.chat.notify;
 
-import android.content.Context;
-import android.os.StrictMode;
 import android.util.Log;
 
-import com.android.volley.AuthFailureError;
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.Response;
-import com.android.volley.VolleyError;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.Volley;
+import androidx.annotation.NonNull;
+
 import com.example.chat.Utils;
+import com.example.infrastructure.api.HttpClientProvider;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 
 
 /**
@@ -29,24 +28,19 @@ import java.util.Objects;
 public class FCMSend {
     private static final String TAG = FCMSend.class.getSimpleName();
 
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
     /**
-     * Gửi thông báo đến FCM
+     * Gửi thông báo đến FCM.
+     * Yêu cầu được gửi bất đồng bộ bằng OkHttpClient dùng chung, không chặn luồng gọi.
      *
-     * @param context       :   Context của ứng dụng.
      * @param token         :   Token của thiết bị nhận thông báo.
      * @param title         :   Tiêu đề thông báo
      * @param message       :   Nội dung thông báo
      *
      * Tác giả: Nguyễn Hà Quỳnh Giao
      */
-    public static void pushNotification(Context context, String token, String title, String message){
-        // Cho phép tất cả các hoạt động mạng trên luồng chính
-        StrictMode.ThreadPolicy policy = new StrictMode.ThreadPolicy.Builder().permitAll().build();
-        StrictMode.setThreadPolicy(policy);
-
-        // Tạo hàng đợi RequestQueue cho Volley
-        RequestQueue queue = Volley.newRequestQueue(context);
-
+    public static void pushNotification(String token, String title, String message){
         try{
             // Tạo đối tượng JSON để tạo thông báo
             JSONObject json = new JSONObject();
@@ -61,35 +55,32 @@ public class FCMSend {
             data.put(Utils.KEY_TOPIC, Utils.KEY_NOTIFY);
             json.put("data", data);
 
-            // Tạo một request JSON object bằng cách sử dụng POST method
-            JsonObjectRequest JsonObjectRequest =
-                    new JsonObjectRequest(
-                            Request.Method.POST,
-                            Utils.FCM_BASE_URL, json, new Response.Listener<JSONObject>() {
+            // Tạo một request POST với header xác thực của FCM
+            Request request = new Request.Builder()
+                    .url(Utils.FCM_BASE_URL)
+                    .header("Authorization", Utils.FCM_SERVER_KEY)
+                    .post(RequestBody.create(json.toString(), JSON))
+                    .build();
+
+            HttpClientProvider.getIns().newCall(request).enqueue(new Callback() {
                 @Override
-                public void onResponse(JSONObject response) {
-                    // Log response nếu thành công
-                    Log.i(TAG, String.valueOf(response));
+                public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    // Log response
+                    try (Response r = response) {
+                        if (r.isSuccessful()) {
+                            Log.i(TAG, "Notification sent: " + r.code());
+                        } else {
+                            Log.e(TAG, "Notification failed: " + r.code());
+                        }
+                    }
                 }
-            }, new Response.ErrorListener() {
+
                 @Override
-                public void onErrorResponse(VolleyError error) {
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
                     // Log error nếu xảy ra lỗi
-                    Log.e(TAG, Objects.requireNonNull(error.getMessage()));
+                    Log.e(TAG, "Notification failed: " + e.getMessage());
                 }
-            }) {
-                // Ghi đè phương thức getHeaders để thêm tiêu đề yêu cầu
-                @Override
-                public Map<String, String> getHeaders() throws AuthFailureError {
-                    Map<String, String> params = new HashMap<>();
-                    params.put("Context-Type", "application/json");
-                    params.put("Authorization", Utils.FCM_SERVER_KEY);
-                    return params;
-                }
-            };
-
-            // Thêm request vào hàng đợi
-            queue.add(JsonObjectRequest);
+            });
         } catch (JSONException e) {
             // Ném một RuntimeException nếu có lỗi khi tạo JSON object
             throw new RuntimeException(e);
@@ -7,5 +7,11 @@ package com.example.chat.textanalyzer;
  * Tác giả: Văn Hoàng
  */
 public interface AnalyzeCallBack {
-    void onAnalyzeSuccess(String result);
+    void onAnalyzeSuccess(RecognizedText result);
+
+    /**
+     * Được gọi khi bộ nhận diện không xử lý được hình ảnh. Mặc định không làm gì.
+     */
+    default void onAnalyzeFailure(Exception e) {
+    }
 }
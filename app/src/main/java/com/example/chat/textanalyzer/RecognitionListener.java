@@ -0,0 +1,26 @@
+package com.example.chat.textanalyzer;
+
+/**
+ * Nhận kết quả nhận dạng văn bản theo từng phần.
+ * Các phương thức được gọi trên luồng chính.
+ */
+public interface RecognitionListener {
+
+    /**
+     * Kết quả tạm thời khi việc nhận dạng vẫn đang tiếp tục (ví dụ: lượt chữ Latin trước khi chạy hệ chữ khác,
+     * hoặc các hình ảnh đã xong trong một lần nhận dạng nhiều hình ảnh). Mỗi kết quả tạm thời thay thế kết quả trước đó.
+     */
+    default void onPartialResult(RecognizedText partial) {
+    }
+
+    /**
+     * Kết quả cuối cùng, có thể rỗng nếu không nhận dạng được chữ nào.
+     */
+    void onResult(RecognizedText result);
+
+    /**
+     * Không nhận dạng được (bộ nhận diện lỗi hoặc đã bị đóng).
+     */
+    default void onFailure(Exception e) {
+    }
+}
@@ -4,31 +4,45 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
-import android.provider.MediaStore;
-import android.util.Log;
+import android.os.SystemClock;
+
+import com.example.chat.image.ImageEncoder;
+import com.example.infrastructure.metrics.LatencyMetrics;
+import com.google.mlkit.vision.common.InputImage;
 
 import java.io.IOException;
 
 public class RecognizeUtils {
     private static final String TAG = RecognizeUtils.class.getSimpleName();
 
+    // Cạnh dài nhất đủ để nhận dạng chữ trong ảnh chụp tài liệu/màn hình; ảnh lớn hơn chỉ tốn bộ nhớ và thời gian
+    public static final int RECOGNITION_MAX_SIDE = 1600;
+
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_RECOGNIZE = "recognize";
+
+    // Thời gian giải mã và nhận dạng của mỗi lần nhận dạng văn bản
+    public static final LatencyMetrics OCR_METRICS = new LatencyMetrics("ocr");
+
     /**
 
-     Chuyển đổi Uri thành Bitmap.
+     Giải mã hình ảnh thành InputImage cho ML Kit.
+     - Ảnh được giải mã với inSampleSize về khoảng RECOGNITION_MAX_SIDE, không bao giờ giải mã toàn bộ độ phân giải
+       (ảnh 12 MP tốn khoảng 48 MB nếu giải mã đầy đủ).
+     - Hướng xoay EXIF được truyền cho ML Kit thay vì xoay điểm ảnh, nên không tạo thêm bản sao của ảnh.
+     Phương thức chặn luồng, cần được gọi từ AppExecutors.computation().
      @param context Context của ứng dụng.
-     @param uri Uri của hình ảnh cần chuyển đổi.
-     @return Bitmap được tạo từ Uri.
+     @param uri Uri của hình ảnh cần nhận dạng.
+     @return InputImage đã thu nhỏ kèm hướng xoay.
+     @throws IOException nếu không đọc hoặc giải mã được hình ảnh.
      Tác giả: Văn Hoàng
      */
-    public static Bitmap uriToBitmap(Context context, Uri uri) {
-        try {
-            ContentResolver resolver = context.getContentResolver();
-            Bitmap bitmap = MediaStore.Images.Media.getBitmap(resolver, uri);
-            return bitmap;
-        } catch (IOException e) {
-            Log.e(TAG, "Error converting Uri to Bitmap: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+    public static InputImage decodeForRecognition(Context context, Uri uri) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        ContentResolver resolver = context.getContentResolver();
+        int rotation = ImageEncoder.readRotationDegrees(resolver, uri);
+        Bitmap bitmap = ImageEncoder.decodeSubsampled(resolver, uri, RECOGNITION_MAX_SIDE);
+        OCR_METRICS.record(STAGE_DECODE, SystemClock.elapsedRealtime() - start);
+        return InputImage.fromBitmap(bitmap, rotation);
     }
 }
@@ -0,0 +1,173 @@
+package com.example.chat.textanalyzer;
+
+import android.graphics.Rect;
+
+import com.google.mlkit.vision.text.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kết quả nhận dạng văn bản có cấu trúc: các khối (đoạn) văn bản, mỗi khối gồm các dòng,
+ * kèm khung bao trong hình ảnh và độ tin cậy của từng dòng.
+ *
+ * Khi nhận dạng nhiều hình ảnh, các khối của từng hình ảnh được nối theo thứ tự hình ảnh và mang imageIndex tương ứng.
+ */
+public class RecognizedText {
+    private static final RecognizedText EMPTY = new RecognizedText(Collections.emptyList());
+
+    public static class Line {
+        private final String text;
+        private final Rect boundingBox;
+        private final float confidence;
+
+        public Line(String text, Rect boundingBox, float confidence) {
+            this.text = text;
+            this.boundingBox = boundingBox;
+            this.confidence = confidence;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Khung bao trong hình ảnh đã giải mã, null nếu ML Kit không trả về.
+         */
+        public Rect getBoundingBox() {
+            return boundingBox;
+        }
+
+        /**
+         * Độ tin cậy trong khoảng [0, 1].
+         */
+        public float getConfidence() {
+            return confidence;
+        }
+    }
+
+    public static class Block {
+        private final String text;
+        private final Rect boundingBox;
+        private final List<Line> lines;
+        private final TextRecognizerPool.Script script;
+        private final int imageIndex;
+
+        public Block(String text, Rect boundingBox, List<Line> lines, TextRecognizerPool.Script script, int imageIndex) {
+            this.text = text;
+            this.boundingBox = boundingBox;
+            this.lines = Collections.unmodifiableList(lines);
+            this.script = script;
+            this.imageIndex = imageIndex;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Rect getBoundingBox() {
+            return boundingBox;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        /**
+         * Hệ chữ của bộ nhận diện đã tạo ra khối này.
+         */
+        public TextRecognizerPool.Script getScript() {
+            return script;
+        }
+
+        /**
+         * Vị trí của hình ảnh chứa khối này trong danh sách hình ảnh được nhận dạng, 0 nếu chỉ có một hình ảnh.
+         */
+        public int getImageIndex() {
+            return imageIndex;
+        }
+
+        /**
+         * Độ tin cậy trung bình của các dòng, 0 nếu khối không có dòng nào.
+         */
+        public float getConfidence() {
+            if (lines.isEmpty()) {
+                return 0f;
+            }
+            float total = 0f;
+            for (Line line : lines) {
+                total += line.getConfidence();
+            }
+            return total / lines.size();
+        }
+
+        private Block withImageIndex(int imageIndex) {
+            return new Block(text, boundingBox, lines, script, imageIndex);
+        }
+    }
+
+    private final List<Block> blocks;
+
+    public RecognizedText(List<Block> blocks) {
+        this.blocks = Collections.unmodifiableList(blocks);
+    }
+
+    public static RecognizedText empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Chuyển kết quả của ML Kit sang RecognizedText, giữ thứ tự đọc mà ML Kit trả về.
+     */
+    public static RecognizedText from(Text text, TextRecognizerPool.Script script) {
+        List<Block> blocks = new ArrayList<>(text.getTextBlocks().size());
+        for (Text.TextBlock textBlock : text.getTextBlocks()) {
+            List<Line> lines = new ArrayList<>(textBlock.getLines().size());
+            for (Text.Line line : textBlock.getLines()) {
+                lines.add(new Line(line.getText(), line.getBoundingBox(), line.getConfidence()));
+            }
+            blocks.add(new Block(textBlock.getText(), textBlock.getBoundingBox(), lines, script, 0));
+        }
+        return new RecognizedText(blocks);
+    }
+
+    /**
+     * Nối kết quả của nhiều hình ảnh theo thứ tự, bỏ qua phần tử null (hình ảnh chưa có kết quả).
+     */
+    public static RecognizedText merge(List<RecognizedText> results) {
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            RecognizedText result = results.get(i);
+            if (result == null) {
+                continue;
+            }
+            for (Block block : result.blocks) {
+                blocks.add(block.withImageIndex(i));
+            }
+        }
+        return new RecognizedText(blocks);
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Toàn bộ văn bản, mỗi khối trên một đoạn.
+     */
+    public String getText() {
+        StringBuilder builder = new StringBuilder();
+        for (Block block : blocks) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(block.getText());
+        }
+        return builder.toString();
+    }
+
+    public boolean isEmpty() {
+        return getText().trim().isEmpty();
+    }
+}
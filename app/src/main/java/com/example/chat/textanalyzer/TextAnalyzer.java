@@ -1,6 +1,6 @@
 package com.example.chat.textanalyzer;
 
-import android.graphics.Bitmap;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.google.mlkit.vision.common.InputImage;
@@ -9,27 +9,40 @@ import com.google.mlkit.vision.text.TextRecognizer;
 public class TextAnalyzer {
     private final String TAG = TextAnalyzer.class.getSimpleName();
     private final TextRecognizer recognizer;
+    private final TextRecognizerPool.Script script;
 
     public TextAnalyzer(TextRecognizer recognizer) {
+        this(recognizer, TextRecognizerPool.Script.LATIN);
+    }
+
+    /**
+     * @param recognizer Bộ nhận diện văn bản.
+     * @param script     Hệ chữ của bộ nhận diện, dùng để gắn vào kết quả và đặt tên giai đoạn trong RecognizeUtils.OCR_METRICS.
+     */
+    public TextAnalyzer(TextRecognizer recognizer, TextRecognizerPool.Script script) {
         this.recognizer = recognizer;
+        this.script = script;
     }
 
     /**
-     * Phân tích hình ảnh bitmap được cung cấp bằng cách sử dụng bộ nhận diện văn bản
-     * và gọi lại callback với kết quả phân tích.
+     * Phân tích hình ảnh được cung cấp bằng cách sử dụng bộ nhận diện văn bản
+     * và gọi lại callback với kết quả có cấu trúc (khối, dòng, khung bao, độ tin cậy).
+     * Thời gian nhận dạng được ghi vào RecognizeUtils.OCR_METRICS.
      *
-     * @param bitmap   Hình ảnh bitmap cần phân tích.
+     * @param image    Hình ảnh cần phân tích, thường được tạo bởi RecognizeUtils.decodeForRecognition.
      * @param callBack Callback để gọi lại với kết quả phân tích.
      * Tác giả: Văn Hoàng
      */
-    public void analyze(Bitmap bitmap, AnalyzeCallBack callBack) {
-        InputImage image = InputImage.fromBitmap(bitmap, 0);
-
+    public void analyze(InputImage image, AnalyzeCallBack callBack) {
+        long start = SystemClock.elapsedRealtime();
         recognizer.process(image)
                 .addOnSuccessListener(visionText -> {
-                    String resultText = visionText.getText();
-                    callBack.onAnalyzeSuccess(resultText);
+                    RecognizeUtils.OCR_METRICS.record(script.getStage(), SystemClock.elapsedRealtime() - start);
+                    callBack.onAnalyzeSuccess(RecognizedText.from(visionText, script));
                 })
-                .addOnFailureListener( e -> Log.d(TAG, "Analyze failed") );
+                .addOnFailureListener(e -> {
+                    Log.d(TAG, "Analyze failed", e);
+                    callBack.onAnalyzeFailure(e);
+                });
     }
 }
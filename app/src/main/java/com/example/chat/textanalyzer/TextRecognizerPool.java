@@ -0,0 +1,275 @@
+package com.example.chat.textanalyzer;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.mlkit.nl.languageid.LanguageIdentification;
+import com.google.mlkit.nl.languageid.LanguageIdentifier;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.chinese.ChineseTextRecognizerOptions;
+import com.google.mlkit.vision.text.devanagari.DevanagariTextRecognizerOptions;
+import com.google.mlkit.vision.text.japanese.JapaneseTextRecognizerOptions;
+import com.google.mlkit.vision.text.korean.KoreanTextRecognizerOptions;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Giữ các bộ nhận diện văn bản đã khởi tạo theo từng hệ chữ, dùng lại giữa các lần nhận dạng
+ * và đóng tất cả khi chủ sở hữu (ví dụ ViewModel) kết thúc vòng đời.
+ *
+ * Mỗi lần nhận dạng chạy bộ nhận diện chữ Latin trước (nhanh nhất). Bộ nhận diện của hệ chữ khác chỉ được chạy thêm khi:
+ * - văn bản Latin được nhận dạng là một ngôn ngữ dùng hệ chữ khác (tiếng Trung, Nhật, Hàn, nhóm Devanagari), hoặc
+ * - không nhận dạng được chữ Latin nào và ngôn ngữ của thiết bị dùng hệ chữ khác.
+ * Thời gian của từng giai đoạn được ghi vào RecognizeUtils.OCR_METRICS.
+ */
+public class TextRecognizerPool implements Closeable {
+    private static final String TAG = TextRecognizerPool.class.getSimpleName();
+
+    public static final String STAGE_LANGUAGE_ID = "language_id";
+
+    /**
+     * Các hệ chữ có bộ nhận diện trong ứng dụng.
+     */
+    public enum Script {
+        LATIN, CHINESE, DEVANAGARI, JAPANESE, KOREAN;
+
+        /**
+         * Tên giai đoạn nhận dạng của hệ chữ này trong RecognizeUtils.OCR_METRICS.
+         */
+        public String getStage() {
+            return RecognizeUtils.STAGE_RECOGNIZE + "_" + name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Chọn hệ chữ cho một mã ngôn ngữ BCP-47. Ngôn ngữ được viết bằng chữ Latin (kể cả dạng "ja-Latn") hoặc
+         * không xác định ("und") trả về LATIN.
+         */
+        public static Script forLanguage(String languageTag) {
+            if (languageTag == null || languageTag.endsWith("-Latn")) {
+                return LATIN;
+            }
+            switch (languageTag) {
+                case "zh":
+                    return CHINESE;
+                case "ja":
+                    return JAPANESE;
+                case "ko":
+                    return KOREAN;
+                case "hi":
+                case "mr":
+                case "ne":
+                case "sa":
+                    return DEVANAGARI;
+                default:
+                    return LATIN;
+            }
+        }
+    }
+
+    private final Map<Script, TextRecognizer> recognizers = new EnumMap<>(Script.class);
+    private LanguageIdentifier languageIdentifier;
+    private boolean closed;
+
+    /**
+     * Nhận dạng văn bản trong hình ảnh, tự chọn hệ chữ như mô tả ở trên.
+     * Khi cần chạy thêm hệ chữ khác, kết quả Latin được gửi trước qua onPartialResult.
+     *
+     * @param image    Hình ảnh cần nhận dạng, thường được tạo bởi RecognizeUtils.decodeForRecognition.
+     * @param listener Listener nhận kết quả, được gọi trên luồng chính.
+     */
+    public void recognize(InputImage image, RecognitionListener listener) {
+        analyze(Script.LATIN, image, new AnalyzeCallBack() {
+            @Override
+            public void onAnalyzeSuccess(RecognizedText latin) {
+                if (latin.isEmpty()) {
+                    recognizeWithScript(image, Script.forLanguage(Locale.getDefault().getLanguage()), latin, listener);
+                    return;
+                }
+                identifyScript(latin.getText(), script -> {
+                    if (script != Script.LATIN) {
+                        listener.onPartialResult(latin);
+                    }
+                    recognizeWithScript(image, script, latin, listener);
+                });
+            }
+
+            @Override
+            public void onAnalyzeFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Nhận dạng nhiều hình ảnh cùng lúc. Kết quả được nối theo thứ tự hình ảnh (không theo thứ tự hoàn thành);
+     * mỗi khi một hình ảnh có kết quả (tạm thời hoặc cuối cùng), kết quả gộp của các hình ảnh đã có được gửi qua onPartialResult.
+     * Hình ảnh nhận dạng lỗi được coi là không có chữ, onFailure chỉ được gọi khi mọi hình ảnh đều lỗi.
+     * Phải được gọi trên luồng chính.
+     *
+     * @param images   Các hình ảnh cần nhận dạng.
+     * @param listener Listener nhận kết quả gộp, được gọi trên luồng chính.
+     */
+    public void recognizeAll(List<InputImage> images, RecognitionListener listener) {
+        if (images.isEmpty()) {
+            listener.onResult(RecognizedText.empty());
+            return;
+        }
+        // Các callback của ML Kit chạy trên luồng chính nên trạng thái gộp không cần đồng bộ hóa
+        List<RecognizedText> results = new ArrayList<>(Collections.nCopies(images.size(), (RecognizedText) null));
+        int[] remaining = {images.size()};
+        int[] failures = {0};
+        Exception[] lastFailure = {null};
+        for (int i = 0; i < images.size(); i++) {
+            int index = i;
+            recognize(images.get(i), new RecognitionListener() {
+                @Override
+                public void onPartialResult(RecognizedText partial) {
+                    results.set(index, partial);
+                    listener.onPartialResult(RecognizedText.merge(results));
+                }
+
+                @Override
+                public void onResult(RecognizedText result) {
+                    results.set(index, result);
+                    onImageDone();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    results.set(index, RecognizedText.empty());
+                    failures[0]++;
+                    lastFailure[0] = e;
+                    onImageDone();
+                }
+
+                private void onImageDone() {
+                    remaining[0]--;
+                    RecognizedText merged = RecognizedText.merge(results);
+                    if (remaining[0] > 0) {
+                        listener.onPartialResult(merged);
+                    } else if (failures[0] == images.size()) {
+                        listener.onFailure(lastFailure[0]);
+                    } else {
+                        listener.onResult(merged);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Đóng tất cả bộ nhận diện. Các lần gọi recognize sau đó báo lỗi qua onFailure.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (TextRecognizer recognizer : recognizers.values()) {
+            recognizer.close();
+        }
+        recognizers.clear();
+        if (languageIdentifier != null) {
+            languageIdentifier.close();
+            languageIdentifier = null;
+        }
+    }
+
+    private interface ScriptCallBack {
+        void onScript(Script script);
+    }
+
+    private void identifyScript(String text, ScriptCallBack callBack) {
+        LanguageIdentifier identifier = languageIdentifier();
+        if (identifier == null) {
+            callBack.onScript(Script.LATIN);
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        identifier.identifyLanguage(text)
+                .addOnSuccessListener(languageTag -> {
+                    RecognizeUtils.OCR_METRICS.record(STAGE_LANGUAGE_ID, SystemClock.elapsedRealtime() - start);
+                    callBack.onScript(Script.forLanguage(languageTag));
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Language identification failed", e);
+                    callBack.onScript(Script.LATIN);
+                });
+    }
+
+    /**
+     * Chạy thêm bộ nhận diện của hệ chữ script nếu khác LATIN. Nếu lần chạy thêm không ra chữ nào hoặc lỗi,
+     * giữ kết quả Latin.
+     */
+    private void recognizeWithScript(InputImage image, Script script, RecognizedText latin, RecognitionListener listener) {
+        if (script == Script.LATIN) {
+            listener.onResult(latin);
+            return;
+        }
+        analyze(script, image, new AnalyzeCallBack() {
+            @Override
+            public void onAnalyzeSuccess(RecognizedText result) {
+                listener.onResult(result.isEmpty() ? latin : result);
+            }
+
+            @Override
+            public void onAnalyzeFailure(Exception e) {
+                listener.onResult(latin);
+            }
+        });
+    }
+
+    private void analyze(Script script, InputImage image, AnalyzeCallBack callBack) {
+        TextRecognizer recognizer = recognizer(script);
+        if (recognizer == null) {
+            callBack.onAnalyzeFailure(new IllegalStateException("TextRecognizerPool is closed"));
+            return;
+        }
+        new TextAnalyzer(recognizer, script).analyze(image, callBack);
+    }
+
+    private synchronized TextRecognizer recognizer(Script script) {
+        if (closed) {
+            return null;
+        }
+        TextRecognizer recognizer = recognizers.get(script);
+        if (recognizer == null) {
+            recognizer = createRecognizer(script);
+            recognizers.put(script, recognizer);
+        }
+        return recognizer;
+    }
+
+    private synchronized LanguageIdentifier languageIdentifier() {
+        if (closed) {
+            return null;
+        }
+        if (languageIdentifier == null) {
+            languageIdentifier = LanguageIdentification.getClient();
+        }
+        return languageIdentifier;
+    }
+
+    private static TextRecognizer createRecognizer(Script script) {
+        switch (script) {
+            case CHINESE:
+                return TextRecognition.getClient(new ChineseTextRecognizerOptions.Builder().build());
+            case DEVANAGARI:
+                return TextRecognition.getClient(new DevanagariTextRecognizerOptions.Builder().build());
+            case JAPANESE:
+                return TextRecognition.getClient(new JapaneseTextRecognizerOptions.Builder().build());
+            case KOREAN:
+                return TextRecognition.getClient(new KoreanTextRecognizerOptions.Builder().build());
+            case LATIN:
+            default:
+                return TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.common.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class AvatarUrlCache lưu đệm kết quả phân giải avatar: userId -> download URL trên Firebase Storage.
+ *
+ * - Người dùng có avatar riêng: lưu URL trong AVATAR_TTL_MILLIS.
+ * - Người dùng dùng avatar mặc định: lưu dấu "dùng mặc định" (negative cache) trong DEFAULT_MARKER_TTL_MILLIS,
+ *   ngắn hơn để avatar tải lên từ thiết bị khác vẫn hiện sau một thời gian.
+ * - URL của avatar mặc định được lưu như một mục riêng.
+ *
+ * - Mỗi người dùng có một thế hệ (generation), tăng mỗi lần invalidate. Kết quả tải về được ghi kèm thế hệ
+ *   lúc bắt đầu tải và bị bỏ qua nếu người dùng đã tải lên avatar mới trong lúc đó, để URL cũ không được giữ suốt TTL.
+ *
+ * Các mục được giữ trong bộ nhớ và ghi vào SharedPreferences, nên vẫn còn sau khi khởi động lại ứng dụng.
+ * Nếu init() chưa được gọi, bộ đệm chỉ hoạt động trong bộ nhớ.
+ */
+public class AvatarUrlCache {
+    private static final String PREFS_NAME = "avatar_url_cache";
+    private static final String DEFAULT_AVATAR_KEY = "__default_avatar__";
+    private static final String DEFAULT_MARKER = "";
+    private static final char SEPARATOR = '|';
+
+    private static final long AVATAR_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long DEFAULT_MARKER_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static volatile AvatarUrlCache ins;
+
+    private final Map<String, Entry> memory = new ConcurrentHashMap<>();
+    // Thế hệ của mỗi người dùng, chỉ giữ trong bộ nhớ; người dùng chưa từng bị invalidate có thế hệ 0
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final SharedPreferences prefs;
+
+    /**
+     * Khởi tạo bộ đệm với SharedPreferences của ứng dụng. Cần được gọi trước lần đầu tiên gọi getIns().
+     *
+     * @param context Context bất kỳ của ứng dụng.
+     */
+    public static synchronized void init(Context context) {
+        if (ins == null) {
+            ins = new AvatarUrlCache(context.getApplicationContext()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        }
+    }
+
+    /**
+     * Trả về instance duy nhất của AvatarUrlCache.
+     *
+     * @return instance của AvatarUrlCache.
+     */
+    public static AvatarUrlCache getIns() {
+        if (ins == null) {
+            synchronized (AvatarUrlCache.class) {
+                if (ins == null) {
+                    ins = new AvatarUrlCache(null);
+                }
+            }
+        }
+        return ins;
+    }
+
+    private AvatarUrlCache(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    /**
+     * Lấy mục còn hạn của người dùng.
+     *
+     * @param userId ID của người dùng.
+     * @return Mục còn hạn, hoặc null nếu chưa có hoặc đã hết hạn.
+     */
+    public Entry get(String userId) {
+        return getValid(userId);
+    }
+
+    /**
+     * Lấy URL còn hạn của avatar mặc định.
+     *
+     * @return URL của avatar mặc định, hoặc null nếu chưa có hoặc đã hết hạn.
+     */
+    public String getDefaultAvatarUrl() {
+        Entry entry = getValid(DEFAULT_AVATAR_KEY);
+        return entry != null ? entry.url : null;
+    }
+
+    /**
+     * Ghi nhận URL avatar riêng của người dùng.
+     */
+    public void putAvatarUrl(String userId, String url) {
+        put(userId, new Entry(url, System.currentTimeMillis()));
+    }
+
+    /**
+     * Ghi nhận URL avatar riêng của người dùng nếu chưa có invalidate nào kể từ khi lấy generation.
+     *
+     * @param generation Giá trị getGeneration(userId) lúc bắt đầu tải.
+     */
+    public void putAvatarUrl(String userId, String url, long generation) {
+        putIfCurrent(userId, new Entry(url, System.currentTimeMillis()), generation);
+    }
+
+    /**
+     * Ghi nhận người dùng chưa có avatar riêng và dùng avatar mặc định.
+     */
+    public void putUsesDefault(String userId) {
+        put(userId, new Entry(DEFAULT_MARKER, System.currentTimeMillis()));
+    }
+
+    /**
+     * Như putUsesDefault(String), bỏ qua nếu đã có invalidate kể từ khi lấy generation.
+     *
+     * @param generation Giá trị getGeneration(userId) lúc bắt đầu tải.
+     */
+    public void putUsesDefault(String userId, long generation) {
+        putIfCurrent(userId, new Entry(DEFAULT_MARKER, System.currentTimeMillis()), generation);
+    }
+
+    /**
+     * Ghi nhận URL của avatar mặc định.
+     */
+    public void putDefaultAvatarUrl(String url) {
+        put(DEFAULT_AVATAR_KEY, new Entry(url, System.currentTimeMillis()));
+    }
+
+    /**
+     * Thế hệ hiện tại của người dùng, lấy trước khi bắt đầu tải avatar rồi truyền vào putAvatarUrl/putUsesDefault.
+     */
+    public long getGeneration(String userId) {
+        return generations.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Xóa mục của người dùng và tăng thế hệ, ví dụ sau khi người dùng tải lên avatar mới.
+     */
+    public void invalidate(String userId) {
+        generations.merge(userId, 1L, Long::sum);
+        memory.remove(userId);
+        if (prefs != null) {
+            prefs.edit().remove(userId).apply();
+        }
+    }
+
+    private Entry getValid(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null && prefs != null) {
+            entry = Entry.decode(prefs.getString(key, null));
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * So sánh thế hệ và ghi mục trong compute của generations, nên invalidate cùng người dùng không thể chen vào giữa.
+     */
+    private void putIfCurrent(String userId, Entry entry, long generation) {
+        generations.compute(userId, (key, current) -> {
+            if ((current != null ? current : 0L) == generation) {
+                put(userId, entry);
+            }
+            return current;
+        });
+    }
+
+    private void put(String key, Entry entry) {
+        memory.put(key, entry);
+        if (prefs != null) {
+            prefs.edit().putString(key, entry.encode()).apply();
+        }
+    }
+
+    /**
+     * Một mục trong bộ đệm: URL avatar riêng, hoặc dấu "dùng avatar mặc định".
+     */
+    public static class Entry {
+        private final String url;
+        private final long cachedAt;
+
+        private Entry(String url, long cachedAt) {
+            this.url = url;
+            this.cachedAt = cachedAt;
+        }
+
+        public boolean usesDefault() {
+            return DEFAULT_MARKER.equals(url);
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        private boolean isExpired() {
+            long ttl = usesDefault() ? DEFAULT_MARKER_TTL_MILLIS : AVATAR_TTL_MILLIS;
+            return System.currentTimeMillis() - cachedAt > ttl;
+        }
+
+        private String encode() {
+            return cachedAt + String.valueOf(SEPARATOR) + url;
+        }
+
+        private static Entry decode(String value) {
+            if (value == null) {
+                return null;
+            }
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return null;
+            }
+            try {
+                return new Entry(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
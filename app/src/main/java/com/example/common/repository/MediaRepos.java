@@ -2,7 +2,10 @@ package com.example.common.repository;
 
 import android.net.Uri;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 /**
  * Interface MediaRepos định nghĩa các phương thức để quản lý việc tải lên và tải xuống các tệp phương tiện.
@@ -42,6 +45,25 @@ public interface MediaRepos {
      */
     CompletableFuture<Uri> downloadAvatar(String userId);
 
+    /**
+     * Tải xuống avatar của nhiều người dùng trong một lần, dùng cho các màn hình danh sách.
+     * Các ID trùng lặp chỉ được tải một lần, số yêu cầu chạy song song bị giới hạn.
+     *
+     * @param userIds Danh sách ID của người dùng.
+     * @return Một CompletableFuture chứa map ID người dùng -> Uri của avatar; người dùng không tải được avatar không có trong map.
+     */
+    CompletableFuture<Map<String, Uri>> downloadAvatars(Collection<String> userIds);
+
+    /**
+     * Như downloadAvatars(Collection), đồng thời gọi onAvatar ngay khi từng avatar tải xong (trên luồng nền),
+     * để màn hình danh sách hiển thị dần thay vì chờ avatar chậm nhất.
+     *
+     * @param userIds  Danh sách ID của người dùng.
+     * @param onAvatar Được gọi với ID người dùng và Uri của avatar mỗi khi một avatar tải xong.
+     * @return Một CompletableFuture chứa map ID người dùng -> Uri của avatar, hoàn tất khi mọi avatar đã xong hoặc quá thời gian chờ.
+     */
+    CompletableFuture<Map<String, Uri>> downloadAvatars(Collection<String> userIds, BiConsumer<String, Uri> onAvatar);
+
     /**
      * Tải lên avatar của người dùng dựa trên ID người dùng và Uri của avatar.
      *
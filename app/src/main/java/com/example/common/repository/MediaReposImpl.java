@@ -2,10 +2,21 @@ package com.example.common.repository;
 
 import android.net.Uri;
 
+import com.example.infrastructure.Utils;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
 import com.google.firebase.storage.StorageReference;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * Lớp MediaReposImpl triển khai interface MediaRepos để quản lý việc tải lên và tải xuống các tệp phương tiện từ Firebase Storage.
@@ -14,7 +25,13 @@ import java.util.concurrent.CompletableFuture;
  */
 public class MediaReposImpl implements MediaRepos {
 
+    private static final int MAX_PARALLEL_AVATAR_DOWNLOADS = 4;
+    // Thời gian chờ tối đa cho mỗi avatar khi tải theo lô, để một yêu cầu treo không giữ một luồng tải mãi
+    private static final long AVATAR_DOWNLOAD_TIMEOUT_SECONDS = 10;
+    private static final Map<String, CompletableFuture<Uri>> AVATARS_IN_FLIGHT = new ConcurrentHashMap<>();
+
     private final StorageReference storageRef;
+    private final AvatarUrlCache avatarUrlCache = AvatarUrlCache.getIns();
 
     /**
      * Khởi tạo MediaReposImpl và thiết lập tham chiếu đến Firebase Storage.
@@ -62,14 +79,36 @@ public class MediaReposImpl implements MediaRepos {
      */
     @Override
     public CompletableFuture<Uri> downloadAvatar(String userId) {
+        AvatarUrlCache.Entry cached = avatarUrlCache.get(userId);
+        if (cached != null) {
+            if (cached.usesDefault()) {
+                return downloadDefaultAvatar();
+            }
+            return CompletableFuture.completedFuture(Uri.parse(cached.getUrl()));
+        }
+
+        // Các lần bind cùng một người dùng khi cuộn danh sách dùng chung một yêu cầu đang chạy
         CompletableFuture<Uri> future = new CompletableFuture<>();
+        CompletableFuture<Uri> existing = AVATARS_IN_FLIGHT.putIfAbsent(userId, future);
+        if (existing != null) {
+            return existing;
+        }
+        future.whenComplete((uri, e) -> AVATARS_IN_FLIGHT.remove(userId, future));
 
+        // Nếu người dùng tải lên avatar mới trong lúc tải, kết quả này vẫn được trả về nhưng không được lưu đệm
+        long generation = avatarUrlCache.getGeneration(userId);
         String avatarPath = getAvatarFilePath(userId);
         downloadFile(avatarPath)
-                .thenAccept(future::complete)
+                .thenAccept(uri -> {
+                    avatarUrlCache.putAvatarUrl(userId, uri.toString(), generation);
+                    future.complete(uri);
+                })
                 .exceptionally(e -> {
-                    String defaultAvatarPath = getDefaultAvatarPath();
-                    downloadFile(defaultAvatarPath)
+                    // Chỉ ghi nhận "dùng avatar mặc định" khi tệp thật sự không tồn tại, không phải khi lỗi mạng
+                    if (isObjectNotFound(e)) {
+                        avatarUrlCache.putUsesDefault(userId, generation);
+                    }
+                    downloadDefaultAvatar()
                             .thenAccept(future::complete)
                             .exceptionally(defAvatarException -> {
                                 future.completeExceptionally(defAvatarException);
@@ -84,12 +123,76 @@ public class MediaReposImpl implements MediaRepos {
     /**
      * {@inheritDoc}
      *
+     * Mỗi "luồng" tải lấy ID kế tiếp trong hàng đợi khi ID trước hoàn tất, nên tối đa
+     * MAX_PARALLEL_AVATAR_DOWNLOADS yêu cầu chạy cùng lúc. Avatar đã có trong bộ đệm hoàn tất ngay.
+     */
+    @Override
+    public CompletableFuture<Map<String, Uri>> downloadAvatars(Collection<String> userIds) {
+        return downloadAvatars(userIds, (userId, uri) -> {});
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Mỗi avatar có thời gian chờ AVATAR_DOWNLOAD_TIMEOUT_SECONDS; quá thời gian thì luồng tải chuyển sang ID kế tiếp.
+     */
+    @Override
+    public CompletableFuture<Map<String, Uri>> downloadAvatars(Collection<String> userIds, BiConsumer<String, Uri> onAvatar) {
+        Deque<String> pending = new ArrayDeque<>();
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            if (userId != null) {
+                pending.add(userId);
+            }
+        }
+        Map<String, Uri> avatars = new ConcurrentHashMap<>();
+
+        int workers = Math.min(MAX_PARALLEL_AVATAR_DOWNLOADS, pending.size());
+        CompletableFuture<?>[] workerFutures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            workerFutures[i] = downloadNextAvatar(pending, avatars, onAvatar);
+        }
+        return CompletableFuture.allOf(workerFutures).thenApply(unused -> avatars);
+    }
+
+    /**
+     * Lấy ID kế tiếp trong hàng đợi và tải avatar, sau đó tiếp tục với ID tiếp theo cho đến khi hàng đợi rỗng.
+     */
+    private CompletableFuture<Void> downloadNextAvatar(Deque<String> pending, Map<String, Uri> avatars,
+                                                       BiConsumer<String, Uri> onAvatar) {
+        String userId;
+        synchronized (pending) {
+            userId = pending.poll();
+        }
+        if (userId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return Utils.withTimeout(downloadAvatar(userId), AVATAR_DOWNLOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .handle((uri, e) -> {
+                    if (uri != null) {
+                        avatars.put(userId, uri);
+                        onAvatar.accept(userId, uri);
+                    }
+                    return null;
+                })
+                .thenCompose(unused -> downloadNextAvatar(pending, avatars, onAvatar));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Sau khi tải lên, mục đệm của người dùng bị xóa và yêu cầu tải avatar đang chạy (có thể trả về URL cũ)
+     * không còn được dùng chung cho các lần gọi downloadAvatar sau.
+     *
      * Tác giả: Trần Văn An
      */
     @Override
     public CompletableFuture<Void> uploadAvatar(String userId, Uri uri) {
         String avatarPath = getAvatarFilePath(userId);
-        return uploadFile(avatarPath, uri);
+        return uploadFile(avatarPath, uri)
+                .thenRun(() -> {
+                    avatarUrlCache.invalidate(userId);
+                    AVATARS_IN_FLIGHT.remove(userId);
+                });
     }
 
     /**
@@ -115,6 +218,32 @@ public class MediaReposImpl implements MediaRepos {
         return String.format("%s%s", ECloudFolder.AVATARS.path, "default.png");
     }
 
+    /**
+     * Tải xuống avatar mặc định, dùng URL đã lưu đệm nếu còn hạn.
+     *
+     * @return Một CompletableFuture chứa Uri của avatar mặc định.
+     */
+    private CompletableFuture<Uri> downloadDefaultAvatar() {
+        String cachedUrl = avatarUrlCache.getDefaultAvatarUrl();
+        if (cachedUrl != null) {
+            return CompletableFuture.completedFuture(Uri.parse(cachedUrl));
+        }
+        return downloadFile(getDefaultAvatarPath())
+                .thenApply(uri -> {
+                    avatarUrlCache.putDefaultAvatarUrl(uri.toString());
+                    return uri;
+                });
+    }
+
+    /**
+     * Kiểm tra lỗi có phải do tệp không tồn tại trên Firebase Storage.
+     */
+    private static boolean isObjectNotFound(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof StorageException
+                && ((StorageException) cause).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
     /**
      * Tải xuống một tệp từ kho lưu trữ dựa trên tham chiếu đến tệp.
      *
@@ -16,6 +16,7 @@ import com.example.infrastructure.Utils;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 /**
@@ -40,7 +41,7 @@ public class SplashActivity extends AppCompatActivity {
         navigationManager = new NavigationManagerImpl(this);
 
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
 
         preferenceManagerRepos = new PreferenceManagerRepos(getApplicationContext());
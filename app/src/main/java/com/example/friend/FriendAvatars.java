@@ -0,0 +1,42 @@
+package com.example.friend;
+
+import com.example.common.repository.MediaRepos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tải trước avatar cho một trang FriendRequestView, để ViewModel chỉ phát danh sách một lần
+ * và adapter không phải tải avatar từng dòng khi bind.
+ */
+public final class FriendAvatars {
+
+    private FriendAvatars() {
+    }
+
+    /**
+     * Tải avatar của mọi người dùng trong danh sách bằng một lần gọi MediaRepos.downloadAvatars
+     * và gán vào từng FriendRequestView. Lỗi tải avatar không làm hỏng danh sách, dòng đó sẽ được adapter tải lại.
+     *
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
+     * @param views      Danh sách cần gán avatar.
+     * @return Một CompletableFuture chứa chính danh sách đó sau khi đã gán avatar.
+     */
+    public static CompletableFuture<List<FriendRequestView>> attach(MediaRepos mediaRepos, List<FriendRequestView> views) {
+        if (views == null || views.isEmpty()) {
+            return CompletableFuture.completedFuture(views);
+        }
+        List<String> userIds = new ArrayList<>(views.size());
+        for (FriendRequestView view : views) {
+            userIds.add(view.getDisplayedUserId());
+        }
+        return mediaRepos.downloadAvatars(userIds)
+                .thenApply(avatars -> {
+                    for (FriendRequestView view : views) {
+                        view.setAvatarUri(avatars.get(view.getDisplayedUserId()));
+                    }
+                    return views;
+                });
+    }
+}
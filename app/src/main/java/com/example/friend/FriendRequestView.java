@@ -1,10 +1,14 @@
 package com.example.friend;
 
+import android.net.Uri;
+
 public class FriendRequestView {
     private FriendRequest friendRequest;
     private String displayedUserId;
     private String displayName;
     private boolean isLoading;
+    // Avatar đã được ViewModel tải trước, không nhận từ API
+    private transient Uri avatarUri;
 
     public FriendRequestView() {
     }
@@ -40,4 +44,12 @@ public class FriendRequestView {
     public void setLoading(boolean loading) {
         isLoading = loading;
     }
+
+    public Uri getAvatarUri() {
+        return avatarUri;
+    }
+
+    public void setAvatarUri(Uri avatarUri) {
+        this.avatarUri = avatarUri;
+    }
 }
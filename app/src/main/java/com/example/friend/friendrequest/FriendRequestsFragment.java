@@ -20,6 +20,7 @@ import com.example.infrastructure.BaseFragment;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.ArrayList;
@@ -70,10 +71,10 @@ public class FriendRequestsFragment extends BaseFragment<FriendRequestsViewModel
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         FriendRequestRepos friendRequestRepos = new FriendRequestReposImpl();
-        return new FriendRequestsViewModelFactory(authRepos, friendRequestRepos);
+        return new FriendRequestsViewModelFactory(authRepos, friendRequestRepos, mediaRepos);
     }
 
     /**
@@ -9,6 +9,7 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.common.customcontrol.snackbar.SnackbarModel;
 import com.example.common.repository.MediaRepos;
+import com.example.friend.FriendAvatars;
 import com.example.friend.FriendRequest;
 import com.example.friend.FriendRequestView;
 import com.example.friend.friendrequest.adapter.FriendRequestListener;
@@ -39,6 +40,7 @@ public class FriendRequestsViewModel extends BaseViewModel implements FriendRequ
     private final MutableLiveData<Boolean> isRequestsLoading = new MutableLiveData<>();
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Lấy dữ liệu điều hướng đến màn hình bạn bè.
@@ -111,14 +113,17 @@ public class FriendRequestsViewModel extends BaseViewModel implements FriendRequ
      *
      * @param authRepos Repository xác thực người dùng.
      * @param friendRequestRepos Repository quản lý yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
     public FriendRequestsViewModel(AuthRepos authRepos,
-                                   FriendRequestRepos friendRequestRepos
+                                   FriendRequestRepos friendRequestRepos,
+                                   MediaRepos mediaRepos
     ) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -240,6 +245,7 @@ public class FriendRequestsViewModel extends BaseViewModel implements FriendRequ
         this.isRequestsLoading.postValue(true);
         String uid = authRepos.getCurrentUid();
         friendRequestRepos.getPendingFriendRequestsByRecipientId(uid)
+                .thenCompose(friendRequests -> FriendAvatars.attach(mediaRepos, friendRequests))
                 .thenAccept(friendRequests -> {
                     this.isRequestsLoading.postValue(false);
                     this.friendRequests.postValue(friendRequests);
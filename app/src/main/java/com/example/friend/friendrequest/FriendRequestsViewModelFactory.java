@@ -17,20 +17,24 @@ public class FriendRequestsViewModelFactory implements ViewModelProvider.Factory
 
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Khởi tạo Factory với các repository cần thiết.
      *
      * @param authRepos Repository xác thực người dùng.
      * @param friendRequestRepos Repository quản lý yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
     public FriendRequestsViewModelFactory(AuthRepos authRepos,
-                                          FriendRequestRepos friendRequestRepos
+                                          FriendRequestRepos friendRequestRepos,
+                                          MediaRepos mediaRepos
     ) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -46,7 +50,7 @@ public class FriendRequestsViewModelFactory implements ViewModelProvider.Factory
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(FriendRequestsViewModel.class)) {
-            return (T) new FriendRequestsViewModel(authRepos, friendRequestRepos);
+            return (T) new FriendRequestsViewModel(authRepos, friendRequestRepos, mediaRepos);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -2,6 +2,7 @@ package com.example.friend.friendrequest.adapter;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,7 @@ import com.example.databinding.ItemFriendRequestBinding;
 import com.example.friend.FriendRequestView;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter cho RecyclerView hiển thị danh sách yêu cầu kết bạn.
@@ -114,7 +116,11 @@ public class FriendRequestAdapter extends RecyclerView.Adapter<FriendRequestAdap
          * @param request  Đối tượng yêu cầu kết bạn để hiển thị.
          */
         public void bind(int position, FriendRequestView request) {
-            mediaRepos.downloadAvatar(request.getDisplayedUserId())
+            // Dùng avatar ViewModel đã tải trước, chỉ tải riêng khi chưa có
+            CompletableFuture<Uri> avatarFuture = request.getAvatarUri() != null
+                    ? CompletableFuture.completedFuture(request.getAvatarUri())
+                    : mediaRepos.downloadAvatar(request.getDisplayedUserId());
+            avatarFuture
                     .thenAccept(uri -> {
                         Glide.with(context)
                                 .load(uri)
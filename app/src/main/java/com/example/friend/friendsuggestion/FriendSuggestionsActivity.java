@@ -17,6 +17,7 @@ import com.example.infrastructure.BaseActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.ArrayList;
@@ -61,10 +62,10 @@ public class FriendSuggestionsActivity extends BaseActivity<FriendSuggestionsVie
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         FriendRequestRepos friendRequestRepos = new FriendRequestReposImpl();
-        return new FriendSuggestionsViewModelFactory(authRepos, friendRequestRepos);
+        return new FriendSuggestionsViewModelFactory(authRepos, friendRequestRepos, mediaRepos);
     }
 
     /**
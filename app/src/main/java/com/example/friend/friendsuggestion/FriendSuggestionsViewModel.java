@@ -8,6 +8,8 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.common.customcontrol.snackbar.SnackbarModel;
+import com.example.common.repository.MediaRepos;
+import com.example.friend.FriendAvatars;
 import com.example.friend.FriendRequest;
 import com.example.friend.FriendRequestView;
 import com.example.friend.api.request.AddFriendRequest;
@@ -37,6 +39,7 @@ public class FriendSuggestionsViewModel extends BaseViewModel implements FriendS
     private final MutableLiveData<Boolean> isSuggestionsLoading = new MutableLiveData<>();
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Lấy LiveData điều hướng quay lại.
@@ -79,12 +82,15 @@ public class FriendSuggestionsViewModel extends BaseViewModel implements FriendS
      *
      * @param authRepos          Repository xác thực người dùng.
      * @param friendRequestRepos Repository quản lý các yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
-    public FriendSuggestionsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    public FriendSuggestionsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                                      MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     @Override
@@ -224,6 +230,7 @@ public class FriendSuggestionsViewModel extends BaseViewModel implements FriendS
         // Lấy ID người dùng hiện tại từ repository xác thực
         String curUserId = authRepos.getCurrentUid();
         friendRequestRepos.getRecommendedFriends(curUserId, 20)
+                .thenCompose(friendRequests -> FriendAvatars.attach(mediaRepos, friendRequests))
                 .thenAccept(friendRequests -> {
                     // Khi hoàn thành, đặt trạng thái không còn tải và cập nhật danh sách đề xuất
                     this.isSuggestionsLoading.postValue(false);
@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.example.common.repository.MediaRepos;
 import com.example.friend.repository.FriendRequestRepos;
 import com.example.user.repository.AuthRepos;
 
@@ -17,15 +18,18 @@ public class FriendSuggestionsViewModelFactory implements ViewModelProvider.Fact
 
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Khởi tạo một đối tượng FriendSuggestionsViewModelFactory với các tham số cần thiết.
      *
      * Tác giả: Trần Văn An
      */
-    public FriendSuggestionsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    public FriendSuggestionsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                                             MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -37,7 +41,7 @@ public class FriendSuggestionsViewModelFactory implements ViewModelProvider.Fact
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(FriendSuggestionsViewModel.class)) {
-            return (T) new FriendSuggestionsViewModel(authRepos, friendRequestRepos);
+            return (T) new FriendSuggestionsViewModel(authRepos, friendRequestRepos, mediaRepos);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
@@ -2,6 +2,7 @@ package com.example.friend.friendsuggestion.adapter;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,7 @@ import com.example.databinding.ItemFriendSuggestionBinding;
 import com.example.friend.FriendRequestView;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Lớp Adapter để hiển thị gợi ý bạn bè trong một RecyclerView.
@@ -145,7 +147,11 @@ public class FriendSuggestionAdapter extends RecyclerView.Adapter<FriendSuggesti
          */
         public void bind(int position, FriendRequestView friendRequestView) {
             // Tải và hiển thị ảnh đại diện bằng Glide.
-            mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId())
+            // Dùng avatar ViewModel đã tải trước, chỉ tải riêng khi chưa có
+            CompletableFuture<Uri> avatarFuture = friendRequestView.getAvatarUri() != null
+                    ? CompletableFuture.completedFuture(friendRequestView.getAvatarUri())
+                    : mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId());
+            avatarFuture
                     .thenAccept(uri -> {
                         Glide.with(context)
                                 .load(uri)
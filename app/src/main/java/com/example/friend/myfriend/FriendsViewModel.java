@@ -6,6 +6,8 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.common.repository.MediaRepos;
+import com.example.friend.FriendAvatars;
 import com.example.friend.FriendRequest;
 import com.example.friend.FriendRequestView;
 import com.example.friend.myfriend.adapter.FriendListener;
@@ -32,6 +34,7 @@ public class FriendsViewModel extends BaseViewModel implements FriendListener {
     private final MutableLiveData<Boolean> isFriendsLoading = new MutableLiveData<>(true);
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Trả về LiveData để quan sát sự kiện chuyển hướng trở lại màn hình trước đó.
@@ -93,12 +96,15 @@ public class FriendsViewModel extends BaseViewModel implements FriendListener {
      *
      * @param authRepos          Repository cho xác thực người dùng.
      * @param friendRequestRepos Repository cho yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
-    public FriendsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    public FriendsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                            MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -184,6 +190,7 @@ public class FriendsViewModel extends BaseViewModel implements FriendListener {
         this.isFriendsLoading.postValue(true);
         String uid = authRepos.getCurrentUid();
         friendRequestRepos.getAcceptedFriendRequests(uid)
+                .thenCompose(friendRequests -> FriendAvatars.attach(mediaRepos, friendRequests))
                 .thenAccept(friendRequests -> {
                     this.isFriendsLoading.postValue(false);
                     this.friendRequests.postValue(friendRequests);
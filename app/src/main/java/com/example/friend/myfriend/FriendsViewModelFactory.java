@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.example.common.repository.MediaRepos;
 import com.example.friend.repository.FriendRequestRepos;
 import com.example.user.repository.AuthRepos;
 
@@ -16,11 +17,14 @@ public class FriendsViewModelFactory implements ViewModelProvider.Factory {
 
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
-    // Constructor để truyền vào AuthRepos và FriendRequestRepos
-    public FriendsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    // Constructor để truyền vào AuthRepos, FriendRequestRepos và MediaRepos
+    public FriendsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                                   MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     @NonNull
@@ -29,7 +33,7 @@ public class FriendsViewModelFactory implements ViewModelProvider.Factory {
         // Kiểm tra nếu modelClass là assignable từ FriendsViewModel
         if (modelClass.isAssignableFrom(FriendsViewModel.class)) {
             // Nếu là, tạo một đối tượng FriendsViewModel mới với AuthRepos và FriendRequestRepos đã được truyền vào
-            return (T) new FriendsViewModel(authRepos, friendRequestRepos);
+            return (T) new FriendsViewModel(authRepos, friendRequestRepos, mediaRepos);
         }
         // Nếu không phải là FriendsViewModel, ném ra một ngoại lệ
         throw new IllegalArgumentException("Unknown ViewModel class");
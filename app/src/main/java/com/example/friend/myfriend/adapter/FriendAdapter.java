@@ -2,6 +2,7 @@ package com.example.friend.myfriend.adapter;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,7 @@ import com.example.databinding.ItemFriendBinding;
 import com.example.friend.FriendRequestView;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter cho RecyclerView hiển thị danh sách bạn bè.
@@ -139,7 +141,11 @@ public class FriendAdapter extends RecyclerView.Adapter<FriendAdapter.FriendView
          */
         public void bind(int position, FriendRequestView friendRequestView) {
             // Tải avatar của bạn bè từ MediaRepos
-            mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId())
+            // Dùng avatar ViewModel đã tải trước, chỉ tải riêng khi chưa có
+            CompletableFuture<Uri> avatarFuture = friendRequestView.getAvatarUri() != null
+                    ? CompletableFuture.completedFuture(friendRequestView.getAvatarUri())
+                    : mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId());
+            avatarFuture
                     .thenAccept(uri -> {
                         // Sử dụng Glide để tải ảnh từ uri và hiển thị trong ImageView
                         Glide.with(context)
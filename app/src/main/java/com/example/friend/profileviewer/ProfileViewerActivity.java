@@ -17,6 +17,7 @@ import com.example.infrastructure.Utils;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 /**
@@ -60,7 +61,7 @@ public class ProfileViewerActivity extends BaseActivity<ProfileViewerViewModel,
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         FriendRequestRepos friendRequestRepos = new FriendRequestReposImpl();
         return new ProfileViewerViewModelFactory(userRepos, authRepos, friendRequestRepos);
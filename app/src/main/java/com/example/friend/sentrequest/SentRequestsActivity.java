@@ -16,6 +16,7 @@ import com.example.infrastructure.BaseActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.ArrayList;
@@ -64,10 +65,10 @@ public class SentRequestsActivity extends BaseActivity<SentRequestsViewModel, Ac
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         FriendRequestRepos friendRequestRepos = new FriendRequestReposImpl();
-        return new SentRequestsViewModelFactory(authRepos, friendRequestRepos);
+        return new SentRequestsViewModelFactory(authRepos, friendRequestRepos, mediaRepos);
     }
 
     /**
@@ -8,6 +8,8 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.example.common.customcontrol.snackbar.SnackbarModel;
+import com.example.common.repository.MediaRepos;
+import com.example.friend.FriendAvatars;
 import com.example.friend.FriendRequest;
 import com.example.friend.FriendRequestView;
 import com.example.friend.repository.FriendRequestRepos;
@@ -36,6 +38,7 @@ public class SentRequestsViewModel extends BaseViewModel implements SentRequestL
     private final MutableLiveData<Boolean> isSentRequestsLoading = new MutableLiveData<>(true);
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * LiveData để lắng nghe sự kiện điều hướng quay lại.
@@ -86,12 +89,15 @@ public class SentRequestsViewModel extends BaseViewModel implements SentRequestL
      *
      * @param authRepos          Repository cho xác thực.
      * @param friendRequestRepos Repository cho yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
-    public SentRequestsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    public SentRequestsViewModel(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                                 MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -198,6 +204,7 @@ public class SentRequestsViewModel extends BaseViewModel implements SentRequestL
         this.isSentRequestsLoading.postValue(true);
         String curUserId = authRepos.getCurrentUid();
         friendRequestRepos.getPendingFriendRequestsBySenderId(curUserId)
+                .thenCompose(friendRequests -> FriendAvatars.attach(mediaRepos, friendRequests))
                 .thenAccept(friendRequests -> {
                     this.isSentRequestsLoading.postValue(false);
                     this.sentFriendRequests.postValue(friendRequests);
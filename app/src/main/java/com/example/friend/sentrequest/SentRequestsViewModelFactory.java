@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import com.example.common.repository.MediaRepos;
 import com.example.friend.repository.FriendRequestRepos;
 import com.example.user.repository.AuthRepos;
 
@@ -16,18 +17,22 @@ public class SentRequestsViewModelFactory implements ViewModelProvider.Factory {
 
     private final AuthRepos authRepos;
     private final FriendRequestRepos friendRequestRepos;
+    private final MediaRepos mediaRepos;
 
     /**
      * Constructor để khởi tạo Factory với các repository cần thiết.
      *
      * @param authRepos          Repository cho xác thực.
      * @param friendRequestRepos Repository cho yêu cầu kết bạn.
+     * @param mediaRepos Repository cho các phương thức liên quan đến phương tiện.
      *
      * Tác giả: Trần Văn An
      */
-    public SentRequestsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos) {
+    public SentRequestsViewModelFactory(AuthRepos authRepos, FriendRequestRepos friendRequestRepos,
+                                        MediaRepos mediaRepos) {
         this.authRepos = authRepos;
         this.friendRequestRepos = friendRequestRepos;
+        this.mediaRepos = mediaRepos;
     }
 
     /**
@@ -43,7 +48,7 @@ public class SentRequestsViewModelFactory implements ViewModelProvider.Factory {
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(SentRequestsViewModel.class)) {
-            return (T) new SentRequestsViewModel(authRepos, friendRequestRepos);
+            return (T) new SentRequestsViewModel(authRepos, friendRequestRepos, mediaRepos);
         }
         throw new IllegalArgumentException("Unknown ViewModel class");
     }
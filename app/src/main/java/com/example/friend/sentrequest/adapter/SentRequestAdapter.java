@@ -2,6 +2,7 @@ package com.example.friend.sentrequest.adapter;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,7 @@ import com.example.databinding.ItemSentRequestBinding;
 import com.example.friend.FriendRequestView;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter này quản lý dữ liệu và hiển thị danh sách các yêu cầu kết bạn đã gửi.
@@ -141,7 +143,11 @@ public class SentRequestAdapter extends RecyclerView.Adapter<SentRequestAdapter.
          */
         public void bind(int position, FriendRequestView friendRequestView) {
             // Tải hình đại diện từ mediaRepos dựa trên ID của người dùng và hiển thị nó trong itemView
-            mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId())
+            // Dùng avatar ViewModel đã tải trước, chỉ tải riêng khi chưa có
+            CompletableFuture<Uri> avatarFuture = friendRequestView.getAvatarUri() != null
+                    ? CompletableFuture.completedFuture(friendRequestView.getAvatarUri())
+                    : mediaRepos.downloadAvatar(friendRequestView.getDisplayedUserId());
+            avatarFuture
                     .thenAccept(uri -> {
                         // Sử dụng Glide để tải hình ảnh từ URI và hiển thị nó trong ImageView
                         Glide.with(context)
@@ -1,5 +1,10 @@
 package com.example.infrastructure;
 
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -17,6 +22,15 @@ public class AppExecutors {
     // ScheduledExecutorService để thực hiện các tác vụ I/O mạng
     private final ScheduledExecutorService networkIO;
 
+    // Executor một luồng cho các thao tác đọc/ghi cơ sở dữ liệu trên thiết bị
+    private final ExecutorService diskIO;
+
+    // Executor cho các tác vụ tốn CPU như giải mã và nén hình ảnh, tách khỏi diskIO để không chặn cơ sở dữ liệu
+    private final ExecutorService computation;
+
+    // Executor chuyển kết quả về luồng chính (UI thread)
+    private final Executor mainThread;
+
     /**
      * Trả về instance singleton của AppExecutors.
      * Nếu instance là null, nó sẽ được khởi tạo.
@@ -46,6 +60,10 @@ public class AppExecutors {
     private AppExecutors() {
         int availableProcessors = Runtime.getRuntime().availableProcessors();
         networkIO = Executors.newScheduledThreadPool(availableProcessors);
+        diskIO = Executors.newSingleThreadExecutor();
+        computation = Executors.newFixedThreadPool(Math.max(2, availableProcessors - 1));
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        mainThread = mainHandler::post;
     }
 
     /**
@@ -58,4 +76,31 @@ public class AppExecutors {
     public ScheduledExecutorService networkIO() {
         return networkIO;
     }
+
+    /**
+     * Trả về ExecutorService một luồng cho các thao tác đọc/ghi cơ sở dữ liệu.
+     *
+     * @return ExecutorService cho các tác vụ I/O trên đĩa
+     */
+    public ExecutorService diskIO() {
+        return diskIO;
+    }
+
+    /**
+     * Trả về ExecutorService cho các tác vụ tốn CPU (giải mã, nén hình ảnh).
+     *
+     * @return ExecutorService cho tác vụ tính toán
+     */
+    public ExecutorService computation() {
+        return computation;
+    }
+
+    /**
+     * Trả về Executor thực thi tác vụ trên luồng chính.
+     *
+     * @return Executor của luồng chính
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
 }
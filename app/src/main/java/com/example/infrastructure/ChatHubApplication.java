@@ -0,0 +1,27 @@
+package com.example.infrastructure;
+
+import android.app.Application;
+
+import com.example.chat.message.outbox.MessageOutbox;
+import com.example.chat.message.repos.PhotoReposImpl;
+import com.example.common.repository.AvatarUrlCache;
+import com.example.infrastructure.api.HttpClientProvider;
+
+/**
+ * Application của ứng dụng, khởi tạo các thành phần dùng chung trước khi Activity hoặc Service đầu tiên chạy.
+ */
+public class ChatHubApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Thư mục cache HTTP phải có trước khi OkHttpClient dùng chung được tạo
+        HttpClientProvider.init(this);
+        // Bộ đệm URL avatar lưu trên đĩa phải có trước khi MediaReposImpl đầu tiên được tạo
+        AvatarUrlCache.init(this);
+        // Tiếp tục gửi các tin nhắn còn trong outbox từ phiên trước
+        MessageOutbox outbox = MessageOutbox.getIns(this);
+        // Tiếp tục tải lên các hình ảnh chưa xong, rồi gửi tin nhắn của chúng qua outbox
+        new PhotoReposImpl(this).resumePendingUploads(outbox::enqueueMessage);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.infrastructure;
+
+import com.example.infrastructure.api.RestApiClient;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Chuyển đổi thời gian dùng chung cho toàn ứng dụng, an toàn khi gọi từ nhiều luồng.
+ *
+ * - Thời gian gửi tin nhắn (chuỗi ISO của LocalDateTime, ví dụ "2024-05-01T10:15:30.123") được phân tích một lần
+ *   thành số mili giây, theo cùng quy ước với cột sending_epoch trên thiết bị: giờ địa phương được coi như UTC,
+ *   nên định dạng lại từ số mili giây cho đúng giờ đã gửi, không bị lệch múi giờ.
+ * - Chuỗi hiển thị "dd-MM HH:mm" chỉ được tạo khi cần (lúc bind) và không dùng DateTimeFormatter.
+ * - Các DateTimeFormatter là bất biến nên được tạo một lần và dùng chung, thay cho SimpleDateFormat tạo mới mỗi lần gọi.
+ */
+public final class TimeCodec {
+    // Giá trị trả về khi không phân tích được thời gian
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    public static final String MESSAGE_TIME_PATTERN = "dd-MM HH:mm";
+
+    private static final String DATE_PATTERN = "dd/MM/yyyy";
+    // Định dạng ngày nhập tay có thể thiếu số 0 ở đầu ngày, tháng
+    private static final String DATE_INPUT_PATTERN = "d/M/yyyy";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+    private static final DateTimeFormatter DATE_INPUT_FORMATTER = DateTimeFormatter.ofPattern(DATE_INPUT_PATTERN);
+    private static final DateTimeFormatter API_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(RestApiClient.DATE_FORMAT);
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    // Số ngày từ 0000-01-01 đến 1970-01-01, cùng hằng số với LocalDate.toEpochDay
+    private static final long DAYS_0000_TO_1970 = (146_097L * 5L) - (30L * 365L + 7L);
+
+    private TimeCodec() {
+    }
+
+    /**
+     * Phân tích chuỗi ISO của LocalDateTime ("yyyy-MM-ddTHH:mm[:ss[.SSSSSSSSS]]") thành số mili giây.
+     * Không tạo đối tượng trung gian và không ném ngoại lệ, chuỗi đã định dạng để hiển thị (từ phiên bản cũ)
+     * hoặc chuỗi không hợp lệ trả về UNKNOWN.
+     *
+     * @param iso Chuỗi thời gian dạng ISO.
+     * @return Số mili giây, hoặc UNKNOWN nếu không phân tích được.
+     */
+    public static long parseIso(String iso) {
+        if (iso == null) {
+            return UNKNOWN;
+        }
+        int length = iso.length();
+        if (length < 16 || iso.charAt(4) != '-' || iso.charAt(7) != '-'
+                || iso.charAt(10) != 'T' || iso.charAt(13) != ':') {
+            return UNKNOWN;
+        }
+        int year = readDigits(iso, 0, 4);
+        int month = readDigits(iso, 5, 2);
+        int day = readDigits(iso, 8, 2);
+        int hour = readDigits(iso, 11, 2);
+        int minute = readDigits(iso, 14, 2);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || iso.charAt(16) != ':') {
+                return UNKNOWN;
+            }
+            second = readDigits(iso, 17, 2);
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (iso.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return UNKNOWN;
+                }
+                nano = readDigits(iso, 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        if ((year | month | day | hour | minute | second | nano) < 0
+                || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return UNKNOWN;
+        }
+        long seconds = toEpochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+        return seconds * 1_000L + nano / 1_000_000;
+    }
+
+    /**
+     * Chuyển LocalDateTime thành số mili giây theo cùng quy ước với parseIso.
+     *
+     * @return Số mili giây, hoặc UNKNOWN nếu dateTime là null.
+     */
+    public static long fromLocalDateTime(LocalDateTime dateTime) {
+        return dateTime == null ? UNKNOWN : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Chuyển số mili giây (theo quy ước của parseIso) về LocalDateTime.
+     *
+     * @return LocalDateTime tương ứng, hoặc null nếu millis là UNKNOWN.
+     */
+    public static LocalDateTime toLocalDateTime(long millis) {
+        if (millis == UNKNOWN) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1_000L),
+                (int) Math.floorMod(millis, 1_000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Chuyển số mili giây về chuỗi ISO, cùng dạng với LocalDateTime.toString() mà Backend và FCM đang dùng.
+     *
+     * @return Chuỗi ISO, hoặc null nếu millis là UNKNOWN.
+     */
+    public static String toIso(long millis) {
+        LocalDateTime dateTime = toLocalDateTime(millis);
+        return dateTime != null ? dateTime.toString() : null;
+    }
+
+    /**
+     * Thời gian hiện tại theo giờ địa phương, cùng quy ước với parseIso (tương đương LocalDateTime.now()).
+     */
+    public static long now() {
+        long now = System.currentTimeMillis();
+        return now + TimeZone.getDefault().getOffset(now);
+    }
+
+    /**
+     * Định dạng số mili giây thành chuỗi hiển thị "dd-MM HH:mm" của tin nhắn.
+     *
+     * @param millis Số mili giây theo quy ước của parseIso.
+     * @return Chuỗi hiển thị, hoặc null nếu millis là UNKNOWN.
+     */
+    public static String formatMessageTime(long millis) {
+        if (millis == UNKNOWN) {
+            return null;
+        }
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(millis, MILLIS_PER_DAY));
+        int minuteOfDay = (int) (Math.floorMod(millis, MILLIS_PER_DAY) / 60_000L);
+
+        char[] chars = new char[MESSAGE_TIME_PATTERN.length()];
+        writeTwoDigits(chars, 0, date.getDayOfMonth());
+        chars[2] = '-';
+        writeTwoDigits(chars, 3, date.getMonthValue());
+        chars[5] = ' ';
+        writeTwoDigits(chars, 6, minuteOfDay / 60);
+        chars[8] = ':';
+        writeTwoDigits(chars, 9, minuteOfDay % 60);
+        return new String(chars);
+    }
+
+    /**
+     * Định dạng ngày theo "dd/MM/yyyy" ở múi giờ của thiết bị.
+     *
+     * @param date Ngày cần định dạng.
+     * @return Chuỗi ngày tháng.
+     */
+    public static String formatDate(Date date) {
+        return DATE_FORMATTER.format(date.toInstant().atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * Phân tích chuỗi ngày "dd/MM/yyyy" thành Date lúc 00:00 ở múi giờ của thiết bị.
+     *
+     * @param dateStr Chuỗi ngày tháng.
+     * @return Đối tượng Date.
+     * @throws DateTimeParseException nếu chuỗi không đúng định dạng.
+     */
+    public static Date parseDate(String dateStr) {
+        LocalDate date = LocalDate.parse(dateStr, DATE_INPUT_FORMATTER);
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Phân tích thời gian "yyyy-MM-dd'T'HH:mm:ss" do Backend trả về thành Date ở múi giờ của thiết bị.
+     * Giống SimpleDateFormat trước đây, phần còn lại sau giây (phần lẻ của giây, múi giờ) được bỏ qua.
+     *
+     * @param dateTimeStr Chuỗi thời gian.
+     * @return Đối tượng Date.
+     * @throws DateTimeException nếu chuỗi không đúng định dạng.
+     */
+    public static Date parseApiDateTime(String dateTimeStr) {
+        LocalDateTime dateTime = LocalDateTime.from(API_DATE_TIME_FORMATTER.parse(dateTimeStr, new ParsePosition(0)));
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Đọc count chữ số bắt đầu từ start, trả về -1 nếu gặp ký tự không phải chữ số.
+     */
+    private static int readDigits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Số ngày kể từ 1970-01-01, cùng thuật toán với LocalDate.toEpochDay (chỉ cần cho năm không âm).
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!IsoChronology.INSTANCE.isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static void writeTwoDigits(char[] chars, int offset, int value) {
+        chars[offset] = (char) ('0' + value / 10);
+        chars[offset + 1] = (char) ('0' + value % 10);
+    }
+}
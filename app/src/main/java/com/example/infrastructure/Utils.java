@@ -17,11 +17,13 @@ import com.example.friend.profileviewer.EFriendshipStatus;
 
 import org.jetbrains.annotations.Nullable;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Class Utils chứa các phương thức tiện ích được sử dụng trong ứng dụng.
@@ -45,9 +47,6 @@ public class Utils {
     // Tag cho Log
     private static final String TAG = Utils.class.getSimpleName();
 
-    // Định dạng ngày tháng
-    private static final String DATE_PATTERN = "dd/MM/yyyy";
-
     // Số ngày trong một tháng
     private static final int DAYS_IN_MONTH = 30;
 
@@ -87,8 +86,7 @@ public class Utils {
         if (date == null) {
             return "";
         }
-        DateFormat df = new SimpleDateFormat(DATE_PATTERN);
-        return df.format(date);
+        return TimeCodec.formatDate(date);
     }
 
     /**
@@ -100,10 +98,9 @@ public class Utils {
      * Tác giả: Trần Văn An
      */
     public static Date stringToDate(String dateStr) {
-        DateFormat df = new SimpleDateFormat(DATE_PATTERN);
         try {
-            return df.parse(dateStr);
-        } catch (ParseException e) {
+            return TimeCodec.parseDate(dateStr);
+        } catch (DateTimeParseException e) {
             Log.e(TAG, "ERROR: " + e);
             return null;
         }
@@ -182,6 +179,34 @@ public class Utils {
         return text == null || text.isEmpty();
     }
 
+    /**
+     * Trả về một CompletableFuture hoàn tất cùng future, hoặc hoàn tất với TimeoutException nếu future chưa xong sau timeout.
+     * Thay cho CompletableFuture.orTimeout (chỉ có từ API 31). future gốc không bị hủy, vẫn có thể hoàn tất sau đó.
+     *
+     * @param future  CompletableFuture cần giới hạn thời gian chờ.
+     * @param timeout Thời gian chờ tối đa.
+     * @param unit    Đơn vị của timeout.
+     * @return CompletableFuture có giới hạn thời gian chờ.
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        if (future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timer = AppExecutors.getIns().networkIO().schedule(
+                () -> result.completeExceptionally(new TimeoutException("Timed out after " + timeout + " " + unit)),
+                timeout, unit);
+        future.whenComplete((value, throwable) -> {
+            timer.cancel(false);
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
     /**
      * Phương thức isValidOtp() kiểm tra tính hợp lệ của một OTP.
      *
@@ -1,13 +1,13 @@
 package com.example.infrastructure.api;
 
+import com.example.infrastructure.TimeCodec;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 
 import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
 import java.util.Date;
 
 /**
@@ -35,10 +35,10 @@ public class DateDeserializer implements JsonDeserializer<Date> {
             throws JsonParseException {
 
         String dateStr = json.getAsString();
-        SimpleDateFormat sdf = new SimpleDateFormat(RestApiClient.DATE_FORMAT);
+        // Dùng formatter dùng chung của TimeCodec thay vì tạo SimpleDateFormat cho mỗi trường ngày tháng
         try {
-            return sdf.parse(dateStr);
-        } catch (ParseException e) {
+            return TimeCodec.parseApiDateTime(dateStr);
+        } catch (DateTimeException e) {
             throw new JsonParseException("Unable to parse date", e);
         }
     }
@@ -0,0 +1,108 @@
+package com.example.infrastructure.api;
+
+import android.content.Context;
+
+import com.example.BuildConfig;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * Class HttpClientProvider quản lý một OkHttpClient dùng chung cho mọi Retrofit client và yêu cầu HTTP của ứng dụng.
+ *
+ * - Dùng chung connection pool và dispatcher, nên các yêu cầu tới cùng host tái sử dụng kết nối (HTTP/2 khi server hỗ trợ).
+ * - Cache HTTP trên đĩa: các GET có ETag/Last-Modified được xác thực lại bằng yêu cầu có điều kiện thay vì tải lại toàn bộ.
+ * - Chỉ ghi log header của yêu cầu ở bản debug, giá trị của các header chứa khóa/token (SENSITIVE_HEADERS) bị che;
+ *   bản release không ghi log và không đệm body.
+ */
+public class HttpClientProvider {
+    private static final String CACHE_DIRECTORY = "http_cache";
+    private static final long CACHE_SIZE_BYTES = 20L * 1024 * 1024;
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 64;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final long TIMEOUT_SECONDS = 20;
+
+    // Header chứa thông tin xác thực (khóa server FCM, cookie phiên), không được ghi ra log
+    private static final List<String> SENSITIVE_HEADERS =
+            Arrays.asList("Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie");
+
+    private static volatile File cacheDirectory;
+    private static volatile OkHttpClient ins;
+
+    /**
+     * Ghi nhận thư mục cache của ứng dụng. Cần được gọi trước lần đầu tiên gọi getIns(),
+     * nếu không OkHttpClient được tạo mà không có cache trên đĩa.
+     *
+     * @param context Context bất kỳ của ứng dụng.
+     */
+    public static void init(Context context) {
+        cacheDirectory = new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+    }
+
+    /**
+     * Trả về OkHttpClient dùng chung.
+     *
+     * @return instance singleton của OkHttpClient
+     */
+    public static OkHttpClient getIns() {
+        if (ins == null) {
+            synchronized (HttpClientProvider.class) {
+                if (ins == null) {
+                    ins = create();
+                }
+            }
+        }
+        return ins;
+    }
+
+    private static OkHttpClient create() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        if (cacheDirectory != null) {
+            builder.cache(new Cache(cacheDirectory, CACHE_SIZE_BYTES));
+        }
+
+        if (BuildConfig.DEBUG) {
+            builder.addInterceptor(createLoggingInterceptor(HttpLoggingInterceptor.Logger.DEFAULT));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Tạo interceptor ghi log header của yêu cầu và phản hồi, che giá trị của SENSITIVE_HEADERS.
+     *
+     * @param logger Nơi ghi log.
+     * @return HttpLoggingInterceptor ở mức HEADERS.
+     */
+    static HttpLoggingInterceptor createLoggingInterceptor(HttpLoggingInterceptor.Logger logger) {
+        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(logger);
+        interceptor.level(HttpLoggingInterceptor.Level.HEADERS);
+        for (String header : SENSITIVE_HEADERS) {
+            interceptor.redactHeader(header);
+        }
+        return interceptor;
+    }
+}
@@ -7,9 +7,7 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.Date;
 
-import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
-import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
@@ -62,16 +60,10 @@ public class RestApiClient {
                 .registerTypeAdapter(Date.class, new DateDeserializer()) // Đăng ký bộ chuyển đổi Date
                 .create();
 
-        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-        interceptor.level(HttpLoggingInterceptor.Level.BODY);
-
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.addInterceptor(interceptor);
-
         // Khởi tạo Retrofit với base URL, OkHttpClient, và các converter cần thiết
         ins = new Retrofit.Builder()
                 .baseUrl(BASE_URL) // Thiết lập base URL cho API
-                .client(builder.build()) // Thiết lập OkHttpClient cho Retrofit
+                .client(HttpClientProvider.getIns()) // Dùng OkHttpClient chung của ứng dụng
                 .addConverterFactory(ScalarsConverterFactory.create()) // Thêm converter cho kiểu Scalars
                 .addConverterFactory(GsonConverterFactory.create(gson)) // Thêm converter cho Gson
                 .build();
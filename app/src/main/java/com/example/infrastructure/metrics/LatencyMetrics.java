@@ -0,0 +1,52 @@
+package com.example.infrastructure.metrics;
+
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi nhận thời gian của từng giai đoạn trong một quy trình (ví dụ: giải mã và nhận dạng văn bản).
+ *
+ * Mỗi lần record(stage, millis) ghi log thời gian của lần đó cùng trung bình tích lũy của giai đoạn.
+ */
+public class LatencyMetrics {
+    private static final String TAG = LatencyMetrics.class.getSimpleName();
+
+    private final String name;
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+    public LatencyMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Ghi nhận thời gian của một lần thực hiện giai đoạn stage.
+     *
+     * @param stage  Tên giai đoạn.
+     * @param millis Thời gian thực hiện, tính bằng mili giây.
+     */
+    public void record(String stage, long millis) {
+        Stage stats = stages.computeIfAbsent(stage, key -> new Stage());
+        long count = stats.count.incrementAndGet();
+        long total = stats.totalMillis.addAndGet(millis);
+        Log.i(TAG, name + " " + stage + ": " + millis + " ms (avg " + total / count + " ms over " + count + ")");
+    }
+
+    public long getCount(String stage) {
+        Stage stats = stages.get(stage);
+        return stats != null ? stats.count.get() : 0;
+    }
+
+    public long getAverageMillis(String stage) {
+        Stage stats = stages.get(stage);
+        long count = stats != null ? stats.count.get() : 0;
+        return count > 0 ? stats.totalMillis.get() / count : 0;
+    }
+
+    private static class Stage {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMillis = new AtomicLong();
+    }
+}
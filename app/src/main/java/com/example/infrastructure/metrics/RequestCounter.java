@@ -0,0 +1,74 @@
+package com.example.infrastructure.metrics;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đếm số yêu cầu mạng phát sinh cho mỗi thao tác (ví dụ: gửi một tin nhắn).
+ *
+ * Mỗi thao tác được đánh dấu bằng một khóa: begin(key), record(key, tên yêu cầu) cho từng yêu cầu,
+ * và finish(key) để ghi log tổng số yêu cầu của thao tác đó và trung bình tích lũy.
+ */
+public class RequestCounter {
+    private static final String TAG = RequestCounter.class.getSimpleName();
+
+    private final String name;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong completedOperations = new AtomicLong();
+    private final AtomicLong completedRequests = new AtomicLong();
+
+    public RequestCounter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Bắt đầu đếm cho một thao tác. Nếu thao tác đang được đếm (ví dụ gửi lại), tiếp tục cộng dồn.
+     */
+    public void begin(String key) {
+        inFlight.putIfAbsent(key, new AtomicInteger());
+    }
+
+    /**
+     * Ghi nhận một yêu cầu mạng thuộc thao tác key.
+     *
+     * @param key     Khóa của thao tác.
+     * @param request Tên yêu cầu, chỉ dùng để ghi log.
+     */
+    public void record(String key, String request) {
+        AtomicInteger count = inFlight.get(key);
+        if (count != null) {
+            count.incrementAndGet();
+            Log.d(TAG, name + " " + key + ": " + request);
+        }
+    }
+
+    /**
+     * Kết thúc thao tác key và ghi log số yêu cầu đã phát sinh.
+     *
+     * @return Số yêu cầu của thao tác, hoặc 0 nếu thao tác chưa được bắt đầu.
+     */
+    public int finish(String key) {
+        AtomicInteger count = inFlight.remove(key);
+        if (count == null) {
+            return 0;
+        }
+        long operations = completedOperations.incrementAndGet();
+        long requests = completedRequests.addAndGet(count.get());
+        Log.i(TAG, name + " " + key + ": " + count.get() + " requests (avg "
+                + String.format(Locale.US, "%.2f", (double) requests / operations) + ")");
+        return count.get();
+    }
+
+    public long getCompletedOperations() {
+        return completedOperations.get();
+    }
+
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+}
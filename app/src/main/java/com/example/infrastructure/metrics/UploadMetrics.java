@@ -0,0 +1,78 @@
+package com.example.infrastructure.metrics;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi nhận số byte và thời gian của các lần tải tệp lên.
+ *
+ * Mỗi lần tải lên ghi log kích thước gốc, kích thước sau khi nén, thời gian nén, thời gian tải lên,
+ * và tổng tích lũy để so sánh số byte tiết kiệm được.
+ */
+public class UploadMetrics {
+    private static final String TAG = UploadMetrics.class.getSimpleName();
+
+    private final String name;
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong resumedUploads = new AtomicLong();
+    private final AtomicLong sourceBytes = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong encodeMillis = new AtomicLong();
+    private final AtomicLong uploadMillis = new AtomicLong();
+
+    public UploadMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Ghi nhận một lần tải lên thành công.
+     *
+     * @param sourceBytes   Kích thước tệp gốc, -1 nếu không rõ.
+     * @param uploadedBytes Số byte đã tải lên.
+     * @param encodeMillis  Thời gian nén trước khi tải lên.
+     * @param uploadMillis  Thời gian tải lên.
+     * @param resumed       true nếu lần tải lên tiếp tục một phiên tải lên trước đó.
+     */
+    public void record(long sourceBytes, long uploadedBytes, long encodeMillis, long uploadMillis, boolean resumed) {
+        long count = uploads.incrementAndGet();
+        if (resumed) {
+            resumedUploads.incrementAndGet();
+        }
+        if (sourceBytes > 0) {
+            this.sourceBytes.addAndGet(sourceBytes);
+        }
+        long totalUploaded = this.uploadedBytes.addAndGet(uploadedBytes);
+        this.encodeMillis.addAndGet(encodeMillis);
+        long totalUploadMillis = this.uploadMillis.addAndGet(uploadMillis);
+        Log.i(TAG, String.format(Locale.US,
+                "%s: %d -> %d bytes, encode %d ms, upload %d ms%s (total %d uploads, %d bytes, avg upload %d ms)",
+                name, sourceBytes, uploadedBytes, encodeMillis, uploadMillis, resumed ? ", resumed" : "",
+                count, totalUploaded, totalUploadMillis / count));
+    }
+
+    public long getUploads() {
+        return uploads.get();
+    }
+
+    public long getResumedUploads() {
+        return resumedUploads.get();
+    }
+
+    public long getSourceBytes() {
+        return sourceBytes.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public long getEncodeMillis() {
+        return encodeMillis.get();
+    }
+
+    public long getUploadMillis() {
+        return uploadMillis.get();
+    }
+}
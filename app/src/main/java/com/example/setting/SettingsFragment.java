@@ -17,6 +17,7 @@ import com.example.infrastructure.BaseFragment;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 /**
@@ -62,7 +63,7 @@ public class SettingsFragment extends BaseFragment<SettingsViewModel, FragmentSe
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         return new SettingsViewModelFactory(authRepos);
     }
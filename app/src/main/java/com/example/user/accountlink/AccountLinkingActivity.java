@@ -22,6 +22,7 @@ import com.example.infrastructure.BaseActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -73,7 +74,7 @@ public class AccountLinkingActivity extends BaseActivity<AccountLinkingViewModel
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        userRepos = new UserReposImpl(mediaRepos);
+        userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         authRepos = new AuthReposImpl(userRepos);
         return new AccountLinkingViewModelFactory(authRepos);
     }
@@ -13,6 +13,7 @@ import com.example.infrastructure.BaseActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 /**
@@ -57,7 +58,7 @@ public class ForgotPasswordActivity extends BaseActivity<ForgotPasswordViewModel
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         return new ForgotPasswordViewModelFactory(authRepos);
     }
@@ -19,6 +19,7 @@ import com.example.user.login.LoginActivity;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -49,7 +50,7 @@ public class GoogleSignInActivity extends LoginActivity {
 
         // Khởi tạo các repository và ViewModel.
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         GoogleSignInViewModelFactory factory = new GoogleSignInViewModelFactory(authRepos);
         viewModel = new ViewModelProvider(this, factory).get(GoogleSignInViewModel.class);
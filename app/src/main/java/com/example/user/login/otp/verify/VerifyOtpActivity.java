@@ -14,6 +14,7 @@ import com.example.infrastructure.Utils;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 
 import java.util.Timer;
@@ -62,7 +63,7 @@ public class VerifyOtpActivity extends BaseActivity<VerifyOtpViewModel, Activity
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         authRepos = new AuthReposImpl(userRepos);
         return new VerifyOtpViewModelFactory(authRepos);
     }
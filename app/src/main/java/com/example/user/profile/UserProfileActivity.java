@@ -22,6 +22,7 @@ import com.example.user.EGender;
 import com.example.user.repository.AuthRepos;
 import com.example.user.repository.AuthReposImpl;
 import com.example.user.repository.UserRepos;
+import com.example.user.repository.CachingUserRepos;
 import com.example.user.repository.UserReposImpl;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
@@ -68,7 +69,7 @@ public class UserProfileActivity extends BaseActivity<UserProfileViewModel, Acti
     @Override
     protected ViewModelProvider.Factory getViewModelFactory() {
         MediaRepos mediaRepos = new MediaReposImpl();
-        UserRepos userRepos = new UserReposImpl(mediaRepos);
+        UserRepos userRepos = new CachingUserRepos(new UserReposImpl(mediaRepos));
         AuthRepos authRepos = new AuthReposImpl(userRepos);
         return new UserProfileViewModelFactory(userRepos, authRepos);
     }
@@ -0,0 +1,181 @@
+package com.example.user.repository;
+
+import android.util.Log;
+
+import com.example.user.User;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CachingUserRepos bọc một UserRepos và lưu đệm kết quả của getUserByUid trong bộ nhớ.
+ *
+ * - Single-flight: các lời gọi đồng thời cùng uid dùng chung một CompletableFuture đang chạy, chỉ một yêu cầu được gửi.
+ * - Kết quả thành công được giữ trong USER_TTL_MILLIS; lỗi không được lưu đệm.
+ * - Các thao tác ghi (addUser, updatePhoneNumber, updateBasicUser) xóa mục của uid tương ứng sau khi hoàn tất.
+ *   Mỗi lần xóa tăng thế hệ (generation) của uid; kết quả của yêu cầu gửi đi trước đó chỉ được trả về cho
+ *   các lời gọi đang chờ, không được lưu đệm, nên dữ liệu cũ không ghi đè lên lần xóa.
+ * - Bộ đệm dùng chung cho mọi instance, vì mỗi màn hình tạo UserRepos riêng.
+ * - Mỗi lời gọi nhận một bản sao của User, nên việc sửa đổi ở một màn hình không ảnh hưởng màn hình khác.
+ */
+public class CachingUserRepos implements UserRepos {
+    private static final String TAG = CachingUserRepos.class.getSimpleName();
+
+    private static final long USER_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Map<String, CachedUser> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<User>> IN_FLIGHT = new ConcurrentHashMap<>();
+    // Thế hệ của mỗi uid, tăng mỗi lần invalidate; uid chưa từng bị xóa có thế hệ 0
+    private static final Map<String, Long> GENERATIONS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong IN_FLIGHT_JOINS = new AtomicLong();
+
+    private final UserRepos delegate;
+
+    public CachingUserRepos(UserRepos delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Số lời gọi getUserByUid được trả về từ bộ đệm.
+     */
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    /**
+     * Số lời gọi getUserByUid phải gửi yêu cầu mới.
+     */
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * Số lời gọi getUserByUid dùng chung một yêu cầu đang chạy.
+     */
+    public static long getInFlightJoinCount() {
+        return IN_FLIGHT_JOINS.get();
+    }
+
+    /**
+     * Xóa mục của uid khỏi bộ đệm, lần gọi getUserByUid tiếp theo sẽ tải lại từ Backend.
+     * Yêu cầu đang chạy của uid không còn được dùng chung và kết quả của nó không được lưu đệm.
+     *
+     * @param uid mã định danh của người dùng.
+     */
+    public static void invalidate(String uid) {
+        if (uid != null) {
+            GENERATIONS.merge(uid, 1L, Long::sum);
+            CACHE.remove(uid);
+            IN_FLIGHT.remove(uid);
+        }
+    }
+
+    @Override
+    public CompletableFuture<User> getUserByUid(String uid) {
+        if (uid == null) {
+            return delegate.getUserByUid(null);
+        }
+
+        CachedUser cached = CACHE.get(uid);
+        if (cached != null && !cached.isExpired()) {
+            HITS.incrementAndGet();
+            return CompletableFuture.completedFuture(copyOf(cached.user));
+        }
+
+        CompletableFuture<User> created = new CompletableFuture<>();
+        CompletableFuture<User> existing = IN_FLIGHT.putIfAbsent(uid, created);
+        if (existing != null) {
+            IN_FLIGHT_JOINS.incrementAndGet();
+            return existing.thenApply(CachingUserRepos::copyOf);
+        }
+
+        MISSES.incrementAndGet();
+        long generation = GENERATIONS.getOrDefault(uid, 0L);
+        delegate.getUserByUid(uid).whenComplete((user, e) -> {
+            if (e == null && user != null) {
+                cacheIfCurrent(uid, generation, user);
+            }
+            IN_FLIGHT.remove(uid, created);
+            if (e != null) {
+                created.completeExceptionally(e);
+            } else {
+                created.complete(user);
+            }
+        });
+        logStats();
+        return created.thenApply(CachingUserRepos::copyOf);
+    }
+
+    @Override
+    public CompletableFuture<Void> addUser(User user) {
+        return delegate.addUser(user).whenComplete((unused, e) -> invalidate(user.getId()));
+    }
+
+    @Override
+    public CompletableFuture<Void> updatePhoneNumber(String uid, String phoneNumber) {
+        return delegate.updatePhoneNumber(uid, phoneNumber).whenComplete((unused, e) -> invalidate(uid));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateBasicUser(String uid, User user) {
+        return delegate.updateBasicUser(uid, user).whenComplete((unused, e) -> invalidate(uid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkUserExistsByEmail(String email) {
+        return delegate.checkUserExistsByEmail(email);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existsByPhoneNumber(String phoneNumber) {
+        return delegate.existsByPhoneNumber(phoneNumber);
+    }
+
+    /**
+     * Lưu đệm user nếu uid chưa bị invalidate kể từ khi yêu cầu được gửi.
+     * Việc so sánh và lưu diễn ra trong compute của GENERATIONS nên invalidate cùng uid không thể chen vào giữa.
+     */
+    private static void cacheIfCurrent(String uid, long generation, User user) {
+        GENERATIONS.compute(uid, (key, current) -> {
+            if ((current != null ? current : 0L) == generation) {
+                CACHE.put(uid, new CachedUser(user));
+            }
+            return current;
+        });
+    }
+
+    private static void logStats() {
+        Log.d(TAG, "getUserByUid hits=" + HITS.get() + " misses=" + MISSES.get() + " joins=" + IN_FLIGHT_JOINS.get());
+    }
+
+    private static User copyOf(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User(user.getId(), user.getFullName(), user.getEmail(), user.getPhoneNumber(),
+                user.getGender(), user.getBirthday() != null ? new Date(user.getBirthday().getTime()) : null,
+                user.isOnline());
+        copy.setUri(user.getUri());
+        return copy;
+    }
+
+    private static class CachedUser {
+        final User user;
+        final long cachedAt = System.currentTimeMillis();
+
+        CachedUser(User user) {
+            this.user = user;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - cachedAt > USER_TTL_MILLIS;
+        }
+    }
+}
@@ -186,6 +186,8 @@ public class UserReposImpl extends BaseRepos implements UserRepos {
 
                         User user = response.body();
                         if (user == null) {
+                            // Hoàn tất future để các lời gọi đang chờ (kể cả qua CachingUserRepos) không bị treo
+                            future.completeExceptionally(new IllegalStateException("User not found: " + uid));
                             return;
                         }
 
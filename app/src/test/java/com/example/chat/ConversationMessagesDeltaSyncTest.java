@@ -0,0 +1,135 @@
+package com.example.chat;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.example.chat.message.Message;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tin nhắn từ lần đồng bộ chênh lệch (appendAbsent): chèn đúng vị trí theo thời gian gửi,
+ * và thay thế bản đã có trên thiết bị trước khi có id từ Backend thay vì thêm bản trùng.
+ */
+public class ConversationMessagesDeltaSyncTest {
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void syncedMessageIsInsertedBeforeNewerPendingMessages() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        messages.replace(Arrays.asList(server("m0", "you", 0), server("m1", "me", 1)));
+        messages.append(pending("c5", 5));
+        messages.append(pending("c6", 6));
+
+        // Tin nhắn người kia gửi lúc 3, chỉ nhận được khi đồng bộ lại
+        assertTrue(messages.appendAbsent(Collections.singletonList(server("m3", "you", 3))));
+
+        assertEquals(Arrays.asList("m0", "m1", "m3", "c5", "c6"), keys(messages.getSnapshot()));
+    }
+
+    @Test
+    public void messagesWithoutTimeAreAppended() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        messages.replace(Arrays.asList(server("m0", "you", 0), server("m1", "you", 1)));
+        Message legacy = server("legacy", "you", 0);
+        legacy.setSendingTime("01-05 10:15");
+
+        messages.appendAbsent(Collections.singletonList(legacy));
+
+        assertEquals(Arrays.asList("m0", "m1", "legacy"), keys(messages.getSnapshot()));
+    }
+
+    @Test
+    public void serverCopyReplacesMessageSavedWithLocalId() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        // Nhận qua FCM khi chưa có id, được lưu trên thiết bị với id tạm rồi đọc lại
+        Message local = server(Message.LOCAL_ID_PREFIX + "you_2024-05-01T10:00:02", "you", 2);
+        messages.replace(Arrays.asList(server("m0", "you", 0), local, server("m4", "me", 4)));
+
+        assertTrue(messages.appendAbsent(Collections.singletonList(server("m2", "you", 2))));
+
+        List<Message> snapshot = messages.getSnapshot();
+        assertEquals(Arrays.asList("m0", "m2", "m4"), keys(snapshot));
+    }
+
+    @Test
+    public void serverCopyReplacesFcmMessageWithoutId() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        messages.replace(Collections.singletonList(server("m0", "you", 0)));
+        messages.appendAbsent(Collections.singletonList(server(null, "you", 1)));
+
+        messages.appendAbsent(Collections.singletonList(server("m1", "you", 1)));
+        // Lần đồng bộ sau nhận lại cùng tin nhắn, không thay đổi gì
+        assertFalse(messages.appendAbsent(Collections.singletonList(server("m1", "you", 1))));
+
+        assertEquals(Arrays.asList("m0", "m1"), keys(messages.getSnapshot()));
+    }
+
+    @Test
+    public void differentSendersAtSameTimeAreKeptApart() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        messages.replace(Collections.singletonList(server(null, "you", 1)));
+
+        messages.appendAbsent(Collections.singletonList(server("m1", "me", 1)));
+
+        assertEquals(2, messages.getSnapshot().size());
+        assertNull(messages.getSnapshot().get(0).getId());
+    }
+
+    @Test
+    public void serverCopyReplacesLocalCopyInColumnHead() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        List<Message> history = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            history.add(i == 10 ? server(Message.LOCAL_ID_PREFIX + "you_10", "you", 10) : server("m" + i, "you", i));
+        }
+        messages.replace(new ArrayList<>(history.subList(0, 1)));
+        messages.appendAbsent(history.subList(1, history.size()));
+
+        messages.appendAbsent(Collections.singletonList(server("m10", "you", 10)));
+
+        List<Message> snapshot = messages.getSnapshot();
+        assertEquals(1_200, snapshot.size());
+        assertEquals("m10", snapshot.get(10).getId());
+    }
+
+    private static List<String> keys(List<Message> messages) {
+        List<String> keys = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            keys.add(message.getClientId() != null ? message.getClientId() : message.getId());
+        }
+        return keys;
+    }
+
+    private static Message server(String id, String senderId, int second) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderId(senderId);
+        message.setRecipientId("me".equals(senderId) ? "you" : "me");
+        message.setType(Message.EType.TEXT);
+        message.setVisibility(Message.EVisible.ACTIVE);
+        message.setMessage("message at " + second);
+        message.setSendingTimeMillis(START_MILLIS + second * 1_000L);
+        return message;
+    }
+
+    private static Message pending(String clientId, int second) {
+        Message message = server(null, "me", second);
+        message.setClientId(clientId);
+        message.setDeliveryState(Message.EDeliveryState.PENDING);
+        return message;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.chat;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.example.chat.message.Message;
+import com.example.chat.message.MessageChunks;
+import com.example.chat.message.MessageColumns;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cuộn lên trong một cuộc trò chuyện dài: 1.200 tin nhắn mới nhất (đã có phần dạng cột), sau đó 200 trang
+ * 50 tin nhắn cũ hơn. So sánh ConversationMessages.prepend (thêm một khối) với cách làm trước đây
+ * (ghép trang vào toàn bộ phần dạng cột, MessageColumns.concat). Thời gian chỉ được in ra; kiểm thử khẳng định
+ * mỗi lần prepend giữ nguyên các khối đã có (chỉ khối đầu có thể được gộp), thứ tự tin nhắn đúng
+ * và tin nhắn trong các khối cũ vẫn cập nhật được.
+ */
+public class ConversationMessagesPagingBenchmark {
+    private static final int RECENT = 1_200;
+    private static final int PAGES = 200;
+    private static final int PAGE_SIZE = 50;
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void prependingPagesDoesNotRebuildColumns() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        for (int i = 0; i < RECENT; i++) {
+            messages.append(message(PAGES * PAGE_SIZE + i));
+        }
+
+        long prependNanos = 0;
+        for (int page = PAGES - 1; page >= 0; page--) {
+            List<Message> older = page(page);
+            MessageChunks before = messages.getHead();
+            long start = System.nanoTime();
+            messages.prepend(older);
+            prependNanos += System.nanoTime() - start;
+            assertChunksReused(before, messages.getHead());
+        }
+
+        MessageColumns columns = MessageColumns.of(messages.getSnapshot().subList(PAGES * PAGE_SIZE,
+                PAGES * PAGE_SIZE + RECENT - 200));
+        long concatNanos = 0;
+        for (int page = PAGES - 1; page >= 0; page--) {
+            MessageColumns older = MessageColumns.of(page(page));
+            long start = System.nanoTime();
+            columns = older.concat(columns);
+            concatNanos += System.nanoTime() - start;
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d pages of %d: prepend as chunk %.1f us/page, concat into columns %.1f us/page",
+                PAGES, PAGE_SIZE, prependNanos / 1e3 / PAGES, concatNanos / 1e3 / PAGES));
+
+        List<Message> snapshot = messages.getSnapshot();
+        assertEquals(PAGES * PAGE_SIZE + RECENT, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals("client_" + i, snapshot.get(i).getClientId());
+            assertEquals(START_MILLIS + i * 1_000L, snapshot.get(i).getSendingTimeMillis());
+        }
+        // Các trang nhỏ được gộp vào khối đầu, số khối không tăng theo từng trang
+        assertTrue(messages.getHead().chunkCount() < PAGES / 4);
+    }
+
+    /**
+     * Sau khi thêm một trang vào đầu, có nhiều nhất một khối mới, và mọi khối trừ khối đầu cũ
+     * (có thể đã được gộp với trang mới) vẫn là đúng các đối tượng MessageColumns trước đó.
+     */
+    private static void assertChunksReused(MessageChunks before, MessageChunks after) {
+        int added = after.chunkCount() - before.chunkCount();
+        assertTrue("At most one chunk per page", added == 0 || added == 1);
+        // Khi trang mới thành một khối riêng, khối đầu cũ cũng được giữ nguyên
+        for (int i = added == 1 ? 0 : 1; i < before.chunkCount(); i++) {
+            assertSame(before.chunk(i), after.chunk(i + added));
+        }
+    }
+
+    @Test
+    public void messagesInOlderChunksCanBeUpdated() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        for (int i = 0; i < RECENT; i++) {
+            messages.append(message(PAGES * PAGE_SIZE + i));
+        }
+        for (int page = PAGES - 1; page >= 0; page--) {
+            messages.prepend(page(page));
+        }
+
+        Message confirmed = message(123);
+        confirmed.setId("server_123");
+        messages.reconcile(confirmed);
+        assertTrue(messages.updateDeliveryState("client_4567", Message.EDeliveryState.FAILED));
+
+        List<Message> snapshot = messages.getSnapshot();
+        assertEquals(PAGES * PAGE_SIZE + RECENT, snapshot.size());
+        assertEquals("server_123", snapshot.get(123).getId());
+        assertEquals(Message.EDeliveryState.FAILED, snapshot.get(4567).getDeliveryState());
+        assertEquals(Message.EDeliveryState.SENT, snapshot.get(4568).getDeliveryState());
+    }
+
+    /**
+     * Trang page gồm các tin nhắn [page * PAGE_SIZE, (page + 1) * PAGE_SIZE) theo thứ tự thời gian.
+     */
+    private static List<Message> page(int page) {
+        List<Message> messages = new ArrayList<>(PAGE_SIZE);
+        for (int i = page * PAGE_SIZE; i < (page + 1) * PAGE_SIZE; i++) {
+            messages.add(message(i));
+        }
+        return messages;
+    }
+
+    private static Message message(int index) {
+        Message message = new Message();
+        message.setClientId("client_" + index);
+        message.setSenderId(index % 2 == 0 ? "me" : "you");
+        message.setRecipientId(index % 2 == 0 ? "you" : "me");
+        message.setType(Message.EType.TEXT);
+        message.setVisibility(Message.EVisible.ACTIVE);
+        message.setMessage("message " + index);
+        message.setSendingTimeMillis(START_MILLIS + index * 1_000L);
+        return message;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.chat;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.example.chat.message.Message;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Nhiều luồng (FCM, callback mạng, outbox) cùng ghi vào một ConversationMessages trong khi một luồng khác
+ * liên tục đọc snapshot như RecyclerView: không mất hay lặp tin nhắn, không ConcurrentModificationException,
+ * và mỗi snapshot đã phát không bao giờ bị sửa đổi.
+ */
+public class ConversationMessagesStressTest {
+    private static final int WRITERS = 8;
+    // Tổng số tin nhắn vượt ngưỡng chuyển sang dạng cột, để phần cột cũng bị ghi đồng thời
+    private static final int MESSAGES_PER_WRITER = 500;
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Test
+    public void concurrentWritersNeverLoseOrDuplicateMessages() throws Exception {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        Future<Integer> reader = executor.submit(() -> {
+            start.await();
+            int snapshots = 0;
+            int lastSize = 0;
+            while (writing.get()) {
+                List<Message> snapshot = messages.getSnapshot();
+                int size = snapshot.size();
+                // Duyệt toàn bộ snapshot trong lúc các luồng khác đang ghi
+                for (Message message : snapshot) {
+                    assertNotNull(message);
+                }
+                assertEquals(size, snapshot.size());
+                assertTrue("Snapshot shrank from " + lastSize + " to " + size, size >= lastSize);
+                lastSize = size;
+                snapshots++;
+            }
+            return snapshots;
+        });
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int writerIndex = writer;
+            writers.add(executor.submit(() -> {
+                start.await();
+                write(messages, writerIndex);
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        executor.shutdown();
+
+        List<Message> snapshot = messages.getSnapshot();
+        assertEquals(WRITERS * MESSAGES_PER_WRITER, snapshot.size());
+
+        Map<String, Integer> lastIndexByWriter = new HashMap<>();
+        Map<String, Integer> countByClientId = new HashMap<>();
+        for (Message message : snapshot) {
+            String clientId = message.getClientId();
+            countByClientId.merge(clientId, 1, Integer::sum);
+
+            // Tin nhắn của cùng một luồng giữ đúng thứ tự đã thêm
+            String writer = clientId.substring(0, clientId.indexOf('_'));
+            int index = Integer.parseInt(clientId.substring(clientId.indexOf('_') + 1));
+            Integer last = lastIndexByWriter.put(writer, index);
+            assertTrue(clientId + " out of order", last == null || last < index);
+
+            // Chỉ bản được đối chiếu với phản hồi của Backend mới có id
+            assertEquals(clientId, index % 5 == 0, message.getId() != null);
+            assertEquals(clientId, Message.EDeliveryState.SENT, message.getDeliveryState());
+        }
+        assertEquals(WRITERS * MESSAGES_PER_WRITER, countByClientId.size());
+        assertFalse(countByClientId.containsValue(2));
+    }
+
+    @Test
+    public void publishedSnapshotIsUnmodifiable() {
+        ConversationMessages messages = new ConversationMessages("me_you");
+        messages.append(pending("w0", 0));
+        List<Message> snapshot = messages.getSnapshot();
+        try {
+            snapshot.add(pending("w0", 1));
+            fail("Snapshot must be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // Bản sao đã phát không bị sửa đổi
+        }
+        messages.append(pending("w0", 1));
+        assertEquals(1, snapshot.size());
+        assertEquals(2, messages.getSnapshot().size());
+    }
+
+    /**
+     * Mỗi tin nhắn: hiển thị tạm (PENDING), rồi được xác nhận bằng một trong ba cách
+     * như trong ứng dụng: cập nhật trạng thái, đối chiếu bản Backend trả về, hoặc echo FCM.
+     */
+    private static void write(ConversationMessages messages, int writerIndex) {
+        String writer = "w" + writerIndex;
+        for (int i = 0; i < MESSAGES_PER_WRITER; i++) {
+            Message message = pending(writer, i);
+            messages.append(message);
+            if (i % 5 == 0) {
+                Message confirmed = new Message(message);
+                confirmed.setId("server_" + writer + "_" + i);
+                confirmed.setDeliveryState(Message.EDeliveryState.SENT);
+                messages.reconcile(confirmed);
+            } else if (i % 5 == 1) {
+                Message echo = new Message(message);
+                echo.setDeliveryState(Message.EDeliveryState.SENT);
+                messages.appendAbsent(Collections.singletonList(echo));
+            } else {
+                messages.updateDeliveryState(message.getClientId(), Message.EDeliveryState.SENT);
+            }
+        }
+    }
+
+    private static Message pending(String writer, int index) {
+        Message message = new Message();
+        message.setClientId(writer + "_" + index);
+        message.setSenderId("me");
+        message.setRecipientId("you");
+        message.setType(Message.EType.TEXT);
+        message.setVisibility(Message.EVisible.ACTIVE);
+        message.setMessage(writer + " message " + index);
+        message.setSendingTimeMillis(START_MILLIS + index * 1_000L);
+        message.setDeliveryState(Message.EDeliveryState.PENDING);
+        return message;
+    }
+}
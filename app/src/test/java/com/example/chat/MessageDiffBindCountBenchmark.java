@@ -0,0 +1,184 @@
+package com.example.chat;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.chat.message.Message;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Đếm số dòng ChatAdapter phải bind lại cho các thay đổi thường gặp trên một cuộc trò chuyện 5.000 tin nhắn:
+ * DiffUtil với MessageDiffCallback (ListAdapter) so với notifyDataSetChanged (mọi dòng bị đánh dấu cần bind lại).
+ * Mỗi dòng được chèn hoặc thay đổi được bind một lần; dòng bị xóa hoặc di chuyển không cần bind.
+ */
+public class MessageDiffBindCountBenchmark {
+    private static final int MESSAGE_COUNT = 5_000;
+    private static final int PAGE_SIZE = 30;
+    private static final String ME = "me";
+    private static final String YOU = "you";
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    private static class BindCounter implements ListUpdateCallback {
+        int binds;
+
+        @Override
+        public void onInserted(int position, int count) {
+            binds += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            binds += count;
+        }
+    }
+
+    @Test
+    public void appendingMessageBindsOnlyNewRow() {
+        List<Message> old = conversation(0, MESSAGE_COUNT);
+        List<Message> updated = copyOf(old);
+        updated.add(message(MESSAGE_COUNT));
+
+        assertEquals(1, binds("append one message", old, updated));
+    }
+
+    @Test
+    public void deliveryStateChangeBindsOnlyThatRow() {
+        List<Message> old = conversation(0, MESSAGE_COUNT);
+        old.get(MESSAGE_COUNT - 1).setDeliveryState(Message.EDeliveryState.PENDING);
+        List<Message> updated = copyOf(old);
+        updated.get(MESSAGE_COUNT - 1).setDeliveryState(Message.EDeliveryState.SENT);
+
+        assertEquals(1, binds("delivery state change", old, updated));
+    }
+
+    @Test
+    public void confirmedMessageKeepsItsRowAndRebindsOnce() {
+        List<Message> old = conversation(0, MESSAGE_COUNT);
+        Message pending = message(MESSAGE_COUNT);
+        pending.setId(null);
+        pending.setDeliveryState(Message.EDeliveryState.PENDING);
+        old.add(pending);
+
+        // Backend xác nhận: có id và trạng thái SENT, clientId giữ nguyên
+        List<Message> updated = copyOf(old);
+        Message confirmed = updated.get(MESSAGE_COUNT);
+        confirmed.setId("server_" + MESSAGE_COUNT);
+        confirmed.setDeliveryState(Message.EDeliveryState.SENT);
+
+        assertEquals(1, binds("backend confirms pending message", old, updated));
+    }
+
+    @Test
+    public void uploadedThumbnailRebindsImageRow() {
+        List<Message> old = conversation(0, MESSAGE_COUNT);
+        // Tin nhắn hình ảnh vừa tải lên: ảnh thu nhỏ và kích thước chỉ có sau khi Backend xác nhận
+        List<Message> updated = copyOf(old);
+        Message image = updated.get(MESSAGE_COUNT - 10);
+        image.setThumbnailUrl("https://example.com/thumb_" + (MESSAGE_COUNT - 10) + ".jpg");
+        image.setImageWidth(1080);
+        image.setImageHeight(720);
+
+        assertEquals(1, binds("thumbnail and size arrive", old, updated));
+    }
+
+    @Test
+    public void loadingOlderPageBindsOnlyThatPage() {
+        List<Message> old = conversation(PAGE_SIZE, MESSAGE_COUNT);
+        List<Message> updated = conversation(0, PAGE_SIZE);
+        updated.addAll(copyOf(old));
+
+        assertEquals(PAGE_SIZE, binds("prepend older page", old, updated));
+    }
+
+    @Test
+    public void republishingSameMessagesBindsNothing() {
+        List<Message> old = conversation(0, MESSAGE_COUNT);
+
+        assertEquals(0, binds("republish unchanged snapshot", old, copyOf(old)));
+    }
+
+    /**
+     * Tính diff như ListAdapter, in số dòng bind lại so với notifyDataSetChanged và thời gian tính diff.
+     */
+    private static int binds(String scenario, List<Message> old, List<Message> updated) {
+        long start = System.nanoTime();
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return old.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updated.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return MessageDiffCallback.INSTANCE.areItemsTheSame(old.get(oldItemPosition), updated.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return MessageDiffCallback.INSTANCE.areContentsTheSame(old.get(oldItemPosition), updated.get(newItemPosition));
+            }
+        });
+        long diffMicros = (System.nanoTime() - start) / 1_000;
+
+        BindCounter counter = new BindCounter();
+        result.dispatchUpdatesTo(counter);
+        System.out.println(String.format(Locale.US, "%-34s diff: %5d binds (%6d us)   notifyDataSetChanged: %5d binds",
+                scenario, counter.binds, diffMicros, updated.size()));
+        return counter.binds;
+    }
+
+    private static List<Message> conversation(int from, int to) {
+        List<Message> messages = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            messages.add(message(i));
+        }
+        return messages;
+    }
+
+    /**
+     * Bản sao của từng tin nhắn, như snapshot mới mà ConversationMessages phát sau mỗi thay đổi.
+     */
+    private static List<Message> copyOf(List<Message> messages) {
+        List<Message> copy = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            copy.add(new Message(message));
+        }
+        return copy;
+    }
+
+    private static Message message(int index) {
+        boolean mine = index % 2 == 0;
+        Message message = new Message();
+        message.setId("m" + index);
+        message.setClientId(mine ? "c" + index : null);
+        message.setSenderId(mine ? ME : YOU);
+        message.setRecipientId(mine ? YOU : ME);
+        message.setType(index % 10 == 0 ? Message.EType.IMAGE : Message.EType.TEXT);
+        message.setVisibility(Message.EVisible.ACTIVE);
+        message.setMessage(index % 10 == 0 ? "https://example.com/image_" + index + ".jpg" : "message " + index);
+        message.setSendingTimeMillis(START_MILLIS + index * 1_000L);
+        message.setDeliveryState(Message.EDeliveryState.SENT);
+        return message;
+    }
+}
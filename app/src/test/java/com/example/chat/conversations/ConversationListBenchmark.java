@@ -0,0 +1,158 @@
+package com.example.chat.conversations;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * So sánh ConversationList với cách làm trước đây (ArrayList: duyệt tìm cuộc trò chuyện rồi sắp xếp lại cả danh sách)
+ * trên 10.000 cuộc trò chuyện, mỗi cập nhật là một tin nhắn mới đưa một cuộc trò chuyện ngẫu nhiên lên đầu.
+ * Mỗi lần đo gồm cả bản sao danh sách được phát lên giao diện (ListAdapter cần một danh sách mới), như khi mỗi tin nhắn
+ * được phát riêng; phần so sánh DiffUtil của adapter (O(n), trên luồng nền) không có trong phép đo.
+ * Thời gian được in ra; kiểm thử khẳng định hai cách cho cùng thứ tự.
+ */
+public class ConversationListBenchmark {
+    private static final int CONVERSATIONS = 10_000;
+    private static final int WARMUP_UPDATES = 1_000;
+    private static final int UPDATES = 10_000;
+    private static final String ME = "me";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private static final Comparator<Conversation> NEWEST_FIRST =
+            Comparator.comparing(Conversation::getSendingTimeFormatted, Comparator.reverseOrder());
+
+    @Test
+    public void updatesKeepSameOrderAsFullSort() {
+        List<Conversation> initial = conversations();
+        ConversationList list = new ConversationList();
+        list.replaceAll(initial);
+        List<Conversation> baseline = new ArrayList<>(initial);
+        baseline.sort(NEWEST_FIRST);
+
+        Random random = new Random(42);
+        int minute = CONVERSATIONS;
+        for (int i = 0; i < WARMUP_UPDATES; i++) {
+            String peer = peer(random.nextInt(CONVERSATIONS));
+            LocalDateTime time = START.plusMinutes(++minute);
+            updateList(list, peer, time);
+            updateBaseline(baseline, peer, time);
+        }
+
+        long updateNanos = 0;
+        long listNanos = 0;
+        long baselineNanos = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            String peer = peer(random.nextInt(CONVERSATIONS));
+            LocalDateTime time = START.plusMinutes(++minute);
+
+            long start = System.nanoTime();
+            updateList(list, peer, time);
+            updateNanos += System.nanoTime() - start;
+            List<Conversation> published = list.getSnapshot();
+            listNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            updateBaseline(baseline, peer, time);
+            List<Conversation> baselinePublished = new ArrayList<>(baseline);
+            baselineNanos += System.nanoTime() - start;
+            assertEquals(published.size(), baselinePublished.size());
+
+            // Tin nhắn mới nhất luôn đưa cuộc trò chuyện lên đầu
+            assertEquals(ConversationList.keyOf(ME, peer), ConversationList.keyOf(published.get(0)));
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d conversations, %d updates: ConversationList %.2f us/update (%.2f us without the published copy), "
+                        + "ArrayList + sort %.2f us/update",
+                CONVERSATIONS, UPDATES, listNanos / 1e3 / UPDATES, updateNanos / 1e3 / UPDATES,
+                baselineNanos / 1e3 / UPDATES));
+
+        List<Conversation> snapshot = list.getSnapshot();
+        assertEquals(baseline.size(), snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(ConversationList.keyOf(baseline.get(i)), ConversationList.keyOf(snapshot.get(i)));
+            assertEquals(baseline.get(i).getSendingTimeFormatted(), snapshot.get(i).getSendingTimeFormatted());
+        }
+    }
+
+    @Test
+    public void lookupFindsEveryConversationInEitherDirection() {
+        ConversationList list = new ConversationList();
+        list.replaceAll(conversations());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            Conversation byMe = list.get(ME, peer(i));
+            Conversation byPeer = list.get(peer(i), ME);
+            assertSame(byMe, byPeer);
+            assertEquals("conversation_" + i, byMe.getId());
+        }
+        System.out.println(String.format(Locale.US, "%d lookups: %.2f us/lookup",
+                2 * CONVERSATIONS, (System.nanoTime() - start) / 1e3 / (2 * CONVERSATIONS)));
+    }
+
+    @Test
+    public void olderMessageMovesConversationToItsPosition() {
+        ConversationList list = new ConversationList();
+        list.replaceAll(conversations());
+
+        // Cuộc trò chuyện mới nhất nhận thời gian cũ hơn mọi cuộc trò chuyện khác, chuyển xuống cuối
+        Conversation newest = list.getSnapshot().get(0);
+        assertTrue(list.update(newest.getSenderId(), newest.getRecipientId(),
+                copy -> copy.setSendingTimeFormatted(START.minusMinutes(1))));
+        assertEquals(ConversationList.keyOf(newest), ConversationList.keyOf(list.getSnapshot().get(CONVERSATIONS - 1)));
+    }
+
+    private static void updateList(ConversationList list, String peer, LocalDateTime time) {
+        list.update(ME, peer, copy -> {
+            copy.setLastMessage("message at " + time);
+            copy.setSendingTimeFormatted(time);
+        });
+    }
+
+    /**
+     * Cách làm trước đây: duyệt tìm cuộc trò chuyện của tin nhắn, thay bằng bản sao đã cập nhật rồi sắp xếp lại.
+     */
+    private static void updateBaseline(List<Conversation> conversations, String peer, LocalDateTime time) {
+        for (int i = 0; i < conversations.size(); i++) {
+            Conversation conversation = conversations.get(i);
+            if (ME.equals(conversation.getSenderId()) && peer.equals(conversation.getRecipientId())
+                    || peer.equals(conversation.getSenderId()) && ME.equals(conversation.getRecipientId())) {
+                Conversation copy = new Conversation(conversation);
+                copy.setLastMessage("message at " + time);
+                copy.setSendingTimeFormatted(time);
+                conversations.set(i, copy);
+                break;
+            }
+        }
+        conversations.sort(NEWEST_FIRST);
+    }
+
+    private static List<Conversation> conversations() {
+        List<Conversation> conversations = new ArrayList<>(CONVERSATIONS);
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            Conversation conversation = new Conversation();
+            conversation.setId("conversation_" + i);
+            // Một nửa số cuộc trò chuyện do người kia bắt đầu
+            conversation.setSenderId(i % 2 == 0 ? ME : peer(i));
+            conversation.setRecipientId(i % 2 == 0 ? peer(i) : ME);
+            conversation.setLastMessage("message " + i);
+            conversation.setSendingTimeFormatted(START.plusMinutes(i));
+            conversations.add(conversation);
+        }
+        return conversations;
+    }
+
+    private static String peer(int index) {
+        return "user_" + index;
+    }
+}
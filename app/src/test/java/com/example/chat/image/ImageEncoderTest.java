@@ -0,0 +1,55 @@
+package com.example.chat.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Các phép tính kích thước của ImageEncoder: inSampleSize khi giải mã và kích thước sau khi thu nhỏ.
+ */
+public class ImageEncoderTest {
+    private static final int MAX_SIDE = ImageEncoder.UPLOAD_MAX_SIDE;
+
+    @Test
+    public void smallImageIsNotSubsampledOrUpscaled() {
+        assertEquals(1, ImageEncoder.calculateInSampleSize(640, 480, MAX_SIDE));
+        assertArrayEquals(new int[]{640, 480}, ImageEncoder.calculateTargetSize(640, 480, MAX_SIDE));
+        // Cạnh dài nhất bằng đúng maxSide
+        assertEquals(1, ImageEncoder.calculateInSampleSize(MAX_SIDE, 100, MAX_SIDE));
+        assertArrayEquals(new int[]{MAX_SIDE, 100}, ImageEncoder.calculateTargetSize(MAX_SIDE, 100, MAX_SIDE));
+    }
+
+    @Test
+    public void exactPowerOfTwoSizesUseFullSampleSize() {
+        assertEquals(2, ImageEncoder.calculateInSampleSize(MAX_SIDE * 2, MAX_SIDE * 2, MAX_SIDE));
+        assertEquals(4, ImageEncoder.calculateInSampleSize(MAX_SIDE * 4, MAX_SIDE, MAX_SIDE));
+        assertArrayEquals(new int[]{MAX_SIDE, MAX_SIDE},
+                ImageEncoder.calculateTargetSize(MAX_SIDE * 2, MAX_SIDE * 2, MAX_SIDE));
+    }
+
+    @Test
+    public void sampleSizeNeverDecodesBelowMaxSide() {
+        // 4095 / 2 = 2047 nhỏ hơn maxSide, nên chỉ được giải mã nguyên kích thước rồi thu nhỏ
+        assertEquals(1, ImageEncoder.calculateInSampleSize(MAX_SIDE * 2 - 1, 1000, MAX_SIDE));
+        assertEquals(2, ImageEncoder.calculateInSampleSize(MAX_SIDE * 4 - 1, 1000, MAX_SIDE));
+    }
+
+    @Test
+    public void portraitAndLandscapeUseLongestSide() {
+        assertEquals(ImageEncoder.calculateInSampleSize(4000, 3000, MAX_SIDE),
+                ImageEncoder.calculateInSampleSize(3000, 4000, MAX_SIDE));
+        assertArrayEquals(new int[]{2048, 1536}, ImageEncoder.calculateTargetSize(4000, 3000, MAX_SIDE));
+        assertArrayEquals(new int[]{1536, 2048}, ImageEncoder.calculateTargetSize(3000, 4000, MAX_SIDE));
+    }
+
+    @Test
+    public void targetSizeIsRoundedAndAtLeastOnePixel() {
+        // 1000 * 480 / 1333 = 360.09 và 333 * 480 / 1333 = 119.91
+        assertArrayEquals(new int[]{480, 360}, ImageEncoder.calculateTargetSize(1333, 1000, ImageEncoder.THUMBNAIL_MAX_SIDE));
+        assertArrayEquals(new int[]{480, 120}, ImageEncoder.calculateTargetSize(1333, 333, ImageEncoder.THUMBNAIL_MAX_SIDE));
+        // Ảnh rất dài và hẹp vẫn giữ ít nhất 1 px
+        assertArrayEquals(new int[]{480, 1}, ImageEncoder.calculateTargetSize(10_000, 1, ImageEncoder.THUMBNAIL_MAX_SIDE));
+        assertArrayEquals(new int[]{1, 480}, ImageEncoder.calculateTargetSize(1, 10_000, ImageEncoder.THUMBNAIL_MAX_SIDE));
+    }
+}
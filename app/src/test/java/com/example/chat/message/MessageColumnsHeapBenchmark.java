@@ -0,0 +1,127 @@
+package com.example.chat.message;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * So sánh bộ nhớ heap giữ 10.000 tin nhắn dạng đối tượng (List<Message>) với dạng cột (MessageColumns).
+ * Nội dung và id là chuỗi riêng của từng tin nhắn trong cả hai cách, phần tiết kiệm đến từ đối tượng Message,
+ * các chuỗi lặp lại (tên, ảnh đại diện, id cuộc trò chuyện) được lưu một lần và enum được lưu bằng byte.
+ * Số byte được in ra; kiểm thử khẳng định dạng cột nhỏ hơn và đọc lại đúng từng tin nhắn.
+ */
+public class MessageColumnsHeapBenchmark {
+    private static final int MESSAGES = 10_000;
+    // Giữ nhiều bản để sai số của lần đo heap nhỏ so với kích thước được đo
+    private static final int COPIES = 20;
+    private static final long START_MILLIS = 1_714_557_600_000L;
+
+    @Test
+    public void columnsRetainLessHeapThanMessageObjects() {
+        long objectBytes = retainedBytes(() -> messages());
+        long columnBytes = retainedBytes(() -> MessageColumns.of(messages()));
+
+        System.out.println(String.format(Locale.US,
+                "%d messages: List<Message> %d KB (%d B/message), MessageColumns %d KB (%d B/message)",
+                MESSAGES, objectBytes / 1024, objectBytes / MESSAGES, columnBytes / 1024, columnBytes / MESSAGES));
+        assertTrue("MessageColumns should retain less heap than List<Message>", columnBytes < objectBytes);
+    }
+
+    @Test
+    public void columnsReadBackEveryField() {
+        List<Message> messages = messages();
+        MessageColumns columns = MessageColumns.of(messages);
+        assertEquals(MESSAGES, columns.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            Message expected = messages.get(i);
+            Message actual = columns.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getClientId(), actual.getClientId());
+            assertEquals(expected.getSenderId(), actual.getSenderId());
+            assertEquals(expected.getSenderName(), actual.getSenderName());
+            assertEquals(expected.getSenderImage(), actual.getSenderImage());
+            assertEquals(expected.getRecipientId(), actual.getRecipientId());
+            assertEquals(expected.getConversationId(), actual.getConversationId());
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+            assertEquals(expected.getImageWidth(), actual.getImageWidth());
+            assertEquals(expected.getImageHeight(), actual.getImageHeight());
+            assertEquals(expected.getSendingTimeMillis(), actual.getSendingTimeMillis());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getVisibility(), actual.getVisibility());
+            assertEquals(expected.getDeliveryState(), actual.getDeliveryState());
+        }
+    }
+
+    private interface Factory {
+        Object create();
+    }
+
+    /**
+     * Số byte heap trung bình mà một đối tượng do factory tạo ra giữ lại, đo bằng chênh lệch heap đã dùng sau GC.
+     */
+    private static long retainedBytes(Factory factory) {
+        Object[] retained = new Object[COPIES];
+        long before = usedHeap();
+        for (int i = 0; i < COPIES; i++) {
+            retained[i] = factory.create();
+        }
+        long after = usedHeap();
+        assertEquals(COPIES, countNonNull(retained));
+        return (after - before) / COPIES;
+    }
+
+    private static int countNonNull(Object[] objects) {
+        int count = 0;
+        for (Object object : objects) {
+            if (object != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Message> messages() {
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean mine = i % 2 == 0;
+            Message message = new Message();
+            message.setId("message_" + i);
+            message.setClientId(mine ? "client_" + i : null);
+            message.setSenderId(mine ? "me" : "you");
+            message.setRecipientId(mine ? "you" : "me");
+            // Như khi Gson đọc từ JSON: mỗi tin nhắn có bản chuỗi riêng cho tên, ảnh đại diện và id cuộc trò chuyện
+            message.setSenderName(new String(mine ? "Me" : "You"));
+            message.setSenderImage(new String(mine ? "https://example.com/me.jpg" : "https://example.com/you.jpg"));
+            message.setConversationId(new String("conversation_me_you"));
+            message.setVisibility(Message.EVisible.ACTIVE);
+            if (i % 10 == 0) {
+                message.setType(Message.EType.IMAGE);
+                message.setMessage("https://example.com/image_" + i + ".jpg");
+                message.setThumbnailUrl("https://example.com/thumb_" + i + ".jpg");
+                message.setImageWidth(1080);
+                message.setImageHeight(720);
+            } else {
+                message.setType(Message.EType.TEXT);
+                message.setMessage("message " + i);
+            }
+            message.setSendingTimeMillis(START_MILLIS + i * 1_000L);
+            message.setDeliveryState(Message.EDeliveryState.SENT);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.chat.message.api;
+
+import com.example.chat.message.MessageCursor;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.MessagePage;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tải lịch sử tin nhắn theo con trỏ (sendingTime, id) từ một Backend giả chạy trên MockWebServer.
+ */
+public class MessageApiClientPagingTest {
+    private static final String SENDER = "me";
+    private static final String RECIPIENT = "you";
+    private static final int MESSAGE_COUNT = 75;
+    private static final int PAGE_SIZE = 20;
+
+    // Mới nhất trước, cùng thời gian gửi thì id lớn hơn trước
+    private static final Comparator<MessageDTO> NEWEST_FIRST = Comparator
+            .comparing(MessageDTO::getSendingTime).thenComparing(MessageDTO::getId).reversed();
+
+    private final Gson gson = new Gson();
+    private final List<MessageDTO> history = new ArrayList<>();
+    private MockWebServer server;
+    private MessageApiClient api;
+
+    @Before
+    public void setUp() throws Exception {
+        // Ba tin nhắn liên tiếp có cùng thời gian gửi, để kiểm tra con trỏ phân biệt bằng id
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            MessageDTO message = new MessageDTO();
+            message.setId(String.format("m%03d", i));
+            message.setSenderId(i % 2 == 0 ? SENDER : RECIPIENT);
+            message.setRecipientId(i % 2 == 0 ? RECIPIENT : SENDER);
+            message.setMessage("message " + i);
+            message.setSendingTime(String.format("2024-05-01T10:%02d:00", i / 3));
+            history.add(message);
+        }
+        history.sort(NEWEST_FIRST);
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return page(request.getRequestUrl());
+            }
+        });
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(MessageApiClient.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void pagesThroughHistoryWithoutGapsOrDuplicates() throws Exception {
+        List<String> loadedIds = new ArrayList<>();
+        MessageCursor cursor = null;
+        int pages = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            Response<MessagePage> response = api.getMessagePage(SENDER, RECIPIENT,
+                    cursor != null ? cursor.getSendingTime() : null, cursor != null ? cursor.getId() : null,
+                    PAGE_SIZE).execute();
+            assertTrue(response.isSuccessful());
+            MessagePage page = response.body();
+            for (MessageDTO message : page.getMessages()) {
+                loadedIds.add(message.getId());
+            }
+            cursor = page.getNextCursor();
+            hasMore = page.isHasMore();
+            pages++;
+        }
+
+        List<String> expectedIds = new ArrayList<>();
+        for (MessageDTO message : history) {
+            expectedIds.add(message.getId());
+        }
+        assertEquals(expectedIds, loadedIds);
+        assertEquals((MESSAGE_COUNT + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+    }
+
+    @Test
+    public void firstPageSendsNoCursorAndNextPageSendsLastMessage() throws Exception {
+        MessagePage first = api.getMessagePage(SENDER, RECIPIENT, null, null, PAGE_SIZE).execute().body();
+        HttpUrl firstUrl = server.takeRequest().getRequestUrl();
+        assertEquals("/api/v1/messages/fetch-conversation-messages", firstUrl.encodedPath());
+        assertEquals(SENDER, firstUrl.queryParameter("senderId"));
+        assertEquals(RECIPIENT, firstUrl.queryParameter("recipientId"));
+        assertEquals(String.valueOf(PAGE_SIZE), firstUrl.queryParameter("limit"));
+        assertNull(firstUrl.queryParameter("beforeTime"));
+        assertNull(firstUrl.queryParameter("beforeId"));
+
+        MessageDTO oldest = first.getMessages().get(first.getMessages().size() - 1);
+        MessageCursor cursor = first.getNextCursor();
+        api.getMessagePage(SENDER, RECIPIENT, cursor.getSendingTime(), cursor.getId(), PAGE_SIZE).execute();
+        HttpUrl nextUrl = server.takeRequest().getRequestUrl();
+        assertEquals(oldest.getSendingTime(), nextUrl.queryParameter("beforeTime"));
+        assertEquals(oldest.getId(), nextUrl.queryParameter("beforeId"));
+    }
+
+    @Test
+    public void emptyPageHasNoNextCursor() throws Exception {
+        MessageDTO oldest = history.get(history.size() - 1);
+        MessagePage page = api.getMessagePage(SENDER, RECIPIENT, oldest.getSendingTime(), oldest.getId(), PAGE_SIZE)
+                .execute().body();
+        assertTrue(page.getMessages().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Trả về các tin nhắn trước con trỏ: sendingTime nhỏ hơn, hoặc bằng nhau nhưng id nhỏ hơn.
+     */
+    private MockResponse page(HttpUrl url) {
+        String beforeTime = url.queryParameter("beforeTime");
+        String beforeId = url.queryParameter("beforeId");
+        int limit = Integer.parseInt(url.queryParameter("limit"));
+
+        List<MessageDTO> older = new ArrayList<>();
+        for (MessageDTO message : history) {
+            int byTime = beforeTime == null ? -1 : message.getSendingTime().compareTo(beforeTime);
+            if (beforeTime == null || byTime < 0 || (byTime == 0 && message.getId().compareTo(beforeId) < 0)) {
+                older.add(message);
+            }
+        }
+        MessagePage page = new MessagePage();
+        page.setMessages(new ArrayList<>(older.subList(0, Math.min(limit, older.size()))));
+        page.setHasMore(older.size() > limit);
+        return new MockResponse().setBody(gson.toJson(page));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.chat.message.outbox;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OutboxStore trong bộ nhớ cho kiểm thử, cùng quy ước với SqliteOutboxStore:
+ * mục được xác định bởi (id, createdAt), pendingHeads trả về mục PENDING cũ nhất của mỗi cuộc trò chuyện.
+ */
+class InMemoryOutboxStore implements OutboxStore {
+    private static final Comparator<OutboxEntry> BY_CREATED_AT =
+            Comparator.comparingLong(OutboxEntry::getCreatedAt).thenComparing(OutboxEntry::getId);
+
+    private final Map<String, OutboxEntry> entries = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void put(OutboxEntry entry) {
+        entries.put(entry.getId(), entry);
+    }
+
+    @Override
+    public synchronized List<OutboxEntry> pendingHeads(int limit) {
+        List<OutboxEntry> heads = new ArrayList<>();
+        Set<String> conversations = new HashSet<>();
+        for (OutboxEntry entry : sorted()) {
+            if (heads.size() >= limit) {
+                break;
+            }
+            if (entry.getState() == OutboxEntry.EState.PENDING && conversations.add(entry.getConversationKey())) {
+                heads.add(entry);
+            }
+        }
+        return heads;
+    }
+
+    @Override
+    public synchronized long nextAttemptAfter(long now) {
+        long next = Long.MAX_VALUE;
+        for (OutboxEntry entry : entries.values()) {
+            if (entry.getState() == OutboxEntry.EState.PENDING && entry.getNextAttemptAt() > now) {
+                next = Math.min(next, entry.getNextAttemptAt());
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public synchronized boolean delete(OutboxEntry entry) {
+        if (!isCurrent(entry)) {
+            return false;
+        }
+        entries.remove(entry.getId());
+        return true;
+    }
+
+    @Override
+    public synchronized boolean scheduleRetry(OutboxEntry entry, int attempts, long nextAttemptAt) {
+        if (!isCurrent(entry)) {
+            return false;
+        }
+        put(copy(entries.get(entry.getId()), entry.getState(), attempts, nextAttemptAt));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean markFailed(OutboxEntry entry) {
+        if (!isCurrent(entry)) {
+            return false;
+        }
+        OutboxEntry current = entries.get(entry.getId());
+        put(copy(current, OutboxEntry.EState.FAILED, current.getAttempts(), current.getNextAttemptAt()));
+        return true;
+    }
+
+    @Override
+    public synchronized void resetBackoff() {
+        for (OutboxEntry entry : new ArrayList<>(entries.values())) {
+            if (entry.getState() == OutboxEntry.EState.PENDING) {
+                put(copy(entry, entry.getState(), entry.getAttempts(), 0L));
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<OutboxEntry> messageEntries(String conversationKey) {
+        List<OutboxEntry> result = new ArrayList<>();
+        for (OutboxEntry entry : sorted()) {
+            if (entry.getKind() == OutboxEntry.EKind.MESSAGE && conversationKey.equals(entry.getConversationKey())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    synchronized List<OutboxEntry> all() {
+        return sorted();
+    }
+
+    private List<OutboxEntry> sorted() {
+        List<OutboxEntry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(BY_CREATED_AT);
+        return sorted;
+    }
+
+    private boolean isCurrent(OutboxEntry entry) {
+        OutboxEntry current = entries.get(entry.getId());
+        return current != null && current.getCreatedAt() == entry.getCreatedAt();
+    }
+
+    private static OutboxEntry copy(OutboxEntry entry, OutboxEntry.EState state, int attempts, long nextAttemptAt) {
+        return new OutboxEntry(entry.getId(), entry.getKind(), entry.getConversationKey(), entry.getPayload(),
+                state, attempts, nextAttemptAt, entry.getCreatedAt());
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.chat.message.outbox;
+
+import com.example.chat.Utils;
+import com.example.chat.conversations.api.ConversationApiClient;
+import com.example.chat.message.MessageCursor;
+import com.example.chat.message.MessageDTO;
+import com.example.chat.message.SendMessageRequest;
+import com.example.chat.message.SendMessageResponse;
+import com.example.chat.message.api.FirebaseApiClient;
+import com.example.chat.message.api.MessageApiClient;
+import com.example.chat.message.repos.LocalMessageRepos;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Chạy MessageOutbox với Backend giả (MockWebServer) có lỗi được cài sẵn:
+ * HTTP 503/429, mất kết nối sau khi Backend đã lưu tin nhắn, từ chối yêu cầu, và trả lời chậm.
+ * FCM cũng được gửi tới MockWebServer này (đường dẫn /send).
+ */
+public class MessageOutboxFaultInjectionTest {
+    private static final String ME = "me";
+    private static final long TIMEOUT_MILLIS = 20_000L;
+    private static final long BASE_BACKOFF_MILLIS = 5L;
+
+    private final Gson gson = new Gson();
+    private MockWebServer server;
+    private Backend backend;
+    private InMemoryOutboxStore store;
+    private MessageOutbox outbox;
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new Backend();
+        server = new MockWebServer();
+        server.setDispatcher(backend);
+        server.start();
+
+        // Gson không đọc được trường LocalDateTime của Conversation bằng phản chiếu trên JVM 17 (trên Android thì được)
+        Gson apiGson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, (JsonDeserializer<LocalDateTime>)
+                        (json, type, context) -> LocalDateTime.parse(json.getAsString()))
+                .create();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient.Builder().readTimeout(5, TimeUnit.SECONDS).build())
+                .addConverterFactory(GsonConverterFactory.create(apiGson))
+                .build();
+        Retrofit fcmRetrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(ScalarsConverterFactory.create())
+                .build();
+        store = new InMemoryOutboxStore();
+        outbox = new MessageOutbox(store, new NoOpLocalMessageRepos(),
+                () -> retrofit.create(MessageApiClient.class), () -> retrofit.create(ConversationApiClient.class),
+                () -> fcmRetrofit.create(FirebaseApiClient.class), BASE_BACKOFF_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        outbox.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversEveryMessageOnceAndInOrderDespiteFaults() throws Exception {
+        String[] recipients = {"a", "b", "c"};
+        int messagesPerConversation = 20;
+        RecordingListener listener = new RecordingListener();
+        Map<String, List<String>> sent = new HashMap<>();
+        for (String recipient : recipients) {
+            outbox.addListener(Utils.getConversationKey(ME, recipient), listener);
+            sent.put(Utils.getConversationKey(ME, recipient), new ArrayList<>());
+        }
+
+        for (int i = 0; i < messagesPerConversation; i++) {
+            for (String recipient : recipients) {
+                String clientId = recipient + "_" + i;
+                // 0 đến 3 lần lỗi liên tiếp trước khi thành công
+                backend.failFirstAttempts(clientId, i % 4);
+                sent.get(Utils.getConversationKey(ME, recipient)).add(clientId);
+                outbox.enqueueMessage(request(clientId, recipient));
+            }
+        }
+
+        int total = recipients.length * messagesPerConversation;
+        await(() -> listener.delivered.size() == total && store.all().isEmpty());
+
+        for (Map.Entry<String, List<String>> conversation : sent.entrySet()) {
+            assertEquals(conversation.getValue(), backend.accepted(conversation.getKey()));
+            assertInOrder(conversation.getValue(), backend.received(conversation.getKey()));
+        }
+        for (AtomicInteger count : listener.delivered.values()) {
+            assertEquals(1, count.get());
+        }
+        assertTrue(listener.failed.isEmpty());
+    }
+
+    @Test
+    public void albumImagesArriveInSelectionOrderWhenFirstImageRetries() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        String conversationKey = Utils.getConversationKey(ME, "a");
+        outbox.addListener(conversationKey, listener);
+        List<String> album = Arrays.asList("image_0", "image_1", "image_2", "image_3", "image_4");
+        // Ảnh đầu tiên gặp lỗi mạng hai lần và phải chờ thử lại trong khi các ảnh sau đã được ghi vào outbox
+        backend.failFirstAttempts("image_0", 2);
+
+        for (String clientId : album) {
+            outbox.enqueueMessage(request(clientId, "a"));
+        }
+
+        await(() -> listener.delivered.size() == album.size());
+        assertEquals(album, backend.accepted(conversationKey));
+        assertInOrder(album, backend.received(conversationKey));
+    }
+
+    @Test
+    public void conversationUpdateReplacedWhileSendingIsStillSent() throws Exception {
+        backend.holdFirstConversationUpdate();
+        outbox.enqueueConversationUpdate(message(null, "a", "first"));
+        assertTrue(backend.conversationUpdateReceived.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        outbox.enqueueConversationUpdate(message(null, "a", "second"));
+        await(() -> store.all().size() == 1 && store.all().get(0).getPayload().contains("second"));
+        backend.releaseConversationUpdate.countDown();
+
+        await(() -> store.all().isEmpty());
+        assertEquals(Arrays.asList("first", "second"), backend.conversationUpdates());
+    }
+
+    @Test
+    public void rejectedMessageFailsWithoutBlockingLaterMessages() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        String conversationKey = Utils.getConversationKey(ME, "a");
+        outbox.addListener(conversationKey, listener);
+        backend.reject("bad");
+
+        outbox.enqueueMessage(request("bad", "a"));
+        outbox.enqueueMessage(request("good", "a"));
+
+        await(() -> listener.failed.contains("bad") && listener.delivered.containsKey("good"));
+        List<OutboxEntry> remaining = outbox.getMessageEntries(ME, "a").get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, remaining.size());
+        assertEquals("bad", remaining.get(0).getId());
+        assertEquals(OutboxEntry.EState.FAILED, remaining.get(0).getState());
+    }
+
+    @Test
+    public void legacyBackendGetsConversationAndFcmFollowUpsWithoutOpenChat() throws Exception {
+        backend.withoutDeliverMessage();
+        // Không có listener: màn hình chat đã đóng, hoặc outbox tiếp tục gửi sau khi tiến trình khởi động lại
+        List<String> clientIds = Arrays.asList("legacy_0", "legacy_1", "legacy_2");
+        for (String clientId : clientIds) {
+            outbox.enqueueMessage(new SendMessageRequest(message(clientId, "a", "hello " + clientId), null,
+                    "token_a", ME, "summary " + clientId));
+        }
+
+        await(() -> store.all().isEmpty() && backend.pushes().size() == 2 * clientIds.size());
+
+        assertEquals(clientIds, backend.accepted(Utils.getConversationKey(ME, "a")));
+        // 404 được ghi nhớ: chỉ tin nhắn đầu tiên thử deliver-message
+        assertEquals(1, backend.deliverRequests());
+        assertEquals(Collections.singletonList("summary legacy_0"), backend.conversationAdds());
+        assertEquals("summary legacy_2", backend.conversationUpdates().get(backend.conversationUpdates().size() - 1));
+        assertEquals(Arrays.asList(
+                "chat:server_legacy_0", "notify:summary legacy_0",
+                "chat:server_legacy_1", "notify:summary legacy_1",
+                "chat:server_legacy_2", "notify:summary legacy_2"), backend.pushes());
+    }
+
+    /**
+     * Mọi yêu cầu (kể cả thử lại) của một tin nhắn phải đến Backend trước yêu cầu đầu tiên của tin nhắn sau nó.
+     */
+    private static void assertInOrder(List<String> sent, List<String> received) {
+        int position = 0;
+        for (String clientId : received) {
+            int index = sent.indexOf(clientId);
+            assertTrue(clientId + " was sent before an earlier message finished", index >= position);
+            position = index;
+        }
+    }
+
+    private SendMessageRequest request(String clientId, String recipient) {
+        return new SendMessageRequest(message(clientId, recipient, "hello " + clientId), null, null, ME, null);
+    }
+
+    private static MessageDTO message(String clientId, String recipient, String content) {
+        MessageDTO message = new MessageDTO();
+        message.setClientId(clientId);
+        message.setSenderId(ME);
+        message.setRecipientId(recipient);
+        message.setMessage(content);
+        message.setSendingTime("2024-05-01T10:15:30");
+        return message;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingListener implements MessageOutbox.Listener {
+        final Map<String, AtomicInteger> delivered = new ConcurrentHashMap<>();
+        final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void onMessageDelivered(String clientId, SendMessageResponse response) {
+            delivered.computeIfAbsent(clientId, key -> new AtomicInteger()).incrementAndGet();
+        }
+
+        @Override
+        public void onMessageFailed(String clientId) {
+            failed.add(clientId);
+        }
+    }
+
+    private static class NoOpLocalMessageRepos implements LocalMessageRepos {
+        @Override
+        public CompletableFuture<List<MessageDTO>> getMessages(String senderUid, String recipientUid, MessageCursor before, int limit) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        @Override
+        public CompletableFuture<Void> saveMessages(List<MessageDTO> messages) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<String> getLastSyncTime(String senderUid, String recipientUid) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> setLastSyncTime(String senderUid, String recipientUid, String lastSyncTime) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Backend giả: lưu mỗi clientId một lần (như Backend thật) và trả lỗi theo kịch bản của từng tin nhắn.
+     * Lỗi thứ n của một tin nhắn lần lượt là HTTP 503, mất kết nối sau khi đã lưu tin nhắn, HTTP 429.
+     */
+    private class Backend extends Dispatcher {
+        final CountDownLatch conversationUpdateReceived = new CountDownLatch(1);
+        final CountDownLatch releaseConversationUpdate = new CountDownLatch(1);
+
+        private final Map<String, Integer> faults = new HashMap<>();
+        private final Map<String, Integer> attempts = new HashMap<>();
+        private final Set<String> rejected = new HashSet<>();
+        private final Set<String> saved = new HashSet<>();
+        private final Map<String, List<String>> accepted = new HashMap<>();
+        private final Map<String, List<String>> received = new HashMap<>();
+        private final List<String> conversationUpdates = new ArrayList<>();
+        private final List<String> conversationAdds = new ArrayList<>();
+        private final List<String> pushes = new ArrayList<>();
+        private boolean holdConversationUpdate;
+        private boolean withoutDeliverMessage;
+        private int deliverRequests;
+
+        synchronized void failFirstAttempts(String clientId, int count) {
+            faults.put(clientId, count);
+        }
+
+        synchronized void reject(String clientId) {
+            rejected.add(clientId);
+        }
+
+        synchronized void withoutDeliverMessage() {
+            withoutDeliverMessage = true;
+        }
+
+        synchronized int deliverRequests() {
+            return deliverRequests;
+        }
+
+        synchronized List<String> conversationAdds() {
+            return new ArrayList<>(conversationAdds);
+        }
+
+        synchronized List<String> pushes() {
+            return new ArrayList<>(pushes);
+        }
+
+        synchronized void holdFirstConversationUpdate() {
+            holdConversationUpdate = true;
+        }
+
+        synchronized List<String> accepted(String conversationKey) {
+            return new ArrayList<>(accepted.getOrDefault(conversationKey, Collections.emptyList()));
+        }
+
+        synchronized List<String> received(String conversationKey) {
+            return new ArrayList<>(received.getOrDefault(conversationKey, Collections.emptyList()));
+        }
+
+        synchronized List<String> conversationUpdates() {
+            return new ArrayList<>(conversationUpdates);
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            if (path.startsWith("/api/v1/messages/deliver-message")) {
+                synchronized (this) {
+                    deliverRequests++;
+                    if (withoutDeliverMessage) {
+                        return new MockResponse().setResponseCode(404);
+                    }
+                }
+                return deliver(gson.fromJson(request.getBody().readUtf8(), SendMessageRequest.class));
+            }
+            if (path.startsWith("/api/v1/messages/send-message")) {
+                SendMessageRequest legacy = new SendMessageRequest();
+                legacy.setMessage(gson.fromJson(request.getBody().readUtf8(), MessageDTO.class));
+                MockResponse response = deliver(legacy);
+                SendMessageResponse body = gson.fromJson(response.getBody().readUtf8(), SendMessageResponse.class);
+                return new MockResponse().setBody(gson.toJson(body.getMessage()));
+            }
+            if (path.startsWith("/api/v1/conversations/update-conversation")) {
+                return updateConversation(gson.fromJson(request.getBody().readUtf8(), JsonObject.class));
+            }
+            if (path.startsWith("/api/v1/conversations/add-new-conversation")) {
+                synchronized (this) {
+                    conversationAdds.add(gson.fromJson(request.getBody().readUtf8(), JsonObject.class).get("message").getAsString());
+                }
+                return new MockResponse().setBody("{}");
+            }
+            if (path.equals("/send")) {
+                return push(gson.fromJson(request.getBody().readUtf8(), JsonObject.class));
+            }
+            return new MockResponse().setResponseCode(404);
+        }
+
+        private synchronized MockResponse push(JsonObject body) {
+            JsonObject data = body.getAsJsonObject("data");
+            if (body.has("notification")) {
+                pushes.add(data.get("topic").getAsString() + ":" + body.getAsJsonObject("notification").get("body").getAsString());
+            } else {
+                pushes.add(data.get("topic").getAsString() + ":" + data.get("messageId").getAsString());
+            }
+            return new MockResponse().setBody("{\"success\":1,\"failure\":0,\"results\":[{}]}");
+        }
+
+        private synchronized MockResponse deliver(SendMessageRequest request) {
+            MessageDTO message = request.getMessage();
+            String clientId = message.getClientId();
+            String conversationKey = Utils.getConversationKey(message.getSenderId(), message.getRecipientId());
+            received.computeIfAbsent(conversationKey, key -> new ArrayList<>()).add(clientId);
+
+            if (rejected.contains(clientId)) {
+                return new MockResponse().setResponseCode(400);
+            }
+            int attempt = attempts.merge(clientId, 1, Integer::sum) - 1;
+            boolean fault = attempt < faults.getOrDefault(clientId, 0);
+            if (fault && attempt % 3 == 0) {
+                return new MockResponse().setResponseCode(503);
+            }
+            if (fault && attempt % 3 == 2) {
+                return new MockResponse().setResponseCode(429);
+            }
+            if (saved.add(clientId)) {
+                accepted.computeIfAbsent(conversationKey, key -> new ArrayList<>()).add(clientId);
+            }
+            if (fault) {
+                // Tin nhắn đã được lưu nhưng thiết bị không nhận được phản hồi
+                return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+            }
+            message.setId("server_" + clientId);
+            SendMessageResponse response = new SendMessageResponse();
+            response.setMessage(message);
+            response.setConversationId("conversation_" + conversationKey);
+            return new MockResponse().setBody(gson.toJson(response));
+        }
+
+        private MockResponse updateConversation(JsonObject message) throws InterruptedException {
+            boolean hold;
+            synchronized (this) {
+                conversationUpdates.add(message.get("message").getAsString());
+                hold = holdConversationUpdate;
+                holdConversationUpdate = false;
+            }
+            if (hold) {
+                conversationUpdateReceived.countDown();
+                releaseConversationUpdate.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return new MockResponse().setBody("{}");
+        }
+    }
+}
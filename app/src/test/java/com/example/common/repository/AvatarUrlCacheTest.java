@@ -0,0 +1,56 @@
+package com.example.common.repository;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Kiểm tra kết quả tải avatar bắt đầu trước khi người dùng tải lên avatar mới không được lưu đệm.
+ * AvatarUrlCache là singleton (chỉ trong bộ nhớ khi chưa init) nên mỗi kiểm thử dùng userId riêng.
+ */
+public class AvatarUrlCacheTest {
+
+    @Test
+    public void downloadFinishingAfterUploadIsNotCached() {
+        AvatarUrlCache cache = AvatarUrlCache.getIns();
+        long generation = cache.getGeneration("user_upload");
+
+        // uploadAvatar hoàn tất trong lúc downloadAvatar đang chờ Firebase Storage
+        cache.invalidate("user_upload");
+        cache.putAvatarUrl("user_upload", "https://example.com/old.jpg", generation);
+
+        assertNull(cache.get("user_upload"));
+    }
+
+    @Test
+    public void defaultMarkerFromStaleDownloadIsNotCached() {
+        AvatarUrlCache cache = AvatarUrlCache.getIns();
+        long generation = cache.getGeneration("user_first_avatar");
+
+        cache.invalidate("user_first_avatar");
+        cache.putUsesDefault("user_first_avatar", generation);
+
+        assertNull(cache.get("user_first_avatar"));
+    }
+
+    @Test
+    public void downloadStartedAfterUploadIsCached() {
+        AvatarUrlCache cache = AvatarUrlCache.getIns();
+        cache.invalidate("user_fresh");
+        long generation = cache.getGeneration("user_fresh");
+
+        cache.putAvatarUrl("user_fresh", "https://example.com/new.jpg", generation);
+
+        assertEquals("https://example.com/new.jpg", cache.get("user_fresh").getUrl());
+    }
+
+    @Test
+    public void usesDefaultMarkerIsCachedWhenCurrent() {
+        AvatarUrlCache cache = AvatarUrlCache.getIns();
+        cache.putUsesDefault("user_default", cache.getGeneration("user_default"));
+
+        assertTrue(cache.get("user_default").usesDefault());
+    }
+}
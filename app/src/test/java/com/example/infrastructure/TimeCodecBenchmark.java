@@ -0,0 +1,99 @@
+package com.example.infrastructure;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * So sánh TimeCodec với cách làm trước đây trên 100.000 thời gian gửi tin nhắn:
+ * LocalDateTime.parse cho chuỗi ISO và DateTimeFormatter "dd-MM HH:mm" cho chuỗi hiển thị.
+ * Thời gian được in ra; kiểm thử khẳng định hai cách cho cùng kết quả.
+ */
+public class TimeCodecBenchmark {
+    private static final int TIMES = 100_000;
+    private static final int ROUNDS = 5;
+
+    private static final DateTimeFormatter MESSAGE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern(TimeCodec.MESSAGE_TIME_PATTERN);
+
+    @Test
+    public void parseIsoAgainstLocalDateTimeParse() {
+        String[] isos = isoTimes();
+        long[] expected = new long[TIMES];
+        long[] actual = new long[TIMES];
+
+        long parseNanos = Long.MAX_VALUE;
+        long codecNanos = Long.MAX_VALUE;
+        // Vòng đầu tiên là khởi động, lấy thời gian tốt nhất của các vòng
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                expected[i] = TimeCodec.fromLocalDateTime(LocalDateTime.parse(isos[i]));
+            }
+            parseNanos = Math.min(parseNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                actual[i] = TimeCodec.parseIso(isos[i]);
+            }
+            codecNanos = Math.min(codecNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d ISO times: LocalDateTime.parse %.1f ns/parse, TimeCodec.parseIso %.1f ns/parse",
+                TIMES, (double) parseNanos / TIMES, (double) codecNanos / TIMES));
+        for (int i = 0; i < TIMES; i++) {
+            assertEquals(isos[i], expected[i], actual[i]);
+        }
+    }
+
+    @Test
+    public void formatMessageTimeAgainstDateTimeFormatter() {
+        String[] isos = isoTimes();
+        LocalDateTime[] dateTimes = new LocalDateTime[TIMES];
+        long[] millis = new long[TIMES];
+        for (int i = 0; i < TIMES; i++) {
+            dateTimes[i] = LocalDateTime.parse(isos[i]);
+            millis[i] = TimeCodec.parseIso(isos[i]);
+        }
+        String[] expected = new String[TIMES];
+        String[] actual = new String[TIMES];
+
+        long formatterNanos = Long.MAX_VALUE;
+        long codecNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                expected[i] = MESSAGE_TIME_FORMATTER.format(dateTimes[i]);
+            }
+            formatterNanos = Math.min(formatterNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                actual[i] = TimeCodec.formatMessageTime(millis[i]);
+            }
+            codecNanos = Math.min(codecNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d message times: DateTimeFormatter %.1f ns/format, TimeCodec.formatMessageTime %.1f ns/format",
+                TIMES, (double) formatterNanos / TIMES, (double) codecNanos / TIMES));
+        for (int i = 0; i < TIMES; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+    }
+
+    private static String[] isoTimes() {
+        Random random = new Random(42);
+        String[] isos = new String[TIMES];
+        for (int i = 0; i < TIMES; i++) {
+            isos[i] = TimeCodecTest.randomDateTime(random).toString();
+        }
+        return isos;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.infrastructure;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Kiểm tra TimeCodec cho cùng kết quả với java.time trên các chuỗi thời gian tin nhắn.
+ */
+public class TimeCodecTest {
+    private static final DateTimeFormatter MESSAGE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern(TimeCodec.MESSAGE_TIME_PATTERN);
+
+    @Test
+    public void parseIsoMatchesLocalDateTimeParse() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime dateTime = randomDateTime(random);
+            String iso = dateTime.toString();
+            assertEquals(iso, TimeCodec.fromLocalDateTime(LocalDateTime.parse(iso)), TimeCodec.parseIso(iso));
+        }
+    }
+
+    @Test
+    public void parseIsoAcceptsEveryPrecisionOfLocalDateTimeToString() {
+        assertEquals(TimeCodec.fromLocalDateTime(LocalDateTime.of(2024, 2, 29, 10, 15)),
+                TimeCodec.parseIso("2024-02-29T10:15"));
+        assertEquals(TimeCodec.fromLocalDateTime(LocalDateTime.of(2024, 2, 29, 10, 15, 30)),
+                TimeCodec.parseIso("2024-02-29T10:15:30"));
+        assertEquals(TimeCodec.fromLocalDateTime(LocalDateTime.of(2024, 2, 29, 10, 15, 30, 120_000_000)),
+                TimeCodec.parseIso("2024-02-29T10:15:30.12"));
+        assertEquals(TimeCodec.fromLocalDateTime(LocalDateTime.of(2024, 2, 29, 10, 15, 30, 123_456_789)),
+                TimeCodec.parseIso("2024-02-29T10:15:30.123456789"));
+    }
+
+    @Test
+    public void parseIsoRejectsInvalidText() {
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso(null));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso(""));
+        // Chuỗi đã định dạng để hiển thị của phiên bản cũ
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("01-05 10:15"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2023-02-29T10:15"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-13-01T10:15"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-05-01T24:00"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-05-01T10:15:3"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-05-01T10:15:30."));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-05-01T10:15:30.1234567890"));
+        assertEquals(TimeCodec.UNKNOWN, TimeCodec.parseIso("2024-05-01T1a:15"));
+    }
+
+    @Test
+    public void formatMessageTimeMatchesDateTimeFormatter() {
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime dateTime = randomDateTime(random);
+            assertEquals(MESSAGE_TIME_FORMATTER.format(dateTime),
+                    TimeCodec.formatMessageTime(TimeCodec.fromLocalDateTime(dateTime)));
+        }
+        assertNull(TimeCodec.formatMessageTime(TimeCodec.UNKNOWN));
+    }
+
+    @Test
+    public void toIsoRoundTripsThroughParseIso() {
+        Random random = new Random(13);
+        for (int i = 0; i < 10_000; i++) {
+            long millis = TimeCodec.fromLocalDateTime(randomDateTime(random));
+            assertEquals(millis, TimeCodec.parseIso(TimeCodec.toIso(millis)));
+            assertEquals(millis, TimeCodec.fromLocalDateTime(TimeCodec.toLocalDateTime(millis)));
+        }
+        assertNull(TimeCodec.toIso(TimeCodec.UNKNOWN));
+    }
+
+    /**
+     * Thời gian ngẫu nhiên từ 1970 đến 2100, độ chính xác mili giây như thời gian gửi tin nhắn.
+     */
+    static LocalDateTime randomDateTime(Random random) {
+        LocalDateTime dateTime = LocalDateTime.of(1970 + random.nextInt(130), 1 + random.nextInt(12), 1,
+                random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1_000) * 1_000_000);
+        return dateTime.plusDays(random.nextInt(dateTime.toLocalDate().lengthOfMonth()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.infrastructure.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import javax.net.ServerSocketFactory;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Đo thông lượng và bộ nhớ cấp phát trên luồng gọi khi gửi nhiều yêu cầu tới MockWebServer:
+ * OkHttpClient dùng chung của HttpClientProvider so với tạo OkHttpClient mới cho mỗi yêu cầu (cách làm trước đây).
+ * Kết quả được in ra; kiểm thử chỉ khẳng định những gì không phụ thuộc vào máy chạy.
+ */
+public class HttpClientProviderBenchmark {
+    private static final int WARMUP_REQUESTS = 100;
+    private static final int REQUESTS = 500;
+
+    private static final String BODY;
+
+    static {
+        char[] padding = new char[1024];
+        Arrays.fill(padding, 'x');
+        BODY = "{\"data\":\"" + new String(padding) + "\"}";
+    }
+
+    private MockWebServer server;
+
+    private static class Result {
+        final double requestsPerSecond;
+        final long allocatedBytesPerRequest;
+        final int connections;
+
+        Result(double requestsPerSecond, long allocatedBytesPerRequest, int connections) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+            this.connections = connections;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.0f req/s, %d B/req, %d connections",
+                    requestsPerSecond, allocatedBytesPerRequest, connections);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        // Tắt Nagle ở phía server, nếu không phản hồi trên kết nối được dùng lại bị trễ ~40ms vì delayed ACK
+        server.setServerSocketFactory(new ServerSocketFactory() {
+            @Override
+            public ServerSocket createServerSocket() throws IOException {
+                return new ServerSocket() {
+                    @Override
+                    public Socket accept() throws IOException {
+                        Socket socket = super.accept();
+                        socket.setTcpNoDelay(true);
+                        return socket;
+                    }
+                };
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog, InetAddress address) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(BODY);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void sharedClientReusesWarmConnectionAndAllocatesLess() throws Exception {
+        // Bỏ interceptor ghi log của bản debug để đo đúng chi phí của bản release; pool và dispatcher vẫn dùng chung
+        OkHttpClient.Builder sharedBuilder = HttpClientProvider.getIns().newBuilder();
+        sharedBuilder.interceptors().clear();
+        OkHttpClient shared = sharedBuilder.build();
+
+        Result sharedResult = run(() -> shared);
+        Result perRequestResult = run(() -> new OkHttpClient.Builder().build());
+
+        System.out.println("Shared client:          " + sharedResult);
+        System.out.println("New client per request: " + perRequestResult);
+
+        // Kết nối được mở trong lúc khởi động, mọi yêu cầu được đo đều dùng lại nó
+        assertEquals(0, sharedResult.connections);
+        assertEquals(REQUESTS, perRequestResult.connections);
+        assertTrue(sharedResult.allocatedBytesPerRequest < perRequestResult.allocatedBytesPerRequest);
+    }
+
+    private Result run(Supplier<OkHttpClient> clients) throws Exception {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            get(clients.get());
+        }
+        takeRecordedRequests(WARMUP_REQUESTS);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            get(clients.get());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(REQUESTS * 1e9 / elapsedNanos, allocated / REQUESTS, takeRecordedRequests(REQUESTS));
+    }
+
+    private void get(OkHttpClient client) throws Exception {
+        Request request = new Request.Builder().url(server.url("/api/v1/users/get-user")).build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(BODY.length(), response.body().string().length());
+        }
+        if (client.connectionPool() != HttpClientProvider.getIns().connectionPool()) {
+            // Client tạo riêng cho một yêu cầu không được dùng lại, đóng kết nối của nó như khi bị thu gom
+            client.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Lấy count yêu cầu đã ghi nhận của MockWebServer, trả về số kết nối mới đã mở cho các yêu cầu đó.
+     */
+    private int takeRecordedRequests(int count) throws InterruptedException {
+        int connections = 0;
+        for (int i = 0; i < count; i++) {
+            if (server.takeRequest().getSequenceNumber() == 0) {
+                connections++;
+            }
+        }
+        return connections;
+    }
+}
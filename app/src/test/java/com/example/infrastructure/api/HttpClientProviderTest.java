@@ -0,0 +1,63 @@
+package com.example.infrastructure.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpClientProviderTest {
+    private static final String SERVER_KEY = "key=AAAA-secret-server-key";
+    private static final String SESSION = "session=secret-session";
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void loggingInterceptorRedactsCredentials() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Set-Cookie", SESSION).setBody("{}"));
+        List<String> lines = new ArrayList<>();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(HttpClientProvider.createLoggingInterceptor(lines::add))
+                .build();
+
+        Request request = new Request.Builder()
+                .url(server.url("/fcm/send"))
+                .header("Authorization", SERVER_KEY)
+                .header("Cookie", SESSION)
+                .header("Content-Type", "application/json")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+        }
+
+        String log = String.join("\n", lines);
+        assertFalse(log.contains(SERVER_KEY));
+        assertFalse(log.contains(SESSION));
+        assertTrue(log.contains("Authorization: ██"));
+        assertTrue(log.contains("Cookie: ██"));
+        assertTrue(log.contains("Set-Cookie: ██"));
+        assertTrue(log.contains("Content-Type: application/json"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.user.repository;
+
+import com.example.user.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Kiểm tra CachingUserRepos dùng chung yêu cầu đang chạy và không lưu đệm kết quả cũ sau invalidate.
+ * Bộ đệm là static nên mỗi kiểm thử dùng uid riêng.
+ */
+public class CachingUserReposTest {
+
+    /**
+     * UserRepos giả, mỗi lời gọi getUserByUid trả về một future do kiểm thử hoàn tất.
+     */
+    private static class FakeUserRepos implements UserRepos {
+        final List<CompletableFuture<User>> requests = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<User> getUserByUid(String uid) {
+            CompletableFuture<User> request = new CompletableFuture<>();
+            requests.add(request);
+            return request;
+        }
+
+        @Override
+        public CompletableFuture<Void> addUser(User user) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updatePhoneNumber(String uid, String phoneNumber) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateBasicUser(String uid, User user) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> checkUserExistsByEmail(String email) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> existsByPhoneNumber(String phoneNumber) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    @Test
+    public void concurrentLookupsShareOneRequestAndCacheResult() throws Exception {
+        FakeUserRepos backend = new FakeUserRepos();
+        CachingUserRepos repos = new CachingUserRepos(backend);
+
+        CompletableFuture<User> first = repos.getUserByUid("uid_shared");
+        CompletableFuture<User> second = repos.getUserByUid("uid_shared");
+        assertEquals(1, backend.requests.size());
+
+        backend.requests.get(0).complete(user("uid_shared", "Old Name"));
+        assertEquals("Old Name", first.get().getFullName());
+        assertNotSame(first.get(), second.get());
+
+        assertEquals("Old Name", repos.getUserByUid("uid_shared").get().getFullName());
+        assertEquals(1, backend.requests.size());
+    }
+
+    @Test
+    public void responseStartedBeforeUpdateIsNotCached() throws Exception {
+        FakeUserRepos backend = new FakeUserRepos();
+        CachingUserRepos repos = new CachingUserRepos(backend);
+
+        // Yêu cầu đọc được gửi trước, phản hồi (dữ liệu cũ) đến sau khi cập nhật đã xong
+        CompletableFuture<User> stale = repos.getUserByUid("uid_update");
+        repos.updateBasicUser("uid_update", user("uid_update", "New Name")).get();
+
+        // Sau invalidate không dùng chung yêu cầu cũ nữa
+        CompletableFuture<User> fresh = repos.getUserByUid("uid_update");
+        assertEquals(2, backend.requests.size());
+
+        backend.requests.get(0).complete(user("uid_update", "Old Name"));
+        assertEquals("Old Name", stale.get().getFullName());
+        backend.requests.get(1).complete(user("uid_update", "New Name"));
+        assertEquals("New Name", fresh.get().getFullName());
+
+        assertEquals("New Name", repos.getUserByUid("uid_update").get().getFullName());
+        assertEquals(2, backend.requests.size());
+    }
+
+    @Test
+    public void staleResponseArrivingAfterFreshOneDoesNotOverwriteCache() throws Exception {
+        FakeUserRepos backend = new FakeUserRepos();
+        CachingUserRepos repos = new CachingUserRepos(backend);
+
+        repos.getUserByUid("uid_order");
+        CachingUserRepos.invalidate("uid_order");
+        repos.getUserByUid("uid_order");
+
+        backend.requests.get(1).complete(user("uid_order", "New Name"));
+        backend.requests.get(0).complete(user("uid_order", "Old Name"));
+
+        assertEquals("New Name", repos.getUserByUid("uid_order").get().getFullName());
+        assertEquals(2, backend.requests.size());
+    }
+
+    private static User user(String id, String fullName) {
+        User user = new User(id, id + "@example.com");
+        user.setFullName(fullName);
+        return user;
+    }
+}
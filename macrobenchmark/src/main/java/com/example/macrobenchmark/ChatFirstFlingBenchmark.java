@@ -0,0 +1,103 @@
+package com.example.macrobenchmark;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Đo frame timing của lần fling đầu tiên trong một ChatActivity vừa mở (tiến trình khởi động lạnh,
+ * RecycledViewPool dùng chung còn trống), có và không inflate trước view của ChatViewPool.
+ *
+ * Thiết bị phải đã đăng nhập, và cuộc trò chuyện cần đủ tin nhắn để cuộn, truyền qua tham số instrumentation:
+ * ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+ *     -Pandroid.testInstrumentationRunnerArguments.senderId=...
+ *     -Pandroid.testInstrumentationRunnerArguments.recipientId=...
+ */
+@RunWith(Parameterized.class)
+public class ChatFirstFlingBenchmark {
+    private static final String TARGET_PACKAGE = "com.example";
+    private static final String CHAT_ACTIVITY = TARGET_PACKAGE + ".chat.ChatActivity";
+    // Trùng với các khóa trong com.example.chat.Utils
+    private static final String KEY_SENDER_ID = "senderId";
+    private static final String KEY_RECIPIENT_ID = "recipientId";
+    private static final String KEY_PREWARM_VIEWS = "prewarmViews";
+    private static final int ITERATIONS = 10;
+    private static final long LOAD_TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final boolean prewarm;
+
+    public ChatFirstFlingBenchmark(boolean prewarm) {
+        this.prewarm = prewarm;
+    }
+
+    @Parameterized.Parameters(name = "prewarm={0}")
+    public static List<Boolean> prewarmModes() {
+        return Arrays.asList(true, false);
+    }
+
+    @Test
+    public void firstFling() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String senderId = arguments.getString(KEY_SENDER_ID);
+        String recipientId = arguments.getString(KEY_RECIPIENT_ID);
+        assumeTrue("Cần tham số senderId và recipientId", senderId != null && recipientId != null);
+
+        benchmarkRule.measureRepeated(
+                TARGET_PACKAGE,
+                Collections.singletonList(new FrameTimingMetric()),
+                CompilationMode.DEFAULT,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    Intent intent = new Intent();
+                    intent.setClassName(TARGET_PACKAGE, CHAT_ACTIVITY);
+                    intent.putExtra(KEY_SENDER_ID, senderId);
+                    intent.putExtra(KEY_RECIPIENT_ID, recipientId);
+                    intent.putExtra(KEY_PREWARM_VIEWS, prewarm);
+                    scope.startActivityAndWait(intent);
+                    // Chờ trang tin nhắn đầu tiên hiển thị
+                    UiDevice device = scope.getDevice();
+                    device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "chatRecyclerView").hasChild(By.pkg(TARGET_PACKAGE))), LOAD_TIMEOUT_MILLIS);
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    UiObject2 messages = device.findObject(By.res(TARGET_PACKAGE, "chatRecyclerView"));
+                    assertNotNull("Không tìm thấy danh sách tin nhắn", messages);
+                    // Tránh vuốt từ mép màn hình (mở thanh điều hướng)
+                    messages.setGestureMargin(device.getDisplayWidth() / 5);
+                    // Cuộn lên phía tin nhắn cũ hơn
+                    messages.fling(Direction.UP);
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}